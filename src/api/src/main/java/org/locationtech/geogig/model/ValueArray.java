@@ -9,17 +9,27 @@
  */
 package org.locationtech.geogig.model;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.WKBWriter;
 
 /**
  * A {@code ValueArray} is an immutable data structure that contains a sequence of attribute value
  * instances of a GIS feature.
+ * <p>
+ * Besides the object accessors, the primitive accessors {@link #isNull(int)},
+ * {@link #getDouble(int)}, {@link #getLong(int)}, {@link #getEnvelope(int)}, and
+ * {@link #getGeometryWKB(int)} allow to inspect a value without materializing it. The default
+ * implementations go through {@link #get(int)}, implementations backed by a serialized
+ * representation are encouraged to override them to read straight from it, so that, for example,
+ * a filter can reject a feature without decoding its geometries or boxing its numeric values.
  * 
  * @since 1.4
  */
@@ -46,6 +56,97 @@ public interface ValueArray extends Iterable<Object> {
      */
     public void forEach(final Consumer<Object> consumer);
 
+    /**
+     * @return {@code true} if the value at the provided {@code index} is {@code null}
+     */
+    public default boolean isNull(final int index) {
+        return !get(index).isPresent();
+    }
+
+    /**
+     * @return the numeric value at the provided {@code index} as a {@code double}
+     * @throws IllegalStateException if the value is {@code null}
+     * @throws IllegalArgumentException if the value is not a {@link Number}
+     */
+    public default double getDouble(final int index) {
+        return requireNumber(index, get(index).orElse(null)).doubleValue();
+    }
+
+    /**
+     * @return the numeric value at the provided {@code index} as a {@code long}, truncating
+     *         floating point values as per {@link Number#longValue()}
+     * @throws IllegalStateException if the value is {@code null}
+     * @throws IllegalArgumentException if the value is not a {@link Number}
+     */
+    public default long getLong(final int index) {
+        return requireNumber(index, get(index).orElse(null)).longValue();
+    }
+
+    /**
+     * @return the bounds of the {@link Geometry} or {@link Envelope} value at the provided
+     *         {@code index}, or {@code null} if the value is {@code null}
+     * @throws IllegalArgumentException if the value is neither a {@code Geometry} nor an
+     *         {@code Envelope}
+     */
+    public default @Nullable Envelope getEnvelope(final int index) {
+        return envelopeOf(get(index).orElse(null));
+    }
+
+    /**
+     * @return a read only view of the {@link Geometry} value at the provided {@code index} in
+     *         <a href="https://en.wikipedia.org/wiki/Well-known_text#Well-known_binary">WKB</a>
+     *         format, or {@link Optional#empty() absent} if the value is {@code null}
+     * @throws IllegalArgumentException if the value is not a {@code Geometry}
+     */
+    public default Optional<ByteBuffer> getGeometryWKB(final int index) {
+        Object value = get(index).orElse(null);
+        if (value == null) {
+            return Optional.empty();
+        }
+        if (!(value instanceof Geometry)) {
+            throw new IllegalArgumentException(String.format(
+                    "Value at index %d is not a geometry: %s", index, value.getClass().getName()));
+        }
+        byte[] wkb = new WKBWriter().write((Geometry) value);
+        return Optional.of(ByteBuffer.wrap(wkb).asReadOnlyBuffer());
+    }
+
+    /**
+     * @return a copy of the bounds of {@code value}, or {@code null} if {@code value} is
+     *         {@code null}
+     * @throws IllegalArgumentException if {@code value} is neither a {@link Geometry} nor an
+     *         {@link Envelope}
+     */
+    public static @Nullable Envelope envelopeOf(@Nullable Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Geometry) {
+            return new Envelope(((Geometry) value).getEnvelopeInternal());
+        }
+        if (value instanceof Envelope) {
+            return new Envelope((Envelope) value);
+        }
+        throw new IllegalArgumentException(String.format(
+                "Value is neither a geometry nor an envelope: %s", value.getClass().getName()));
+    }
+
+    /**
+     * @return {@code value} as a {@link Number}
+     * @throws IllegalStateException if {@code value} is {@code null}
+     * @throws IllegalArgumentException if {@code value} is not a {@code Number}
+     */
+    public static Number requireNumber(int index, @Nullable Object value) {
+        if (value == null) {
+            throw new IllegalStateException(String.format("Value at index %d is null", index));
+        }
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(String.format(
+                    "Value at index %d is not numeric: %s", index, value.getClass().getName()));
+        }
+        return (Number) value;
+    }
+
     public static @Nullable Object safeCopy(@Nullable Object value) {
         if (value == null) {
             return null;
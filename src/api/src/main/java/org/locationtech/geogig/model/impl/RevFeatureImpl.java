@@ -18,6 +18,7 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevObjects;
 import org.locationtech.geogig.model.ValueArray;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 
@@ -74,6 +75,22 @@ class RevFeatureImpl extends AbstractRevObject implements RevFeature {
         }
     }
 
+    public @Override boolean isNull(int index) {
+        return values[index] == null;
+    }
+
+    public @Override double getDouble(int index) {
+        return ValueArray.requireNumber(index, values[index]).doubleValue();
+    }
+
+    public @Override long getLong(int index) {
+        return ValueArray.requireNumber(index, values[index]).longValue();
+    }
+
+    public @Override Envelope getEnvelope(int index) {
+        return ValueArray.envelopeOf(values[index]);
+    }
+
     public @Override TYPE getType() {
         return TYPE.FEATURE;
     }
@@ -15,6 +15,7 @@ import java.util.function.Consumer;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObjects;
 import org.locationtech.geogig.model.ValueArray;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 
@@ -59,6 +60,22 @@ class ValueArrayImpl implements ValueArray {
         }
     }
 
+    public @Override boolean isNull(int index) {
+        return values[index] == null;
+    }
+
+    public @Override double getDouble(int index) {
+        return ValueArray.requireNumber(index, values[index]).doubleValue();
+    }
+
+    public @Override long getLong(int index) {
+        return ValueArray.requireNumber(index, values[index]).longValue();
+    }
+
+    public @Override Envelope getEnvelope(int index) {
+        return ValueArray.envelopeOf(values[index]);
+    }
+
     public @Override String toString() {
         return RevObjects.toString(this);
     }
@@ -13,16 +13,17 @@ import static com.google.common.base.Preconditions.checkState;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.CanonicalNodeNameOrder;
@@ -37,12 +38,20 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.Striped;
 
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Base class for strategy objects that define the internal structure of a {@link RevTree}.
+ * <p>
+ * {@link #put(Node)}, {@link #remove(Node)}, and {@link #update(Node, Node)} are safe to be called
+ * concurrently by multiple producer threads. Once the root {@link DAG} has been split into buckets,
+ * each insert only locks the first level bucket it falls into (lock striping by {@link TreeId}),
+ * so nodes landing on different root buckets are inserted in parallel. Structural changes to the
+ * root DAG itself (promoting its children to buckets or collapsing its buckets back to a leaf)
+ * still take an exclusive lock.
  * 
  * @apiNote instances of this class might hold references to temporary resources that need to be
  *          cleaned up after usage, hence the use of the {@link #dispose()} method is mandatory. In
@@ -209,7 +218,21 @@ public abstract class ClusteringStrategy extends NodeOrdering {
         return 0;
     }
 
-    private Lock writeLock = new ReentrantLock();
+    /**
+     * Number of lock stripes used to guard concurrent inserts on the root DAG buckets. The root DAG
+     * has at most 256 buckets for a canonical tree and 5 for a quad-tree.
+     */
+    private static final int BUCKET_LOCK_STRIPES = 256;
+
+    /**
+     * Guards the structure of the root DAG. Inserts into an existing root bucket acquire the read
+     * lock plus the bucket's stripe lock, while changes that affect the root DAG structure (it being
+     * a leaf DAG, or having to collapse its buckets) and pruning the {@link DAGCache} acquire the
+     * write lock.
+     */
+    private final ReadWriteLock structureLock = new ReentrantReadWriteLock();
+
+    private final Striped<Lock> bucketLocks = Striped.lock(BUCKET_LOCK_STRIPES);
 
     /**
      * @param
@@ -226,18 +249,100 @@ public abstract class ClusteringStrategy extends NodeOrdering {
         // feature in a spatial index)
 
         boolean remove = node.getObjectId().isNull();
-        int delta;
+        if (!remove) {
+            // save the node before it's reachable from the DAG, another thread may be already
+            // building
+            storageProvider.saveNode(nodeId, node);
+        }
+        @Nullable
+        Integer delta = putIntoRootBucket(nodeId, remove);
+        if (delta == null) {
+            delta = putExclusive(nodeId, remove);
+        } else if ((delta.intValue() < 0 && rootMayUnderflow()) || dagCache.needsPrune()) {
+            pruneAndShrinkRoot();
+        }
+        return delta.intValue();
+    }
+
+    /**
+     * Fast path for {@link #put(Node)}: if the root DAG is already split into buckets, inserts (or
+     * removes) the node on its first level bucket holding only that bucket's lock.
+     * 
+     * @return the size delta, or {@code null} if the root DAG is a leaf and hence the operation
+     *         needs to be performed with the exclusive lock held
+     */
+    private @Nullable Integer putIntoRootBucket(final NodeId nodeId, final boolean remove) {
+        final Lock readLock = structureLock.readLock();
+        readLock.lock();
+        try {
+            synchronized (root) {
+                if (root.numBuckets() == 0) {
+                    return null;
+                }
+            }
+            final TreeId bucketId = computeBucketId(nodeId, 1);
+            final Lock bucketLock = bucketLocks.get(bucketId);
+            bucketLock.lock();
+            try {
+                final DAG bucketDAG = getOrCreateDAG(bucketId);
+                synchronized (root) {
+                    root.addBucket(bucketId);
+                }
+                final int deltaSize = put(bucketDAG, nodeId, remove);
+                final boolean changed = deltaSize != 0 || bucketDAG.getState() == STATE.CHANGED;
+                synchronized (root) {
+                    if (bucketDAG.getTotalChildCount() == 0) {
+                        root.removeBucket(bucketId);
+                    }
+                    if (deltaSize != 0) {
+                        root.setTotalChildCount(root.getTotalChildCount() + deltaSize);
+                    }
+                    if (changed) {
+                        root.setChanged();
+                    }
+                }
+                return Integer.valueOf(deltaSize);
+            } finally {
+                bucketLock.unlock();
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private boolean rootMayUnderflow() {
+        synchronized (root) {
+            return root.numBuckets() > 0
+                    && root.getTotalChildCount() <= normalizedSizeLimit(ROOT_ID.depthLength());
+        }
+    }
+
+    private int putExclusive(final NodeId nodeId, final boolean remove) {
+        final Lock writeLock = structureLock.writeLock();
         writeLock.lock();
         try {
-            delta = put(root, nodeId, remove);
+            int delta = put(root, nodeId, remove);
             dagCache.prune();
+            return delta;
         } finally {
             writeLock.unlock();
         }
-        if (!remove) {
-            storageProvider.saveNode(nodeId, node);
+    }
+
+    /**
+     * Called after a node was removed through the concurrent path, or the DAG cache has grown
+     * enough to be pruned, performs the operations that need exclusive access to the whole DAG
+     * structure.
+     */
+    private void pruneAndShrinkRoot() {
+        final Lock writeLock = structureLock.writeLock();
+        writeLock.lock();
+        try {
+            shrinkIfUnderflow(root);
+            dagCache.prune();
+        } finally {
+            writeLock.unlock();
         }
-        return delta;
     }
 
     public DAG buildRoot() {
@@ -491,12 +596,14 @@ public abstract class ClusteringStrategy extends NodeOrdering {
 
     @VisibleForTesting
     class DAGCache {
+        private static final int PRUNE_THRESHOLD = 10_000;
+
         private DAGStorageProvider store;
 
         @VisibleForTesting
-        final Map<TreeId, DAG> treeBuff = new HashMap<>();
+        final Map<TreeId, DAG> treeBuff = new ConcurrentHashMap<>();
 
-        private Set<TreeId> dirty = new HashSet<>();
+        private Set<TreeId> dirty = ConcurrentHashMap.newKeySet();
 
         DAGCache(DAGStorageProvider store) {
             this.store = store;
@@ -550,9 +657,16 @@ public abstract class ClusteringStrategy extends NodeOrdering {
             }
         }
 
+        boolean needsPrune() {
+            return dirty.size() >= PRUNE_THRESHOLD;
+        }
+
+        /**
+         * Returns dirty DAGs to the underlying store, must be called while holding exclusive
+         * access to the DAG structure
+         */
         public void prune() {
-            final int dirtySize = dirty.size();
-            if (dirtySize < 10_000) {
+            if (!needsPrune()) {
                 return;
             }
 
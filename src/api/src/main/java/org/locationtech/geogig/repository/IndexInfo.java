@@ -19,6 +19,7 @@ import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
@@ -46,6 +47,19 @@ public @ToString final class IndexInfo {
      */
     public static final String FEATURE_ATTRIBUTES_EXTRA_DATA = "@attributes";
 
+    /**
+     * Key by which the distance tolerances at which the indexed geometries are pre-simplified are
+     * stored in the index {@link #getMetadata() metadata} as a {@code double[]} in ascending order.
+     */
+    public static final String MD_SIMPLIFICATION_TOLERANCES = "SIMPLIFICATION_TOLERANCES";
+
+    /**
+     * Key by which the indexed geometry simplified at each of the
+     * {@link #MD_SIMPLIFICATION_TOLERANCES tolerances} is stored on {@link Node#getExtraData()},
+     * as a map keyed by the {@link #simplificationLevelKey(double) level key}
+     */
+    public static final String SIMPLIFIED_GEOMETRIES_EXTRA_DATA = "@simplified";
+
     private final ObjectId indexId;
 
     private final String treeName;
@@ -161,6 +175,31 @@ public @ToString final class IndexInfo {
         return o;
     }
 
+    /**
+     * @return the index's geometry simplification tolerances in ascending order, or an empty array
+     *         if it doesn't store simplified geometries
+     */
+    public static double[] getSimplificationTolerances(IndexInfo info) {
+        double[] tolerances = (double[]) info.getMetadata()
+                .get(IndexInfo.MD_SIMPLIFICATION_TOLERANCES);
+        return tolerances == null ? new double[0] : tolerances.clone();
+    }
+
+    /**
+     * @return the key under which the geometry simplified at the given tolerance is stored in the
+     *         {@link #SIMPLIFIED_GEOMETRIES_EXTRA_DATA} map
+     */
+    public static String simplificationLevelKey(double tolerance) {
+        return Double.toString(tolerance);
+    }
+
+    public static @Nullable Geometry getSimplifiedGeometry(Node n, double tolerance) {
+        Object v = n.getExtraData(IndexInfo.SIMPLIFIED_GEOMETRIES_EXTRA_DATA);
+        Preconditions.checkArgument(v == null || v instanceof Map);
+        return v == null ? null
+                : (Geometry) ((Map<?, ?>) v).get(simplificationLevelKey(tolerance));
+    }
+
     public static @Nullable Envelope getMaxBounds(IndexInfo info) {
         Envelope maxBounds = (Envelope) info.getMetadata().get(IndexInfo.MD_QUAD_MAX_BOUNDS);
         return maxBounds;
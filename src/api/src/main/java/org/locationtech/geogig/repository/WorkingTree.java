@@ -12,6 +12,7 @@ package org.locationtech.geogig.repository;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.feature.FeatureType;
@@ -25,6 +26,8 @@ import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.storage.AutoCloseableIterator;
 
+import com.google.common.collect.Iterators;
+
 /**
  * Provides an interface for a working tree of a GeoGig repository.
  * <p>
@@ -140,6 +143,31 @@ public interface WorkingTree {
      */
     ObjectId insert(Iterator<FeatureInfo> featureInfos, ProgressListener progress);
 
+    /**
+     * Inserts the features resulting of applying {@code adapter} to each of the {@code source}
+     * objects, same as {@link #insert(Iterator, ProgressListener)} but letting the implementation
+     * adapt the objects, save the features, and update the feature trees concurrently.
+     * <p>
+     * Meant for bulk imports, where converting the source objects to {@link RevFeature}s is a
+     * significant part of the work. Changes to the same feature path are applied in source order,
+     * so if {@code source} contains a path more than once the last one wins.
+     * <p>
+     * The default implementation adapts the objects sequentially and delegates to
+     * {@link #insert(Iterator, ProgressListener)}.
+     * 
+     * @param source the objects to import, consumed by a single thread
+     * @param adapter converts each source object to the {@link FeatureInfo} to insert, may be
+     *        called concurrently, so the source objects shall not depend on the state of
+     *        {@code source} once returned by it
+     * @param progress the progress listener where to report progress and to check whether the
+     *        operation should be aborted.
+     * @return the new {@link ObjectId} for the root tree in the {@link Ref#WORK_HEAD working tree}
+     */
+    default <T> ObjectId insert(Iterator<T> source, Function<? super T, FeatureInfo> adapter,
+            ProgressListener progress) {
+        return insert(Iterators.transform(source, adapter::apply), progress);
+    }
+
     /**
      * Determines if a feature tree exists at {@code treePath} in the current working tree.
      * 
@@ -9,12 +9,22 @@
  */
 package org.locationtech.geogig.storage;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 
 import org.locationtech.geogig.model.ObjectId;
 
 import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
 
 /**
  * Provides an interface for implementations of a graph database, which keeps track of the
@@ -187,6 +197,52 @@ public interface GraphDatabase extends Store {
      */
     public int getDepth(final ObjectId commitId);
 
+    /**
+     * Collects the commits reachable from the given ones, walking the graph breadth first.
+     * <p>
+     * The default implementation walks the graph through {@link #getParents(ObjectId)}, subclasses
+     * are encouraged to override it if they can resolve the whole query at once.
+     * 
+     * @param commitIds the commits to start from, included in the result
+     * @param limit the maximum number of commits to return
+     * @return the ids of the ancestor commits, closest first and without duplicates
+     */
+    public default List<ObjectId> getAncestors(@NonNull Collection<ObjectId> commitIds,
+            int limit) {
+        Preconditions.checkArgument(limit >= 0, "limit must be >= 0: %s", limit);
+        final Set<ObjectId> visited = new HashSet<>();
+        final List<ObjectId> ancestors = new ArrayList<>();
+        final Queue<ObjectId> queue = new ArrayDeque<>(commitIds);
+        while (!queue.isEmpty() && ancestors.size() < limit) {
+            ObjectId id = queue.poll();
+            if (visited.add(id)) {
+                ancestors.add(id);
+                queue.addAll(getParents(id));
+            }
+        }
+        return ancestors;
+    }
+
+    /**
+     * Finds the best common ancestor of two commits, that is, a commit reachable from both that is
+     * not an ancestor of any other commit reachable from both.
+     * <p>
+     * If there are several best common ancestors (e.g. after criss-cross merges), the lowest one
+     * as per {@link ObjectId#compareTo(ObjectId)} is returned, so that all implementations agree.
+     * <p>
+     * The default implementation walks both histories at once through
+     * {@link #getParents(ObjectId)}, stopping as soon as the remaining commits can only lead to
+     * ancestors of the common ancestors already found. Subclasses are encouraged to override it if
+     * they can resolve the whole query at once.
+     * 
+     * @return the lowest common ancestor, or {@link Optional#empty()} if the commits have no common
+     *         history
+     */
+    public default Optional<ObjectId> findLowestCommonAncestor(@NonNull ObjectId left,
+            @NonNull ObjectId right) {
+        return MergeBaseWalk.find(this, left, right);
+    }
+
     /**
      * Set a property on the provided commit node.
      * 
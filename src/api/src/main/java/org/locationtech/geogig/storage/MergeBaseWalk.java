@@ -0,0 +1,174 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.locationtech.geogig.model.ObjectId;
+
+/**
+ * Default {@link GraphDatabase#findLowestCommonAncestor(ObjectId, ObjectId)} algorithm, walking
+ * both histories at once through {@link GraphDatabase#getParents(ObjectId)}.
+ * <p>
+ * Each commit is painted with the sides it's reachable from. A commit reachable from both sides is
+ * a common ancestor, and its ancestors are marked stale, eagerly for the ones already visited. The
+ * walk stops as soon as all the queued commits are stale, since they can only lead to common
+ * ancestors that aren't the best ones, so it only visits the commits between the two tips and
+ * their merge base instead of their whole history.
+ */
+final class MergeBaseWalk {
+
+    private static final int LEFT = 1;
+
+    private static final int RIGHT = 2;
+
+    private static final int STALE = 4;
+
+    private static final int RESULT = 8;
+
+    private final GraphDatabase graph;
+
+    private final Map<ObjectId, Integer> flags = new HashMap<>();
+
+    private final Map<ObjectId, List<ObjectId>> parents = new HashMap<>();
+
+    private final Deque<ObjectId> queue = new ArrayDeque<>();
+
+    private final Set<ObjectId> queued = new HashSet<>();
+
+    private final List<ObjectId> results = new ArrayList<>();
+
+    private int nonStale;
+
+    private MergeBaseWalk(GraphDatabase graph) {
+        this.graph = graph;
+    }
+
+    static Optional<ObjectId> find(GraphDatabase graph, ObjectId left, ObjectId right) {
+        if (left.equals(right)) {
+            return Optional.of(left);
+        }
+        List<ObjectId> bases = new MergeBaseWalk(graph).paint(left,
+                Collections.singleton(right));
+        if (bases.size() > 1) {
+            bases = removeRedundant(graph, bases);
+        }
+        return bases.stream().min(Comparator.naturalOrder());
+    }
+
+    /**
+     * Discards the common ancestors reachable from any of the others, walking from each one
+     * against the rest, as a common ancestor is redundant if it's reached from the other side
+     */
+    private static List<ObjectId> removeRedundant(GraphDatabase graph, List<ObjectId> bases) {
+        List<ObjectId> best = new ArrayList<>(bases.size());
+        for (ObjectId base : bases) {
+            Set<ObjectId> others = new HashSet<>(bases);
+            others.remove(base);
+            MergeBaseWalk walk = new MergeBaseWalk(graph);
+            walk.paint(base, others);
+            if ((walk.flags.get(base) & RIGHT) == 0) {
+                best.add(base);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the common ancestors of {@code left} and any of {@code right} that were not found
+     *         to be ancestors of another common ancestor
+     */
+    private List<ObjectId> paint(ObjectId left, Collection<ObjectId> right) {
+        mark(left, LEFT);
+        right.forEach(id -> mark(id, RIGHT));
+        while (nonStale > 0) {
+            final ObjectId id = queue.poll();
+            queued.remove(id);
+            int current = flags.get(id);
+            if ((current & STALE) == 0) {
+                nonStale--;
+            }
+            int propagate = current & (LEFT | RIGHT | STALE);
+            if ((propagate & (LEFT | RIGHT)) == (LEFT | RIGHT)) {
+                if ((current & (STALE | RESULT)) == 0) {
+                    flags.put(id, current | RESULT);
+                    results.add(id);
+                    markAncestorsStale(id);
+                }
+                propagate |= STALE;
+            }
+            for (ObjectId parent : parents(id)) {
+                mark(parent, propagate);
+            }
+        }
+        return results.stream().filter(id -> (flags.get(id) & STALE) == 0)
+                .collect(Collectors.toList());
+    }
+
+    private List<ObjectId> parents(ObjectId id) {
+        return parents.computeIfAbsent(id, graph::getParents);
+    }
+
+    /**
+     * Adds the given flags to the commit, queuing it if any of them is new
+     */
+    private void mark(ObjectId id, int add) {
+        final int current = flags.getOrDefault(id, 0);
+        final int updated = current | add;
+        if (updated == current) {
+            return;
+        }
+        flags.put(id, updated);
+        final boolean becameStale = (current & STALE) == 0 && (updated & STALE) != 0;
+        if (queued.contains(id)) {
+            if (becameStale) {
+                nonStale--;
+            }
+        } else {
+            queue.add(id);
+            queued.add(id);
+            if ((updated & STALE) == 0) {
+                nonStale++;
+            }
+        }
+    }
+
+    /**
+     * Marks stale the already visited ancestors of a common ancestor, so that the walk doesn't
+     * keep going down their history waiting for the stale flag to catch up with them
+     */
+    private void markAncestorsStale(ObjectId commonAncestor) {
+        Deque<ObjectId> stack = new ArrayDeque<>(parents(commonAncestor));
+        while (!stack.isEmpty()) {
+            ObjectId id = stack.pop();
+            Integer current = flags.get(id);
+            if (current == null || (current & STALE) != 0) {
+                continue;
+            }
+            mark(id, STALE);
+            List<ObjectId> visitedParents = parents.get(id);
+            if (visitedParents != null) {
+                visitedParents.forEach(stack::push);
+            }
+        }
+    }
+}
@@ -9,13 +9,17 @@
  */
 package org.locationtech.geogig.storage;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeoutException;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 
+import com.google.common.collect.Iterables;
+
 import lombok.NonNull;
 
 /**
@@ -105,4 +109,44 @@ public interface RefDatabase extends Store {
      * @return the references removed, may be empty.
      */
     public List<Ref> deleteAll(@NonNull String namespace);
+
+    /**
+     * Atomically updates and deletes the given refs, only if the current value of every ref in
+     * {@code expected} is still the expected one.
+     * <p>
+     * This allows to compute ref updates against a snapshot of the refs without holding the
+     * {@link #lock() lock}, and publish them optimistically, retrying if another writer changed any
+     * of the refs in between. The default implementation checks and applies the changes while
+     * holding the lock, which is only held for the duration of this call.
+     * 
+     * @param expected the expected current value of each ref to check, {@link Optional#empty()
+     *        empty} if the ref is expected not to exist
+     * @param updates the refs to add or update
+     * @param deletes the names of the refs to delete
+     * @return the applied changes, or empty if any of the {@code expected} refs has a different
+     *         value, in which case no change is applied
+     * @throws TimeoutException if the lock couldn't be acquired
+     */
+    public default Optional<List<RefChange>> compareAndSet(
+            @NonNull Map<String, Optional<Ref>> expected, @NonNull Iterable<Ref> updates,
+            @NonNull Iterable<String> deletes) throws TimeoutException {
+        lock();
+        try {
+            for (Map.Entry<String, Optional<Ref>> e : expected.entrySet()) {
+                if (!e.getValue().equals(get(e.getKey()))) {
+                    return Optional.empty();
+                }
+            }
+            List<RefChange> changes = new ArrayList<>();
+            if (!Iterables.isEmpty(updates)) {
+                changes.addAll(putAll(updates));
+            }
+            if (!Iterables.isEmpty(deletes)) {
+                changes.addAll(delete(deletes));
+            }
+            return Optional.of(changes);
+        } finally {
+            unlock();
+        }
+    }
 }
@@ -14,12 +14,15 @@ import static java.util.Collections.emptyList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -48,6 +51,7 @@ import org.locationtech.geogig.model.impl.RevObjectFactoryImpl;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
 import org.locationtech.jts.io.WKTReader;
 import org.mockito.Mockito;
 
@@ -755,6 +759,48 @@ public abstract class RevObjectFactoryConformanceTest {
         testCreateFeature(id1, emptyList());
     }
 
+    public @Test final void createFeaturePrimitiveAccessors() throws ParseException {
+        List<Object> values = createValuesAllSupportedTypes();
+        testPrimitiveAccessors(factory.createFeature(id1, values));
+        testPrimitiveAccessors(factory.createValueArray(values));
+    }
+
+    private void testPrimitiveAccessors(ValueArray actual) throws ParseException {
+        for (int i = 0; i < actual.size(); i++) {
+            final int index = i;
+            final Object expected = actual.get(i).orElse(null);
+            assertEquals(expected == null, actual.isNull(i));
+            if (expected == null) {
+                assertThrows(IllegalStateException.class, () -> actual.getDouble(index));
+                assertThrows(IllegalStateException.class, () -> actual.getLong(index));
+                assertNull(actual.getEnvelope(i));
+                assertFalse(actual.getGeometryWKB(i).isPresent());
+                continue;
+            }
+            if (expected instanceof Number) {
+                assertEquals(((Number) expected).doubleValue(), actual.getDouble(i), 0d);
+                assertEquals(((Number) expected).longValue(), actual.getLong(i));
+            } else {
+                assertThrows(IllegalArgumentException.class, () -> actual.getDouble(index));
+                assertThrows(IllegalArgumentException.class, () -> actual.getLong(index));
+            }
+            if (expected instanceof Geometry) {
+                Geometry geom = (Geometry) expected;
+                assertEquals(geom.getEnvelopeInternal(), actual.getEnvelope(i));
+                ByteBuffer wkb = actual.getGeometryWKB(i).get();
+                byte[] bytes = new byte[wkb.remaining()];
+                wkb.get(bytes);
+                assertTrue(geom.equalsExact(new WKBReader().read(bytes)));
+            } else if (expected instanceof Envelope) {
+                assertEquals(expected, actual.getEnvelope(i));
+            } else {
+                assertThrows(IllegalArgumentException.class, () -> actual.getEnvelope(index));
+                assertThrows(IllegalArgumentException.class,
+                        () -> actual.getGeometryWKB(index));
+            }
+        }
+    }
+
     private Node featureNode(String name, ObjectId oid) {
         return createNode(name, oid, ObjectId.NULL, TYPE.FEATURE, null, null);
     }
@@ -0,0 +1,70 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Reports the insert throughput of {@link RevTreeBuilder#put(Node)} when fed by a varying number
+ * of producer threads, for both canonical and quad-tree builders.
+ * <p>
+ * Compare the results for the different values of the {@code threads} parameter to assess how
+ * insert throughput scales with the number of cores.
+ * <p>
+ * It needs to be run with a rather high Heap size (8GB recommended for 10M nodes)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = { Mode.SingleShotTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms2G", "-Xmx12G" })
+@Warmup(iterations = 1)
+@Measurement(iterations = 2)
+public class ConcurrentRevTreeBuilderBenchmark {
+
+    public @Benchmark void putNodes(Blackhole bh, ConcurrentRevTreeBuilderBenchmarkState state) {
+        RevTreeBuilder builder = state.put();
+        bh.consume(builder);
+        builder.dispose();
+    }
+
+    public @Benchmark void buildTree(Blackhole bh, ConcurrentRevTreeBuilderBenchmarkState state) {
+        RevTree tree = state.put().build();
+        bh.consume(tree);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()//
+                .include(ConcurrentRevTreeBuilderBenchmark.class.getSimpleName() + ".putNodes")//
+                .warmupIterations(1)//
+                .measurementIterations(3)//
+                .forks(0)//
+                .param("size", "10000000")//
+                .param("treeType", "canonical", "quadtree")//
+                .param("threads", "1", "2", "4", "8")//
+                .build();
+
+        new Runner(opt).run();
+    }
+}
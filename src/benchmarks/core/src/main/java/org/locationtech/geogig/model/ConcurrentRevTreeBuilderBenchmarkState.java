@@ -0,0 +1,104 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.model;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.impl.CanonicalTreeBuilder;
+import org.locationtech.geogig.model.impl.QuadTreeBuilder;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.jts.geom.Envelope;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.base.Throwables;
+
+@State(Scope.Benchmark)
+public class ConcurrentRevTreeBuilderBenchmarkState {
+
+    private static final Envelope MAX_BOUNDS = new Envelope(-180, 180, -90, 90);
+
+    @Param(value = { "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param(value = { "canonical", "quadtree" })
+    public String treeType;
+
+    @Param(value = { "1", "2", "4", "8" })
+    public int threads;
+
+    private ObjectStore store;
+
+    private ForkJoinPool producers;
+
+    private RevObjectFactory revObjectFactory;
+
+    public @Setup(Level.Trial) void setUp() {
+        revObjectFactory = RevObjectFactory.defaultInstance();
+        store = new HeapObjectStore();
+        store.open();
+        producers = new ForkJoinPool(threads);
+    }
+
+    public @TearDown(Level.Trial) void tearDown() {
+        producers.shutdownNow();
+        store.close();
+    }
+
+    /**
+     * Creates a new {@link RevTreeBuilder} and concurrently feeds it {@link #size} nodes using
+     * {@link #threads} producer threads
+     */
+    public RevTreeBuilder put() {
+        final RevTreeBuilder builder = newBuilder();
+        try {
+            producers.submit(() -> IntStream.range(0, size).parallel().mapToObj(this::createNode)
+                    .forEach(builder::put)).get();
+        } catch (InterruptedException e) {
+            builder.dispose();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            builder.dispose();
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+        return builder;
+    }
+
+    private RevTreeBuilder newBuilder() {
+        switch (treeType) {
+        case "canonical":
+            return CanonicalTreeBuilder.create(store);
+        case "quadtree":
+            return QuadTreeBuilder.create(store, store, RevTree.EMPTY, MAX_BOUNDS);
+        default:
+            throw new IllegalStateException("Unknown tree type: " + treeType);
+        }
+    }
+
+    private Node createNode(int i) {
+        String name = String.valueOf(i);
+        ObjectId id = ObjectId.create(0, 0, i);
+        // spread points deterministically over the whole max bounds
+        double x = -180 + (360d * ((i * 7919L) % size)) / size;
+        double y = -90 + (180d * ((i * 104729L) % size)) / size;
+        Envelope env = new Envelope(x, x, y, y);
+        return revObjectFactory.createNode(name, id, ObjectId.NULL, TYPE.FEATURE, env, null);
+    }
+}
@@ -16,15 +16,18 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.Bucket;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
+import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalkBenchmarkState.CachingObjectStore;
 import org.locationtech.geogig.repository.DiffObjectCount;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Timeout;
@@ -59,6 +62,32 @@ public class PreOrderDiffWalkBenchmark {
 
     }
 
+    /**
+     * Clears the shared object cache before each diff, so all the trees are fetched from the
+     * object store
+     */
+    @State(Scope.Benchmark)
+    public static class ColdCacheState {
+        public @Setup(Level.Invocation) void clearCache(PreOrderDiffWalkBenchmarkState state) {
+            state.cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Loads all the trees of both sides of the diff into the shared object cache before the
+     * measurements
+     */
+    @State(Scope.Benchmark)
+    public static class WarmCacheState {
+        public @Setup(Level.Trial) void warmUpCache(PreOrderDiffWalkBenchmarkState state) {
+            state.cache.invalidateAll();
+            CachingObjectStore left = new CachingObjectStore(state.leftSource, state.cache);
+            CachingObjectStore right = state.sameStore ? left
+                    : new CachingObjectStore(state.rightSource, state.cache);
+            testPreorderDiffWalkPerf(state, left, right);
+        }
+    }
+
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()//
                 .include(PreOrderDiffWalkBenchmark.class.getSimpleName())//
@@ -97,6 +126,30 @@ public class PreOrderDiffWalkBenchmark {
         bh.consume(testPreorderDiffWalkPerf(state));
     }
 
+    /**
+     * Wall-clock time of a diff with all the trees fetched from the object store
+     */
+    @BenchmarkMode(value = { Mode.SingleShotTime })
+    @Warmup(iterations = 1, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    public @Benchmark void ColdCache(Blackhole bh, PreOrderDiffWalkBenchmarkState state,
+            ColdCacheState cache) {
+        bh.consume(testPreorderDiffWalkPerf(state, state.leftSourceCached,
+                state.rightSourceCached));
+    }
+
+    /**
+     * Wall-clock time of a diff with all the trees served from the shared object cache
+     */
+    @BenchmarkMode(value = { Mode.SingleShotTime })
+    @Warmup(iterations = 1, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    public @Benchmark void WarmCache(Blackhole bh, PreOrderDiffWalkBenchmarkState state,
+            WarmCacheState cache) {
+        bh.consume(testPreorderDiffWalkPerf(state, state.leftSourceCached,
+                state.rightSourceCached));
+    }
+
     @Threads(2)
     public @Benchmark void Concurrency_2(Blackhole bh, PreOrderDiffWalkBenchmarkState state) {
         bh.consume(testPreorderDiffWalkPerf(state));
@@ -132,16 +185,23 @@ public class PreOrderDiffWalkBenchmark {
     }
 
     private DiffObjectCount testPreorderDiffWalkPerf(PreOrderDiffWalkBenchmarkState state) {
+        return testPreorderDiffWalkPerf(state, state.leftSourceWithLatency,
+                state.rightSourceWithLatency);
+    }
+
+    private static DiffObjectCount testPreorderDiffWalkPerf(PreOrderDiffWalkBenchmarkState state,
+            ObjectStore leftSource, ObjectStore rightSource) {
 
-        AcceptAllDiffCountConsumer diffCountConsumer = new AcceptAllDiffCountConsumer(
-                state.leftSourceWithLatency, state.rightSourceWithLatency);
+        AcceptAllDiffCountConsumer diffCountConsumer = new AcceptAllDiffCountConsumer(leftSource,
+                rightSource);
 
         PreOrderDiffWalk visitor = new PreOrderDiffWalk(//
                 state.left, //
                 state.right, //
-                state.leftSourceWithLatency, //
-                state.rightSourceWithLatency, //
+                leftSource, //
+                rightSource, //
                 state.forkJoinConcurrency);
+        visitor.prefetchDepth(state.prefetchDepth);
 
         visitor.walk(diffCountConsumer);
         return diffCountConsumer.get();
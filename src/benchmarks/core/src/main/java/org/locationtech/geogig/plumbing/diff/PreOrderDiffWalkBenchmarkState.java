@@ -9,7 +9,9 @@
  */
 package org.locationtech.geogig.plumbing.diff;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -26,6 +28,8 @@ import org.locationtech.geogig.model.impl.RevObjectTestSupport;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.BulkOpListener.CountingListener;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.cache.CacheManager;
+import org.locationtech.geogig.storage.cache.ObjectCache;
 import org.locationtech.geogig.storage.decorator.ForwardingObjectStore;
 import org.locationtech.geogig.storage.memory.HeapObjectStore;
 import org.openjdk.jmh.annotations.Level;
@@ -56,13 +60,21 @@ public class PreOrderDiffWalkBenchmarkState {
     @Param(value = { "true" })
     boolean sameStore;
 
+    @Param(value = { "0", "1", "2" })
+    int prefetchDepth;
+
     ObjectStore leftSource, rightSource;
 
     LatencyObjectStore leftSourceWithLatency, rightSourceWithLatency;
 
+    CachingObjectStore leftSourceCached, rightSourceCached;
+
+    ObjectCache cache;
+
     RevTree left, right;
 
     public @Setup(Level.Trial) void prepareData() throws InterruptedException, ExecutionException {
+        cache = CacheManager.INSTANCE.acquire(getClass().getName());
         leftSource = new HeapObjectStore();
         leftSource.open();
         if (sameStore) {
@@ -95,13 +107,17 @@ public class PreOrderDiffWalkBenchmarkState {
         if (sameStore) {
             rightSourceWithLatency = leftSourceWithLatency;
         } else {
-            leftSourceWithLatency = new LatencyObjectStore(rightSource, getAllLatency);
+            rightSourceWithLatency = new LatencyObjectStore(rightSource, getAllLatency);
         }
+        leftSourceCached = new CachingObjectStore(leftSourceWithLatency, cache);
+        rightSourceCached = sameStore ? leftSourceCached
+                : new CachingObjectStore(rightSourceWithLatency, cache);
     }
 
     public @TearDown void tearDown() {
         leftSource.close();
         rightSource.close();
+        CacheManager.INSTANCE.release(cache);
     }
 
     public int getGetAllCalls() {
@@ -192,4 +208,50 @@ public class PreOrderDiffWalkBenchmarkState {
         }
     }
 
+    /**
+     * Serves objects from the shared object cache, fetching and caching the missing ones from the
+     * wrapped store, like the object stores backed by the shared cache do
+     */
+    public static class CachingObjectStore extends ForwardingObjectStore {
+
+        private final ObjectCache cache;
+
+        public CachingObjectStore(ObjectStore odb, ObjectCache cache) {
+            super(odb);
+            this.cache = cache;
+        }
+
+        public @Override RevTree getTree(ObjectId id) {
+            RevObject cached = cache.getIfPresent(id);
+            if (cached instanceof RevTree) {
+                return (RevTree) cached;
+            }
+            RevTree tree = super.getTree(id);
+            cache.put(tree);
+            return tree;
+        }
+
+        public @Override <T extends RevObject> Iterator<T> getAll(Iterable<ObjectId> ids,
+                BulkOpListener listener, Class<T> type) {
+            List<T> objects = new ArrayList<>();
+            List<ObjectId> missing = new ArrayList<>();
+            for (ObjectId id : ids) {
+                RevObject cached = cache.getIfPresent(id);
+                if (type.isInstance(cached)) {
+                    objects.add(type.cast(cached));
+                    listener.found(id, null);
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (!missing.isEmpty()) {
+                super.getAll(missing, listener, type).forEachRemaining(o -> {
+                    cache.put(o);
+                    objects.add(o);
+                });
+            }
+            return objects.iterator();
+        }
+    }
+
 }
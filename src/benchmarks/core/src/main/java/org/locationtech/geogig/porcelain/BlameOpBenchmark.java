@@ -0,0 +1,133 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.porcelain;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.geogig.feature.FeatureType;
+import org.locationtech.geogig.feature.FeatureTypes;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.repository.WorkingTree;
+import org.locationtech.geogig.test.TestRepository;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link BlameOp} over a synthetic history where every commit modifies one of the attributes
+ * of the same feature, except for one attribute that's only set by the first commit, forcing blame
+ * to walk the whole history.
+ * <p>
+ * A {@code maxBatchSize} of {@code 1} resolves and compares one commit at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = { Mode.SingleShotTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms2G", "-Xmx4G" })
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class BlameOpBenchmark {
+
+    @Param(value = { "10000" })
+    public int numCommits;
+
+    @Param(value = { "1000" })
+    public int numFeatures;
+
+    @Param(value = { "1", "32", "256" })
+    public int maxBatchSize;
+
+    private Repository repo;
+
+    private final String path = NodeRef.appendChild("roads", "r0");
+
+    public @Setup(Level.Trial) void setUp() throws Exception {
+        repo = new TestRepository()
+                .createAndInitRepository(URI.create("memory://BlameOpBenchmark/#repo"));
+
+        FeatureType type = FeatureTypes.createType("http://geogig.org#roads", "name:String",
+                "lanes:Integer", "speed:Integer", "surface:String", "geom:Point:srid=4326");
+        RevFeatureType featureType = RevFeatureType.builder().type(type).build();
+        repo.context().objectDatabase().put(featureType);
+
+        final WorkingTree workingTree = repo.context().workingTree();
+        final Point geom = new GeometryFactory().createPoint(new Coordinate(1, 1));
+        for (int i = 0; i < numFeatures; i++) {
+            RevFeature feature = RevFeature.builder().addValue("road " + i).addValue(2)
+                    .addValue(50).addValue("asphalt").addValue(geom).build();
+            workingTree.insert(FeatureInfo.insert(feature, featureType.getId(),
+                    NodeRef.appendChild("roads", "r" + i)));
+        }
+        repo.command(AddOp.class).call();
+        repo.command(CommitOp.class).setMessage("initial import").call();
+
+        int lanes = 2, speed = 50;
+        String surface = "asphalt";
+        for (int c = 1; c < numCommits; c++) {
+            switch (c % 3) {
+            case 0:
+                lanes++;
+                break;
+            case 1:
+                speed++;
+                break;
+            default:
+                surface = "surface " + c;
+            }
+            RevFeature feature = RevFeature.builder().addValue("road 0").addValue(lanes)
+                    .addValue(speed).addValue(surface).addValue(geom).build();
+            workingTree.insert(FeatureInfo.insert(feature, featureType.getId(), path));
+            repo.command(AddOp.class).call();
+            repo.command(CommitOp.class).setMessage("commit " + c).call();
+        }
+    }
+
+    public @TearDown void tearDown() {
+        TestRepository.closeAndDelete(repo);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()//
+                .include(BlameOpBenchmark.class.getSimpleName())//
+                .forks(1)//
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    public @Benchmark void blame(Blackhole bh) {
+        BlameReport report = repo.command(BlameOp.class).setPath(path)
+                .setMaxBatchSize(maxBatchSize).call();
+        bh.consume(report.getChanges());
+    }
+}
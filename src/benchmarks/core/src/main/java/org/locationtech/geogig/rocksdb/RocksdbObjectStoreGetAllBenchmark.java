@@ -0,0 +1,119 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares resolving objects from a {@link RocksdbObjectStore} one id at a time against batched
+ * {@link RocksdbObjectStore#getAll getAll} lookups of different batch sizes, querying all the
+ * stored object ids in random order.
+ * <p>
+ * A {@code batchSize} of {@code 1} makes {@code getAll} issue one RocksDB call per id.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = { Mode.SingleShotTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms2G", "-Xmx4G" })
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class RocksdbObjectStoreGetAllBenchmark {
+
+    @Param(value = { "1000000" })
+    public int size;
+
+    @Param(value = { "1", "100", "1000", "10000" })
+    public int batchSize;
+
+    private TemporaryFolder tmpFolder;
+
+    private RocksdbObjectStore store;
+
+    private List<ObjectId> randomIds;
+
+    public @Setup(Level.Trial) void setUp() throws Exception {
+        tmpFolder = new TemporaryFolder();
+        tmpFolder.create();
+        store = new RocksdbObjectStore(tmpFolder.getRoot(), false);
+        store.open();
+
+        final Random random = new Random(1);
+        List<RevObject> objects = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            objects.add(RevFeature.builder().addValue(i).addValue("feature " + i)
+                    .addValue(random.nextDouble()).addValue(random.nextLong()).build());
+        }
+        store.putAll(objects.iterator());
+        randomIds = new ArrayList<>(size);
+        objects.forEach(o -> randomIds.add(o.getId()));
+        objects = null;
+        Collections.shuffle(randomIds, random);
+    }
+
+    public @Setup(Level.Iteration) void setBatchSize() {
+        store.setGetAllBatchSize(batchSize);
+    }
+
+    public @TearDown(Level.Trial) void tearDown() {
+        store.close();
+        tmpFolder.delete();
+    }
+
+    public @Benchmark void perKeyGet(Blackhole bh) {
+        for (ObjectId id : randomIds) {
+            bh.consume(store.get(id));
+        }
+    }
+
+    public @Benchmark void batchedGetAll(Blackhole bh) {
+        Iterator<RevObject> it = store.getAll(randomIds, BulkOpListener.NOOP_LISTENER);
+        while (it.hasNext()) {
+            bh.consume(it.next());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()//
+                .include(RocksdbObjectStoreGetAllBenchmark.class.getSimpleName())//
+                .forks(0)//
+                .build();
+
+        new Runner(opt).run();
+    }
+}
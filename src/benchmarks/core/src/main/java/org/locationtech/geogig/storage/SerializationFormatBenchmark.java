@@ -0,0 +1,177 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.format.lzf.RevObjectSerializerLZF;
+import org.locationtech.geogig.storage.format.zstd.RevObjectSerializerZSTD;
+import org.locationtech.geogig.storage.format.zstd.ZstdDictionaries;
+import org.locationtech.geogig.storage.format.zstd.ZstdDictionaryTrainer;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Encode and decode throughput of the {@link RevObjectSerializer} formats over a sample of features
+ * and leaf trees, reported in objects per second.
+ * <p>
+ * The {@code zstd-dict} format uses {@link ZstdDictionaries} trained on a different sample of
+ * objects of the same kind than the ones encoded, as they'd be trained on a repository's existing
+ * objects and used to compress new ones. The compression ratio of each format against the
+ * uncompressed FlatBuffers encoding is printed out at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = { Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms1G", "-Xmx2G" })
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class SerializationFormatBenchmark {
+
+    private static final int FEATURES = 10_000;
+
+    private static final int TREES = 100;
+
+    private static final int SAMPLE_SIZE = FEATURES + TREES;
+
+    @Param(value = { "flatbuffers", "lzf", "zstd", "zstd-dict" })
+    public String format;
+
+    private RevObjectSerializer serializer;
+
+    private List<RevObject> objects;
+
+    private List<byte[]> encoded;
+
+    public @Setup(Level.Trial) void setUp() throws IOException {
+        final RevObjectSerializer flatbuffers = new FlatBuffersRevObjectSerializer();
+        final List<RevObject> trainingSample = sample("training", new Random(1));
+        objects = sample("benchmark", new Random(2));
+
+        switch (format) {
+        case "flatbuffers":
+            serializer = flatbuffers;
+            break;
+        case "lzf":
+            serializer = new RevObjectSerializerLZF(flatbuffers);
+            break;
+        case "zstd":
+            serializer = new RevObjectSerializerZSTD(flatbuffers);
+            break;
+        case "zstd-dict":
+            ZstdDictionaryTrainer trainer = new ZstdDictionaryTrainer(flatbuffers);
+            trainingSample.forEach(trainer::addSample);
+            ZstdDictionaries dictionaries = ZstdDictionaries.EMPTY.merge(trainer.train());
+            serializer = new RevObjectSerializerZSTD(flatbuffers, dictionaries);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+
+        encoded = new ArrayList<>(objects.size());
+        long rawSize = 0, encodedSize = 0;
+        for (RevObject o : objects) {
+            byte[] raw = encode(flatbuffers, o);
+            byte[] bytes = encode(serializer, o);
+            rawSize += raw.length;
+            encodedSize += bytes.length;
+            encoded.add(bytes);
+        }
+        System.err.printf("%n%s: %,d objects, %,d bytes, %,d bytes encoded, ratio %.2f%n", format,
+                objects.size(), rawSize, encodedSize, (double) rawSize / encodedSize);
+    }
+
+    private List<RevObject> sample(String prefix, Random random) {
+        final GeometryFactory gf = new GeometryFactory();
+        final List<RevObject> sample = new ArrayList<>(SAMPLE_SIZE);
+        for (int i = 0; i < FEATURES; i++) {
+            sample.add(RevFeature.builder()//
+                    .addValue(prefix + " feature " + i)//
+                    .addValue(random.nextInt(10_000))//
+                    .addValue(random.nextDouble() * 1000)//
+                    .addValue(random.nextBoolean() ? "residential" : "commercial")//
+                    .addValue(gf.createLineString(new Coordinate[] {
+                            new Coordinate(random.nextDouble(), random.nextDouble()),
+                            new Coordinate(random.nextDouble(), random.nextDouble()),
+                            new Coordinate(random.nextDouble(), random.nextDouble()) }))//
+                    .build());
+        }
+        HeapObjectStore store = new HeapObjectStore();
+        store.open();
+        for (int i = 0; i < TREES; i++) {
+            sample.add(RevObjectTestSupport.INSTANCE.createFeaturesTree(store,
+                    prefix + "_tree" + i + "_", 1 + random.nextInt(256)));
+        }
+        store.close();
+        return sample;
+    }
+
+    private static byte[] encode(RevObjectSerializer serializer, RevObject o) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(o, out);
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()//
+                .include(SerializationFormatBenchmark.class.getSimpleName())//
+                .forks(1)//
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public @Benchmark void encode(Blackhole blackhole) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (RevObject o : objects) {
+            out.reset();
+            serializer.write(o, out);
+            blackhole.consume(out.size());
+        }
+    }
+
+    @OperationsPerInvocation(SAMPLE_SIZE)
+    public @Benchmark void decode(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            RevObject o = objects.get(i);
+            byte[] bytes = encoded.get(i);
+            blackhole.consume(serializer.read(o.getId(), bytes, 0, bytes.length));
+        }
+    }
+}
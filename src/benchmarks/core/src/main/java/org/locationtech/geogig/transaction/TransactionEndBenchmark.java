@@ -0,0 +1,127 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.transaction;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.locationtech.geogig.feature.FeatureType;
+import org.locationtech.geogig.feature.FeatureTypes;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.porcelain.AddOp;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.test.TestRepository;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Concurrent writers committing one feature per {@link GeogigTransaction} to the same branch, each
+ * {@link TransactionEnd} having to merge or rebase on top of the commits published by the other
+ * writers since its transaction started.
+ * <p>
+ * The reported throughput is the number of committed transactions per second across all writer
+ * threads. {@link #main} runs it with 1, 2, 4, and 8 writers to show how it scales with the number
+ * of concurrent writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = { Mode.Throughput })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms2G", "-Xmx4G" })
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+public class TransactionEndBenchmark {
+
+    @Param(value = { "false", "true" })
+    public boolean rebase;
+
+    private Repository repo;
+
+    private RevFeatureType featureType;
+
+    private Point geom;
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private static final AtomicInteger IDS = new AtomicInteger();
+
+        final int id = IDS.incrementAndGet();
+
+        int commits;
+    }
+
+    public @Setup(Level.Trial) void setUp() throws Exception {
+        repo = new TestRepository()
+                .createAndInitRepository(URI.create("memory://TransactionEndBenchmark/#repo"));
+        repo.context().configDatabase().put("user.name", "bench");
+        repo.context().configDatabase().put("user.email", "bench@example.com");
+
+        FeatureType type = FeatureTypes.createType("http://geogig.org#roads", "name:String",
+                "geom:Point:srid=4326");
+        featureType = RevFeatureType.builder().type(type).build();
+        repo.context().objectDatabase().put(featureType);
+        geom = new GeometryFactory().createPoint(new Coordinate(1, 1));
+
+        RevFeature feature = RevFeature.builder().addValue("initial").addValue(geom).build();
+        repo.context().workingTree().insert(FeatureInfo.insert(feature, featureType.getId(),
+                NodeRef.appendChild("roads", "initial")));
+        repo.command(AddOp.class).call();
+        repo.command(CommitOp.class).setMessage("initial import").call();
+    }
+
+    public @TearDown void tearDown() {
+        TestRepository.closeAndDelete(repo);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int writers : new int[] { 1, 2, 4, 8 }) {
+            Options opt = new OptionsBuilder()//
+                    .include(TransactionEndBenchmark.class.getSimpleName())//
+                    .threads(writers)//
+                    .forks(1)//
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    public @Benchmark void commitTransaction(Writer writer) {
+        final String name = "w" + writer.id + "_" + writer.commits++;
+        GeogigTransaction tx = repo.command(TransactionBegin.class).call();
+        RevFeature feature = RevFeature.builder().addValue(name).addValue(geom).build();
+        tx.workingTree().insert(FeatureInfo.insert(feature, featureType.getId(),
+                NodeRef.appendChild("roads", name)));
+        tx.command(AddOp.class).call();
+        tx.command(CommitOp.class).setMessage(name).call();
+        repo.command(TransactionEnd.class).setTransaction(tx).setRebase(rebase).call();
+    }
+}
@@ -20,6 +20,7 @@ import org.locationtech.geogig.cli.plumbing.RevParse;
 import org.locationtech.geogig.cli.plumbing.ShowRef;
 import org.locationtech.geogig.cli.plumbing.VerifyPatch;
 import org.locationtech.geogig.cli.plumbing.WalkGraph;
+import org.locationtech.geogig.cli.plumbing.WriteCommitGraph;
 import org.locationtech.geogig.cli.porcelain.Add;
 import org.locationtech.geogig.cli.porcelain.Apply;
 import org.locationtech.geogig.cli.porcelain.Blame;
@@ -95,6 +96,7 @@ import picocli.CommandLine.Spec;
                 , Tag.class//
                 , WalkGraph.class//
                 , RebuildGraph.class//
+                , WriteCommitGraph.class//
                 , IndexCommandProxy.class//
         }//
 )
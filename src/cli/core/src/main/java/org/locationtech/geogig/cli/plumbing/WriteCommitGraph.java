@@ -0,0 +1,47 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cli.plumbing;
+
+import java.io.IOException;
+
+import org.locationtech.geogig.cli.AbstractCommand;
+import org.locationtech.geogig.cli.CLICommand;
+import org.locationtech.geogig.cli.GeogigCLI;
+import org.locationtech.geogig.plumbing.WriteChangedPathsOp;
+import org.locationtech.geogig.plumbing.WriteCommitGraphOp;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+/**
+ * Writes the commit graph index used to speed up merge-base and ancestry queries, and optionally
+ * the changed path filters used to speed up path-filtered log and blame.
+ * 
+ * @see WriteCommitGraphOp
+ * @see WriteChangedPathsOp
+ */
+@Command(name = "commit-graph", description = "Writes the commit graph index used to speed up merge-base and ancestry queries.")
+public class WriteCommitGraph extends AbstractCommand implements CLICommand {
+
+    @Option(names = "--changed-paths", description = "Also compute the changed path filters of the commits not yet indexed, used to speed up path-filtered log and blame.")
+    private boolean changedPaths;
+
+    public @Override void runInternal(GeogigCLI cli) throws IOException {
+        int count = cli.getGeogig().command(WriteCommitGraphOp.class)
+                .setProgressListener(cli.getProgressListener()).call();
+        cli.getConsole().println(String.format("Commit graph index written, %,d commits.", count));
+        if (changedPaths) {
+            int computed = cli.getGeogig().command(WriteChangedPathsOp.class)
+                    .setProgressListener(cli.getProgressListener()).call();
+            cli.getConsole().println(
+                    String.format("Changed path filters written, %,d commits updated.", computed));
+        }
+    }
+}
@@ -48,6 +48,9 @@ public class CreateIndex extends AbstractCommand implements CLICommand {
     @Option(names = "--bounds", description = "If specified, the max bounds of the spatial index will be set to this parameter. <minx,miny,maxx,maxy>")
     private String bbox;
 
+    @Option(names = "--simplify", split = ",", description = "Comma separated list of distance tolerances, in the geometry attribute's CRS units, at which to store simplified geometries inside the index for faster rendering at small scales")
+    private List<Double> simplificationTolerances;
+
     protected @Override void runInternal(GeogigCLI cli)
             throws InvalidParameterException, CommandFailedException, IOException {
 
@@ -63,6 +66,9 @@ public class CreateIndex extends AbstractCommand implements CLICommand {
                     .setExtraAttributes(extraAttributes)//
                     .setIndexHistory(indexHistory)//
                     .setBounds(envelope)//
+                    .setSimplificationTolerances(simplificationTolerances == null ? null
+                            : simplificationTolerances.stream().mapToDouble(Double::doubleValue)
+                                    .toArray())//
                     .setProgressListener(cli.getProgressListener())//
                     .call();
         } catch (IllegalStateException e) {
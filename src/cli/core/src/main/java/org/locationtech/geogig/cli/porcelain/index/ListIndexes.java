@@ -71,6 +71,12 @@ public class ListIndexes extends AbstractCommand implements CLICommand {
                     sb.append("  ").append("Extra Attributes:\t")
                             .append(Arrays.toString(extraAttributes)).append("\n");
                 }
+                if (metadata.containsKey(IndexInfo.MD_SIMPLIFICATION_TOLERANCES)) {
+                    double[] tolerances = (double[]) metadata
+                            .get(IndexInfo.MD_SIMPLIFICATION_TOLERANCES);
+                    sb.append("  ").append("Simplification Tolerances:\t")
+                            .append(Arrays.toString(tolerances)).append("\n");
+                }
                 return sb;
             }
         };
@@ -0,0 +1,37 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cli.remoting;
+
+import org.locationtech.geogig.cli.CLISubCommand;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
+
+/**
+ * Groups the commands to create and apply bundle files, used to move history between repositories
+ * that can't reach each other over the network.
+ * <p>
+ * Usage:
+ * <ul>
+ * <li>{@code geogig bundle <command> <args>...}
+ * </ul>
+ *
+ * @see BundleCreate
+ * @see BundleFetch
+ */
+@Command(name = "bundle", description = "Create and apply offline repository bundles", //
+        subcommands = { BundleCreate.class, BundleFetch.class })
+public class Bundle extends CLISubCommand {
+    private @Spec @Getter(value = AccessLevel.PROTECTED) CommandSpec spec;
+
+}
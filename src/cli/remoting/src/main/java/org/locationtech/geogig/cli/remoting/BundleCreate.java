@@ -0,0 +1,84 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cli.remoting;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.locationtech.geogig.cli.AbstractCommand;
+import org.locationtech.geogig.cli.CLICommand;
+import org.locationtech.geogig.cli.CommandFailedException;
+import org.locationtech.geogig.cli.Console;
+import org.locationtech.geogig.cli.GeogigCLI;
+import org.locationtech.geogig.cli.annotation.ReadOnly;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.remotes.pack.CreateBundleOp;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/**
+ * Writes the objects needed to complete the given branches or tags to a bundle file.
+ * <p>
+ * CLI proxy for {@link CreateBundleOp}
+ * <p>
+ * Usage:
+ * <ul>
+ * <li>{@code geogig bundle create [--since <commit>] [-I] <file> [<ref>...]}
+ * </ul>
+ *
+ * @see CreateBundleOp
+ */
+@ReadOnly
+@Command(name = "create", description = "Write branches and tags to a bundle file")
+public class BundleCreate extends AbstractCommand implements CLICommand {
+
+    @Option(names = "--since", description = "Exclude the history of this commit, known to be present in the receiving repository")
+    private String since;
+
+    @Option(names = { "-I", "--include-indexes" }, description = "Include spatial index updates")
+    private boolean withIndexes = false;
+
+    @Parameters(index = "0", description = "<file>")
+    private File file;
+
+    @Parameters(index = "1..*", description = "[<ref>...] branches and tags to bundle, defaults to all")
+    private List<String> refs = new ArrayList<>();
+
+    public @Override void runInternal(GeogigCLI cli) throws IOException {
+        checkParameter(!file.isDirectory(), "%s is a directory", file);
+        List<RefDiff> bundled;
+        try {
+            CreateBundleOp op = cli.getGeogig().command(CreateBundleOp.class);
+            op.setProgressListener(cli.getProgressListener());
+            op.setFile(file).setSince(since).setIncludeIndexes(withIndexes);
+            refs.forEach(op::addRef);
+            bundled = op.call();
+        } catch (IllegalArgumentException iae) {
+            throw new CommandFailedException(iae.getMessage(), true);
+        } catch (IllegalStateException ise) {
+            throw new CommandFailedException(ise.getMessage(), ise);
+        }
+
+        Console console = cli.getConsole();
+        for (RefDiff ref : bundled) {
+            String line = ref.getNewRef().getObjectId().toString().substring(0, 8) + " "
+                    + ref.getNewRef().getName();
+            if (ref.getOldRef() != null) {
+                line = ref.getOldRef().getObjectId().toString().substring(0, 8) + ".." + line;
+            }
+            console.println(line);
+        }
+        console.println(String.format("Bundle written to %s", file.getAbsolutePath()));
+    }
+}
@@ -0,0 +1,78 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cli.remoting;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.locationtech.geogig.cli.AbstractCommand;
+import org.locationtech.geogig.cli.CLICommand;
+import org.locationtech.geogig.cli.CommandFailedException;
+import org.locationtech.geogig.cli.Console;
+import org.locationtech.geogig.cli.GeogigCLI;
+import org.locationtech.geogig.cli.annotation.RemotesReadOnly;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.remotes.TransferSummary;
+import org.locationtech.geogig.remotes.pack.FetchBundleOp;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+/**
+ * Applies a bundle file created with {@code geogig bundle create}, saving its branches as remote
+ * tracking branches of the given remote name.
+ * <p>
+ * CLI proxy for {@link FetchBundleOp}
+ * <p>
+ * Usage:
+ * <ul>
+ * <li>{@code geogig bundle fetch [--remote <name>] <file>}
+ * </ul>
+ *
+ * @see FetchBundleOp
+ */
+@RemotesReadOnly
+@Command(name = "fetch", description = "Download objects and refs from a bundle file")
+public class BundleFetch extends AbstractCommand implements CLICommand {
+
+    @Option(names = "--remote", description = "Name under which to save the bundle branches, defaults to '"
+            + FetchBundleOp.DEFAULT_REMOTE + "'")
+    private String remote = FetchBundleOp.DEFAULT_REMOTE;
+
+    @Parameters(arity = "1", description = "<file>")
+    private File file;
+
+    public @Override void runInternal(GeogigCLI cli) throws IOException {
+        checkParameter(file.isFile(), "%s does not exist", file);
+        List<RefDiff> updated;
+        try {
+            updated = cli.getGeogig().command(FetchBundleOp.class)//
+                    .setFile(file)//
+                    .setRemote(remote)//
+                    .setProgressListener(cli.getProgressListener())//
+                    .call();
+        } catch (IllegalArgumentException iae) {
+            throw new CommandFailedException(iae.getMessage(), true);
+        } catch (IllegalStateException ise) {
+            throw new CommandFailedException(ise.getMessage(), ise);
+        }
+
+        Console console = cli.getConsole();
+        if (updated.isEmpty()) {
+            console.println("Already up to date.");
+        } else {
+            TransferSummary result = new TransferSummary();
+            result.addAll(file.getAbsolutePath(), updated);
+            FetchResultPrinter.print(result, console);
+        }
+    }
+}
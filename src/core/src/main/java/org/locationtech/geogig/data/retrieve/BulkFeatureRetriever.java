@@ -33,6 +33,8 @@ import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.geogig.storage.internal.ObjectStoreDiffObjectIterator;
 import org.locationtech.jts.geom.GeometryFactory;
 
+import com.google.common.base.Predicate;
+
 import lombok.NonNull;
 
 /**
@@ -128,11 +130,29 @@ public class BulkFeatureRetriever {
     public AutoCloseableIterator<Feature> getGeoToolsFeatures(AutoCloseableIterator<NodeRef> refs,
             RevFeatureType nativeType, @Nullable Name typeNameOverride,
             GeometryFactory geometryFactory) {
+        return getGeoToolsFeatures(refs, nativeType, typeNameOverride, geometryFactory, null);
+    }
+
+    /**
+     * Same as {@link #getGeoToolsFeatures(AutoCloseableIterator, RevFeatureType, Name,
+     * GeometryFactory)}, but discards the {@link RevFeature}s that don't pass {@code filter} before
+     * building the {@link Feature}s out of them
+     * 
+     * @param filter if not {@code null}, a predicate evaluated directly on the {@link RevFeature}s,
+     *        ideally through the {@link RevFeature#getDouble(int) primitive accessors} so that
+     *        rejected features don't get their values decoded
+     */
+    public AutoCloseableIterator<Feature> getGeoToolsFeatures(AutoCloseableIterator<NodeRef> refs,
+            RevFeatureType nativeType, @Nullable Name typeNameOverride,
+            GeometryFactory geometryFactory, @Nullable Predicate<RevFeature> filter) {
 
         // function that converts the FeatureInfo a feature of the given schema
         Function<ObjectInfo<RevFeature>, Feature> funcBuildFeature = info -> Feature
                 .build(info.node().getName(), nativeType.type(), info.object(), geometryFactory);
         AutoCloseableIterator<ObjectInfo<RevFeature>> fis = getGeoGIGFeatures(refs);
+        if (filter != null) {
+            fis = AutoCloseableIterator.filter(fis, info -> filter.apply(info.object()));
+        }
 
         return AutoCloseableIterator.transform(fis, funcBuildFeature);
     }
@@ -14,6 +14,8 @@ import java.util.Map;
 import java.util.Set;
 
 import org.locationtech.geogig.hooks.CommandHooksDecorator;
+import org.locationtech.geogig.metrics.Metrics;
+import org.locationtech.geogig.metrics.MetricsDecorator;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 
 import com.google.common.collect.Maps;
@@ -30,6 +32,9 @@ class DecoratorProvider {
         this.decorators = new HashSet<>();
         decorators.add(new CommandHooksDecorator());
         decorators.add(new ConflictInterceptor());
+        if (Metrics.isEnabled()) {
+            decorators.add(new MetricsDecorator());
+        }
     }
 
     @SuppressWarnings("unchecked")
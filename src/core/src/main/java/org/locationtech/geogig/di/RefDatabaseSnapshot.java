@@ -1,7 +1,9 @@
 package org.locationtech.geogig.di;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
@@ -95,4 +97,15 @@ class RefDatabaseSnapshot extends ForwardingRefDatabase implements RefDatabase {
         snapshot.deleteAll();
         return actual.deleteAll();
     }
+
+    public @Override Optional<List<RefChange>> compareAndSet(
+            @NonNull Map<String, Optional<Ref>> expected, @NonNull Iterable<Ref> updates,
+            @NonNull Iterable<String> deletes) throws TimeoutException {
+        Optional<List<RefChange>> ret = actual.compareAndSet(expected, updates, deletes);
+        if (ret.isPresent()) {
+            snapshot.putAll(updates);
+            snapshot.delete(deletes);
+        }
+        return ret;
+    }
 }
@@ -13,6 +13,8 @@ import java.util.Optional;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.plumbing.FindCommonAncestor;
+import org.locationtech.geogig.plumbing.IsAncestorOp;
+import org.locationtech.geogig.plumbing.WriteCommitGraphOp;
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.storage.GraphDatabase;
 
@@ -34,4 +36,19 @@ public @RequiredArgsConstructor class CommitGraph {
         return context.command(FindCommonAncestor.class).setLeftId(left).setRightId(right).call();
     }
 
+    public boolean isAncestor(@NonNull ObjectId ancestor, @NonNull ObjectId descendant) {
+        return context.command(IsAncestorOp.class).setAncestor(ancestor).setDescendant(descendant)
+                .call().booleanValue();
+    }
+
+    /**
+     * Writes the commit graph index used to speed up {@link #commonAncestor} and
+     * {@link #isAncestor} queries
+     * 
+     * @return the number of commits indexed
+     */
+    public int writeIndex() {
+        return context.command(WriteCommitGraphOp.class).call().intValue();
+    }
+
 }
@@ -0,0 +1,78 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.hooks.builtin;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.hooks.CommandHook;
+import org.locationtech.geogig.metrics.Metrics;
+import org.locationtech.geogig.metrics.Timer;
+import org.locationtech.geogig.repository.Command;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+
+import lombok.NonNull;
+
+/**
+ * Records the latency of every command to the {@code geogig.command} {@link Timer timer}, tagged
+ * by {@code command} simple class name and {@code outcome} ({@code success} or {@code error}), if
+ * {@link Metrics#isEnabled() metrics are enabled}.
+ * <p>
+ * Has the lowest priority so that the time spent on other hooks is accounted for.
+ */
+public class CommandMetricsHook implements CommandHook {
+
+    public static final String TIMER_NAME = "geogig.command";
+
+    public @Override int getPriority() {
+        return Integer.MIN_VALUE;
+    }
+
+    public @Override boolean appliesTo(Class<? extends AbstractGeoGigOp<?>> clazz) {
+        return Metrics.isEnabled();
+    }
+
+    /**
+     * @return a new hook instance for {@code command} to hold the time it was called at
+     */
+    public @Override @NonNull List<CommandHook> unwrap(@NonNull Command<?> command) {
+        return Collections.singletonList(new CommandTimer());
+    }
+
+    public @Override <C extends Command<?>> C pre(C command) {
+        return command;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Override <T> T post(Command<T> command, @Nullable Object retVal,
+            @Nullable RuntimeException exception) {
+        return (T) retVal;
+    }
+
+    private static class CommandTimer extends CommandMetricsHook {
+
+        private long startNanos;
+
+        public @Override <C extends Command<?>> C pre(C command) {
+            startNanos = System.nanoTime();
+            return command;
+        }
+
+        public @Override <T> T post(Command<T> command, @Nullable Object retVal,
+                @Nullable RuntimeException exception) {
+            final long elapsed = System.nanoTime() - startNanos;
+            String outcome = exception == null ? "success" : "error";
+            Metrics.registry().timer(TIMER_NAME, "command", command.getClass().getSimpleName(),
+                    "outcome", outcome).record(elapsed);
+            return super.post(command, retVal, exception);
+        }
+    }
+}
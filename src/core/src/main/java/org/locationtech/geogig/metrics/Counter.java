@@ -0,0 +1,24 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+/**
+ * A monotonically increasing count, whose rate can be derived by reporters
+ */
+public interface Counter extends Meter {
+
+    public default void increment() {
+        increment(1L);
+    }
+
+    public void increment(long amount);
+
+    public long count();
+}
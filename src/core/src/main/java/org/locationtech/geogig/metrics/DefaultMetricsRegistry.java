@@ -0,0 +1,166 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The default, lowest priority, {@link MetricsRegistry}, keeps all meters in memory using
+ * contention free {@link LongAdder}s.
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry {
+
+    private final ConcurrentMap<MeterId, Meter> meters = new ConcurrentHashMap<>();
+
+    public @Override int getPriority() {
+        return 0;
+    }
+
+    public @Override Counter counter(@NonNull String name, @NonNull String... tags) {
+        return get(MeterId.of(name, tags), Counter.class);
+    }
+
+    public @Override Timer timer(@NonNull String name, @NonNull String... tags) {
+        return get(MeterId.of(name, tags), Timer.class);
+    }
+
+    public @Override Gauge gauge(@NonNull String name, @NonNull DoubleSupplier value,
+            @NonNull String... tags) {
+        MeterId id = MeterId.of(name, tags);
+        Gauge gauge = new DefaultGauge(id, value);
+        Meter previous = meters.get(id);
+        Preconditions.checkArgument(previous == null || previous instanceof Gauge,
+                "%s is already registered as a %s", id, previous);
+        meters.put(id, gauge);
+        return gauge;
+    }
+
+    public @Override List<Meter> getMeters() {
+        return new ArrayList<>(meters.values());
+    }
+
+    private <M extends Meter> M get(MeterId id, Class<M> type) {
+        Meter meter = meters.computeIfAbsent(id,
+                key -> Timer.class.equals(type) ? new DefaultTimer(key) : new DefaultCounter(key));
+        Preconditions.checkArgument(type.isInstance(meter), "%s is already registered as a %s", id,
+                meter);
+        return type.cast(meter);
+    }
+
+    private static @RequiredArgsConstructor class DefaultCounter implements Counter {
+
+        private final MeterId id;
+
+        private final LongAdder count = new LongAdder();
+
+        public @Override MeterId getId() {
+            return id;
+        }
+
+        public @Override void increment(long amount) {
+            count.add(amount);
+        }
+
+        public @Override long count() {
+            return count.sum();
+        }
+
+        public @Override String toString() {
+            return "Counter[" + id + "]";
+        }
+    }
+
+    private static @RequiredArgsConstructor class DefaultGauge implements Gauge {
+
+        private final MeterId id;
+
+        private final DoubleSupplier value;
+
+        public @Override MeterId getId() {
+            return id;
+        }
+
+        public @Override double value() {
+            return value.getAsDouble();
+        }
+
+        public @Override String toString() {
+            return "Gauge[" + id + "]";
+        }
+    }
+
+    private static class DefaultTimer implements Timer {
+
+        private final MeterId id;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private final LongAdder[] buckets;
+
+        DefaultTimer(MeterId id) {
+            this.id = id;
+            this.buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public @Override MeterId getId() {
+            return id;
+        }
+
+        public @Override void record(long durationNanos) {
+            count.increment();
+            totalNanos.add(durationNanos);
+            maxNanos.accumulateAndGet(durationNanos, Math::max);
+            buckets[Timer.bucket(durationNanos)].increment();
+        }
+
+        public @Override long count() {
+            return count.sum();
+        }
+
+        public @Override long totalTime(TimeUnit unit) {
+            return unit.convert(totalNanos.sum(), TimeUnit.NANOSECONDS);
+        }
+
+        public @Override long max(TimeUnit unit) {
+            return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        public @Override long[] histogram() {
+            long[] histogram = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                histogram[i] = buckets[i].sum();
+            }
+            return histogram;
+        }
+
+        public @Override String toString() {
+            return "Timer[" + id + "]";
+        }
+    }
+}
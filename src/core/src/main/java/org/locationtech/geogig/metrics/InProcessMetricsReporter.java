@@ -0,0 +1,176 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+
+/**
+ * {@link MetricsReporter} that renders the metrics as text, both on demand through
+ * {@link #report(MetricsRegistry)} and periodically to the log if the
+ * {@code GEOGIG_METRICS_LOG_INTERVAL} System property or environment variable is set to a number
+ * of seconds greater than zero.
+ * <p>
+ * The periodic report includes the rate per second of counters and timers during the last
+ * interval.
+ */
+public class InProcessMetricsReporter implements MetricsReporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InProcessMetricsReporter.class);
+
+    public static final String LOG_INTERVAL = "GEOGIG_METRICS_LOG_INTERVAL";
+
+    private MetricsRegistry registry;
+
+    private ScheduledExecutorService scheduler;
+
+    private final Map<MeterId, Long> lastCounts = new HashMap<>();
+
+    private long lastReportNanos;
+
+    public @Override synchronized void start(@NonNull MetricsRegistry registry) {
+        this.registry = registry;
+        final long intervalSeconds = resolveInterval();
+        if (intervalSeconds > 0 && scheduler == null) {
+            lastReportNanos = System.nanoTime();
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setDaemon(true).setNameFormat("geogig-metrics-reporter-%d").build());
+            scheduler.scheduleAtFixedRate(this::logReport, intervalSeconds, intervalSeconds,
+                    TimeUnit.SECONDS);
+            LOG.info("Logging GeoGig metrics every {} seconds", intervalSeconds);
+        }
+    }
+
+    public @Override synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * @return a snapshot of all the meters in the registry, sorted by name and tags
+     */
+    public static List<MeterStats> snapshot(@NonNull MetricsRegistry registry) {
+        return sorted(registry.getMeters()).stream().map(MeterStats::of)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return a human readable report of all the meters in the registry, one per line
+     */
+    public static String report(@NonNull MetricsRegistry registry) {
+        StringBuilder sb = new StringBuilder();
+        for (Meter meter : sorted(registry.getMeters())) {
+            sb.append(format(meter, null)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private synchronized void logReport() {
+        try {
+            final long now = System.nanoTime();
+            final long elapsed = now - lastReportNanos;
+            lastReportNanos = now;
+            StringBuilder sb = new StringBuilder("GeoGig metrics:\n");
+            for (Meter meter : sorted(registry.getMeters())) {
+                Double rate = null;
+                long count = count(meter);
+                if (count >= 0) {
+                    Long last = lastCounts.put(meter.getId(), count);
+                    rate = Metrics.rate(count - (last == null ? 0L : last), elapsed);
+                }
+                sb.append(format(meter, rate)).append('\n');
+            }
+            LOG.info(sb.toString());
+        } catch (RuntimeException e) {
+            LOG.warn("Error reporting metrics", e);
+        }
+    }
+
+    private static long count(Meter meter) {
+        if (meter instanceof Counter) {
+            return ((Counter) meter).count();
+        }
+        if (meter instanceof Timer) {
+            return ((Timer) meter).count();
+        }
+        return -1L;
+    }
+
+    private static List<Meter> sorted(List<Meter> meters) {
+        return meters.stream().sorted(Comparator.comparing(m -> m.getId().toString()))
+                .collect(Collectors.toList());
+    }
+
+    private static String format(Meter meter, @Nullable Double rate) {
+        final MeterStats stats = MeterStats.of(meter);
+        final String id = meter.getId().toString();
+        final String rateStr = rate == null ? "" : String.format(", rate=%.2f/s", rate);
+        switch (stats.getType()) {
+        case "timer":
+            return String.format("%s: count=%,d%s, total=%.2fms, mean=%.3fms, max=%.3fms, %s", id,
+                    stats.getCount(), rateStr, stats.getTotalMs(), stats.getMeanMs(),
+                    stats.getMaxMs(), histogram(stats.getHistogram()));
+        case "counter":
+            return String.format("%s: count=%,d%s", id, stats.getCount(), rateStr);
+        default:
+            return String.format("%s: value=%.4f", id, stats.getValue());
+        }
+    }
+
+    private static String histogram(long[] buckets) {
+        StringBuilder sb = new StringBuilder("histogram[");
+        boolean first = true;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] == 0) {
+                continue;
+            }
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append(i < Timer.BUCKET_BOUNDS_MS.length ? "<=" + Timer.BUCKET_BOUNDS_MS[i]
+                    : ">" + Timer.BUCKET_BOUNDS_MS[Timer.BUCKET_BOUNDS_MS.length - 1]);
+            sb.append("ms:").append(buckets[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static long resolveInterval() {
+        String value = System.getProperty(LOG_INTERVAL);
+        if (value == null) {
+            value = System.getenv(LOG_INTERVAL);
+        }
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Unable to parse {}={}, metrics won't be logged", LOG_INTERVAL, value);
+            return 0L;
+        }
+    }
+}
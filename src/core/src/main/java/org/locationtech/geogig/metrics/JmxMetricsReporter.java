@@ -0,0 +1,70 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.NonNull;
+
+/**
+ * {@link MetricsReporter} that publishes the metrics registry to the platform MBean server as a
+ * {@link MetricsMXBean} named {@code org.geogig:type=metrics}
+ */
+public class JmxMetricsReporter implements MetricsReporter, MetricsMXBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmxMetricsReporter.class);
+
+    public static final String OBJECT_NAME = "org.geogig:type=metrics";
+
+    private MetricsRegistry registry;
+
+    public @Override synchronized void start(@NonNull MetricsRegistry registry) {
+        this.registry = registry;
+        MBeanServer mbeanserver = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName beanName = new ObjectName(OBJECT_NAME);
+            if (mbeanserver.isRegistered(beanName)) {
+                mbeanserver.unregisterMBean(beanName);
+            }
+            mbeanserver.registerMBean(this, beanName);
+            LOG.info("Registered GeoGig metrics MBean as " + beanName);
+        } catch (Exception e) {
+            LOG.warn("Unable to register GeoGig metrics MBean", e);
+        }
+    }
+
+    public @Override synchronized void stop() {
+        MBeanServer mbeanserver = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName beanName = new ObjectName(OBJECT_NAME);
+            if (mbeanserver.isRegistered(beanName)) {
+                mbeanserver.unregisterMBean(beanName);
+            }
+        } catch (Exception e) {
+            LOG.debug("Unable to unregister GeoGig metrics MBean", e);
+        }
+    }
+
+    public @Override List<MeterStats> getMeters() {
+        return registry.getMeters().stream().map(MeterStats::of).collect(Collectors.toList());
+    }
+
+    public @Override String getReport() {
+        return InProcessMetricsReporter.report(registry);
+    }
+}
@@ -0,0 +1,52 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Identifies a {@link Meter} by its name and a set of key/value tags, for example
+ * {@code geogig.storage.op{backend=RocksdbObjectStore, op=getAll, store=objects}}
+ */
+public @Value class MeterId {
+
+    private final @NonNull String name;
+
+    private final @NonNull SortedMap<String, String> tags;
+
+    /**
+     * @param tags alternating tag keys and values
+     */
+    public static MeterId of(@NonNull String name, @NonNull String... tags) {
+        checkArgument(tags.length % 2 == 0, "tags shall be key/value pairs: %s",
+                Arrays.toString(tags));
+        SortedMap<String, String> map = new TreeMap<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            map.put(tags[i], tags[i + 1]);
+        }
+        return new MeterId(name, Collections.unmodifiableSortedMap(map));
+    }
+
+    public String getTagsString() {
+        return tags.toString();
+    }
+
+    public @Override String toString() {
+        return tags.isEmpty() ? name : name + tags;
+    }
+}
@@ -0,0 +1,92 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An immutable snapshot of the state of a {@link Meter}, suitable to be exposed as an MXBean open
+ * type.
+ * <p>
+ * Only the properties that apply to the meter {@link #getType() type} are set: {@code count} for
+ * counters; {@code count}, the times, and {@code histogram} for timers; and {@code value} for
+ * gauges.
+ */
+public @Getter class MeterStats {
+
+    private final String name;
+
+    private final String tags;
+
+    private final String type;
+
+    private final long count;
+
+    private final double totalMs;
+
+    private final double meanMs;
+
+    private final double maxMs;
+
+    private final double value;
+
+    private final long[] histogram;
+
+    @ConstructorProperties({ "name", "tags", "type", "count", "totalMs", "meanMs", "maxMs",
+            "value", "histogram" })
+    public MeterStats(String name, String tags, String type, long count, double totalMs,
+            double meanMs, double maxMs, double value, long[] histogram) {
+        this.name = name;
+        this.tags = tags;
+        this.type = type;
+        this.count = count;
+        this.totalMs = totalMs;
+        this.meanMs = meanMs;
+        this.maxMs = maxMs;
+        this.value = value;
+        this.histogram = histogram == null ? new long[0] : histogram.clone();
+    }
+
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    public static MeterStats of(@NonNull Meter meter) {
+        final MeterId id = meter.getId();
+        final String name = id.getName();
+        final String tags = id.getTagsString();
+        if (meter instanceof Timer) {
+            Timer timer = (Timer) meter;
+            long count = timer.count();
+            double totalMs = millis(timer.totalTime(TimeUnit.NANOSECONDS));
+            double meanMs = count == 0 ? 0D : totalMs / count;
+            double maxMs = millis(timer.max(TimeUnit.NANOSECONDS));
+            return new MeterStats(name, tags, "timer", count, totalMs, meanMs, maxMs, 0D,
+                    timer.histogram());
+        }
+        if (meter instanceof Counter) {
+            long count = ((Counter) meter).count();
+            return new MeterStats(name, tags, "counter", count, 0D, 0D, 0D, 0D, null);
+        }
+        if (meter instanceof Gauge) {
+            double value = ((Gauge) meter).value();
+            return new MeterStats(name, tags, "gauge", 0L, 0D, 0D, 0D, value, null);
+        }
+        throw new IllegalArgumentException("Unknown meter type: " + meter);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000D;
+    }
+}
@@ -0,0 +1,18 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+/**
+ * Marker interface for the storage decorators installed by {@link MetricsDecorator}, to avoid
+ * decorating an already metered store
+ */
+interface Metered {
+
+}
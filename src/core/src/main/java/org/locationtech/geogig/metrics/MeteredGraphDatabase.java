@@ -0,0 +1,73 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.decorator.ForwardingGraphDatabase;
+
+import lombok.NonNull;
+
+/**
+ * Times the {@link GraphDatabase} operations on the {@code geogig.storage.op} timer, tagged
+ * {@code store=graph}
+ * 
+ * @see StoreMetrics
+ */
+class MeteredGraphDatabase extends ForwardingGraphDatabase implements Metered {
+
+    private final StoreMetrics metrics;
+
+    MeteredGraphDatabase(@NonNull GraphDatabase actual, @NonNull MetricsRegistry registry) {
+        super(actual);
+        this.metrics = new StoreMetrics(registry, "graph", actual);
+    }
+
+    public @Override boolean exists(ObjectId commitId) {
+        return metrics.time("exists", () -> super.exists(commitId));
+    }
+
+    public @Override List<ObjectId> getParents(ObjectId commitId) {
+        return metrics.time("getParents", () -> super.getParents(commitId));
+    }
+
+    public @Override List<ObjectId> getChildren(ObjectId commitId) {
+        return metrics.time("getChildren", () -> super.getChildren(commitId));
+    }
+
+    public @Override boolean put(ObjectId commitId, List<ObjectId> parentIds) {
+        return metrics.time("put", () -> super.put(commitId, parentIds));
+    }
+
+    public @Override ObjectId getMapping(ObjectId commitId) {
+        return metrics.time("getMapping", () -> super.getMapping(commitId));
+    }
+
+    public @Override int getDepth(ObjectId commitId) {
+        return metrics.time("getDepth", () -> super.getDepth(commitId));
+    }
+
+    public @Override List<ObjectId> getAncestors(Collection<ObjectId> commitIds, int limit) {
+        return metrics.time("getAncestors", () -> super.getAncestors(commitIds, limit));
+    }
+
+    public @Override Optional<ObjectId> findLowestCommonAncestor(ObjectId left, ObjectId right) {
+        return metrics.time("findLowestCommonAncestor",
+                () -> super.findLowestCommonAncestor(left, right));
+    }
+
+    public @Override GraphNode getNode(ObjectId id) {
+        return metrics.time("getNode", () -> super.getNode(id));
+    }
+}
@@ -0,0 +1,147 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.DiffObjectInfo;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.ObjectInfo;
+import org.locationtech.geogig.storage.decorator.ForwardingIndexDatabase;
+
+import lombok.NonNull;
+
+/**
+ * Times the {@link IndexDatabase} operations on the {@code geogig.storage.op} timer, tagged
+ * {@code store=indexes}
+ * 
+ * @see StoreMetrics
+ */
+class MeteredIndexDatabase extends ForwardingIndexDatabase implements Metered {
+
+    private final StoreMetrics metrics;
+
+    MeteredIndexDatabase(@NonNull IndexDatabase actual, @NonNull MetricsRegistry registry) {
+        super(actual);
+        this.metrics = new StoreMetrics(registry, "indexes", actual);
+    }
+
+    public @Override Optional<IndexInfo> getIndexInfo(String treeName, String attributeName) {
+        return metrics.time("getIndexInfo", () -> super.getIndexInfo(treeName, attributeName));
+    }
+
+    public @Override List<IndexInfo> getIndexInfos(String treeName) {
+        return metrics.time("getIndexInfos", () -> super.getIndexInfos(treeName));
+    }
+
+    public @Override List<IndexInfo> getIndexInfos() {
+        return metrics.time("getIndexInfos", () -> super.getIndexInfos());
+    }
+
+    public @Override void addIndexedTree(IndexInfo index, ObjectId originalTree,
+            ObjectId indexedTree) {
+        metrics.run("addIndexedTree",
+                () -> super.addIndexedTree(index, originalTree, indexedTree));
+    }
+
+    public @Override Optional<ObjectId> resolveIndexedTree(IndexInfo index, ObjectId treeId) {
+        return metrics.time("resolveIndexedTree", () -> super.resolveIndexedTree(index, treeId));
+    }
+
+    public @Override boolean exists(ObjectId id) {
+        return metrics.time("exists", () -> super.exists(id));
+    }
+
+    public @Override RevObject get(ObjectId id) {
+        return metrics.time("get", () -> super.get(id));
+    }
+
+    public @Override <T extends RevObject> T get(ObjectId id, Class<T> type) {
+        return metrics.time("get", () -> super.get(id, type));
+    }
+
+    public @Override RevObject getIfPresent(ObjectId id) {
+        return metrics.time("getIfPresent", () -> super.getIfPresent(id));
+    }
+
+    public @Override <T extends RevObject> T getIfPresent(ObjectId id, Class<T> type) {
+        return metrics.time("getIfPresent", () -> super.getIfPresent(id, type));
+    }
+
+    public @Override RevTree getTree(ObjectId id) {
+        return metrics.time("getTree", () -> super.getTree(id));
+    }
+
+    public @Override boolean put(RevObject object) {
+        return metrics.time("put", () -> super.put(object));
+    }
+
+    public @Override Iterator<RevObject> getAll(Iterable<ObjectId> ids) {
+        return metrics.iterator("getAll", () -> super.getAll(ids));
+    }
+
+    public @Override Iterator<RevObject> getAll(Iterable<ObjectId> ids, BulkOpListener listener) {
+        return metrics.iterator("getAll", () -> super.getAll(ids, listener));
+    }
+
+    public @Override <T extends RevObject> Iterator<T> getAll(Iterable<ObjectId> ids,
+            BulkOpListener listener, Class<T> type) {
+        return metrics.iterator("getAll", () -> super.getAll(ids, listener, type));
+    }
+
+    public @Override void putAll(Iterator<? extends RevObject> objects) {
+        metrics.run("putAll", () -> super.putAll(objects));
+    }
+
+    public @Override void putAll(Iterator<? extends RevObject> objects, BulkOpListener listener) {
+        metrics.run("putAll", () -> super.putAll(objects, listener));
+    }
+
+    public @Override <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
+            Iterator<NodeRef> nodes, BulkOpListener listener, Class<T> type) {
+        return metrics.closeableIterator("getObjects",
+                () -> super.getObjects(nodes, listener, type));
+    }
+
+    public @Override <T extends RevObject> AutoCloseableIterator<DiffObjectInfo<T>> getDiffObjects(
+            Iterator<DiffEntry> diffEntries, Class<T> type) {
+        return metrics.closeableIterator("getDiffObjects",
+                () -> super.getDiffObjects(diffEntries, type));
+    }
+
+    /**
+     * Hands the unwrapped target over, so that the actual database can recognize a target of its
+     * own kind and take its fast copy path. The copy is not timed.
+     */
+    public @Override void copyIndexesTo(IndexDatabase target) {
+        super.copyIndexesTo(unwrap(target));
+    }
+
+    public @Override void copyIndexTo(IndexInfo index, IndexDatabase target) {
+        super.copyIndexTo(index, unwrap(target));
+    }
+
+    static IndexDatabase unwrap(IndexDatabase db) {
+        while (db instanceof MeteredIndexDatabase) {
+            db = ((MeteredIndexDatabase) db).getActual();
+        }
+        return db;
+    }
+}
@@ -0,0 +1,132 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTag;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.ObjectInfo;
+import org.locationtech.geogig.storage.decorator.ForwardingObjectDatabase;
+
+import lombok.NonNull;
+
+/**
+ * Times the {@link ObjectDatabase} operations on the {@code geogig.storage.op} timer, tagged
+ * {@code store=objects}
+ * 
+ * @see StoreMetrics
+ */
+class MeteredObjectDatabase extends ForwardingObjectDatabase implements Metered {
+
+    private final StoreMetrics metrics;
+
+    MeteredObjectDatabase(@NonNull ObjectDatabase odb, @NonNull MetricsRegistry registry) {
+        super(odb);
+        this.metrics = new StoreMetrics(registry, "objects", odb);
+    }
+
+    public @Override boolean exists(ObjectId id) {
+        return metrics.time("exists", () -> super.exists(id));
+    }
+
+    public @Override List<ObjectId> lookUp(String partialId) {
+        return metrics.time("lookUp", () -> super.lookUp(partialId));
+    }
+
+    public @Override RevObject get(ObjectId id) {
+        return metrics.time("get", () -> super.get(id));
+    }
+
+    public @Override <T extends RevObject> T get(ObjectId id, Class<T> type) {
+        return metrics.time("get", () -> super.get(id, type));
+    }
+
+    public @Override RevObject getIfPresent(ObjectId id) {
+        return metrics.time("getIfPresent", () -> super.getIfPresent(id));
+    }
+
+    public @Override <T extends RevObject> T getIfPresent(ObjectId id, Class<T> type) {
+        return metrics.time("getIfPresent", () -> super.getIfPresent(id, type));
+    }
+
+    public @Override RevTree getTree(ObjectId id) {
+        return metrics.time("getTree", () -> super.getTree(id));
+    }
+
+    public @Override RevFeature getFeature(ObjectId id) {
+        return metrics.time("getFeature", () -> super.getFeature(id));
+    }
+
+    public @Override RevFeatureType getFeatureType(ObjectId id) {
+        return metrics.time("getFeatureType", () -> super.getFeatureType(id));
+    }
+
+    public @Override RevCommit getCommit(ObjectId id) {
+        return metrics.time("getCommit", () -> super.getCommit(id));
+    }
+
+    public @Override RevTag getTag(ObjectId id) {
+        return metrics.time("getTag", () -> super.getTag(id));
+    }
+
+    public @Override boolean put(RevObject object) {
+        return metrics.time("put", () -> super.put(object));
+    }
+
+    public @Override void delete(ObjectId objectId) {
+        metrics.run("delete", () -> super.delete(objectId));
+    }
+
+    public @Override Iterator<RevObject> getAll(Iterable<ObjectId> ids) {
+        return metrics.iterator("getAll", () -> super.getAll(ids));
+    }
+
+    public @Override Iterator<RevObject> getAll(Iterable<ObjectId> ids, BulkOpListener listener) {
+        return metrics.iterator("getAll", () -> super.getAll(ids, listener));
+    }
+
+    public @Override <T extends RevObject> Iterator<T> getAll(Iterable<ObjectId> ids,
+            BulkOpListener listener, Class<T> type) {
+        return metrics.iterator("getAll", () -> super.getAll(ids, listener, type));
+    }
+
+    public @Override void putAll(Iterator<? extends RevObject> objects) {
+        metrics.run("putAll", () -> super.putAll(objects));
+    }
+
+    public @Override void putAll(Iterator<? extends RevObject> objects, BulkOpListener listener) {
+        metrics.run("putAll", () -> super.putAll(objects, listener));
+    }
+
+    public @Override void deleteAll(Iterator<ObjectId> ids) {
+        metrics.run("deleteAll", () -> super.deleteAll(ids));
+    }
+
+    public @Override void deleteAll(Iterator<ObjectId> ids, BulkOpListener listener) {
+        metrics.run("deleteAll", () -> super.deleteAll(ids, listener));
+    }
+
+    public @Override <T extends RevObject> AutoCloseableIterator<ObjectInfo<T>> getObjects(
+            Iterator<NodeRef> refs, BulkOpListener listener, Class<T> type) {
+        return metrics.closeableIterator("getObjects",
+                () -> super.getObjects(refs, listener, type));
+    }
+}
@@ -0,0 +1,95 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.storage.RefChange;
+import org.locationtech.geogig.storage.RefDatabase;
+import org.locationtech.geogig.storage.decorator.ForwardingRefDatabase;
+
+import lombok.NonNull;
+
+/**
+ * Times the {@link RefDatabase} operations on the {@code geogig.storage.op} timer, tagged
+ * {@code store=refs}
+ * 
+ * @see StoreMetrics
+ */
+class MeteredRefDatabase extends ForwardingRefDatabase implements Metered {
+
+    private final StoreMetrics metrics;
+
+    MeteredRefDatabase(@NonNull RefDatabase actual, @NonNull MetricsRegistry registry) {
+        super(actual);
+        this.metrics = new StoreMetrics(registry, "refs", actual);
+    }
+
+    public @Override Optional<Ref> get(@NonNull String name) {
+        return metrics.time("get", () -> super.get(name));
+    }
+
+    public @Override @NonNull RefChange put(@NonNull Ref ref) {
+        return metrics.time("put", () -> super.put(ref));
+    }
+
+    public @Override @NonNull List<RefChange> putAll(@NonNull Iterable<Ref> refs) {
+        return metrics.time("putAll", () -> super.putAll(refs));
+    }
+
+    public @Override @NonNull RefChange delete(@NonNull String refName) {
+        return metrics.time("delete", () -> super.delete(refName));
+    }
+
+    public @Override @NonNull RefChange delete(@NonNull Ref ref) {
+        return metrics.time("delete", () -> super.delete(ref));
+    }
+
+    public @Override List<RefChange> delete(@NonNull Iterable<String> refNames) {
+        return metrics.time("delete", () -> super.delete(refNames));
+    }
+
+    public @Override @NonNull List<Ref> getAll() {
+        return metrics.time("getAll", () -> super.getAll());
+    }
+
+    public @Override @NonNull List<Ref> getAll(@NonNull String prefix) {
+        return metrics.time("getAll", () -> super.getAll(prefix));
+    }
+
+    public @Override List<Ref> getAllPresent(@NonNull Iterable<String> names) {
+        return metrics.time("getAllPresent", () -> super.getAllPresent(names));
+    }
+
+    public @Override @NonNull RefChange putRef(@NonNull String name, @NonNull ObjectId value) {
+        return metrics.time("putRef", () -> super.putRef(name, value));
+    }
+
+    public @Override Optional<List<RefChange>> compareAndSet(
+            @NonNull Map<String, Optional<Ref>> expected, @NonNull Iterable<Ref> updates,
+            @NonNull Iterable<String> deletes) throws TimeoutException {
+        final Timer timer = metrics.timer("compareAndSet");
+        final long start = System.nanoTime();
+        try {
+            return super.compareAndSet(expected, updates, deletes);
+        } finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+
+    public @Override @NonNull RefChange putSymRef(@NonNull String name, @NonNull String target) {
+        return metrics.time("putSymRef", () -> super.putSymRef(name, target));
+    }
+}
@@ -0,0 +1,157 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.locationtech.geogig.model.ServiceFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import lombok.NonNull;
+
+/**
+ * Entry point to GeoGig's metrics.
+ * <p>
+ * Metrics are disabled by default, and enabled by setting the {@code GEOGIG_METRICS_ENABLED}
+ * System property or environment variable to {@code true}, with the System property taking
+ * precedence over the environment variable. While disabled, {@link #registry()} returns a
+ * registry whose meters do nothing, and the storage and command decorators are not installed at
+ * all, so there's no overhead.
+ * <p>
+ * Once enabled, the {@link MetricsRegistry} is resolved through the {@link ServiceFinder} using
+ * the {@code GEOGIG_METRICS_REGISTRY} System property or environment variable to provide the
+ * fully qualified class name of the implementation to use, or the highest priority one found
+ * through the {@link java.util.ServiceLoader} SPI, defaulting to {@link DefaultMetricsRegistry}.
+ * All the {@link MetricsReporter}s found through the SPI are then started.
+ */
+public final class Metrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Metrics.class);
+
+    public static final String ENABLED = "GEOGIG_METRICS_ENABLED";
+
+    public static final String REGISTRY = "GEOGIG_METRICS_REGISTRY";
+
+    private static final boolean enabled = resolveEnabled();
+
+    private static volatile MetricsRegistry registry;
+
+    private static List<MetricsReporter> reporters = Collections.emptyList();
+
+    private Metrics() {
+        // static utility class
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the metrics registry in use, or one whose meters do nothing if metrics are disabled
+     */
+    public static MetricsRegistry registry() {
+        if (!enabled) {
+            return NoopMetricsRegistry.INSTANCE;
+        }
+        if (registry == null) {
+            synchronized (Metrics.class) {
+                if (registry == null) {
+                    init(lookupRegistry());
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Times the execution of {@code op} on the given timer
+     */
+    public static <T> T time(@NonNull Timer timer, @NonNull Supplier<T> op) {
+        final long start = System.nanoTime();
+        try {
+            return op.get();
+        } finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs {@code op}, timing its execution on the given timer
+     */
+    public static void run(@NonNull Timer timer, @NonNull Runnable op) {
+        final long start = System.nanoTime();
+        try {
+            op.run();
+        } finally {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the mean rate per second of {@code count} events during {@code elapsedNanos}
+     */
+    static double rate(long count, long elapsedNanos) {
+        return elapsedNanos <= 0 ? 0D
+                : count / ((double) elapsedNanos / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static boolean resolveEnabled() {
+        String value = System.getProperty(ENABLED);
+        if (value == null) {
+            value = System.getenv(ENABLED);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private static MetricsRegistry lookupRegistry() {
+        ServiceFinder finder = new ServiceFinder();
+        MetricsRegistry found = finder.lookupSystemProperty(MetricsRegistry.class, REGISTRY);
+        if (found == null) {
+            found = finder.lookupEnvironmentVariable(MetricsRegistry.class, REGISTRY);
+        }
+        if (found == null) {
+            found = finder.lookupService(MetricsRegistry.class);
+        }
+        return found == null ? new DefaultMetricsRegistry() : found;
+    }
+
+    /**
+     * Replaces the registry in use, stopping the current reporters and starting them again on the
+     * new registry
+     */
+    @VisibleForTesting
+    static synchronized void init(@NonNull MetricsRegistry newRegistry) {
+        reporters.forEach(Metrics::stop);
+        LOG.info("GeoGig metrics enabled, using {}", newRegistry.getClass().getName());
+        registry = newRegistry;
+        reporters = new ServiceFinder().lookupServices(MetricsReporter.class);
+        for (MetricsReporter reporter : reporters) {
+            try {
+                reporter.start(newRegistry);
+            } catch (RuntimeException e) {
+                LOG.warn("Error starting metrics reporter {}", reporter, e);
+            }
+        }
+    }
+
+    private static void stop(MetricsReporter reporter) {
+        try {
+            reporter.stop();
+        } catch (RuntimeException e) {
+            LOG.warn("Error stopping metrics reporter {}", reporter, e);
+        }
+    }
+}
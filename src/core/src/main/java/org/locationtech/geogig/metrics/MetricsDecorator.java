@@ -0,0 +1,62 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import org.locationtech.geogig.di.Decorator;
+import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.RefDatabase;
+
+import lombok.NonNull;
+
+/**
+ * {@link Decorator} that times the operations of the repository's object, index, ref, and graph
+ * databases, installed only if {@link Metrics#isEnabled() metrics are enabled}.
+ * 
+ * @see StoreMetrics
+ */
+public class MetricsDecorator implements Decorator {
+
+    private final MetricsRegistry registry;
+
+    public MetricsDecorator() {
+        this(Metrics.registry());
+    }
+
+    public MetricsDecorator(@NonNull MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public @Override boolean canDecorate(Object instance) {
+        if (instance instanceof Metered) {
+            return false;
+        }
+        return instance instanceof ObjectDatabase || instance instanceof IndexDatabase
+                || instance instanceof RefDatabase || instance instanceof GraphDatabase;
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Override <I> I decorate(I subject) {
+        if (subject instanceof ObjectDatabase) {
+            return (I) new MeteredObjectDatabase((ObjectDatabase) subject, registry);
+        }
+        if (subject instanceof IndexDatabase) {
+            return (I) new MeteredIndexDatabase((IndexDatabase) subject, registry);
+        }
+        if (subject instanceof RefDatabase) {
+            return (I) new MeteredRefDatabase((RefDatabase) subject, registry);
+        }
+        if (subject instanceof GraphDatabase) {
+            return (I) new MeteredGraphDatabase((GraphDatabase) subject, registry);
+        }
+        return subject;
+    }
+}
@@ -0,0 +1,30 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.List;
+
+import javax.management.MXBean;
+
+/**
+ * JMX view of the GeoGig {@link MetricsRegistry}, registered by {@link JmxMetricsReporter} as
+ * {@code org.geogig:type=metrics} so it can be watched through a MBeans client such as JConsole.
+ */
+@MXBean
+public interface MetricsMXBean {
+
+    public List<MeterStats> getMeters();
+
+    /**
+     * @return a human readable report of all the meters, as given by
+     *         {@link InProcessMetricsReporter#report(MetricsRegistry)}
+     */
+    public String getReport();
+}
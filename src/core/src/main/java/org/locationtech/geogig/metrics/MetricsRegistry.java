@@ -0,0 +1,54 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import org.locationtech.geogig.model.PriorityService;
+
+/**
+ * Service provider interface for the registry of {@link Meter meters} GeoGig records its metrics
+ * to.
+ * <p>
+ * The registry in use is looked up by {@link Metrics} using the {@code GEOGIG_METRICS_REGISTRY}
+ * System property or environment variable, or the {@link java.util.ServiceLoader} SPI, choosing
+ * the one with highest {@link #getPriority() priority}. {@link DefaultMetricsRegistry} is the
+ * lowest priority implementation, keeping all meters in memory; other implementations may bridge
+ * to an external metrics library.
+ * <p>
+ * Meters are identified by name and tags, and asking for the same meter twice shall return the
+ * same instance. Implementations must be thread safe.
+ */
+public interface MetricsRegistry extends PriorityService {
+
+    /**
+     * @param tags alternating tag keys and values
+     */
+    public Counter counter(String name, String... tags);
+
+    /**
+     * @param tags alternating tag keys and values
+     */
+    public Timer timer(String name, String... tags);
+
+    /**
+     * Registers a gauge, replacing any previous one with the same name and tags
+     * 
+     * @param value samples the gauge value each time it's reported
+     * @param tags alternating tag keys and values
+     */
+    public Gauge gauge(String name, DoubleSupplier value, String... tags);
+
+    /**
+     * @return all the meters registered so far
+     */
+    public List<Meter> getMeters();
+}
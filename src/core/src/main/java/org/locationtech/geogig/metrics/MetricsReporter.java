@@ -0,0 +1,25 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+/**
+ * Service provider interface for components that publish the {@link MetricsRegistry registry}
+ * meters somewhere, looked up through the {@link java.util.ServiceLoader} SPI and started by
+ * {@link Metrics} the first time the registry is accessed, if metrics are enabled.
+ * 
+ * @see JmxMetricsReporter
+ * @see InProcessMetricsReporter
+ */
+public interface MetricsReporter {
+
+    public void start(MetricsRegistry registry);
+
+    public void stop();
+}
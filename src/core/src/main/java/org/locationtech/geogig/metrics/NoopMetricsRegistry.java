@@ -0,0 +1,101 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * The {@link MetricsRegistry} in use when metrics are disabled, its meters record nothing
+ */
+final class NoopMetricsRegistry implements MetricsRegistry {
+
+    static final NoopMetricsRegistry INSTANCE = new NoopMetricsRegistry();
+
+    private static final MeterId NOOP_ID = MeterId.of("noop");
+
+    private static final long[] EMPTY_HISTOGRAM = new long[Timer.BUCKET_BOUNDS_MS.length + 1];
+
+    private static final Counter COUNTER = new Counter() {
+        public @Override MeterId getId() {
+            return NOOP_ID;
+        }
+
+        public @Override void increment(long amount) {
+            // no-op
+        }
+
+        public @Override long count() {
+            return 0L;
+        }
+    };
+
+    private static final Timer TIMER = new Timer() {
+        public @Override MeterId getId() {
+            return NOOP_ID;
+        }
+
+        public @Override void record(long durationNanos) {
+            // no-op
+        }
+
+        public @Override long count() {
+            return 0L;
+        }
+
+        public @Override long totalTime(TimeUnit unit) {
+            return 0L;
+        }
+
+        public @Override long max(TimeUnit unit) {
+            return 0L;
+        }
+
+        public @Override long[] histogram() {
+            return EMPTY_HISTOGRAM.clone();
+        }
+    };
+
+    private static final Gauge GAUGE = new Gauge() {
+        public @Override MeterId getId() {
+            return NOOP_ID;
+        }
+
+        public @Override double value() {
+            return 0D;
+        }
+    };
+
+    private NoopMetricsRegistry() {
+        // singleton
+    }
+
+    public @Override int getPriority() {
+        return 0;
+    }
+
+    public @Override Counter counter(String name, String... tags) {
+        return COUNTER;
+    }
+
+    public @Override Timer timer(String name, String... tags) {
+        return TIMER;
+    }
+
+    public @Override Gauge gauge(String name, DoubleSupplier value, String... tags) {
+        return GAUGE;
+    }
+
+    public @Override List<Meter> getMeters() {
+        return Collections.emptyList();
+    }
+}
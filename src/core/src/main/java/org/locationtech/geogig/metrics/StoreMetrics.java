@@ -0,0 +1,127 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+
+import lombok.NonNull;
+
+/**
+ * Times the operations of a store on the {@code geogig.storage.op} {@link Timer timer}, tagged by
+ * {@code store} kind ({@code objects}, {@code indexes}, {@code refs}, or {@code graph}),
+ * {@code backend} simple class name, and {@code op} method name.
+ * <p>
+ * Operations returning iterators are timed for the time spent calling the iterator, recorded
+ * once it's exhausted or closed, whichever happens first.
+ */
+final class StoreMetrics {
+
+    static final String TIMER_NAME = "geogig.storage.op";
+
+    private final MetricsRegistry registry;
+
+    private final String store;
+
+    private final String backend;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    StoreMetrics(@NonNull MetricsRegistry registry, @NonNull String store,
+            @NonNull Object backend) {
+        this.registry = registry;
+        this.store = store;
+        this.backend = backend.getClass().getSimpleName();
+    }
+
+    Timer timer(String op) {
+        return timers.computeIfAbsent(op, o -> registry.timer(TIMER_NAME, "store",
+                store, "backend", backend, "op", o));
+    }
+
+    <T> T time(String op, Supplier<T> call) {
+        return Metrics.time(timer(op), call);
+    }
+
+    void run(String op, Runnable call) {
+        Metrics.run(timer(op), call);
+    }
+
+    <T> Iterator<T> iterator(String op, Supplier<Iterator<T>> call) {
+        final Timer timer = timer(op);
+        final long start = System.nanoTime();
+        Iterator<T> it = call.get();
+        return new TimedIterator<>(AutoCloseableIterator.fromIterator(it), timer,
+                System.nanoTime() - start);
+    }
+
+    <T> AutoCloseableIterator<T> closeableIterator(String op,
+            Supplier<AutoCloseableIterator<T>> call) {
+        final Timer timer = timer(op);
+        final long start = System.nanoTime();
+        AutoCloseableIterator<T> it = call.get();
+        return new TimedIterator<>(it, timer, System.nanoTime() - start);
+    }
+
+    private static class TimedIterator<T> implements AutoCloseableIterator<T> {
+
+        private final AutoCloseableIterator<T> delegate;
+
+        private final Timer timer;
+
+        private long elapsedNanos;
+
+        private boolean recorded;
+
+        TimedIterator(AutoCloseableIterator<T> delegate, Timer timer, long elapsedNanos) {
+            this.delegate = delegate;
+            this.timer = timer;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public @Override boolean hasNext() {
+            final long start = System.nanoTime();
+            boolean hasNext = delegate.hasNext();
+            elapsedNanos += System.nanoTime() - start;
+            if (!hasNext) {
+                record();
+            }
+            return hasNext;
+        }
+
+        public @Override T next() {
+            final long start = System.nanoTime();
+            try {
+                return delegate.next();
+            } finally {
+                elapsedNanos += System.nanoTime() - start;
+            }
+        }
+
+        public @Override void close() {
+            try {
+                delegate.close();
+            } finally {
+                record();
+            }
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                timer.record(elapsedNanos);
+            }
+        }
+    }
+}
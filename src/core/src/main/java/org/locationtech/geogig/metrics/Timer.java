@@ -0,0 +1,54 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the count, total and maximum duration, and a latency histogram of an operation.
+ * <p>
+ * The histogram has a bucket per power of two milliseconds as given by {@link #BUCKET_BOUNDS_MS},
+ * the last one counting the durations greater than the highest bound.
+ */
+public interface Timer extends Meter {
+
+    /**
+     * Upper bounds, inclusive, of the {@link #histogram()} buckets, in milliseconds
+     */
+    public static final long[] BUCKET_BOUNDS_MS = { 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024,
+            2048, 4096, 8192, 16384, 32768 };
+
+    public void record(long durationNanos);
+
+    public long count();
+
+    public long totalTime(TimeUnit unit);
+
+    public long max(TimeUnit unit);
+
+    /**
+     * @return the number of durations recorded in each bucket, of length
+     *         {@code BUCKET_BOUNDS_MS.length + 1}
+     */
+    public long[] histogram();
+
+    /**
+     * @return the index of the {@link #histogram()} bucket a duration falls in
+     */
+    public static int bucket(long durationNanos) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (millis <= BUCKET_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MS.length;
+    }
+}
@@ -0,0 +1,263 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.fs.CommitGraphFile;
+
+import lombok.NonNull;
+
+/**
+ * Answers merge-base and ancestry queries using the generation numbers in a
+ * {@link CommitGraphFile}, falling back to the {@link GraphDatabase} for commits created after the
+ * file was written.
+ * <p>
+ * Instances hold per query state and are not thread safe.
+ */
+final class CommitGraphWalker {
+
+    private static final int PARENT1 = 1;
+
+    private static final int PARENT2 = 2;
+
+    private static final int STALE = 4;
+
+    private static final int RESULT = 8;
+
+    private static final Comparator<Node> BY_GENERATION_DESC = Comparator
+            .comparingInt((Node n) -> n.generation).reversed()
+            .thenComparing(Comparator.comparingLong((Node n) -> n.timestamp).reversed());
+
+    private static class Node {
+        final ObjectId id;
+
+        final int generation;
+
+        final long timestamp;
+
+        final List<ObjectId> parents;
+
+        int flags;
+
+        boolean queued;
+
+        Node(ObjectId id, int generation, long timestamp, List<ObjectId> parents) {
+            this.id = id;
+            this.generation = generation;
+            this.timestamp = timestamp;
+            this.parents = parents;
+        }
+    }
+
+    private final CommitGraphFile index;
+
+    private final GraphDatabase graph;
+
+    private final Map<ObjectId, Node> nodes = new HashMap<>();
+
+    CommitGraphWalker(@NonNull CommitGraphFile index, @NonNull GraphDatabase graph) {
+        this.index = index;
+        this.graph = graph;
+    }
+
+    /**
+     * @return a walker for the repository's commit graph file, or empty if it has none
+     */
+    static Optional<CommitGraphWalker> open(@Nullable Repository repository,
+            @NonNull GraphDatabase graph) {
+        return CommitGraphFile.locate(repository).flatMap(CommitGraphFile::open)
+                .map(index -> new CommitGraphWalker(index, graph));
+    }
+
+    /**
+     * Finds the best common ancestor of both commits, walking down from them in generation order
+     * and stopping as soon as all the commits left to visit are known to be reachable from a common
+     * ancestor.
+     * <p>
+     * If there are several best common ancestors (i.e. none of them is an ancestor of the others),
+     * the one with the highest generation number, or the most recent if tied, is returned.
+     */
+    Optional<ObjectId> mergeBase(@NonNull ObjectId left, @NonNull ObjectId right) {
+        if (left.equals(right)) {
+            return Optional.of(left);
+        }
+        final Node one = node(left);
+        final Node two = node(right);
+        final PriorityQueue<Node> queue = new PriorityQueue<>(BY_GENERATION_DESC);
+        one.flags |= PARENT1;
+        two.flags |= PARENT2;
+        one.queued = two.queued = true;
+        queue.add(one);
+        queue.add(two);
+
+        // number of queued nodes not flagged as STALE, the walk is over when it drops to zero
+        int nonStale = 2;
+        List<Node> results = new ArrayList<>(2);
+        while (nonStale > 0) {
+            final Node commit = queue.poll();
+            commit.queued = false;
+            int flags = commit.flags & (PARENT1 | PARENT2 | STALE);
+            if ((flags & STALE) == 0) {
+                nonStale--;
+            }
+            if (flags == (PARENT1 | PARENT2)) {
+                if ((commit.flags & RESULT) == 0) {
+                    commit.flags |= RESULT;
+                    results.add(commit);
+                }
+                flags |= STALE;
+            }
+            for (ObjectId parentId : commit.parents) {
+                Node parent = node(parentId);
+                if ((parent.flags & flags) == flags) {
+                    continue;
+                }
+                final boolean wasStale = (parent.flags & STALE) != 0;
+                parent.flags |= flags;
+                final boolean isStale = (parent.flags & STALE) != 0;
+                if (parent.queued) {
+                    // already queued, its new flags will be propagated when polled
+                    if (isStale && !wasStale) {
+                        nonStale--;
+                    }
+                } else {
+                    parent.queued = true;
+                    queue.add(parent);
+                    if (!isStale) {
+                        nonStale++;
+                    }
+                }
+            }
+        }
+        if (results.size() > 1) {
+            results.removeIf(r -> isRedundant(r, results));
+        }
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0).id);
+    }
+
+    private boolean isRedundant(Node candidate, List<Node> results) {
+        for (Node other : results) {
+            if (other != candidate && isAncestor(candidate.id, other.id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if {@code ancestor} is reachable from {@code descendant}, or they're the
+     *         same commit
+     */
+    boolean isAncestor(@NonNull ObjectId ancestor, @NonNull ObjectId descendant) {
+        if (ancestor.equals(descendant)) {
+            return true;
+        }
+        final int minGeneration = node(ancestor).generation;
+        final Node start = node(descendant);
+        if (start.generation <= minGeneration) {
+            return false;
+        }
+        Set<ObjectId> visited = new HashSet<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            Node commit = stack.pop();
+            for (ObjectId parentId : commit.parents) {
+                if (parentId.equals(ancestor)) {
+                    return true;
+                }
+                if (visited.add(parentId)) {
+                    Node parent = node(parentId);
+                    if (parent.generation > minGeneration) {
+                        stack.push(parent);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the node for the given commit, taking it from the commit graph file if indexed, or
+     * computing its generation number from the graph database otherwise.
+     */
+    private Node node(ObjectId commitId) {
+        Node node = nodes.get(commitId);
+        if (node != null) {
+            return node;
+        }
+        // iterative, unindexed commits may have long chains of unindexed ancestors
+        Deque<ObjectId> stack = new ArrayDeque<>();
+        Map<ObjectId, List<ObjectId>> pendingParents = new HashMap<>();
+        stack.push(commitId);
+        while (!stack.isEmpty()) {
+            final ObjectId id = stack.peek();
+            if (nodes.containsKey(id)) {
+                stack.pop();
+                continue;
+            }
+            final int position = index.position(id);
+            if (position > -1) {
+                nodes.put(id, indexed(position));
+                stack.pop();
+                continue;
+            }
+            List<ObjectId> parents = pendingParents.computeIfAbsent(id, this::graphParents);
+            int maxGeneration = 0;
+            boolean pending = false;
+            for (ObjectId parentId : parents) {
+                Node parent = nodes.get(parentId);
+                if (parent == null) {
+                    pending = true;
+                    stack.push(parentId);
+                } else {
+                    maxGeneration = Math.max(maxGeneration, parent.generation);
+                }
+            }
+            if (!pending) {
+                nodes.put(id, new Node(id, maxGeneration + 1, 0L, parents));
+                pendingParents.remove(id);
+                stack.pop();
+            }
+        }
+        return nodes.get(commitId);
+    }
+
+    private Node indexed(int position) {
+        int[] parentPositions = index.parents(position);
+        List<ObjectId> parents = new ArrayList<>(parentPositions.length);
+        for (int p : parentPositions) {
+            parents.add(index.id(p));
+        }
+        return new Node(index.id(position), index.generation(position), index.timestamp(position),
+                parents);
+    }
+
+    private List<ObjectId> graphParents(ObjectId commitId) {
+        List<ObjectId> parents = new ArrayList<>(graph.getParents(commitId));
+        parents.removeIf(ObjectId::isNull);
+        return parents;
+    }
+}
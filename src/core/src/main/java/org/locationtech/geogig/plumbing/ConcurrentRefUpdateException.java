@@ -0,0 +1,28 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+/**
+ * Indicates {@link UpdateRefs} didn't update any ref because at least one of the
+ * {@link UpdateRefs#expect expected} refs was changed by another writer.
+ */
+public class ConcurrentRefUpdateException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new {@code ConcurrentRefUpdateException} with the given message.
+     *
+     * @param msg the message for the exception
+     */
+    public ConcurrentRefUpdateException(String msg) {
+        super(msg);
+    }
+}
@@ -30,6 +30,12 @@ import com.google.common.base.Preconditions;
 
 /**
  * Finds the common {@link RevCommit commit} ancestor of two commits.
+ * <p>
+ * If the repository has a {@link WriteCommitGraphOp commit graph index} and no custom graph
+ * sources were set, the lookup walks the commits in generation number order and stops as soon as
+ * the remaining commits can't lead to a better common ancestor. Lacking a commit graph index, the
+ * lookup is delegated to {@link GraphDatabase#findLowestCommonAncestor(ObjectId, ObjectId)} so that
+ * the graph database can resolve it at once.
  */
 public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
@@ -41,6 +47,8 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
     private Supplier<GraphDatabase> rightSource = () -> graphDatabase();
 
+    private boolean customSources;
+
     /**
      * @param left the left {@link ObjectId}
      */
@@ -51,11 +59,13 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
 
     public FindCommonAncestor setLeftSource(GraphDatabase leftGraph) {
         this.leftSource = leftGraph == null ? () -> graphDatabase() : () -> leftGraph;
+        this.customSources |= leftGraph != null;
         return this;
     }
 
     public FindCommonAncestor setRightSource(GraphDatabase rightGraph) {
         this.rightSource = rightGraph == null ? () -> graphDatabase() : () -> rightGraph;
+        this.customSources |= rightGraph != null;
         return this;
     }
 
@@ -116,6 +126,14 @@ public class FindCommonAncestor extends AbstractGeoGigOp<Optional<ObjectId>> {
      *         {@link Optional#empty()} if a common ancestor could not be found.
      */
     public Optional<ObjectId> findLowestCommonAncestor(ObjectId leftId, ObjectId rightId) {
+        if (!customSources) {
+            Optional<CommitGraphWalker> walker = CommitGraphWalker.open(repository(),
+                    graphDatabase());
+            if (walker.isPresent()) {
+                return walker.get().mergeBase(leftId, rightId);
+            }
+            return graphDatabase().findLowestCommonAncestor(leftId, rightId);
+        }
         Set<GraphNode> leftSet = new HashSet<GraphNode>();
         Set<GraphNode> rightSet = new HashSet<GraphNode>();
 
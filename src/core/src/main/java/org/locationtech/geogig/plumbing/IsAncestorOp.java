@@ -0,0 +1,74 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import java.util.Optional;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Determines whether a commit is reachable from another one.
+ * <p>
+ * Uses the {@link WriteCommitGraphOp commit graph index} if present, pruning the walk at commits of
+ * a lower generation than the candidate ancestor. Otherwise checks whether the candidate is the
+ * {@link FindCommonAncestor common ancestor} of both commits.
+ */
+public class IsAncestorOp extends AbstractGeoGigOp<Boolean> {
+
+    private ObjectId ancestor;
+
+    private ObjectId descendant;
+
+    /**
+     * @param ancestor the commit to check whether it's an ancestor of the
+     *        {@link #setDescendant(ObjectId) descendant}
+     */
+    public IsAncestorOp setAncestor(ObjectId ancestor) {
+        this.ancestor = ancestor;
+        return this;
+    }
+
+    public IsAncestorOp setDescendant(ObjectId descendant) {
+        this.descendant = descendant;
+        return this;
+    }
+
+    public IsAncestorOp setAncestor(RevCommit ancestor) {
+        return setAncestor(ancestor.getId());
+    }
+
+    public IsAncestorOp setDescendant(RevCommit descendant) {
+        return setDescendant(descendant.getId());
+    }
+
+    /**
+     * @return {@code true} if the ancestor commit is reachable from the descendant commit, or
+     *         they're the same commit
+     */
+    protected @Override Boolean _call() {
+        Preconditions.checkState(ancestor != null, "Ancestor commit has not been set.");
+        Preconditions.checkState(descendant != null, "Descendant commit has not been set.");
+        if (ancestor.equals(descendant)) {
+            return Boolean.TRUE;
+        }
+        Optional<CommitGraphWalker> walker = CommitGraphWalker.open(repository(),
+                graphDatabase());
+        if (walker.isPresent()) {
+            return Boolean.valueOf(walker.get().isAncestor(ancestor, descendant));
+        }
+        Optional<ObjectId> commonAncestor = command(FindCommonAncestor.class).setLeftId(ancestor)
+                .setRightId(descendant).call();
+        return Boolean.valueOf(commonAncestor.isPresent() && ancestor.equals(commonAncestor.get()));
+    }
+}
@@ -39,6 +39,8 @@ public class UpdateRefs extends AbstractGeoGigOp<List<RefChange>> {
 
     private Set<String> deletes = new HashSet<>();
 
+    private Map<String, Optional<Ref>> expected = new TreeMap<>();
+
     private @Getter @NonNull Optional<String> reason = Optional.empty();
 
     public UpdateRefs add(@NonNull String name, @NonNull ObjectId target) {
@@ -67,6 +69,20 @@ public class UpdateRefs extends AbstractGeoGigOp<List<RefChange>> {
         return this;
     }
 
+    /**
+     * Only update the refs if the current value of the named ref is still {@code value} when the
+     * command is executed, otherwise no ref is updated and a
+     * {@link ConcurrentRefUpdateException} is thrown.
+     * 
+     * @param name the name of the ref to check
+     * @param value the expected current value of the ref, or empty if it's expected not to exist
+     * @return {@code this}
+     */
+    public UpdateRefs expect(@NonNull String name, @NonNull Optional<Ref> value) {
+        expected.put(name, value);
+        return this;
+    }
+
     /**
      * @param reason if provided, the ref log will be updated with this reason message
      * @return {@code this}
@@ -79,6 +95,7 @@ public class UpdateRefs extends AbstractGeoGigOp<List<RefChange>> {
     /**
      * @return the value of the new refs, deleted refs have {@link ObjectId#NULL}
      *         {@link Ref#getObjectId() value}
+     * @throws ConcurrentRefUpdateException if any of the {@link #expect expected} refs changed
      */
     protected @Override List<RefChange> _call() {
         if (reason == null) {
@@ -88,6 +105,9 @@ public class UpdateRefs extends AbstractGeoGigOp<List<RefChange>> {
                     + names.stream().collect(Collectors.joining(", ")) + " without reason given");
         }
         RefDatabase refDatabase = refDatabase();
+        if (!expected.isEmpty()) {
+            return compareAndSet(refDatabase);
+        }
         try {
             refDatabase.lock();
         } catch (TimeoutException e) {
@@ -106,4 +126,15 @@ public class UpdateRefs extends AbstractGeoGigOp<List<RefChange>> {
         }
         return retval;
     }
+
+    private List<RefChange> compareAndSet(RefDatabase refDatabase) {
+        Optional<List<RefChange>> changes;
+        try {
+            changes = refDatabase.compareAndSet(expected, newAndUpdated.values(), deletes);
+        } catch (TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+        return changes.orElseThrow(() -> new ConcurrentRefUpdateException(
+                "Refs changed while updating them: " + expected.keySet()));
+    }
 }
@@ -0,0 +1,135 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.fs.ChangedPathsFile;
+import org.locationtech.geogig.storage.fs.ChangedPathsFile.Filter;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Writes the {@link ChangedPathsFile changed path filters} of all the commits reachable from the
+ * repository refs, used by path-filtered {@link org.locationtech.geogig.porcelain.LogOp log} and
+ * {@link org.locationtech.geogig.porcelain.BlameOp blame} to skip the commits that didn't touch
+ * the requested paths without loading their trees.
+ * <p>
+ * The filters of commits already present in an existing file are reused, so running this command
+ * after new commits were made only computes the filters of the new ones.
+ * <p>
+ * Only file based repositories support changed path filters.
+ */
+public class WriteChangedPathsOp extends AbstractGeoGigOp<Integer> {
+
+    /**
+     * @return the number of commits whose filters were computed, not counting the ones reused
+     *         from an existing file
+     */
+    protected @Override Integer _call() {
+        final Path target = ChangedPathsFile.locate(repository()).orElse(null);
+        Preconditions.checkState(target != null,
+                "Changed path filters are only supported by file based repositories");
+
+        final ProgressListener progress = getProgressListener();
+        progress.started();
+        progress.setDescription("Collecting commits...");
+        final Map<ObjectId, List<ObjectId>> graph = WriteCommitGraphOp
+                .reachableCommits(graphDatabase(), refDatabase().getAll());
+        final Optional<ChangedPathsFile> existing = ChangedPathsFile.open(target);
+
+        progress.setDescription(
+                String.format("Computing changed paths of %,d commits...", graph.size()));
+        final Map<ObjectId, Filter> filters = new HashMap<>();
+        int computed = 0;
+        for (ObjectId commitId : graph.keySet()) {
+            if (progress.isCanceled()) {
+                return computed;
+            }
+            Optional<Filter> filter = existing.flatMap(f -> f.filter(commitId));
+            if (!filter.isPresent()) {
+                filter = computeFilter(commitId);
+                if (filter.isPresent()) {
+                    computed++;
+                }
+            }
+            filter.ifPresent(f -> filters.put(commitId, f));
+            progress.setProgress(filters.size());
+        }
+        try {
+            ChangedPathsFile.write(target, filters);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        progress.complete();
+        return computed;
+    }
+
+    private Optional<Filter> computeFilter(ObjectId commitId) {
+        final ObjectDatabase db = objectDatabase();
+        final RevCommit commit = db.getIfPresent(commitId, RevCommit.class);
+        if (commit == null) {
+            return Optional.empty();
+        }
+        final Set<String> trees = new HashSet<>();
+        final Set<String> features = new HashSet<>();
+        boolean truncated = false;
+
+        final int numParents = Math.max(1, commit.getParentIds().size());
+        for (int i = 0; i < numParents; i++) {
+            // compare against the empty tree at the end of history or the bottom of a shallow clone
+            ObjectId parentTree = commit.parentN(i).map(p -> db.getIfPresent(p, RevCommit.class))
+                    .map(RevCommit::getTreeId).orElse(RevTree.EMPTY_TREE_ID);
+
+            addPaths(parentTree, commit.getTreeId(), false, null, trees);
+            if (!truncated) {
+                long limit = Filter.MAX_FEATURE_PATHS - features.size() + 1L;
+                addPaths(parentTree, commit.getTreeId(), true, limit, features);
+                truncated = features.size() > Filter.MAX_FEATURE_PATHS;
+            }
+        }
+        if (truncated) {
+            features.clear();
+        }
+        trees.addAll(features);
+        return Optional.of(Filter.create(trees, truncated));
+    }
+
+    private void addPaths(ObjectId oldTree, ObjectId newTree, boolean reportFeatures,
+            Long maxDiffs, Set<String> target) {
+        try (AutoCloseableIterator<DiffEntry> diffs = command(DiffTree.class)//
+                .setOldTree(oldTree)//
+                .setNewTree(newTree)//
+                .setReportTrees(!reportFeatures)//
+                .setReportFeatures(reportFeatures)//
+                .setMaxDiffs(maxDiffs)//
+                .call()) {
+            while (diffs.hasNext()) {
+                target.add(diffs.next().path());
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.porcelain.LogOp;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.fs.CommitGraphFile;
+import org.locationtech.geogig.storage.fs.CommitGraphFile.Commit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+
+/**
+ * Writes the {@link CommitGraphFile commit graph index} of all the commits reachable from the
+ * repository refs, used by {@link FindCommonAncestor} and {@link IsAncestorOp} to speed up
+ * ancestry queries. History traversals such as {@link LogOp} don't use it, they still read the
+ * commits from the object database.
+ * <p>
+ * Only file based repositories support the commit graph index.
+ */
+public class WriteCommitGraphOp extends AbstractGeoGigOp<Integer> {
+
+    private static final int TIMESTAMP_BATCH_SIZE = 1_000;
+
+    /**
+     * @return the number of commits indexed
+     */
+    protected @Override Integer _call() {
+        final Path target = CommitGraphFile.locate(repository()).orElse(null);
+        Preconditions.checkState(target != null,
+                "The commit graph index is only supported by file based repositories");
+
+        getProgressListener().started();
+        getProgressListener().setDescription("Collecting commits...");
+        final Map<ObjectId, List<ObjectId>> graph = reachableCommits(graphDatabase(),
+                refDatabase().getAll());
+
+        getProgressListener().setDescription("Resolving commit timestamps...");
+        final Map<ObjectId, Long> timestamps = resolveTimestamps(graph.keySet());
+
+        List<Commit> commits = new ArrayList<>(graph.size());
+        graph.forEach((id, parents) -> commits
+                .add(new Commit(id, parents, timestamps.getOrDefault(id, 0L).longValue())));
+
+        getProgressListener().setDescription(
+                String.format("Writing commit graph index of %,d commits...", commits.size()));
+        try {
+            CommitGraphFile.write(target, commits);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        getProgressListener().complete();
+        return commits.size();
+    }
+
+    /**
+     * @return the parents of every commit reachable from the given refs
+     */
+    static Map<ObjectId, List<ObjectId>> reachableCommits(GraphDatabase graphdb,
+            Iterable<Ref> refs) {
+        final Map<ObjectId, List<ObjectId>> graph = new LinkedHashMap<>();
+        final Deque<ObjectId> pending = new ArrayDeque<>();
+        for (Ref ref : refs) {
+            ObjectId tip = ref.getObjectId();
+            if (!tip.isNull() && !graph.containsKey(tip) && graphdb.exists(tip)) {
+                pending.push(tip);
+            }
+        }
+        while (!pending.isEmpty()) {
+            final ObjectId id = pending.pop();
+            if (graph.containsKey(id)) {
+                continue;
+            }
+            List<ObjectId> parents = new ArrayList<>(graphdb.getParents(id));
+            parents.removeIf(ObjectId::isNull);
+            graph.put(id, parents);
+            for (ObjectId parent : parents) {
+                if (!graph.containsKey(parent)) {
+                    pending.push(parent);
+                }
+            }
+        }
+        return graph;
+    }
+
+    private Map<ObjectId, Long> resolveTimestamps(Iterable<ObjectId> ids) {
+        Map<ObjectId, Long> timestamps = new HashMap<>();
+        for (List<ObjectId> batch : Iterables.partition(ids, TIMESTAMP_BATCH_SIZE)) {
+            Iterator<RevCommit> commits = objectDatabase().getAll(batch,
+                    BulkOpListener.NOOP_LISTENER, RevCommit.class);
+            while (commits.hasNext()) {
+                RevCommit c = commits.next();
+                timestamps.put(c.getId(), c.getCommitter().getTimestamp());
+            }
+        }
+        return timestamps;
+    }
+}
@@ -12,7 +12,6 @@ package org.locationtech.geogig.plumbing.diff;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.Iterables.transform;
 import static com.google.common.collect.Sets.newTreeSet;
 import static org.locationtech.geogig.model.RevTree.EMPTY;
 import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
@@ -20,6 +19,7 @@ import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -30,6 +30,7 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.RecursiveAction;
@@ -40,6 +41,9 @@ import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.metrics.Counter;
+import org.locationtech.geogig.metrics.Metrics;
+import org.locationtech.geogig.metrics.Timer;
 import org.locationtech.geogig.model.Bounded;
 import org.locationtech.geogig.model.Bucket;
 import org.locationtech.geogig.model.CanonicalNodeOrder;
@@ -67,7 +71,6 @@ import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Streams;
 import com.google.common.primitives.Ints;
 
 import lombok.NonNull;
@@ -83,6 +86,20 @@ public class PreOrderDiffWalk {
 
     private static final Logger log = LoggerFactory.getLogger(PreOrderDiffWalk.class);
 
+    /**
+     * Number of feature and tree node pairs reported to consumers, by all diff walks
+     */
+    private static final Counter NODES_METER = Metrics.registry()
+            .counter("geogig.diffwalk.nodes");
+
+    /**
+     * Number of bucket pairs reported to consumers, by all diff walks
+     */
+    private static final Counter BUCKETS_METER = Metrics.registry()
+            .counter("geogig.diffwalk.buckets");
+
+    private static final Timer WALK_METER = Metrics.registry().timer("geogig.diffwalk");
+
     // this is the same as the defaultForkJoinWorkerThreadFactory but gives the threads a
     // different name (easier to see in debugger)
     static ForkJoinPool.ForkJoinWorkerThreadFactory threadFactoryPrivate = pool -> {
@@ -115,6 +132,12 @@ public class PreOrderDiffWalk {
                 asyncMode);
     }
 
+    /**
+     * Default number of bucket tree levels prefetched below the ones a traversal step has to fetch
+     * from the object stores, see {@link #prefetchDepth(int)}
+     */
+    public static final int DEFAULT_PREFETCH_DEPTH = 1;
+
     public NodeOrdering ORDER = CanonicalNodeOrder.INSTANCE;
 
     /**
@@ -256,6 +279,8 @@ public class PreOrderDiffWalk {
 
     private boolean reportFeatures = true;
 
+    private int prefetchDepth = DEFAULT_PREFETCH_DEPTH;
+
     public PreOrderDiffWalk(@NonNull RevTree left, @NonNull RevTree right,
             @NonNull ObjectStore leftSource, @NonNull ObjectStore rightSource) {
         this.left = left;
@@ -315,19 +340,187 @@ public class PreOrderDiffWalk {
 
         final boolean reportFeatures;
 
+        final TreeLoader trees;
+
         WalkInfo(CancellableConsumer consumer, SideInfo left, SideInfo right,
-                NodeOrdering nodeOrder, boolean reportFeatures) {
+                NodeOrdering nodeOrder, boolean reportFeatures, TreeLoader trees) {
             this.consumer = consumer;
             this.left = left;
             this.right = right;
             this.nodeOrder = nodeOrder;
             this.reportFeatures = reportFeatures;
+            this.trees = trees;
         }
 
         public WalkInfo child(NodeRef leftChild, NodeRef rightChild) {
             SideInfo leftInfo = new SideInfo(left.source, leftChild);
             SideInfo rightInfo = new SideInfo(right.source, rightChild);
-            return new WalkInfo(consumer, leftInfo, rightInfo, nodeOrder, reportFeatures);
+            return new WalkInfo(consumer, leftInfo, rightInfo, nodeOrder, reportFeatures, trees);
+        }
+    }
+
+    /**
+     * Resolves the bucket trees of both sides of the walk, shared by all the tasks of a single
+     * walk.
+     * <p>
+     * Whenever a traversal step has to fetch bucket trees from the object stores, the changed
+     * bucket trees below them are prefetched up to {@code prefetchDepth} levels down, with one
+     * batched {@link ObjectStore#getAll getAll} call per level, before the step forks its
+     * subtasks. This way the subtasks find their trees already loaded instead of each issuing its
+     * own round trip to the store, and object stores backed by the shared object cache get them
+     * cached as a side effect. Prefetched trees are handed out once and then released.
+     */
+    private static final class TreeLoader {
+
+        private final ObjectStore leftSource;
+
+        private final ObjectStore rightSource;
+
+        private final int prefetchDepth;
+
+        private final boolean reportFeatures;
+
+        private final Map<ObjectId, RevTree> prefetched = new ConcurrentHashMap<>();
+
+        TreeLoader(ObjectStore leftSource, ObjectStore rightSource, int prefetchDepth,
+                boolean reportFeatures) {
+            this.leftSource = leftSource;
+            this.rightSource = rightSource;
+            this.prefetchDepth = prefetchDepth;
+            this.reportFeatures = reportFeatures;
+        }
+
+        /**
+         * Adds the requested trees to {@code target}, taking them from the prefetched trees if
+         * available and fetching the rest from the object stores.
+         * 
+         * @return {@code true} if any of the trees had to be fetched from the object stores
+         */
+        boolean load(Set<ObjectId> leftIds, Set<ObjectId> rightIds,
+                Map<ObjectId, RevTree> target) {
+            Set<ObjectId> missingAtLeft = takePrefetched(leftIds, target);
+            Set<ObjectId> missingAtRight = takePrefetched(rightIds, target);
+            if (missingAtLeft.isEmpty() && missingAtRight.isEmpty()) {
+                return false;
+            }
+            fetch(missingAtLeft, missingAtRight, target);
+            return true;
+        }
+
+        private Set<ObjectId> takePrefetched(Set<ObjectId> ids, Map<ObjectId, RevTree> target) {
+            Set<ObjectId> missing = new HashSet<>();
+            for (ObjectId id : ids) {
+                if (!target.containsKey(id)) {
+                    RevTree tree = prefetched.remove(id);
+                    if (tree == null) {
+                        missing.add(id);
+                    } else {
+                        target.put(id, tree);
+                    }
+                }
+            }
+            return missing;
+        }
+
+        private void fetch(Set<ObjectId> leftIds, Set<ObjectId> rightIds,
+                Map<ObjectId, RevTree> target) {
+            // get all buckets at once, to leverage ObjectStore optimizations
+            if (leftSource == rightSource) {
+                getAll(leftSource, Sets.union(leftIds, rightIds), target);
+            } else {
+                getAll(leftSource, leftIds, target);
+                // avoid re-fetching objects at both sides
+                getAll(rightSource, Sets.difference(rightIds, leftIds), target);
+            }
+        }
+
+        private void getAll(ObjectStore source, Set<ObjectId> ids, Map<ObjectId, RevTree> target) {
+            if (!ids.isEmpty()) {
+                source.getAll(ids, NOOP_LISTENER, RevTree.class)
+                        .forEachRemaining(t -> target.put(t.getId(), t));
+            }
+        }
+
+        /**
+         * Fetches the bucket trees the walk is going to traverse below the given pairs of left and
+         * right trees, up to {@code prefetchDepth} levels down.
+         */
+        void prefetch(List<RevTree[]> pairs) {
+            List<RevTree[]> level = pairs;
+            for (int depth = 0; depth < prefetchDepth && !level.isEmpty(); depth++) {
+                final Set<ObjectId> leftIds = new HashSet<>();
+                final Set<ObjectId> rightIds = new HashSet<>();
+                final List<ObjectId[]> children = new ArrayList<>();
+                for (RevTree[] pair : level) {
+                    collectChildren(pair[0], pair[1], leftIds, rightIds, children);
+                }
+                final Map<ObjectId, RevTree> trees = new HashMap<>();
+                try {
+                    fetch(leftIds, rightIds, trees);
+                } catch (RuntimeException e) {
+                    // not fatal, the traversal fails if it really can't load the trees
+                    log.debug("Error prefetching bucket trees", e);
+                    return;
+                }
+                prefetched.putAll(trees);
+
+                List<RevTree[]> next = new ArrayList<>(children.size());
+                for (ObjectId[] ids : children) {
+                    RevTree left = ids[0] == null ? EMPTY : trees.get(ids[0]);
+                    RevTree right = ids[1] == null ? EMPTY : trees.get(ids[1]);
+                    if (left != null && right != null) {
+                        next.add(new RevTree[] { left, right });
+                    }
+                }
+                level = next;
+            }
+        }
+
+        /**
+         * Collects the ids of the bucket trees the traversal of {@code left} and {@code right}
+         * loads, following the same rules as {@link WalkAction#bucketBucket},
+         * {@link WalkAction#leafBucket}, and {@link WalkAction#bucketLeaf}
+         */
+        private void collectChildren(RevTree left, RevTree right, Set<ObjectId> leftIds,
+                Set<ObjectId> rightIds, List<ObjectId[]> children) {
+            final boolean leftIsLeaf = left.bucketsSize() == 0;
+            final boolean rightIsLeaf = right.bucketsSize() == 0;
+            if ((leftIsLeaf && rightIsLeaf) || left.equals(right)
+                    || (!reportFeatures && left.numTrees() == 0 && right.numTrees() == 0)) {
+                return;
+            }
+            if (leftIsLeaf) {
+                // leaf vs bucket traversals load all the buckets of the bucket tree
+                right.forEachBucket(b -> {
+                    rightIds.add(b.getObjectId());
+                    children.add(new ObjectId[] { null, b.getObjectId() });
+                });
+            } else if (rightIsLeaf) {
+                left.forEachBucket(b -> {
+                    leftIds.add(b.getObjectId());
+                    children.add(new ObjectId[] { b.getObjectId(), null });
+                });
+            } else {
+                // bucket vs bucket traversals load the trees of the changed buckets only
+                Set<Integer> indexes = new TreeSet<>();
+                left.forEachBucket(b -> indexes.add(Integer.valueOf(b.getIndex())));
+                right.forEachBucket(b -> indexes.add(Integer.valueOf(b.getIndex())));
+                for (Integer index : indexes) {
+                    Optional<Bucket> lbucket = left.getBucket(index.intValue());
+                    Optional<Bucket> rbucket = right.getBucket(index.intValue());
+                    if (!lbucket.equals(rbucket)) {
+                        ObjectId leftId = lbucket.map(Bucket::getObjectId).orElse(null);
+                        ObjectId rightId = rbucket.map(Bucket::getObjectId).orElse(null);
+                        if (leftId != null) {
+                            leftIds.add(leftId);
+                        }
+                        if (rightId != null) {
+                            rightIds.add(rightId);
+                        }
+                        children.add(new ObjectId[] { leftId, rightId });
+                    }
+                }
+            }
         }
     }
 
@@ -383,10 +576,13 @@ public class PreOrderDiffWalk {
         SideInfo leftInfo = new SideInfo(leftSource, leftRef);
         SideInfo rightInfo = new SideInfo(rightSource, rightRef);
 
-        WalkInfo walkInfo = new WalkInfo(walkConsumer, leftInfo, rightInfo, ORDER, reportFeatures);
+        TreeLoader trees = new TreeLoader(leftSource, rightSource, prefetchDepth, reportFeatures);
+        WalkInfo walkInfo = new WalkInfo(walkConsumer, leftInfo, rightInfo, ORDER, reportFeatures,
+                trees);
 
         TraverseTree task = new TraverseTree(walkInfo);
 
+        final long startNanos = System.nanoTime();
         try {
             forkJoinPool.invoke(task);
         } catch (Exception e) {
@@ -398,6 +594,7 @@ public class PreOrderDiffWalk {
                 throw new RuntimeException(e);
             }
         } finally {
+            WALK_METER.record(System.nanoTime() - startNanos);
             finished.set(true);
             cleanupForkJoinPool();
         }
@@ -408,6 +605,19 @@ public class PreOrderDiffWalk {
         return this;
     }
 
+    /**
+     * Sets how many levels of bucket trees below the ones a traversal step has to fetch from the
+     * object stores are prefetched in the same go, with one batched request per level.
+     * <p>
+     * Higher values trade memory for fewer round trips to the object stores, zero disables
+     * prefetching. Defaults to {@link #DEFAULT_PREFETCH_DEPTH}.
+     */
+    public PreOrderDiffWalk prefetchDepth(int depth) {
+        checkArgument(depth >= 0, "prefetch depth must be >= 0: %s", depth);
+        this.prefetchDepth = depth;
+        return this;
+    }
+
     private void cleanupForkJoinPool() {
         if (forkJoinPool == SHARED_FORK_JOIN_POOL)
             return; // no need to clean up
@@ -475,7 +685,8 @@ public class PreOrderDiffWalk {
             // final ImmutableSortedMap<Integer, Bucket> lb = left.buckets();
             // final ImmutableSortedMap<Integer, Bucket> rb = right.buckets();
             final TreeSet<BucketIndex> childBucketIndexes;
-            final Map<ObjectId, RevTree> trees;
+            final Map<ObjectId, RevTree> trees = new HashMap<>();
+            final boolean fetched;
             {
                 TreeMap<Integer, BucketIndex> indices = new TreeMap<>();
                 Set<ObjectId> lbucketIds = new HashSet<>();
@@ -488,18 +699,23 @@ public class PreOrderDiffWalk {
                     }
                 };
 
-                left.forEachBucket(bucket -> {
-                    lbucketIds.add(bucket.getObjectId());
-                    indices.computeIfAbsent(Integer.valueOf(bucket.getIndex()), fn);
-                });
-                right.forEachBucket(bucket -> {
-                    rbucketIds.add(bucket.getObjectId());
-                    indices.computeIfAbsent(Integer.valueOf(bucket.getIndex()), fn);
-                });
+                left.forEachBucket(
+                        bucket -> indices.computeIfAbsent(Integer.valueOf(bucket.getIndex()), fn));
+                right.forEachBucket(
+                        bucket -> indices.computeIfAbsent(Integer.valueOf(bucket.getIndex()), fn));
                 childBucketIndexes = newTreeSet(indices.values());
 
+                // only the trees of the buckets that changed are traversed
+                for (Integer index : indices.keySet()) {
+                    Optional<Bucket> lbucket = left.getBucket(index.intValue());
+                    Optional<Bucket> rbucket = right.getBucket(index.intValue());
+                    if (!lbucket.equals(rbucket)) {
+                        lbucket.ifPresent(b -> lbucketIds.add(b.getObjectId()));
+                        rbucket.ifPresent(b -> rbucketIds.add(b.getObjectId()));
+                    }
+                }
                 try {
-                    trees = loadTrees(lbucketIds, rbucketIds);
+                    fetched = info.trees.load(lbucketIds, rbucketIds, trees);
                 } catch (RuntimeException e) {
                     info.consumer.abortTraversal();
                     return Collections.emptyList();
@@ -511,6 +727,7 @@ public class PreOrderDiffWalk {
             RevTree ltree, rtree;
 
             final List<WalkAction> tasks = new ArrayList<>();
+            final List<RevTree[]> children = new ArrayList<>();
 
             for (BucketIndex index : childBucketIndexes) {
                 lbucket = left.getBucket(index.lastIndex().intValue());
@@ -526,40 +743,17 @@ public class PreOrderDiffWalk {
                     WalkAction task;
                     task = new TraverseBucketBucket(info, ltree, rtree, lbucket, rbucket, index);
                     tasks.add(task);
+                    children.add(new RevTree[] { ltree, rtree });
                 }
             }
 
             if (info.consumer.isCancelled()) {
                 return Collections.emptyList();
             }
-
-            return tasks;
-        }
-
-        private Map<ObjectId, RevTree> loadTrees(final Set<ObjectId> lbucketIds,
-                final Set<ObjectId> rbucketIds) {
-
-            final Map<ObjectId, RevTree> trees;
-
-            // get all buckets at once, to leverage ObjectStore optimizations
-            if (info.left.source == info.right.source) {
-                Set<ObjectId> ids = Sets.union(lbucketIds, rbucketIds);
-                Iterator<RevTree> titer = info.left.source.getAll(ids, NOOP_LISTENER,
-                        RevTree.class);
-                trees = Streams.stream(titer).collect(Collectors.toMap(t -> t.getId(), t -> t));
-            } else {
-                trees = Streams
-                        .stream(info.left.source.getAll(lbucketIds, NOOP_LISTENER, RevTree.class))
-                        .collect(Collectors.toMap(t -> t.getId(), t -> t));
-
-                // avoid re-fetching objects at both sides
-                Set<ObjectId> missingAtRight = Sets.difference(rbucketIds, lbucketIds);
-                trees.putAll(Streams.stream(
-                        info.right.source.getAll(missingAtRight, NOOP_LISTENER, RevTree.class))
-                        .collect(Collectors.toMap(t -> t.getId(), t -> t)));
-
+            if (fetched) {
+                info.trees.prefetch(children);
             }
-            return trees;
+            return tasks;
         }
 
         /**
@@ -590,8 +784,7 @@ public class PreOrderDiffWalk {
                 return Collections.emptyList();
             }
             // get all buckets at once, to leverage ObjectStore optimizations
-            final ObjectStore source = info.right.source;
-            final Map<ObjectId, RevTree> bucketTrees = loadBucketTrees(source, rightBuckets);
+            final Map<ObjectId, RevTree> bucketTrees = loadBucketTrees(false, rightBuckets);
             List<WalkAction> tasks = new ArrayList<>();
 
             for (BucketIndex childIndex : bucketIndexes) {
@@ -645,8 +838,7 @@ public class PreOrderDiffWalk {
                 return Collections.emptyList();
             }
             // get all buckets at once, to leverage ObjectStore optimizations
-            final ObjectStore source = info.left.source;
-            final Map<ObjectId, RevTree> bucketTrees = loadBucketTrees(source, leftBuckets);
+            final Map<ObjectId, RevTree> bucketTrees = loadBucketTrees(true, leftBuckets);
             List<WalkAction> tasks = new ArrayList<>();
 
             for (BucketIndex childIndex : bucketIndexes) {
@@ -670,13 +862,21 @@ public class PreOrderDiffWalk {
             return tasks;
         }
 
-        private Map<ObjectId, RevTree> loadBucketTrees(final ObjectStore source,
+        private Map<ObjectId, RevTree> loadBucketTrees(final boolean leftSide,
                 final SortedMap<Integer, Bucket> buckets) {
-            final Map<ObjectId, RevTree> bucketTrees;
-            {
-                Iterable<ObjectId> ids = transform(buckets.values(), Bucket::getObjectId);
-                bucketTrees = Streams.stream(source.getAll(ids, NOOP_LISTENER, RevTree.class))
-                        .collect(Collectors.toMap(t -> t.getId(), t -> t));
+            final Map<ObjectId, RevTree> bucketTrees = new HashMap<>();
+            final Set<ObjectId> ids = buckets.values().stream().map(Bucket::getObjectId)
+                    .collect(Collectors.toSet());
+            final Set<ObjectId> none = Collections.emptySet();
+            final boolean fetched = leftSide ? info.trees.load(ids, none, bucketTrees)
+                    : info.trees.load(none, ids, bucketTrees);
+            if (fetched) {
+                // the other side is a leaf tree, whose nodes are compared against every bucket
+                List<RevTree[]> children = bucketTrees.values().stream()
+                        .map(t -> leftSide ? new RevTree[] { t, EMPTY }
+                                : new RevTree[] { EMPTY, t })
+                        .collect(Collectors.toList());
+                info.trees.prefetch(children);
             }
             return bucketTrees;
         }
@@ -1382,6 +1582,7 @@ public class PreOrderDiffWalk {
         }
 
         public @Override boolean feature(NodeRef left, NodeRef right) {
+            NODES_METER.increment();
             boolean continuteTraversal = !isCancelled() && delegate.feature(left, right);
             if (!continuteTraversal) {
                 abortTraversal();
@@ -1390,11 +1591,13 @@ public class PreOrderDiffWalk {
         }
 
         public @Override boolean tree(NodeRef left, NodeRef right) {
+            NODES_METER.increment();
             return !isCancelled() && delegate.tree(left, right);
         }
 
         public @Override boolean bucket(NodeRef leftParent, NodeRef rightParent,
                 BucketIndex bucketIndex, Bucket left, Bucket right) {
+            BUCKETS_METER.increment();
             return !isCancelled()
                     && delegate.bucket(leftParent, rightParent, bucketIndex, left, right);
         }
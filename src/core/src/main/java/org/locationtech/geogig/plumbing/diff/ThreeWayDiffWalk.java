@@ -0,0 +1,364 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static com.google.common.base.Preconditions.checkState;
+import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.CanonicalNodeOrder;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeOrdering;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+import lombok.NonNull;
+
+/**
+ * Walks an "ancestor", an "ours", and a "theirs" {@link RevTree tree} at the same time, and reports
+ * to a {@link Consumer} the nodes that changed in "theirs" respect to the common ancestor and are
+ * not already the same in "ours", which are the only ones of interest when merging "theirs" onto
+ * "ours".
+ * <p>
+ * Just like {@link PreOrderDiffWalk}, the three trees are traversed bucket by bucket, expanding the
+ * nodes of leaf trees into the bucket they'd belong to when compared against a bucket tree, but
+ * any pair of trees or buckets whose ids match is pruned before being loaded:
+ * <ul>
+ * <li>if "theirs" equals the "ancestor", nothing changed in "theirs" down that path
+ * <li>if "theirs" equals "ours", both made the same changes down that path
+ * </ul>
+ * If "ours" equals the "ancestor" the walk still needs to go down that path to report the changes
+ * in "theirs", but the trees are loaded only once. Trees are fetched from the {@link ObjectStore}
+ * in batches, one per bucket level.
+ * <p>
+ * This replaces computing the ancestor to "ours" and ancestor to "theirs" diffs and zipping them
+ * together, which requires traversing both diffs entirely even where they match.
+ */
+public class ThreeWayDiffWalk {
+
+    private final RevTree ancestor;
+
+    private final RevTree ours;
+
+    private final RevTree theirs;
+
+    private final ObjectStore source;
+
+    private NodeOrdering nodeOrder = CanonicalNodeOrder.INSTANCE;
+
+    private Consumer consumer;
+
+    public ThreeWayDiffWalk(@NonNull RevTree ancestor, @NonNull RevTree ours,
+            @NonNull RevTree theirs, @NonNull ObjectStore source) {
+        this.ancestor = ancestor;
+        this.ours = ours;
+        this.theirs = theirs;
+        this.source = source;
+    }
+
+    public void nodeOrder(@NonNull NodeOrdering nodeOrder) {
+        this.nodeOrder = nodeOrder;
+    }
+
+    /**
+     * Callback interface for {@link ThreeWayDiffWalk}.
+     * <p>
+     * Each call receives the ancestor, ours, and theirs versions of a node at the same path, any
+     * of which but {@code theirs} and {@code ancestor} at the same time can be {@code null} if the
+     * node is not present at that side. The root trees are not reported.
+     */
+    public static interface Consumer {
+
+        /**
+         * Called for a feature that changed in "theirs" and is not the same in "ours"
+         */
+        public void feature(@Nullable NodeRef ancestor, @Nullable NodeRef ours,
+                @Nullable NodeRef theirs);
+
+        /**
+         * Called for a tree that changed in "theirs" and is not the same in "ours"
+         *
+         * @return {@code true} if the walk should continue with the contents of the tree,
+         *         {@code false} to skip them
+         */
+        public boolean tree(@Nullable NodeRef ancestor, @Nullable NodeRef ours,
+                @Nullable NodeRef theirs);
+
+        /**
+         * @return {@code true} to stop the walk as soon as possible
+         */
+        public default boolean isCancelled() {
+            return false;
+        }
+    }
+
+    public void walk(@NonNull Consumer consumer) {
+        this.consumer = consumer;
+        if (theirs.equals(ancestor) || theirs.equals(ours)) {
+            return;
+        }
+        Parents roots = new Parents(root(ancestor), root(ours), root(theirs));
+        walkContents(roots, new Contents(ancestor), new Contents(ours), new Contents(theirs), 0);
+    }
+
+    private NodeRef root(RevTree tree) {
+        Node node = RevObjectFactory.defaultInstance().createNode(NodeRef.ROOT, tree.getId(),
+                ObjectId.NULL, TYPE.TREE, null, null);
+        return NodeRef.createRoot(node);
+    }
+
+    /**
+     * The three versions of the tree node whose contents are being walked
+     */
+    private static class Parents {
+        final @Nullable NodeRef ancestor, ours, theirs;
+
+        /**
+         * Whether "ours" and "theirs" children default to the same metadata id, otherwise two
+         * equal buckets may still contain features that differ in their resolved feature type
+         */
+        final boolean sameMetadata;
+
+        Parents(@Nullable NodeRef ancestor, @Nullable NodeRef ours, @Nullable NodeRef theirs) {
+            this.ancestor = ancestor;
+            this.ours = ours;
+            this.theirs = theirs;
+            this.sameMetadata = sameMetadata(ours, theirs);
+        }
+    }
+
+    /**
+     * The contents of one side of the walk at a given bucket depth, either a whole (leaf or
+     * bucket) tree, or the subset of a leaf tree's nodes that fall into the bucket being compared
+     * against the other sides' bucket trees
+     */
+    private static class Contents {
+
+        static final Contents EMPTY = new Contents(RevTree.EMPTY);
+
+        final @Nullable ObjectId id;
+
+        @Nullable
+        RevTree tree;
+
+        final @Nullable List<Node> nodes;
+
+        Contents(RevTree tree) {
+            this.id = tree.getId();
+            this.tree = tree;
+            this.nodes = null;
+        }
+
+        Contents(ObjectId treeId) {
+            this.id = treeId;
+            this.tree = null;
+            this.nodes = null;
+        }
+
+        Contents(List<Node> nodes) {
+            this.id = null;
+            this.tree = null;
+            this.nodes = nodes;
+        }
+
+        boolean isLoaded() {
+            return nodes != null || tree != null;
+        }
+
+        boolean isLeaf() {
+            return nodes != null || tree.bucketsSize() == 0;
+        }
+
+        boolean sameAs(Contents other) {
+            return id != null && id.equals(other.id);
+        }
+
+        Iterator<Node> children(NodeOrdering order) {
+            return nodes != null ? nodes.iterator() : RevObjects.children(tree, order);
+        }
+    }
+
+    private void walkContents(Parents parents, Contents ancestor, Contents ours, Contents theirs,
+            final int depth) {
+        if (consumer.isCancelled() || prune(parents, ancestor, ours, theirs)) {
+            return;
+        }
+        load(Collections.singletonList(new Contents[] { ancestor, ours, theirs }));
+
+        if (ancestor.isLeaf() && ours.isLeaf() && theirs.isLeaf()) {
+            walkLeaves(parents, ancestor.children(nodeOrder), ours.children(nodeOrder),
+                    theirs.children(nodeOrder));
+            return;
+        }
+
+        final SortedMap<Integer, Contents> ancestorBuckets = split(ancestor, depth);
+        final SortedMap<Integer, Contents> oursBuckets = split(ours, depth);
+        final SortedMap<Integer, Contents> theirsBuckets = split(theirs, depth);
+
+        final SortedSet<Integer> indexes = new TreeSet<>(theirsBuckets.keySet());
+        indexes.addAll(ancestorBuckets.keySet());
+        indexes.addAll(oursBuckets.keySet());
+
+        List<Contents[]> children = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            Contents a = ancestorBuckets.getOrDefault(index, Contents.EMPTY);
+            Contents o = oursBuckets.getOrDefault(index, Contents.EMPTY);
+            Contents t = theirsBuckets.getOrDefault(index, Contents.EMPTY);
+            if (!prune(parents, a, o, t)) {
+                children.add(new Contents[] { a, o, t });
+            }
+        }
+        // get all the bucket trees for this level at once, to leverage ObjectStore optimizations
+        load(children);
+        for (Contents[] c : children) {
+            walkContents(parents, c[0], c[1], c[2], depth + 1);
+        }
+    }
+
+    private boolean prune(Parents parents, Contents ancestor, Contents ours, Contents theirs) {
+        return theirs.sameAs(ancestor) || (parents.sameMetadata && theirs.sameAs(ours));
+    }
+
+    /**
+     * Splits the contents into the buckets they belong to at the given depth, whether they're the
+     * buckets of a bucket tree, or the nodes of a leaf tree
+     */
+    private SortedMap<Integer, Contents> split(Contents contents, final int depth) {
+        SortedMap<Integer, Contents> buckets = new TreeMap<>();
+        if (contents.isLeaf()) {
+            Map<Integer, List<Node>> nodes = new HashMap<>();
+            contents.children(nodeOrder).forEachRemaining(node -> nodes
+                    .computeIfAbsent(nodeOrder.bucket(node, depth), i -> new ArrayList<>())
+                    .add(node));
+            nodes.forEach((index, bucketNodes) -> buckets.put(index, new Contents(bucketNodes)));
+        } else {
+            contents.tree.forEachBucket(
+                    b -> buckets.put(b.getIndex(), b.getObjectId().equals(RevTree.EMPTY_TREE_ID)
+                            ? Contents.EMPTY
+                            : new Contents(b.getObjectId())));
+        }
+        return buckets;
+    }
+
+    private void load(List<Contents[]> contents) {
+        Set<ObjectId> ids = new HashSet<>();
+        for (Contents[] triple : contents) {
+            for (Contents c : triple) {
+                if (!c.isLoaded()) {
+                    ids.add(c.id);
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<ObjectId, RevTree> trees = new HashMap<>();
+        source.getAll(ids, NOOP_LISTENER, RevTree.class)
+                .forEachRemaining(t -> trees.put(t.getId(), t));
+        for (Contents[] triple : contents) {
+            for (Contents c : triple) {
+                if (!c.isLoaded()) {
+                    c.tree = trees.get(c.id);
+                    checkState(c.tree != null, "tree %s not found", c.id);
+                }
+            }
+        }
+    }
+
+    private void walkLeaves(Parents parents, Iterator<Node> ancestor, Iterator<Node> ours,
+            Iterator<Node> theirs) {
+        PeekingIterator<Node> ai = Iterators.peekingIterator(ancestor);
+        PeekingIterator<Node> oi = Iterators.peekingIterator(ours);
+        PeekingIterator<Node> ti = Iterators.peekingIterator(theirs);
+
+        while ((ai.hasNext() || oi.hasNext() || ti.hasNext()) && !consumer.isCancelled()) {
+            Node next = min(min(ai.hasNext() ? ai.peek() : null, oi.hasNext() ? oi.peek() : null),
+                    ti.hasNext() ? ti.peek() : null);
+            Node a = nextIfSame(ai, next);
+            Node o = nextIfSame(oi, next);
+            Node t = nextIfSame(ti, next);
+            node(parents, a, o, t);
+        }
+    }
+
+    private @Nullable Node min(@Nullable Node n1, @Nullable Node n2) {
+        if (n1 == null || n2 == null) {
+            return n1 == null ? n2 : n1;
+        }
+        return nodeOrder.compare(n1, n2) <= 0 ? n1 : n2;
+    }
+
+    private @Nullable Node nextIfSame(PeekingIterator<Node> it, Node node) {
+        return it.hasNext() && nodeOrder.compare(it.peek(), node) == 0 ? it.next() : null;
+    }
+
+    private void node(Parents parents, @Nullable Node ancestor, @Nullable Node ours,
+            @Nullable Node theirs) {
+        if (Objects.equals(ancestor, theirs)) {
+            // not changed in theirs
+            return;
+        }
+        final NodeRef a = ref(parents.ancestor, ancestor);
+        final NodeRef o = ref(parents.ours, ours);
+        final NodeRef t = ref(parents.theirs, theirs);
+        if (Objects.equals(ours, theirs) && sameMetadata(o, t)) {
+            // changed the same way in ours and theirs
+            return;
+        }
+        final TYPE type = (theirs == null ? ancestor : theirs).getType();
+        if (TYPE.FEATURE == type) {
+            consumer.feature(a, o, t);
+        } else if (consumer.tree(a, o, t)) {
+            Parents treeParents = new Parents(a, o, t);
+            walkContents(treeParents, treeContents(a), treeContents(o), treeContents(t), 0);
+        }
+    }
+
+    private static @Nullable NodeRef ref(@Nullable NodeRef parent, @Nullable Node node) {
+        return node == null ? null : NodeRef.create(parent.path(), node, parent.getMetadataId());
+    }
+
+    private static Contents treeContents(@Nullable NodeRef ref) {
+        if (ref == null || TYPE.TREE != ref.getType()
+                || RevTree.EMPTY_TREE_ID.equals(ref.getObjectId())) {
+            return Contents.EMPTY;
+        }
+        return new Contents(ref.getObjectId());
+    }
+
+    private static boolean sameMetadata(@Nullable NodeRef ours, @Nullable NodeRef theirs) {
+        if (ours == null || theirs == null) {
+            return ours == theirs;
+        }
+        return ours.getMetadataId().equals(theirs.getMetadataId());
+    }
+}
@@ -156,15 +156,20 @@ public class BuildIndexOp extends AbstractGeoGigOp<RevTree> {
     private Consumer resolveConsumer(RevTreeBuilder builder,
             final ProgressListener progressListener) {
         final Set<String> attNames = IndexInfo.getMaterializedAttributeNames(index);
+        final double[] simplificationTolerances = IndexInfo.getSimplificationTolerances(index);
 
-        final boolean isMaterialized = !attNames.isEmpty();
+        final boolean isMaterialized = !attNames.isEmpty() || simplificationTolerances.length > 0;
         final Consumer consumer;
 
         if (isMaterialized) {
             Map<String, Integer> extraDataProperties = attributeIndexMapping(attNames);
+            int geometryIndex = simplificationTolerances.length == 0 ? -1
+                    : indexOf(index.getAttributeName(),
+                            objectDatabase().getFeatureType(revFeatureTypeId));
 
             consumer = new MaterializedBuilderConsumer(builder, objectDatabase(),
-                    extraDataProperties, progressListener);
+                    extraDataProperties, geometryIndex, simplificationTolerances,
+                    progressListener);
         } else {
             consumer = new SimpleTreeBuilderConsumer(builder, progressListener);
         }
@@ -38,6 +38,8 @@ import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
@@ -74,11 +76,27 @@ class MaterializedBuilderConsumer extends AbstractConsumer {
 
     final Map<String, Integer> extraDataProperties;
 
+    /**
+     * Index of the indexed geometry attribute in the features, only used if there are
+     * {@link #simplificationTolerances}
+     */
+    final int geometryIndex;
+
+    final double[] simplificationTolerances;
+
+    /**
+     * @param geometryIndex index of the indexed geometry attribute, to store the simplified
+     *        geometries at each of the {@code simplificationTolerances}
+     */
     MaterializedBuilderConsumer(RevTreeBuilder builder, ObjectStore featureSource,
-            Map<String, Integer> extraDataProperties, ProgressListener listener) {
+            Map<String, Integer> extraDataProperties, int geometryIndex,
+            double[] simplificationTolerances, ProgressListener listener) {
+        Preconditions.checkArgument(simplificationTolerances.length == 0 || geometryIndex >= 0);
         this.builder = builder;
         this.featureSource = featureSource;
         this.extraDataProperties = extraDataProperties;
+        this.geometryIndex = geometryIndex;
+        this.simplificationTolerances = simplificationTolerances;
         this.progress = listener;
     }
 
@@ -152,6 +170,26 @@ class MaterializedBuilderConsumer extends AbstractConsumer {
         }
     }
 
+    /**
+     * Simplifies the geometry at each tolerance, keeping the previous level's geometry when
+     * simplifying collapses it
+     */
+    private Map<String, Object> simplify(Geometry geometry) {
+        Map<String, Object> levels = new HashMap<>();
+        Geometry previous = geometry;
+        for (double tolerance : simplificationTolerances) {
+            DouglasPeuckerSimplifier simplifier = new DouglasPeuckerSimplifier(geometry);
+            simplifier.setDistanceTolerance(tolerance);
+            simplifier.setEnsureValid(false);
+            Geometry simplified = simplifier.getResultGeometry();
+            if (!simplified.isEmpty()) {
+                previous = simplified;
+            }
+            levels.put(IndexInfo.simplificationLevelKey(tolerance), previous);
+        }
+        return levels;
+    }
+
     private @Nullable Node materialize(@Nullable Node node, Map<ObjectId, RevFeature> objects) {
         Node materialized = null;
         if (null != node) {
@@ -167,7 +205,15 @@ class MaterializedBuilderConsumer extends AbstractConsumer {
 
             Map<String, Object> extraData = new HashMap<>(node.getExtraData());
 
-            extraData.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, atts);
+            if (!extraDataProperties.isEmpty()) {
+                extraData.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, atts);
+            }
+            if (simplificationTolerances.length > 0) {
+                Geometry geometry = (Geometry) f.get(geometryIndex).orElse(null);
+                if (geometry != null) {
+                    extraData.put(IndexInfo.SIMPLIFIED_GEOMETRIES_EXTRA_DATA, simplify(geometry));
+                }
+            }
 
             String name = node.getName();
             ObjectId metadataId = node.getMetadataId().orElse(ObjectId.NULL);
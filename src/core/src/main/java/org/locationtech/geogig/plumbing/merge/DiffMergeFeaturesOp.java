@@ -154,20 +154,42 @@ public class DiffMergeFeaturesOp extends AbstractGeoGigOp<DiffMergeFeatureResult
 
         final Map<ObjectId, RevObject> objects = getObjects();
 
-        RevFeature ancestorF = (RevFeature) objects.get(commonAncestor.getObjectId());
-        RevFeature mergeIntoF = (RevFeature) objects.get(mergeInto.getObjectId());
-        RevFeature toMergeF = (RevFeature) objects.get(toMerge.getObjectId());
+        return diffMerge(commonAncestor, mergeInto, toMerge, objects);
+    }
+
+    /**
+     * Computes the merge result out of already fetched objects, allowing callers like
+     * {@link ReportMergeScenarioOp} to fetch the objects for many features at once.
+     *
+     * @param objects the ancestor, ours, and theirs features and feature types, keyed by id
+     */
+    static DiffMergeFeatureResult diffMerge(NodeRef commonAncestor, NodeRef mergeInto,
+            NodeRef toMerge, Map<ObjectId, RevObject> objects) {
+
+        RevFeature ancestorF = get(objects, commonAncestor.getObjectId(), RevFeature.class);
+        RevFeature mergeIntoF = get(objects, mergeInto.getObjectId(), RevFeature.class);
+        RevFeature toMergeF = get(objects, toMerge.getObjectId(), RevFeature.class);
 
-        RevFeatureType ancestorT = (RevFeatureType) objects.get(commonAncestor.getMetadataId());
-        RevFeatureType mergetIntoT = (RevFeatureType) objects.get(mergeInto.getMetadataId());
-        RevFeatureType toMergeT = (RevFeatureType) objects.get(toMerge.getMetadataId());
+        RevFeatureType ancestorT = get(objects, commonAncestor.getMetadataId(),
+                RevFeatureType.class);
+        RevFeatureType mergetIntoT = get(objects, mergeInto.getMetadataId(),
+                RevFeatureType.class);
+        RevFeatureType toMergeT = get(objects, toMerge.getMetadataId(), RevFeatureType.class);
 
-        FeatureDiff mergeIntoDiff = compare(ancestorF, mergeIntoF, ancestorT, mergetIntoT);
-        FeatureDiff toMergeDiff = compare(ancestorF, toMergeF, ancestorT, toMergeT);
+        final String path = mergeInto.path();
+        FeatureDiff mergeIntoDiff = compare(path, ancestorF, mergeIntoF, ancestorT, mergetIntoT);
+        FeatureDiff toMergeDiff = compare(path, ancestorF, toMergeF, ancestorT, toMergeT);
 
         return new DiffMergeFeatureResult(mergeIntoDiff, toMergeDiff);
     }
 
+    private static <T extends RevObject> T get(Map<ObjectId, RevObject> objects, ObjectId id,
+            Class<T> type) {
+        RevObject object = objects.get(id);
+        checkState(object != null, "Invalid reference: %s", id);
+        return type.cast(object);
+    }
+
     private Map<ObjectId, RevObject> getObjects() {
 
         final ObjectId ancestorMetadataId = commonAncestor.getMetadataId();
@@ -283,10 +305,11 @@ public class DiffMergeFeaturesOp extends AbstractGeoGigOp<DiffMergeFeatureResult
         return g1.equalsExact(g2);
     }
 
-    private FeatureDiff compare(RevFeature oldRevFeature, RevFeature newRevFeature,
-            RevFeatureType oldRevFeatureType, RevFeatureType newRevFeatureType) {
+    private static FeatureDiff compare(String path, RevFeature oldRevFeature,
+            RevFeature newRevFeature, RevFeatureType oldRevFeatureType,
+            RevFeatureType newRevFeatureType) {
 
-        return new FeatureDiff(mergeInto.path(), newRevFeature, oldRevFeature, newRevFeatureType,
+        return new FeatureDiff(path, newRevFeature, oldRevFeature, newRevFeatureType,
                 oldRevFeatureType, false);
     }
 
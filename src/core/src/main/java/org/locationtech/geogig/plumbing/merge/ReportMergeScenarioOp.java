@@ -9,40 +9,53 @@
  */
 package org.locationtech.geogig.plumbing.merge;
 
-import static com.google.common.base.Preconditions.checkArgument;
-
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.DiffEntry.ChangeType;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevFeature;
-import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevTree;
-import org.locationtech.geogig.plumbing.DiffTree;
 import org.locationtech.geogig.plumbing.FindCommonAncestor;
+import org.locationtech.geogig.plumbing.diff.ThreeWayDiffWalk;
 import org.locationtech.geogig.plumbing.merge.DiffMergeFeaturesOp.DiffMergeFeatureResult;
 import org.locationtech.geogig.repository.Conflict;
 import org.locationtech.geogig.repository.FeatureInfo;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
-import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.Iterators;
-import com.google.common.collect.PeekingIterator;
 
 /**
  * Reports conflicts between changes introduced by two different histories. Given a commit and
  * another reference commit, it returns the set of changes from the common ancestor to the first
  * commit, classified according to whether they can or not be safely applied onto the reference
  * commit. Changes that will have no effect on the target commit are not included as unconflicted.
+ * <p>
+ * The ancestor, "ours", and "theirs" trees are traversed at once with a {@link ThreeWayDiffWalk},
+ * which skips any subtree that didn't change in "theirs" or is the same in "ours". Features
+ * changed at both sides are merged in batches, fetching their objects with a single call to the
+ * object database per batch.
  */
 public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport> {
 
+    /**
+     * Number of features modified at both sides of the merge whose objects are fetched at once
+     */
+    private static final int MERGE_BATCH_SIZE = 1000;
+
     private RevCommit toMerge;
 
     private RevCommit mergeInto;
@@ -80,217 +93,187 @@ public class ReportMergeScenarioOp extends AbstractGeoGigOp<MergeScenarioReport>
 
         final ObjectId ancestor = ancestorOpt.get();
 
-        MergeScenarioReport report = null;
-
-        try (AutoCloseableIterator<DiffEntry> mergeIntoDiffs = command(DiffTree.class)
-                .setOldTree(ancestor).setReportTrees(true).setNewTree(mergeInto.getId())
-                .setPreserveIterationOrder(true).call();
-                AutoCloseableIterator<DiffEntry> toMergeDiffs = command(DiffTree.class)
-                        .setOldTree(ancestor).setReportTrees(true).setNewTree(toMerge.getId())
-                        .setPreserveIterationOrder(true).call();) {
+        final RevCommit ancestorCommit = objectDatabase().getCommit(ancestor);
+        final RevTree ancestorTree = objectDatabase().getTree(ancestorCommit.getTreeId());
+        final RevTree oursTree = objectDatabase().getTree(mergeInto.getTreeId());
+        final RevTree theirsTree = objectDatabase().getTree(toMerge.getTreeId());
 
-            Iterator<MergeDiffRef> tupleIterator = new MergeDiffIterator(mergeIntoDiffs,
-                    toMergeDiffs);
+        MergeScenarioReport report = new MergeScenarioReport();
+        MergeWalkConsumer walkConsumer = new MergeWalkConsumer(report);
 
-            final RevCommit ancestorCommit = objectDatabase().getCommit(ancestor);
-            final RevTree ancestorTree = objectDatabase().getTree(ancestorCommit.getTreeId());
+        new ThreeWayDiffWalk(ancestorTree, oursTree, theirsTree, objectDatabase())
+                .walk(walkConsumer);
+        walkConsumer.mergePending();
 
-            report = process(tupleIterator, ancestorTree);
+        if (!consumer.isCancelled()) {
+            consumer.finished();
         }
-
         return report;
-
-    }
-
-    private static class MergeDiffIterator extends AbstractIterator<MergeDiffRef> {
-
-        private PeekingIterator<DiffEntry> ours;
-
-        private PeekingIterator<DiffEntry> theirs;
-
-        MergeDiffIterator(AutoCloseableIterator<DiffEntry> ours,
-                AutoCloseableIterator<DiffEntry> theirs) {
-            this.ours = Iterators.peekingIterator(ours);
-            this.theirs = Iterators.peekingIterator(theirs);
-        }
-
-        protected @Override MergeDiffRef computeNext() {
-            DiffEntry left = ours.hasNext() ? ours.peek() : null;
-            DiffEntry right = theirs.hasNext() ? theirs.peek() : null;
-
-            if (left == null && right == null) {
-                return endOfData();
-            }
-            if (right == null) {
-                // no more their's diffs to process
-                return endOfData();
-            }
-
-            if (left != null && right != null) {
-                final int compare = DiffEntry.COMPARATOR.compare(left, right);
-                if (compare < 0) {
-                    // Only "our" branch modified the path, advance "our" iterator
-                    ours.next();
-                    right = null;
-                } else if (compare > 0) {
-                    // Only "their" branch modified the path, advance "their" iterator
-                    theirs.next();
-                    left = null;
-                } else {
-                    // Same path modified on both, advance both iterators
-                    ours.next();
-                    theirs.next();
-                }
-            } else if (left == null) {
-                theirs.next();
-            } else {
-                ours.next();
-            }
-
-            return new MergeDiffRef(left, right);
-        }
-
     }
 
-    private static class MergeDiffRef {
+    private class MergeWalkConsumer implements ThreeWayDiffWalk.Consumer {
 
-        private final DiffEntry ours;
+        private final MergeScenarioReport report;
 
-        private final DiffEntry theirs;
+        private final List<NodeRef[]> pending = new ArrayList<>();
 
-        public MergeDiffRef(@Nullable DiffEntry ours, @Nullable DiffEntry theirs) {
-            checkArgument(!(ours == null && theirs == null));
-            this.ours = ours;
-            this.theirs = theirs;
-        }
+        /**
+         * Feature types already fetched, there are usually only a handful of them
+         */
+        private final Map<ObjectId, RevObject> featureTypes = new HashMap<>();
 
-        public DiffEntry ours() {
-            return ours;
+        MergeWalkConsumer(MergeScenarioReport report) {
+            this.report = report;
         }
 
-        public DiffEntry theirs() {
-            return theirs;
+        public @Override boolean isCancelled() {
+            return consumer.isCancelled();
         }
-    }
-
-    private MergeScenarioReport process(Iterator<MergeDiffRef> tupleIterator,
-            RevTree ancestorTree) {
 
-        MergeScenarioReport report = new MergeScenarioReport();
-        while (tupleIterator.hasNext()) {
-            MergeDiffRef mr = tupleIterator.next();
-
-            DiffEntry ours = mr.ours();
-            DiffEntry theirs = mr.theirs();
-            if (ours == null) {
+        public @Override boolean tree(@Nullable NodeRef ancestor, @Nullable NodeRef ours,
+                @Nullable NodeRef theirs) {
+            if (!changed(ancestor, ours)) {
                 // Only "their" branch modified the path
-                consumer.unconflicted(theirs);
-                report.addUnconflicted(theirs);
-            } else if (theirs == null) {
-                // Only "our" branch modified the path
-                // nothing else to do
+                unconflicted(new DiffEntry(ancestor, theirs));
+            } else if (changeType(ancestor, ours) != changeType(ancestor, theirs)) {
+                conflicted(ancestor, ours, theirs);
             } else {
-                // both branches modifies the same path
-                processPossibleConflict(ours, theirs, ancestorTree, report);
+                // added or modified by both histories, either way their contents will be merged
+                checkForFeatureTypeConflict(ancestor, ours, theirs);
             }
+            return true;
+        }
 
-            if (consumer.isCancelled()) {
+        public @Override void feature(@Nullable NodeRef ancestor, @Nullable NodeRef ours,
+                @Nullable NodeRef theirs) {
+            if (!changed(ancestor, ours)) {
+                // Only "their" branch modified the path
+                unconflicted(new DiffEntry(ancestor, theirs));
+                return;
+            }
+            final ChangeType theirsChange = changeType(ancestor, theirs);
+            if (changeType(ancestor, ours) != theirsChange) {
+                conflicted(ancestor, ours, theirs);
+                return;
+            }
+            switch (theirsChange) {
+            case ADDED:
+                // added in both branches with different contents
+                conflicted(ancestor, ours, theirs);
+                break;
+            case REMOVED:
+                // removed by both histories => no conflict and no need to do anything
+                break;
+            case MODIFIED:
+                pending.add(new NodeRef[] { ancestor, ours, theirs });
+                if (pending.size() == MERGE_BATCH_SIZE) {
+                    mergePending();
+                }
                 break;
             }
         }
 
-        if (!consumer.isCancelled() || !tupleIterator.hasNext()) {
-            consumer.finished();
+        private boolean changed(@Nullable NodeRef ancestor, @Nullable NodeRef ours) {
+            return !Objects.equals(ancestor == null ? null : ancestor.getNode(),
+                    ours == null ? null : ours.getNode());
         }
 
-        return report;
-
-    }
-
-    private void processPossibleConflict(DiffEntry oursDiff, DiffEntry theirsDiff,
-            RevTree ancestorTree, MergeScenarioReport report) {
-
-        Preconditions.checkArgument(oursDiff.oldObject().equals(theirsDiff.oldObject()));
+        private ChangeType changeType(@Nullable NodeRef ancestor, @Nullable NodeRef version) {
+            if (ancestor == null) {
+                return ChangeType.ADDED;
+            }
+            return version == null ? ChangeType.REMOVED : ChangeType.MODIFIED;
+        }
 
-        final String path = oursDiff.path();
+        private void unconflicted(DiffEntry theirs) {
+            consumer.unconflicted(theirs);
+            report.addUnconflicted(theirs);
+        }
 
-        final Optional<NodeRef> ancestorVersion = oursDiff.oldObject();
+        private void conflicted(@Nullable NodeRef ancestor, @Nullable NodeRef ours,
+                @Nullable NodeRef theirs) {
+            final String path = (theirs == null ? ancestor : theirs).path();
+            consumer.conflicted(new Conflict(path, id(ancestor), id(ours), id(theirs)));
+            report.addConflict(path);
+        }
 
-        final ObjectId ancestorVersionId = theirsDiff.oldObjectId();
-        final ObjectId ours = oursDiff.newObjectId();
-        final ObjectId theirs = theirsDiff.newObjectId();
+        private ObjectId id(@Nullable NodeRef ref) {
+            return ref == null ? ObjectId.NULL : ref.getObjectId();
+        }
 
-        if (!oursDiff.changeType().equals(theirsDiff.changeType())) {
-            consumer.conflicted(new Conflict(path, ancestorVersionId, ours, theirs));
-            report.addConflict(path);
-            return;
+        private void checkForFeatureTypeConflict(@Nullable NodeRef ancestor, NodeRef ours,
+                NodeRef theirs) {
+            final boolean featureTypeConflict = !theirs.getMetadataId()
+                    .equals(ours.getMetadataId());
+            if (featureTypeConflict) {
+                // In this case, we store the metadata id, not the element id
+                final String path = theirs.path();
+                ObjectId ancestorVersionId = ancestor == null ? ObjectId.NULL
+                        : ancestor.getMetadataId();
+                consumer.conflicted(new Conflict(path, ancestorVersionId, ours.getMetadataId(),
+                        theirs.getMetadataId()));
+                report.addConflict(path);
+            }
         }
-        switch (theirsDiff.changeType()) {
-        case ADDED:
-            if (theirsDiff.getNewObject().equals(oursDiff.getNewObject())) {
-                // already added in current branch, no need to do anything
-            } else {
-                if (TYPE.TREE == theirsDiff.newObjectType()) {
-                    checkForFeatureTypeConflict(ancestorVersion, oursDiff, theirsDiff, report);
-                } else {
-                    consumer.conflicted(new Conflict(path, ancestorVersionId, ours, theirs));
-                    report.addConflict(path);
+
+        /**
+         * Fetches all the features and feature types for the pending features modified by both
+         * histories at once, and merges them
+         */
+        void mergePending() {
+            if (pending.isEmpty() || consumer.isCancelled()) {
+                pending.clear();
+                return;
+            }
+            final Set<ObjectId> ids = new HashSet<>();
+            for (NodeRef[] versions : pending) {
+                for (NodeRef ref : versions) {
+                    ids.add(ref.getObjectId());
+                    if (!featureTypes.containsKey(ref.getMetadataId())) {
+                        ids.add(ref.getMetadataId());
+                    }
                 }
             }
-            break;
-        case REMOVED:
-            // removed by both histories => no conflict and no need to do anything
-            break;
-        case MODIFIED:
-            if (TYPE.TREE == theirsDiff.newObjectType()) {
-                checkForFeatureTypeConflict(ancestorVersion, oursDiff, theirsDiff, report);
-                break;
+            final Map<ObjectId, RevObject> objects = new HashMap<>(featureTypes);
+            objectDatabase().getAll(ids, BulkOpListener.NOOP_LISTENER).forEachRemaining(o -> {
+                objects.put(o.getId(), o);
+                if (o instanceof RevFeatureType) {
+                    featureTypes.put(o.getId(), o);
+                }
+            });
+            for (NodeRef[] versions : pending) {
+                if (consumer.isCancelled()) {
+                    break;
+                }
+                merge(versions[0], versions[1], versions[2], objects);
             }
+            pending.clear();
+        }
 
-            DiffMergeFeatureResult diffMergeFeatureResult = command(DiffMergeFeaturesOp.class)//
-                    .setCommonAncestor(theirsDiff.getOldObject())//
-                    .setMergeInto(oursDiff.getNewObject())//
-                    .setToMerge(theirsDiff.getNewObject())//
-                    .call();
+        private void merge(NodeRef ancestor, NodeRef ours, NodeRef theirs,
+                Map<ObjectId, RevObject> objects) {
+
+            DiffMergeFeatureResult diffMergeFeatureResult = DiffMergeFeaturesOp.diffMerge(ancestor,
+                    ours, theirs, objects);
 
             if (diffMergeFeatureResult.isConflict()) {
-                consumer.conflicted(new Conflict(path, ancestorVersionId, ours, theirs));
-                report.addConflict(path);
+                conflicted(ancestor, ours, theirs);
             } else if (diffMergeFeatureResult.isMerge()) {
                 RevFeature mergedFeature = diffMergeFeatureResult.mergedFeature();
-                if (mergedFeature.getId().equals(theirsDiff.newObjectId())) {
+                if (mergedFeature.getId().equals(theirs.getObjectId())) {
                     // the resulting merged feature equals the feature to merge from
                     // the branch, which means that it exists in the merge into tree and there
                     // is no need to report the to merge change as merged.
-                    consumer.unconflicted(theirsDiff);
-                    report.addUnconflicted(theirsDiff);
+                    unconflicted(new DiffEntry(ancestor, theirs));
                 } else {
-                    ObjectId featureTypeId = oursDiff.getNewObject().getMetadataId();
-                    FeatureInfo merged = FeatureInfo.insert(mergedFeature, featureTypeId, path);
+                    ObjectId featureTypeId = ours.getMetadataId();
+                    FeatureInfo merged = FeatureInfo.insert(mergedFeature, featureTypeId,
+                            theirs.path());
                     consumer.merged(merged);
-                    report.addMerged(path);
+                    report.addMerged(theirs.path());
                 }
             }
             // else do nothing, 'ours' has changed in the same way as 'theirs'
         }
     }
-
-    private void checkForFeatureTypeConflict(Optional<NodeRef> ancestorVersion, DiffEntry oursDiff,
-            DiffEntry theirsDiff, MergeScenarioReport report) {
-
-        final String path = oursDiff.path();
-
-        final boolean featureTypeConflict = !theirsDiff.getNewObject().getMetadataId()
-                .equals(oursDiff.getNewObject().getMetadataId());
-        if (featureTypeConflict) {
-            // In this case, we store the metadata id, not the element id
-            ObjectId ancestorVersionId = ancestorVersion.isPresent()
-                    ? ancestorVersion.get().getMetadataId()
-                    : ObjectId.NULL;
-            ObjectId ours = oursDiff.getNewObject().getMetadataId();
-            ObjectId theirs = theirsDiff.getNewObject().getMetadataId();
-            consumer.conflicted(new Conflict(path, ancestorVersionId, ours, theirs));
-            report.addConflict(path);
-        }
-    }
 }
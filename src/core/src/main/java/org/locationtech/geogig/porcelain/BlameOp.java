@@ -9,31 +9,45 @@
  */
 package org.locationtech.geogig.porcelain;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.di.CanRunDuringConflict;
 import org.locationtech.geogig.feature.PropertyDescriptor;
-import org.locationtech.geogig.model.DiffEntry;
+import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.plumbing.DiffFeature;
 import org.locationtech.geogig.plumbing.ResolveFeatureType;
 import org.locationtech.geogig.plumbing.ResolveObjectType;
-import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.plumbing.RevParse;
 import org.locationtech.geogig.plumbing.diff.AttributeDiff;
 import org.locationtech.geogig.plumbing.diff.FeatureDiff;
 import org.locationtech.geogig.porcelain.BlameException.StatusCode;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
-import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.repository.impl.DepthSearch;
+import org.locationtech.geogig.storage.ObjectDatabase;
 
-import com.google.common.base.Suppliers;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 
 /**
  * Creates a report that contains information about who was the last to change each attribute in a
@@ -47,6 +61,12 @@ public class BlameOp extends AbstractGeoGigOp<BlameReport> {
 
     private ObjectId commit;
 
+    static final int MIN_BATCH_SIZE = 8;
+
+    static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
     /**
      * Sets the path of the feature to use
      * 
@@ -69,6 +89,24 @@ public class BlameOp extends AbstractGeoGigOp<BlameReport> {
         return this;
     }
 
+    /**
+     * Sets the maximum number of commits whose feature versions are fetched and compared at once,
+     * defaults to {@link #DEFAULT_MAX_BATCH_SIZE}
+     */
+    @VisibleForTesting
+    BlameOp setMaxBatchSize(int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "batch size must be > 0");
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * Walks the history of the feature in batches of commits of increasing size, most recent
+     * first. For each batch the feature versions at every commit are resolved concurrently and
+     * fetched with a single {@link ObjectDatabase#getAll} call, and each pair of consecutive
+     * versions is compared concurrently. The results are then applied to the report in history
+     * order, and the walk stops as soon as every attribute has been attributed to a commit.
+     */
     protected @Override BlameReport _call() {
         String fullPath = (commit != null ? commit.toString() : Ref.HEAD) + ":" + path;
         Optional<ObjectId> id = command(RevParse.class).setRefSpec(fullPath).call();
@@ -84,51 +122,142 @@ public class BlameOp extends AbstractGeoGigOp<BlameReport> {
 
         BlameReport report = new BlameReport(featureType.get());
 
-        Iterator<RevCommit> log = command(LogOp.class).addPath(path).setUntil(commit).call();
-        RevCommit commit = log.next();
-        RevObjectParse revObjectParse = command(RevObjectParse.class);
-        DiffOp diffOp = command(DiffOp.class);
-        DiffFeature diffFeature = command(DiffFeature.class);
+        final Iterator<RevCommit> log = command(LogOp.class).addPath(path).setUntil(commit)
+                .call();
+        final Map<ObjectId, RevObject> objects = new ConcurrentHashMap<>();
 
+        Version newest = resolve(Collections.singletonList(log.next()), objects).get(0);
+        int batchSize = Math.min(MIN_BATCH_SIZE, maxBatchSize);
         while (!report.isComplete()) {
-            if (!log.hasNext()) {
-                String refSpec = commit.getId().toString() + ":" + path;
-                RevFeature feature = revObjectParse.setRefSpec(refSpec).call(RevFeature.class)
-                        .get();
-                report.setFirstVersion(feature, commit);
+            List<RevCommit> batch = Lists.newArrayList(Iterators.limit(log, batchSize));
+            if (batch.isEmpty()) {
+                report.setFirstVersion(newest.feature(objects), newest.commit);
                 break;
             }
-            RevCommit commitB = log.next();
-            try (AutoCloseableIterator<DiffEntry> diffs = diffOp.setNewVersion(commit.getId())
-                    .setOldVersion(commitB.getId()).setReportTrees(false).call()) {
-                while (diffs.hasNext()) {
-                    DiffEntry diff = diffs.next();
-                    if (path.equals(diff.newPath())) {
-                        if (diff.isAdd()) {
-                            String refSpec = commit.getId().toString() + ":" + path;
-                            RevFeature feature = revObjectParse.setRefSpec(refSpec)
-                                    .call(RevFeature.class).get();
-                            report.setFirstVersion(feature, commit);
-                            break;
-                        }
-                        FeatureDiff featureDiff = diffFeature
-                                .setNewVersion(Suppliers.ofInstance(diff.getNewObject()))
-                                .setOldVersion(Suppliers.ofInstance(diff.getOldObject())).call();
-                        Map<PropertyDescriptor, AttributeDiff> attribDiffs = featureDiff.getDiffs();
-                        Iterator<PropertyDescriptor> iter = attribDiffs.keySet().iterator();
-                        while (iter.hasNext()) {
-                            PropertyDescriptor key = iter.next();
-                            Optional<?> value = Optional
-                                    .ofNullable(attribDiffs.get(key).getNewValue());
-                            String attribute = key.getName().toString();
-                            report.addDiff(attribute, value, commit);
-                        }
-                    }
+            List<Version> versions = new ArrayList<>(1 + batch.size());
+            versions.add(newest);
+            versions.addAll(resolve(batch, objects));
+
+            List<Change> changes = IntStream.range(0, batch.size()).parallel()
+                    .mapToObj(i -> compare(versions.get(i), versions.get(i + 1), objects))
+                    .collect(Collectors.toList());
 
+            for (Change change : changes) {
+                if (change.added) {
+                    report.setFirstVersion(change.newer.feature(objects), change.newer.commit);
+                    break;
+                }
+                change.attributes.forEach(
+                        (attribute, value) -> report.addDiff(attribute, value, change.newer.commit));
+                if (report.isComplete()) {
+                    break;
                 }
             }
-            commit = commitB;
+            newest = versions.get(versions.size() - 1);
+            batchSize = Math.min(maxBatchSize, 2 * batchSize);
         }
         return report;
     }
+
+    /**
+     * The state of the feature at a given commit
+     */
+    private static class Version {
+        final RevCommit commit;
+
+        final @Nullable NodeRef node;
+
+        Version(RevCommit commit, @Nullable NodeRef node) {
+            this.commit = commit;
+            this.node = node;
+        }
+
+        RevFeature feature(Map<ObjectId, RevObject> objects) {
+            Preconditions.checkState(node != null, "Feature not found at commit %s",
+                    commit.getId());
+            return object(objects, node.getObjectId(), RevFeature.class);
+        }
+    }
+
+    /**
+     * The attributes changed between two consecutive versions of the feature
+     */
+    private static class Change {
+        final Version newer;
+
+        final boolean added;
+
+        final Map<String, Optional<?>> attributes;
+
+        Change(Version newer, boolean added, Map<String, Optional<?>> attributes) {
+            this.newer = newer;
+            this.added = added;
+            this.attributes = attributes;
+        }
+    }
+
+    /**
+     * Resolves the feature node at each commit concurrently and fetches all the missing feature
+     * and feature type objects in a single batch
+     */
+    private List<Version> resolve(List<RevCommit> commits, Map<ObjectId, RevObject> objects) {
+        final ObjectDatabase db = objectDatabase();
+        final DepthSearch search = new DepthSearch(db);
+        List<Version> versions = commits.parallelStream()
+                .map(c -> new Version(c, search.find(c.getTreeId(), path).orElse(null)))
+                .collect(Collectors.toList());
+
+        Set<ObjectId> missing = new HashSet<>();
+        for (Version v : versions) {
+            if (v.node != null) {
+                missing.add(v.node.getObjectId());
+                missing.add(v.node.getMetadataId());
+            }
+        }
+        missing.removeAll(objects.keySet());
+        if (!missing.isEmpty()) {
+            db.getAll(missing).forEachRemaining(o -> objects.put(o.getId(), o));
+        }
+        return versions;
+    }
+
+    private Change compare(Version newer, Version older, Map<ObjectId, RevObject> objects) {
+        if (newer.node == null) {
+            // feature deleted at the newer commit
+            return new Change(newer, false, Collections.emptyMap());
+        }
+        if (older.node == null) {
+            return new Change(newer, true, Collections.emptyMap());
+        }
+        if (newer.node.getObjectId().equals(older.node.getObjectId())
+                && newer.node.getMetadataId().equals(older.node.getMetadataId())) {
+            return new Change(newer, false, Collections.emptyMap());
+        }
+        FeatureDiff featureDiff = DiffFeature.compare(path, //
+                object(objects, older.node.getObjectId(), RevFeature.class), //
+                object(objects, newer.node.getObjectId(), RevFeature.class), //
+                object(objects, older.node.getMetadataId(), RevFeatureType.class), //
+                object(objects, newer.node.getMetadataId(), RevFeatureType.class));
+
+        Map<String, Optional<?>> attributes = new HashMap<>();
+        for (Map.Entry<PropertyDescriptor, AttributeDiff> e : featureDiff.getDiffs().entrySet()) {
+            String attribute = e.getKey().getName().toString();
+            attributes.put(attribute, Optional.ofNullable(e.getValue().getNewValue()));
+        }
+        return new Change(newer, false, attributes);
+    }
+
+    /**
+     * @throws IllegalStateException if the object wasn't returned by the object database, or is
+     *         not of the expected type
+     */
+    private static <T extends RevObject> T object(Map<ObjectId, RevObject> objects, ObjectId id,
+            Class<T> type) {
+        RevObject object = objects.get(id);
+        Preconditions.checkState(object != null, "%s object not found: %s", type.getSimpleName(),
+                id);
+        Preconditions.checkState(type.isInstance(object), "Object %s is not a %s", id,
+                type.getSimpleName());
+        return type.cast(object);
+    }
 }
@@ -21,6 +21,7 @@ import java.util.Stack;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.di.CanRunDuringConflict;
 import org.locationtech.geogig.dsl.Geogig;
 import org.locationtech.geogig.model.NodeRef;
@@ -30,6 +31,7 @@ import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.FindTreeChild;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.GraphDatabase;
+import org.locationtech.geogig.storage.fs.ChangedPathsFile;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.AbstractIterator;
@@ -266,8 +268,11 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
                 history = new ChronologicalHistoryIterator(commits, geogig);
             }
         }
+        ChangedPathsFile changedPaths = paths == null ? null
+                : ChangedPathsFile.locate(repository()).flatMap(ChangedPathsFile::open)
+                        .orElse(null);
         LogFilter filter = new LogFilter(geogig, oldestCommitId, timeRange, paths, author,
-                commiter);
+                commiter, changedPaths);
         Iterator<RevCommit> filteredCommits = Iterators.filter(history, filter);
         if (skip != null) {
             Iterators.advance(filteredCommits, skip.intValue());
@@ -532,6 +537,8 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
 
         private @NonNull Geogig repo;
 
+        private final @Nullable ChangedPathsFile changedPaths;
+
         /**
          * Constructs a new {@code LogFilter} with the given parameters.
          * 
@@ -541,16 +548,19 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
          *        of the provided paths
          * @param commiter the regexp pattern to filter author names
          * @param author the regexp pattern to filter commiter names
+         * @param changedPaths per commit changed path filters, to discard commits that didn't
+         *        touch any of {@code paths} without loading their trees
          */
         public LogFilter(@NonNull Geogig repo, final @NonNull ObjectId oldestCommitId,
                 final @NonNull Range<Date> timeRange, final Set<String> paths, Pattern author,
-                Pattern commiter) {
+                Pattern commiter, @Nullable ChangedPathsFile changedPaths) {
             this.repo = repo;
             this.oldestCommitId = oldestCommitId;
             this.timeRange = timeRange;
             this.author = author;
             this.committer = commiter;
             this.paths = paths;
+            this.changedPaths = changedPaths;
             findTreeChild = repo.commands().command(FindTreeChild.class);
         }
 
@@ -585,6 +595,9 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
                 return false;
             }
             if (paths != null) {
+                if (changedPaths != null && !mightHaveChanged(commit.getId())) {
+                    return false;
+                }
                 applies = false;
                 // did this commit touch any of the paths?
                 RevTree commitTree = repo.objects().getTree(commit.getTreeId());
@@ -621,6 +634,15 @@ public class LogOp extends AbstractGeoGigOp<Iterator<RevCommit>> {
             return applies;
         }
 
+        private boolean mightHaveChanged(ObjectId commitId) {
+            for (String path : paths) {
+                if (changedPaths.mightHaveChanged(commitId, path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         private ObjectId getPathHash(RevTree tree, String path) {
             ObjectId hash = ObjectId.NULL;
             Optional<NodeRef> ref = findTreeChild.setChildPath(path).setParent(tree).call();
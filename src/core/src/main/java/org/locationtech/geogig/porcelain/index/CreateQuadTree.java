@@ -11,6 +11,7 @@ package org.locationtech.geogig.porcelain.index;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +51,8 @@ public class CreateQuadTree extends AbstractGeoGigOp<Index> {
 
     private @Nullable Envelope bounds;
 
+    private double[] simplificationTolerances;
+
     /**
      * @param typeTreeRef the {@link NodeRef} of the canonical tree to build a quadtree from
      * @return {@code this}
@@ -111,6 +114,20 @@ public class CreateQuadTree extends AbstractGeoGigOp<Index> {
         return this;
     }
 
+    /**
+     * Sets the distance tolerances at which to store simplified versions of the indexed geometries
+     * in the index, so that rendering at low zoom levels doesn't need to load the full resolution
+     * geometries.
+     * 
+     * @param tolerances the simplification distance tolerances, in the units of the geometry
+     *        attribute's CRS
+     * @return {@code this}
+     */
+    public CreateQuadTree setSimplificationTolerances(double... tolerances) {
+        this.simplificationTolerances = tolerances;
+        return this;
+    }
+
     /**
      * Performs the operation.
      * 
@@ -143,6 +160,13 @@ public class CreateQuadTree extends AbstractGeoGigOp<Index> {
         if (extraAttributes != null) {
             metadata.put(IndexInfo.FEATURE_ATTRIBUTES_EXTRA_DATA, extraAttributes);
         }
+        if (simplificationTolerances != null && simplificationTolerances.length > 0) {
+            double[] tolerances = Arrays.stream(simplificationTolerances).distinct().sorted()
+                    .toArray();
+            checkArgument(tolerances[0] > 0, "Simplification tolerances must be positive: %s",
+                    Arrays.toString(simplificationTolerances));
+            metadata.put(IndexInfo.MD_SIMPLIFICATION_TOLERANCES, tolerances);
+        }
 
         Index index = command(CreateIndexOp.class)//
                 .setTreeName(treeName)//
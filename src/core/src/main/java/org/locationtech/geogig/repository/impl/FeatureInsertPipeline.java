@@ -0,0 +1,484 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.repository.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.repository.FeatureInfo;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Multi-threaded pipeline used by {@link WorkingTreeImpl} to insert large amounts of features,
+ * with bounded queues between its stages:
+ *
+ * <pre>
+ * <code>
+ *  read --> encode (n threads) --> write (batched putAll)
+ *                              \-> dispatch --> tree (n/2 threads)
+ * </code>
+ * </pre>
+ * <ul>
+ * <li>{@code read} pulls the source objects in batches, on a single thread since most sources
+ * aren't thread safe
+ * <li>{@code encode} adapts the source objects to {@link FeatureInfo}s, which usually involves
+ * building and hashing the {@link RevFeature}s, and computes their bounds
+ * <li>{@code write} saves the features to the object store in batches
+ * <li>{@code dispatch} hands the encoded batches over to the tree workers in source order,
+ * routing each feature to a worker by its path
+ * <li>{@code tree} adds the feature nodes to the tree builders, which support concurrent updates
+ * </ul>
+ * Each stage keeps track of its throughput and input queue depth, logged at debug level
+ * periodically while the pipeline runs and once it finishes.
+ * <p>
+ * Since all the changes to a given path go through the same tree worker in source order, if the
+ * source contains the same feature path more than once the last one wins, as with a sequential
+ * insert.
+ */
+@Slf4j
+final class FeatureInsertPipeline<T> {
+
+    static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    private static final int QUEUE_BATCHES_PER_THREAD = 4;
+
+    private static final long STATS_LOG_INTERVAL_SECONDS = 10;
+
+    /**
+     * Shared by all pipelines, each one using as many threads as it has stage workers while it
+     * runs
+     */
+    private static final ExecutorService EXECUTOR;
+
+    static {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("geogig-feature-insert-pool-%d").build();
+        EXECUTOR = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    private static final List<?> END = new ArrayList<>(0);
+
+    private static final Batch<?> LAST = new Batch<>(new ArrayList<>(0));
+
+    private static final class Aborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final class Encoded {
+        final FeatureInfo info;
+
+        final @Nullable Envelope bounds;
+
+        Encoded(FeatureInfo info, @Nullable Envelope bounds) {
+            this.info = info;
+            this.bounds = bounds;
+        }
+    }
+
+    /**
+     * A batch of source objects, completed by the encoder that takes it
+     */
+    private static final class Batch<T> {
+        final List<T> objects;
+
+        final CompletableFuture<List<Encoded>> encoded = new CompletableFuture<>();
+
+        Batch(List<T> objects) {
+            this.objects = objects;
+        }
+    }
+
+    /**
+     * Throughput and queue depth of a pipeline stage
+     */
+    static final class Stage {
+
+        final String name;
+
+        final List<? extends BlockingQueue<?>> inputs;
+
+        final int capacity;
+
+        final AtomicLong count = new AtomicLong();
+
+        private final Stopwatch elapsed = Stopwatch.createUnstarted();
+
+        Stage(String name, List<? extends BlockingQueue<?>> inputs) {
+            this.name = name;
+            this.inputs = inputs;
+            this.capacity = inputs.stream().mapToInt(q -> q.size() + q.remainingCapacity())
+                    .sum();
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        public int queueDepth() {
+            return inputs.stream().mapToInt(BlockingQueue::size).sum();
+        }
+
+        public double throughput() {
+            long nanos = elapsed.elapsed(TimeUnit.NANOSECONDS);
+            return nanos == 0 ? 0 : count.get() * 1e9 / nanos;
+        }
+
+        public @Override String toString() {
+            String queue = inputs.isEmpty() ? ""
+                    : String.format(", queue %d/%d", queueDepth(), capacity);
+            return String.format("%s: %,d (%,.0f/s%s)", name, count(), throughput(), queue);
+        }
+    }
+
+    private final Iterator<? extends T> source;
+
+    private final Function<? super T, FeatureInfo> adapter;
+
+    private final ObjectStore target;
+
+    private final BiConsumer<FeatureInfo, Envelope> tree;
+
+    private final ProgressListener progress;
+
+    private final int encoders;
+
+    private final int treeWorkers;
+
+    private final int batchSize;
+
+    private final BlockingQueue<Batch<T>> readQueue;
+
+    private final BlockingQueue<Batch<T>> dispatchQueue;
+
+    private final BlockingQueue<List<RevFeature>> writeQueue;
+
+    private final List<BlockingQueue<List<Encoded>>> treeQueues;
+
+    private final Stage read, encode, write, build;
+
+    private final AtomicInteger runningEncoders;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * @param source the objects to insert
+     * @param adapter converts each source object to the {@link FeatureInfo} to insert or delete,
+     *        called concurrently
+     * @param target where to save the features
+     * @param tree called concurrently with each feature to insert or delete and its bounds, to
+     *        update the feature trees, though never concurrently nor out of source order for the
+     *        same path
+     * @param threads number of encode threads, half as many threads update the trees
+     */
+    FeatureInsertPipeline(@NonNull Iterator<? extends T> source,
+            @NonNull Function<? super T, FeatureInfo> adapter, @NonNull ObjectStore target,
+            @NonNull BiConsumer<FeatureInfo, Envelope> tree, @NonNull ProgressListener progress,
+            int threads, int batchSize) {
+        Preconditions.checkArgument(threads > 0, "threads must be > 0: %s", threads);
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be > 0: %s", batchSize);
+        this.source = source;
+        this.adapter = adapter;
+        this.target = target;
+        this.tree = tree;
+        this.progress = progress;
+        this.encoders = threads;
+        this.treeWorkers = Math.max(1, threads / 2);
+        this.batchSize = batchSize;
+        this.runningEncoders = new AtomicInteger(encoders);
+        this.readQueue = new ArrayBlockingQueue<>(QUEUE_BATCHES_PER_THREAD * encoders);
+        this.dispatchQueue = new ArrayBlockingQueue<>(QUEUE_BATCHES_PER_THREAD * encoders);
+        this.writeQueue = new ArrayBlockingQueue<>(QUEUE_BATCHES_PER_THREAD * encoders);
+        this.treeQueues = new ArrayList<>(treeWorkers);
+        for (int i = 0; i < treeWorkers; i++) {
+            treeQueues.add(new ArrayBlockingQueue<>(QUEUE_BATCHES_PER_THREAD * 2));
+        }
+        this.read = new Stage("read", ImmutableList.of());
+        this.encode = new Stage("encode", ImmutableList.of(readQueue));
+        this.write = new Stage("write", ImmutableList.of(writeQueue));
+        this.build = new Stage("tree", treeQueues);
+    }
+
+    List<Stage> stages() {
+        return ImmutableList.of(read, encode, write, build);
+    }
+
+    /**
+     * Runs the pipeline until the source is exhausted or the progress listener is canceled.
+     *
+     * @return the number of features inserted or deleted
+     * @throws RuntimeException the first error thrown by any stage, which aborts the whole
+     *         pipeline
+     */
+    long run() {
+        final int numThreads = 1 + encoders + 1 + 1 + treeWorkers;
+        final List<Future<?>> tasks = new ArrayList<>(numThreads);
+        stages().forEach(s -> s.elapsed.start());
+        try {
+            tasks.add(EXECUTOR.submit(() -> stage(this::read)));
+            for (int i = 0; i < encoders; i++) {
+                tasks.add(EXECUTOR.submit(() -> stage(this::encode)));
+            }
+            tasks.add(EXECUTOR.submit(() -> stage(this::write)));
+            tasks.add(EXECUTOR.submit(() -> stage(this::dispatch)));
+            for (int i = 0; i < treeWorkers; i++) {
+                final BlockingQueue<List<Encoded>> queue = treeQueues.get(i);
+                tasks.add(EXECUTOR.submit(() -> stage(() -> build(queue))));
+            }
+            for (Future<?> task : tasks) {
+                awaitLoggingStats(task);
+            }
+        } finally {
+            // no-op unless the pipeline was aborted and some stage is still running
+            tasks.forEach(t -> t.cancel(true));
+            stages().forEach(s -> {
+                if (s.elapsed.isRunning()) {
+                    s.elapsed.stop();
+                }
+            });
+        }
+        Throwable error = failure.get();
+        if (error != null) {
+            Throwables.throwIfUnchecked(error);
+            throw new RuntimeException(error);
+        }
+        log.debug("Feature insert pipeline finished: {}", statsSummary());
+        return build.count();
+    }
+
+    String statsSummary() {
+        return stages().stream().map(Stage::toString).collect(Collectors.joining(" | "));
+    }
+
+    private void awaitLoggingStats(Future<?> task) {
+        while (true) {
+            try {
+                task.get(STATS_LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                return;
+            } catch (TimeoutException e) {
+                log.debug("Feature insert pipeline: {}", statsSummary());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+                return;
+            } catch (ExecutionException e) {
+                fail(e.getCause());
+                return;
+            }
+        }
+    }
+
+    private void stage(Runnable body) {
+        try {
+            body.run();
+        } catch (Aborted e) {
+            // another stage failed
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            log.error("Feature insert pipeline aborted", e);
+        }
+    }
+
+    private void read() {
+        try {
+            List<T> batch = new ArrayList<>(batchSize);
+            while (source.hasNext() && !progress.isCanceled()) {
+                batch.add(source.next());
+                read.count.incrementAndGet();
+                if (batch.size() == batchSize) {
+                    submit(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(batch);
+            }
+        } finally {
+            read.elapsed.stop();
+        }
+        put(dispatchQueue, last());
+        for (int i = 0; i < encoders; i++) {
+            put(readQueue, last());
+        }
+    }
+
+    private void submit(List<T> objects) {
+        Batch<T> batch = new Batch<>(objects);
+        // queued for dispatch first, so batches are dispatched in the order they were read
+        put(dispatchQueue, batch);
+        put(readQueue, batch);
+    }
+
+    private void encode() {
+        try {
+            Batch<T> batch;
+            while ((batch = take(readQueue)) != LAST) {
+                List<RevFeature> features = new ArrayList<>(batch.objects.size());
+                List<Encoded> encoded = new ArrayList<>(batch.objects.size());
+                for (T object : batch.objects) {
+                    final FeatureInfo info = adapter.apply(object);
+                    Envelope bounds = null;
+                    if (!info.isDelete()) {
+                        RevFeature feature = info.getFeature();
+                        bounds = SpatialOps.boundsOf(feature);
+                        features.add(feature);
+                    }
+                    encoded.add(new Encoded(info, bounds));
+                }
+                encode.count.addAndGet(batch.objects.size());
+                if (!features.isEmpty()) {
+                    put(writeQueue, features);
+                }
+                batch.encoded.complete(encoded);
+            }
+        } finally {
+            if (runningEncoders.decrementAndGet() == 0) {
+                encode.elapsed.stop();
+                put(writeQueue, end());
+            }
+        }
+    }
+
+    private void write() {
+        try {
+            List<RevFeature> batch;
+            while ((batch = take(writeQueue)) != END) {
+                target.putAll(batch.iterator());
+                write.count.addAndGet(batch.size());
+            }
+        } finally {
+            write.elapsed.stop();
+        }
+    }
+
+    private void dispatch() {
+        Batch<T> batch;
+        while ((batch = take(dispatchQueue)) != LAST) {
+            List<Encoded> encoded = await(batch.encoded);
+            List<List<Encoded>> partitions = new ArrayList<>(treeWorkers);
+            for (int i = 0; i < treeWorkers; i++) {
+                partitions.add(new ArrayList<>(encoded.size() / treeWorkers + 1));
+            }
+            for (Encoded e : encoded) {
+                int worker = Math.floorMod(e.info.getPath().hashCode(), treeWorkers);
+                partitions.get(worker).add(e);
+            }
+            for (int i = 0; i < treeWorkers; i++) {
+                if (!partitions.get(i).isEmpty()) {
+                    put(treeQueues.get(i), partitions.get(i));
+                }
+            }
+        }
+        for (BlockingQueue<List<Encoded>> queue : treeQueues) {
+            put(queue, end());
+        }
+    }
+
+    private void build(BlockingQueue<List<Encoded>> queue) {
+        List<Encoded> batch;
+        while ((batch = take(queue)) != END) {
+            for (Encoded e : batch) {
+                tree.accept(e.info, e.bounds);
+            }
+            progress.setProgress(build.count.addAndGet(batch.size()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> List<E> end() {
+        return (List<E>) END;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Batch<E> last() {
+        return (Batch<E>) LAST;
+    }
+
+    private <E> void put(BlockingQueue<E> queue, E item) {
+        try {
+            while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                checkAborted();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Aborted();
+        }
+    }
+
+    private <E> E take(BlockingQueue<E> queue) {
+        try {
+            E item;
+            while ((item = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                checkAborted();
+            }
+            return item;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Aborted();
+        }
+    }
+
+    private <E> E await(CompletableFuture<E> future) {
+        try {
+            while (true) {
+                try {
+                    return future.get(100, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    checkAborted();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Aborted();
+        } catch (ExecutionException e) {
+            throw new Aborted();
+        }
+    }
+
+    private void checkAborted() {
+        if (failure.get() != null) {
+            throw new Aborted();
+        }
+    }
+}
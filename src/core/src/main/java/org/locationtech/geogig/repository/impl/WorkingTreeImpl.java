@@ -320,89 +320,145 @@ public class WorkingTreeImpl implements WorkingTree {
         checkArgument(featureInfos != null);
         checkArgument(progress != null);
 
+        final TreeUpdates trees = new TreeUpdates();
+        progress.setProgress(0);
+
+        Iterator<RevFeature> features = Iterators.transform(featureInfos, fi -> {
+            if (fi.isDelete()) {
+                trees.apply(fi, null);
+                return null;
+            }
+            RevFeature feature = fi.getFeature();
+            trees.apply(fi, SpatialOps.boundsOf(feature));
+            progress.setProgress(trees.count.get());
+            return feature;
+        });
+        features = Iterators.filter(features, Predicates.notNull());
+
+        // (f) -> !progress.isCanceled()
+        Predicate<RevFeature> fn = new Predicate<RevFeature>() {
+            public @Override boolean apply(RevFeature f) {
+                return !progress.isCanceled();
+            }
+        };
+
+        features = Iterators.filter(features, fn);
+
+        Stopwatch insertTime = Stopwatch.createStarted();
+        indexDatabase.putAll(features);
+        insertTime.stop();
+        if (progress.isCanceled()) {
+            return trees.currentWorkHead.getId();
+        }
+
+        progress.setDescription(
+                String.format("%,d features inserted in %s", trees.count.get(), insertTime));
+        return trees.build(progress);
+    }
+
+    /**
+     * Inserts the features resulting of applying {@code adapter} to the {@code source} objects
+     * through a {@link FeatureInsertPipeline}, so that adapting the objects, which usually involves
+     * building and hashing the {@link RevFeature}s, saving the features, and updating the feature
+     * trees run concurrently on as many threads as available processors.
+     * <p>
+     * Changes to the same feature path are applied in source order, so if {@code source} contains
+     * a path more than once the last one wins.
+     */
+    public @Override <T> ObjectId insert(@NonNull Iterator<T> source,
+            @NonNull Function<? super T, FeatureInfo> adapter,
+            @NonNull ProgressListener progress) {
+
+        final TreeUpdates trees = new TreeUpdates();
+        progress.setProgress(0);
+
+        final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        FeatureInsertPipeline<T> pipeline = new FeatureInsertPipeline<>(source, adapter,
+                indexDatabase, trees::apply, progress, threads,
+                FeatureInsertPipeline.DEFAULT_BATCH_SIZE);
+
+        Stopwatch insertTime = Stopwatch.createStarted();
+        final long count = pipeline.run();
+        insertTime.stop();
+        if (progress.isCanceled()) {
+            return trees.currentWorkHead.getId();
+        }
+        progress.setDescription(String.format("%,d features inserted in %s (%s)", count,
+                insertTime, pipeline.statsSummary()));
+        return trees.build(progress);
+    }
+
+    /**
+     * Applies feature inserts and deletes to the builders of the feature trees they belong to,
+     * safe to be called concurrently
+     */
+    private class TreeUpdates {
+
         final RevTree currentWorkHead = getTree();
 
         final Map<String, NodeRef> currentTrees = Maps
                 .newHashMap(Maps.uniqueIndex(getFeatureTypeTrees(), NodeRef::path));
 
-        Map<String, RevTreeBuilder> parentBuilders = new HashMap<>();
+        final Map<String, RevTreeBuilder> parentBuilders = new HashMap<>();
 
-        progress.setProgress(0);
-        final AtomicLong p = new AtomicLong();
-        Function<FeatureInfo, RevFeature> treeBuildingTransformer = fi -> {
+        final AtomicLong count = new AtomicLong();
+
+        void apply(FeatureInfo fi, @Nullable Envelope bounds) {
             final String parentPath = NodeRef.parentPath(fi.getPath());
             final String fid = NodeRef.nodeFromPath(fi.getPath());
             @Nullable
             ObjectId metadataId = fi.getFeatureTypeId();
-            RevTreeBuilder parentBuilder = getTreeBuilder(currentTrees, parentBuilders, parentPath,
-                    metadataId);
+            final RevTreeBuilder parentBuilder;
+            final NodeRef parentRef;
+            synchronized (this) {
+                parentBuilder = getTreeBuilder(currentTrees, parentBuilders, parentPath,
+                        metadataId);
+                parentRef = currentTrees.get(parentPath);
+            }
 
             if (fi.isDelete()) {
                 if (parentBuilder != null) {
                     parentBuilder.remove(RevObjectFactory.defaultInstance().createNode(fid,
                             ObjectId.NULL, ObjectId.NULL, TYPE.FEATURE, null, null));
                 }
-                return null;
+                return;
             }
 
             Preconditions.checkState(parentBuilder != null);
-            RevFeature feature = fi.getFeature();
-            NodeRef parentRef = currentTrees.get(parentPath);
             Preconditions.checkNotNull(parentRef);
             if (fi.getFeatureTypeId().equals(parentRef.getMetadataId())) {
                 metadataId = ObjectId.NULL;// use the parent's default
             }
 
-            ObjectId oid = feature.getId();
-            Envelope bounds = SpatialOps.boundsOf(feature);
+            ObjectId oid = fi.getFeature().getId();
             Node featureNode = RevObjectFactory.defaultInstance().createNode(fid, oid, metadataId,
                     TYPE.FEATURE, bounds, null);
 
             parentBuilder.put(featureNode);
-
-            progress.setProgress(p.incrementAndGet());
-            return feature;
-        };
-
-        Iterator<RevFeature> features = Iterators.transform(featureInfos,
-                treeBuildingTransformer::apply);
-        features = Iterators.filter(features, Predicates.notNull());
-
-        // (f) -> !progress.isCanceled()
-        Predicate<RevFeature> fn = new Predicate<RevFeature>() {
-            public @Override boolean apply(RevFeature f) {
-                return !progress.isCanceled();
-            }
-        };
-
-        features = Iterators.filter(features, fn);
-
-        Stopwatch insertTime = Stopwatch.createStarted();
-        indexDatabase.putAll(features);
-        insertTime.stop();
-        if (progress.isCanceled()) {
-            return currentWorkHead.getId();
+            count.incrementAndGet();
         }
 
-        progress.setDescription(String.format("%,d features inserted in %s", p.get(), insertTime));
-
-        UpdateTree updateTree = context.command(UpdateTree.class).setRoot(currentWorkHead);
-        parentBuilders.forEach((path, builder) -> {
-
-            final NodeRef oldTreeRef = currentTrees.get(path);
-            progress.setDescription(String.format("Building final tree %s...", oldTreeRef.name()));
-            Stopwatch treeTime = Stopwatch.createStarted();
-            final RevTree newFeatureTree = builder.build();
-            treeTime.stop();
-            progress.setDescription(String.format("%,d features tree built in %s",
-                    newFeatureTree.size(), treeTime));
-            final NodeRef newTreeRef = oldTreeRef.update(newFeatureTree.getId(),
-                    SpatialOps.boundsOf(newFeatureTree));
-            updateTree.setChild(newTreeRef);
-        });
+        ObjectId build(ProgressListener progress) {
+            UpdateTree updateTree = context.command(UpdateTree.class).setRoot(currentWorkHead);
+            parentBuilders.forEach((path, builder) -> {
+
+                final NodeRef oldTreeRef = currentTrees.get(path);
+                progress.setDescription(
+                        String.format("Building final tree %s...", oldTreeRef.name()));
+                Stopwatch treeTime = Stopwatch.createStarted();
+                final RevTree newFeatureTree = builder.build();
+                treeTime.stop();
+                progress.setDescription(String.format("%,d features tree built in %s",
+                        newFeatureTree.size(), treeTime));
+                final NodeRef newTreeRef = oldTreeRef.update(newFeatureTree.getId(),
+                        SpatialOps.boundsOf(newFeatureTree));
+                updateTree.setChild(newTreeRef);
+            });
 
-        final RevTree newWorkHead = updateTree.call();
-        return updateWorkHead(newWorkHead.getId(), String.format("%,d feature changes", p.get()));
+            final RevTree newWorkHead = updateTree.call();
+            return updateWorkHead(newWorkHead.getId(),
+                    String.format("%,d feature changes", count.get()));
+        }
     }
 
     @Nullable
@@ -25,6 +25,8 @@ import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.metrics.Metrics;
+import org.locationtech.geogig.metrics.MetricsRegistry;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.ServiceFinder;
 import org.locationtech.geogig.storage.ObjectStore;
@@ -68,6 +70,10 @@ import lombok.NonNull;
  * <li>{float}G[B]: size in gibibytes (e.g. {@code 1.5G}, {@code 2g}, {@code 2.5G})
  * </ul>
  * <p>
+ * The 90% of the heap limit does not apply if the {@link SharedCacheBuilder} in use is not
+ * {@link SharedCacheBuilder#isHeapBound() heap bound}, in which case the cache size can be
+ * configured independently of the heap size, though percentage values are still relative to it.
+ * <p>
  * At runtime, the maximum cache capacity can be changed as described by the mutator methods of
  * {@link CacheManagerBean}
  */
@@ -85,6 +91,7 @@ public class CacheManager implements CacheManagerBean {
 
     static {
         registerMBeanServer();
+        registerMetrics();
     }
 
     /**
@@ -352,6 +359,17 @@ public class CacheManager implements CacheManagerBean {
         }
     }
 
+    private static void registerMetrics() {
+        if (Metrics.isEnabled()) {
+            MetricsRegistry registry = Metrics.registry();
+            registry.gauge("geogig.cache.size", () -> INSTANCE.getSize());
+            registry.gauge("geogig.cache.sizeMB", () -> INSTANCE.getSizeMB());
+            registry.gauge("geogig.cache.hitRate", () -> INSTANCE.getHitRate());
+            registry.gauge("geogig.cache.missRate", () -> INSTANCE.getMissRate());
+            registry.gauge("geogig.cache.evictions", () -> INSTANCE.getEvictionCount());
+        }
+    }
+
     public @Override long getSize() {
         return sharedCache().objectCount();
     }
@@ -390,6 +408,30 @@ public class CacheManager implements CacheManagerBean {
         return sharedCache().getStats().evictionCount();
     }
 
+    public @Override long getL1Size() {
+        return sharedCache().l1ObjectCount();
+    }
+
+    public @Override long getL1HitCount() {
+        return sharedCache().getL1Stats().hitCount();
+    }
+
+    public @Override double getL1HitRate() {
+        return sharedCache().getL1Stats().hitRate();
+    }
+
+    public @Override long getL1MissCount() {
+        return sharedCache().getL1Stats().missCount();
+    }
+
+    public @Override double getL1MissRate() {
+        return sharedCache().getL1Stats().missRate();
+    }
+
+    public @Override long getL1EvictionCount() {
+        return sharedCache().getL1Stats().evictionCount();
+    }
+
     public @Override void setMaximumSizePercent(double percent) {
         long maxSize = getCacheSizePercent(percent);
         setMaximumSize(maxSize);
@@ -421,8 +463,7 @@ public class CacheManager implements CacheManagerBean {
         } else {
             SharedCacheBuilder builder;
             try {
-                builder = new ServiceFinder().environmentVariable(ENV_VAR).systemProperty(ENV_VAR)
-                        .lookupDefaultService(SharedCacheBuilder.class);
+                builder = lookupCacheBuilder();
                 LOG.info("Obtained cache builder {}", builder.getClass().getName());
                 builder.setMaxSizeBytes(maxSizeBytes);
                 cache = builder.build();
@@ -458,11 +499,34 @@ public class CacheManager implements CacheManagerBean {
         return maxMemory / (double) (1024 * 1024);
     }
 
+    /**
+     * @return 90% of the JVM's maximum heap size, or {@link Long#MAX_VALUE} if the
+     *         {@link SharedCacheBuilder} in use does not store its entries in the Java heap
+     */
     long getAbsoluteMaximumSize() {
+        if (!isHeapBoundCache()) {
+            return Long.MAX_VALUE;
+        }
         double maxMemory = getMaximumHeapSize();
         return (long) (maxMemory * 0.9);
     }
 
+    private boolean isHeapBoundCache() {
+        try {
+            return lookupCacheBuilder().isHeapBound();
+        } catch (NoSuchElementException noBuilderPresent) {
+            return true;
+        }
+    }
+
+    /**
+     * @throws NoSuchElementException if there's no {@link SharedCacheBuilder} in the classpath
+     */
+    private SharedCacheBuilder lookupCacheBuilder() throws NoSuchElementException {
+        return new ServiceFinder().environmentVariable(ENV_VAR).systemProperty(ENV_VAR)
+                .lookupDefaultService(SharedCacheBuilder.class);
+    }
+
     @Nullable
     public @Override String getMaximumSizeSystemProperty() {
         return System.getProperty(GEOGIG_CACHE_MAX_SIZE);
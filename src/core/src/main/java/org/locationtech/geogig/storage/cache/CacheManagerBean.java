@@ -198,4 +198,34 @@ public interface CacheManagerBean {
      */
     long getEvictionCount();
 
+    /**
+     * @return number of decoded objects in the L1 cache tier
+     */
+    long getL1Size();
+
+    /**
+     * @return number of L1 cache tier queries that were hits
+     */
+    long getL1HitCount();
+
+    /**
+     * @return ratio between number of L1 cache tier queries and those that were hits
+     */
+    double getL1HitRate();
+
+    /**
+     * @return number of L1 cache tier queries that were misses, and hence had to be resolved and
+     *         decoded from the serialized objects cache
+     */
+    long getL1MissCount();
+
+    /**
+     * @return ratio between number of L1 cache tier queries and those that were misses
+     */
+    double getL1MissRate();
+
+    /**
+     * @return number of times a L1 cache tier entry was dropped due to size restrictions
+     */
+    long getL1EvictionCount();
 }
@@ -99,4 +99,21 @@ public interface SharedCache {
         };
     }
 
+    /**
+     * @return the number of decoded objects held in the L1 cache tier, if the implementation has
+     *         one
+     */
+    default long l1ObjectCount() {
+        return 0L;
+    }
+
+    /**
+     * @return the statistics of the L1 cache tier of decoded objects, if the implementation has
+     *         one
+     */
+    default CacheStats getL1Stats() {
+        return new CacheStats() {
+        };
+    }
+
 }
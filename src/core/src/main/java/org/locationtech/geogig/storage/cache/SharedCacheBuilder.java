@@ -22,6 +22,16 @@ public interface SharedCacheBuilder extends PriorityService {
 
     void setMaxSizeBytes(long maxSizeBytes);
 
+    /**
+     * Whether the caches created by this builder hold their entries in the Java heap, and hence
+     * their maximum size shall be bound to the JVM's maximum heap size.
+     * 
+     * @return {@code true} by default
+     */
+    default boolean isHeapBound() {
+        return true;
+    }
+
     SharedCache build();
 
 }
@@ -1,4 +1,4 @@
-package org.locationtech.geogig.tempstorage.rocksdb;
+package org.locationtech.geogig.storage.datastream;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -20,9 +20,6 @@ import org.locationtech.geogig.model.internal.DAGNode.LazyDAGNode;
 import org.locationtech.geogig.model.internal.DAGNode.TreeDAGNode;
 import org.locationtech.geogig.model.internal.NodeId;
 import org.locationtech.geogig.model.internal.TreeId;
-import org.locationtech.geogig.storage.datastream.DataStreamValueSerializerV2;
-import org.locationtech.geogig.storage.datastream.FormatCommonV2_2;
-import org.locationtech.geogig.storage.datastream.Varint;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -30,7 +27,13 @@ import com.google.common.collect.ImmutableSet;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 
-final @UtilityClass class DAGSerializer {
+/**
+ * Encodes and decodes the mutable tree structures ({@link DAG}, {@link DAGNode}, and
+ * {@link NodeId}) used while building a {@link org.locationtech.geogig.model.RevTree}, for the
+ * temporary {@link org.locationtech.geogig.model.internal.DAGStorageProvider} implementations that
+ * keep them outside the Java heap.
+ */
+public final @UtilityClass class DAGSerializer {
 
     private static final byte MAGIC_DIRECT = 7;
 
@@ -19,6 +19,8 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.storage.RevObjectSerializer;
 
+import com.google.common.base.Preconditions;
+
 import lombok.NonNull;
 
 /**
@@ -49,18 +51,38 @@ public class RevObjectSerializerProxy implements RevObjectSerializer {
     private final int maxFormatCode;
 
     /**
-     * The serialization factory used for writing is the highest supported version one
+     * The format code of the serialization factory used for writing, the highest supported version
+     * one unless otherwise specified
      */
+    private final int writerFormatCode;
+
     private final RevObjectSerializer writer;
 
     public RevObjectSerializerProxy(@NonNull RevObjectSerializer... supportedFormats) {
+        this(supportedFormats.length - 1, supportedFormats);
+    }
+
+    /**
+     * Allows subclasses to write with a format other than the highest supported version one, for
+     * example when the latest format depends on some configuration that's not yet available.
+     *
+     * @param writerFormatCode the index in {@code supportedFormats} of the serializer used for
+     *        writing
+     */
+    protected RevObjectSerializerProxy(int writerFormatCode,
+            @NonNull RevObjectSerializer... supportedFormats) {
+        Preconditions.checkArgument(
+                writerFormatCode >= 0 && writerFormatCode < supportedFormats.length,
+                "writer format code shall be between 0 and %s, got %s",
+                supportedFormats.length - 1, writerFormatCode);
         this.supportedFormats = supportedFormats;
         this.maxFormatCode = supportedFormats.length - 1;
-        this.writer = supportedFormats[maxFormatCode];
+        this.writerFormatCode = writerFormatCode;
+        this.writer = supportedFormats[writerFormatCode];
     }
 
     public @Override void write(RevObject o, OutputStream out) throws IOException {
-        final int storageVersionHeader = maxFormatCode;
+        final int storageVersionHeader = writerFormatCode;
         out.write(storageVersionHeader);
         writer.write(o, out);
     }
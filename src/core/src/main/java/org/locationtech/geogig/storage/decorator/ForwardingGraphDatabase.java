@@ -9,7 +9,9 @@
  */
 package org.locationtech.geogig.storage.decorator;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.storage.GraphDatabase;
@@ -72,6 +74,14 @@ public @RequiredArgsConstructor class ForwardingGraphDatabase implements GraphDa
         return actual.getDepth(commitId);
     }
 
+    public @Override List<ObjectId> getAncestors(Collection<ObjectId> commitIds, int limit) {
+        return actual.getAncestors(commitIds, limit);
+    }
+
+    public @Override Optional<ObjectId> findLowestCommonAncestor(ObjectId left, ObjectId right) {
+        return actual.findLowestCommonAncestor(left, right);
+    }
+
     public @Override void setProperty(ObjectId commitId, String propertyName,
             String propertyValue) {
         actual.setProperty(commitId, propertyName, propertyValue);
@@ -38,6 +38,13 @@ public @RequiredArgsConstructor class ForwardingIndexDatabase implements IndexDa
 
     protected final IndexDatabase actual;
 
+    /**
+     * @return the decorated index database
+     */
+    public IndexDatabase getActual() {
+        return actual;
+    }
+
     public @Override void open() {
         actual.open();
     }
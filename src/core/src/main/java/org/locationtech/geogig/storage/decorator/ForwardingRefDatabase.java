@@ -10,6 +10,7 @@
 package org.locationtech.geogig.storage.decorator;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeoutException;
 
@@ -108,4 +109,10 @@ public @RequiredArgsConstructor class ForwardingRefDatabase implements RefDataba
     public @Override @NonNull List<Ref> deleteAll() {
         return actual.deleteAll();
     }
+
+    public @Override Optional<List<RefChange>> compareAndSet(
+            @NonNull Map<String, Optional<Ref>> expected, @NonNull Iterable<Ref> updates,
+            @NonNull Iterable<String> deletes) throws TimeoutException {
+        return actual.compareAndSet(expected, updates, deletes);
+    }
 }
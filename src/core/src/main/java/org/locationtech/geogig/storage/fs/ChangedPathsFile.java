@@ -0,0 +1,337 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.fs;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.repository.Repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Read-only, memory mapped set of per commit Bloom filters of the paths each commit changed with
+ * respect to its parents, stored alongside the {@link CommitGraphFile commit graph}.
+ * <p>
+ * Each filter contains the paths of the trees and features that differ between the commit and
+ * any of its parents, as well as all their parent paths. So a negative answer from
+ * {@link #mightHaveChanged(ObjectId, String)} means the commit did not touch the path, and
+ * path-filtered log and blame can skip it without loading any tree. Commits that changed more than
+ * {@link Filter#MAX_FEATURE_PATHS} features only record the changed tree paths, and are assumed to
+ * have changed every feature under them.
+ * <p>
+ * File layout, all numbers big endian:
+ *
+ * <pre>
+ * <code>
+ * header: magic:int, version:int, count:int
+ * ids: count x (h1:int, h2:long, h3:long), sorted
+ * entries: count x (offset:int, length:int, flags:int)
+ * filters: bit sets, at offset relative to the start of the section
+ * </code>
+ * </pre>
+ */
+public final class ChangedPathsFile {
+
+    /**
+     * Name of the changed paths file inside the {@code .geogig} directory
+     */
+    public static final String FILE_NAME = "commit-graph-paths";
+
+    private static final int MAGIC = 0x47474350;// GGCP
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private static final int ID_SIZE = ObjectId.NUM_BYTES;
+
+    private static final int ENTRY_SIZE = 3 * Integer.BYTES;
+
+    private static final int FLAG_TRUNCATED = 0x01;
+
+    private static final int NUM_HASHES = 7;
+
+    private static final int BITS_PER_PATH = 10;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private static final Map<Path, ChangedPathsFile> OPEN_FILES = new ConcurrentHashMap<>();
+
+    /**
+     * Bloom filter of the paths changed by a single commit
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Filter {
+
+        /**
+         * Maximum number of feature paths added to a filter, commits changing more features only
+         * record the changed tree paths
+         */
+        public static final int MAX_FEATURE_PATHS = 512;
+
+        private final byte[] bits;
+
+        private final boolean truncated;
+
+        /**
+         * Creates a filter for the given changed tree and feature paths, adding all their parent
+         * paths.
+         *
+         * @param truncated whether {@code paths} contains only the tree paths changed by a commit
+         *        that changed more than {@link #MAX_FEATURE_PATHS} features
+         */
+        public static Filter create(@NonNull Collection<String> paths, boolean truncated) {
+            Set<String> all = new HashSet<>();
+            for (String path : paths) {
+                for (String p = path; p != null && !p.isEmpty()
+                        && all.add(p); p = NodeRef.parentPath(p)) {
+                    // add the path and its parents
+                }
+            }
+            final int numBits = all.isEmpty() ? 0 : Math.max(64, all.size() * BITS_PER_PATH);
+            final byte[] bits = new byte[(numBits + 7) / 8];
+            ByteBuffer buffer = ByteBuffer.wrap(bits);
+            for (String path : all) {
+                set(buffer, 0, bits.length, path);
+            }
+            return new Filter(bits, truncated);
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public boolean mightHaveChanged(@NonNull String path) {
+            return ChangedPathsFile.mightHaveChanged(ByteBuffer.wrap(bits), 0, bits.length,
+                    truncated, path);
+        }
+    }
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+
+    private final int entriesOffset;
+
+    private final int filtersOffset;
+
+    private final long lastModified;
+
+    private final long fileSize;
+
+    private ChangedPathsFile(ByteBuffer buffer, long lastModified, long fileSize) {
+        this.buffer = buffer;
+        this.lastModified = lastModified;
+        this.fileSize = fileSize;
+        Preconditions.checkState(buffer.getInt(0) == MAGIC, "Not a changed paths file");
+        Preconditions.checkState(buffer.getInt(4) == VERSION,
+                "Unsupported changed paths file version: %s", buffer.getInt(4));
+        this.count = buffer.getInt(8);
+        this.entriesOffset = HEADER_SIZE + count * ID_SIZE;
+        this.filtersOffset = entriesOffset + count * ENTRY_SIZE;
+    }
+
+    /**
+     * @return the location of the changed paths file of the repository, or empty if the
+     *         repository is not file based
+     */
+    public static Optional<Path> locate(@Nullable Repository repository) {
+        return CommitGraphFile.repositoryFile(repository, FILE_NAME);
+    }
+
+    /**
+     * Returns the changed path filters stored in the given file, if it exists.
+     * <p>
+     * Opened files are shared, and re-opened only if the file has been modified since it was
+     * last mapped.
+     */
+    public static Optional<ChangedPathsFile> open(@NonNull Path file) {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException notFound) {
+            OPEN_FILES.remove(file);
+            return Optional.empty();
+        }
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final long size = attributes.size();
+        ChangedPathsFile filters = OPEN_FILES.get(file);
+        if (filters == null || filters.lastModified != lastModified || filters.fileSize != size) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+                filters = new ChangedPathsFile(buffer, lastModified, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            OPEN_FILES.put(file, filters);
+        }
+        return Optional.of(filters);
+    }
+
+    /**
+     * Writes the given filters to {@code target}, through a temporary file that's atomically
+     * moved once complete.
+     */
+    public static void write(@NonNull Path target, @NonNull Map<ObjectId, Filter> filters)
+            throws IOException {
+        final SortedMap<ObjectId, Filter> sorted = new TreeMap<>(filters);
+        Path tmp = Files.createTempFile(target.getParent(), FILE_NAME, ".tmp");
+        try {
+            try (OutputStream fileOut = Files.newOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(fileOut, 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(sorted.size());
+                for (ObjectId id : sorted.keySet()) {
+                    id.writeTo(out);
+                }
+                int offset = 0;
+                for (Filter filter : sorted.values()) {
+                    out.writeInt(offset);
+                    out.writeInt(filter.bits.length);
+                    out.writeInt(filter.truncated ? FLAG_TRUNCATED : 0);
+                    offset += filter.bits.length;
+                }
+                for (Filter filter : sorted.values()) {
+                    out.write(filter.bits);
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return the number of commits in the file
+     */
+    public int size() {
+        return count;
+    }
+
+    public boolean contains(@NonNull ObjectId commitId) {
+        return CommitGraphFile.binarySearch(buffer, HEADER_SIZE, count, commitId) > -1;
+    }
+
+    /**
+     * @return the filter of the given commit, or empty if the commit is not in the file
+     */
+    public Optional<Filter> filter(@NonNull ObjectId commitId) {
+        final int position = CommitGraphFile.binarySearch(buffer, HEADER_SIZE, count, commitId);
+        if (position == -1) {
+            return Optional.empty();
+        }
+        final int entry = entriesOffset + position * ENTRY_SIZE;
+        final byte[] bits = new byte[buffer.getInt(entry + 4)];
+        ByteBuffer src = buffer.duplicate();
+        src.position(filtersOffset + buffer.getInt(entry));
+        src.get(bits);
+        return Optional.of(new Filter(bits, (buffer.getInt(entry + 8) & FLAG_TRUNCATED) != 0));
+    }
+
+    /**
+     * @return {@code false} if the commit is known not to have changed the path with respect to
+     *         any of its parents, {@code true} if it might have changed it or the commit is not in
+     *         the file
+     */
+    public boolean mightHaveChanged(@NonNull ObjectId commitId, @NonNull String path) {
+        final int position = CommitGraphFile.binarySearch(buffer, HEADER_SIZE, count, commitId);
+        if (position == -1) {
+            return true;
+        }
+        final int entry = entriesOffset + position * ENTRY_SIZE;
+        final int offset = filtersOffset + buffer.getInt(entry);
+        final int length = buffer.getInt(entry + 4);
+        final boolean truncated = (buffer.getInt(entry + 8) & FLAG_TRUNCATED) != 0;
+        return mightHaveChanged(buffer, offset, length, truncated, path);
+    }
+
+    private static boolean mightHaveChanged(ByteBuffer bits, int offset, int length,
+            boolean truncated, String path) {
+        if (length == 0) {
+            return false;
+        }
+        if (mightContain(bits, offset, length, path)) {
+            return true;
+        }
+        // only the changed tree paths were recorded, a feature might have changed if its tree did
+        String parent = truncated ? NodeRef.parentPath(path) : null;
+        return parent != null && !parent.isEmpty() && mightContain(bits, offset, length, parent);
+    }
+
+    private static void set(ByteBuffer bits, int offset, int length, String path) {
+        final long numBits = 8L * length;
+        final ByteBuffer hash = hash(path);
+        final long h1 = hash.getLong(0);
+        final long h2 = hash.getLong(8);
+        long combined = h1;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            final long bit = (combined & Long.MAX_VALUE) % numBits;
+            final int index = offset + (int) (bit >>> 3);
+            bits.put(index, (byte) (bits.get(index) | (1 << (bit & 7))));
+            combined += h2;
+        }
+    }
+
+    private static boolean mightContain(ByteBuffer bits, int offset, int length, String path) {
+        final long numBits = 8L * length;
+        final ByteBuffer hash = hash(path);
+        final long h1 = hash.getLong(0);
+        final long h2 = hash.getLong(8);
+        long combined = h1;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            final long bit = (combined & Long.MAX_VALUE) % numBits;
+            if ((bits.get(offset + (int) (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+            combined += h2;
+        }
+        return true;
+    }
+
+    private static ByteBuffer hash(String path) {
+        byte[] hash = HASH.hashString(path, StandardCharsets.UTF_8).asBytes();
+        return ByteBuffer.wrap(hash).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,391 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.fs;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.geogig.repository.Repository;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.UnsignedInts;
+import com.google.common.primitives.UnsignedLongs;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Read-only, memory mapped index of the commit graph of a repository, holding for each commit its
+ * parents, its generation number, and its committer timestamp.
+ * <p>
+ * The generation number of a commit with no parents is {@code 1}, and for any other commit is one
+ * more than the maximum generation number of its parents. Hence if commit {@code A} is an ancestor
+ * of commit {@code B}, {@code generation(A) < generation(B)}, which allows ancestry queries to stop
+ * walking the graph as soon as they reach commits of a lower generation than the ones they're
+ * looking for.
+ * <p>
+ * Since commits are immutable, the index never goes out of date, though it may not contain the
+ * commits created after it was written. It does contain all the ancestors of every commit it
+ * contains, though.
+ * <p>
+ * File layout, all numbers big endian:
+ *
+ * <pre>
+ * <code>
+ * header: magic:int, version:int, count:int, extraEdgesCount:int
+ * ids: count x (h1:int, h2:long, h3:long), sorted
+ * data: count x (parent1:int, parent2:int, generation:int, timestamp:long)
+ * extra edges: extraEdgesCount x int
+ * </code>
+ * </pre>
+ *
+ * Parents are stored as positions in the ids table, {@code -1} meaning no parent. Commits with
+ * more than two parents have {@code parent2} set to {@code EXTRA_EDGES | index} of their second
+ * parent in the extra edges list, which continues with the remaining parents, the last one flagged
+ * with {@code EXTRA_EDGES}.
+ */
+public final class CommitGraphFile {
+
+    /**
+     * Name of the commit graph file inside the {@code .geogig} directory
+     */
+    public static final String FILE_NAME = "commit-graph";
+
+    private static final int MAGIC = 0x47474347;// GGCG
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    private static final int ID_SIZE = ObjectId.NUM_BYTES;
+
+    private static final int DATA_SIZE = 3 * Integer.BYTES + Long.BYTES;
+
+    private static final int NO_PARENT = -1;
+
+    private static final int EXTRA_EDGES = 0x80000000;
+
+    private static final Map<Path, CommitGraphFile> OPEN_FILES = new ConcurrentHashMap<>();
+
+    /**
+     * A commit to be written to the index
+     */
+    public static @Value class Commit {
+        private @NonNull ObjectId id;
+
+        private @NonNull List<ObjectId> parents;
+
+        private long timestamp;
+    }
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+
+    private final int dataOffset;
+
+    private final int extraEdgesOffset;
+
+    private final long lastModified;
+
+    private final long fileSize;
+
+    private CommitGraphFile(ByteBuffer buffer, long lastModified, long fileSize) {
+        this.buffer = buffer;
+        this.lastModified = lastModified;
+        this.fileSize = fileSize;
+        Preconditions.checkState(buffer.getInt(0) == MAGIC, "Not a commit graph file");
+        Preconditions.checkState(buffer.getInt(4) == VERSION,
+                "Unsupported commit graph file version: %s", buffer.getInt(4));
+        this.count = buffer.getInt(8);
+        this.dataOffset = HEADER_SIZE + count * ID_SIZE;
+        this.extraEdgesOffset = dataOffset + count * DATA_SIZE;
+    }
+
+    /**
+     * @return the location of the commit graph file of the repository, or empty if the repository
+     *         is not file based
+     */
+    public static Optional<Path> locate(@Nullable Repository repository) {
+        return repositoryFile(repository, FILE_NAME);
+    }
+
+    static Optional<Path> repositoryFile(@Nullable Repository repository, String fileName) {
+        URI location = repository == null ? null : repository.getLocation();
+        if (location == null || !"file".equals(location.getScheme())) {
+            return Optional.empty();
+        }
+        return Optional.of(Paths.get(location).resolve(fileName));
+    }
+
+    /**
+     * Returns the commit graph stored in the given file, if it exists.
+     * <p>
+     * Opened files are shared, and re-opened only if the file has been modified since it was
+     * last mapped.
+     */
+    public static Optional<CommitGraphFile> open(@NonNull Path file) {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException notFound) {
+            OPEN_FILES.remove(file);
+            return Optional.empty();
+        }
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final long size = attributes.size();
+        CommitGraphFile graph = OPEN_FILES.get(file);
+        if (graph == null || graph.lastModified != lastModified || graph.fileSize != size) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+                graph = new CommitGraphFile(buffer, lastModified, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            OPEN_FILES.put(file, graph);
+        }
+        return Optional.of(graph);
+    }
+
+    /**
+     * Writes the commit graph index for the given commits, which shall contain all the parents of
+     * every commit in the list.
+     * <p>
+     * The file is written to a temporary file and then atomically moved to {@code target}.
+     */
+    public static void write(@NonNull Path target, @NonNull List<Commit> commits)
+            throws IOException {
+        final Commit[] sorted = commits.toArray(new Commit[commits.size()]);
+        Arrays.sort(sorted, (c1, c2) -> c1.getId().compareTo(c2.getId()));
+        final int count = sorted.length;
+        final Map<ObjectId, Integer> positions = new HashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            positions.put(sorted[i].getId(), i);
+        }
+        final int[][] parents = new int[count][];
+        for (int i = 0; i < count; i++) {
+            List<ObjectId> parentIds = sorted[i].getParents();
+            int[] p = new int[parentIds.size()];
+            for (int j = 0; j < p.length; j++) {
+                Integer pos = positions.get(parentIds.get(j));
+                Preconditions.checkArgument(pos != null, "Parent %s of commit %s not provided",
+                        parentIds.get(j), sorted[i].getId());
+                p[j] = pos.intValue();
+            }
+            parents[i] = p;
+        }
+        final int[] generations = computeGenerations(parents);
+
+        int extraEdgesCount = 0;
+        for (int[] p : parents) {
+            if (p.length > 2) {
+                extraEdgesCount += p.length - 1;
+            }
+        }
+        final List<Integer> extraEdges = new ArrayList<>(extraEdgesCount);
+        Path tmp = Files.createTempFile(target.getParent(), FILE_NAME, ".tmp");
+        try {
+            try (OutputStream fileOut = Files.newOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(fileOut, 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(count);
+                out.writeInt(extraEdgesCount);
+                for (Commit c : sorted) {
+                    c.getId().writeTo(out);
+                }
+                for (int i = 0; i < count; i++) {
+                    final int[] p = parents[i];
+                    out.writeInt(p.length > 0 ? p[0] : NO_PARENT);
+                    if (p.length > 2) {
+                        out.writeInt(EXTRA_EDGES | extraEdges.size());
+                        for (int j = 1; j < p.length; j++) {
+                            extraEdges.add(j == p.length - 1 ? (EXTRA_EDGES | p[j]) : p[j]);
+                        }
+                    } else {
+                        out.writeInt(p.length == 2 ? p[1] : NO_PARENT);
+                    }
+                    out.writeInt(generations[i]);
+                    out.writeLong(sorted[i].getTimestamp());
+                }
+                for (Integer edge : extraEdges) {
+                    out.writeInt(edge.intValue());
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Computes the generation numbers with an iterative depth first traversal, to avoid stack
+     * overflows on long histories
+     */
+    private static int[] computeGenerations(int[][] parents) {
+        final int count = parents.length;
+        final int[] generations = new int[count];
+        final Deque<Integer> stack = new ArrayDeque<>();
+        for (int start = 0; start < count; start++) {
+            if (generations[start] != 0) {
+                continue;
+            }
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                final int current = stack.peek().intValue();
+                if (generations[current] != 0) {
+                    stack.pop();
+                    continue;
+                }
+                int max = 0;
+                boolean pending = false;
+                for (int parent : parents[current]) {
+                    final int g = generations[parent];
+                    if (g == 0) {
+                        pending = true;
+                        stack.push(parent);
+                    } else {
+                        max = Math.max(max, g);
+                    }
+                }
+                if (!pending) {
+                    generations[current] = max + 1;
+                    stack.pop();
+                }
+            }
+        }
+        return generations;
+    }
+
+    /**
+     * @return the number of commits in the index
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the position of the commit in the index, or {@code -1} if not present
+     */
+    public int position(@NonNull ObjectId commitId) {
+        return binarySearch(buffer, HEADER_SIZE, count, commitId);
+    }
+
+    /**
+     * Looks up an id in a table of {@code count} sorted ids starting at {@code offset}
+     * 
+     * @return the position of the id in the table, or {@code -1} if not present
+     */
+    static int binarySearch(ByteBuffer buffer, int offset, int count, ObjectId id) {
+        final int h1 = RevObjects.h1(id);
+        final long h2 = RevObjects.h2(id);
+        final long h3 = RevObjects.h3(id);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int idOffset = offset + mid * ID_SIZE;
+            int c = UnsignedInts.compare(buffer.getInt(idOffset), h1);
+            if (c == 0) {
+                c = UnsignedLongs.compare(buffer.getLong(idOffset + 4), h2);
+                if (c == 0) {
+                    c = UnsignedLongs.compare(buffer.getLong(idOffset + 12), h3);
+                }
+            }
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public ObjectId id(int position) {
+        final int offset = HEADER_SIZE + checkIndex(position) * ID_SIZE;
+        return ObjectId.create(buffer.getInt(offset), buffer.getLong(offset + 4),
+                buffer.getLong(offset + 12));
+    }
+
+    public int generation(int position) {
+        return buffer.getInt(dataOffset + checkIndex(position) * DATA_SIZE + 8);
+    }
+
+    public long timestamp(int position) {
+        return buffer.getLong(dataOffset + checkIndex(position) * DATA_SIZE + 12);
+    }
+
+    /**
+     * @return the positions of the parents of the commit at the given position
+     */
+    public int[] parents(int position) {
+        final int offset = dataOffset + checkIndex(position) * DATA_SIZE;
+        final int parent1 = buffer.getInt(offset);
+        if (parent1 == NO_PARENT) {
+            return new int[0];
+        }
+        final int parent2 = buffer.getInt(offset + 4);
+        if (parent2 == NO_PARENT) {
+            return new int[] { parent1 };
+        }
+        if ((parent2 & EXTRA_EDGES) == 0) {
+            return new int[] { parent1, parent2 };
+        }
+        int[] parents = new int[4];
+        parents[0] = parent1;
+        int size = 1;
+        int edgeOffset = extraEdgesOffset + (parent2 & ~EXTRA_EDGES) * Integer.BYTES;
+        int edge;
+        do {
+            edge = buffer.getInt(edgeOffset);
+            edgeOffset += Integer.BYTES;
+            if (size == parents.length) {
+                parents = Arrays.copyOf(parents, 2 * size);
+            }
+            parents[size++] = edge & ~EXTRA_EDGES;
+        } while ((edge & EXTRA_EDGES) == 0);
+        return Arrays.copyOf(parents, size);
+    }
+
+    private int checkIndex(int position) {
+        Preconditions.checkElementIndex(position, count);
+        return position;
+    }
+}
@@ -10,6 +10,7 @@
 package org.locationtech.geogig.storage.fs;
 
 import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
 import static java.nio.file.StandardOpenOption.SYNC;
 import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.nio.file.StandardOpenOption.WRITE;
@@ -22,20 +23,35 @@ import static org.locationtech.geogig.model.Ref.WORK_HEAD;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.SymRef;
@@ -43,21 +59,68 @@ import org.locationtech.geogig.storage.RefChange;
 import org.locationtech.geogig.storage.impl.SimpleLockingRefDatabase;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Streams;
 
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Provides an implementation of a GeoGig ref database that utilizes the file system for the storage
  * of refs.
+ * <p>
+ * Each ref is written to its own "loose" ref file, and refs under {@code refs/} other than
+ * transaction refs are periodically moved to a single {@link PackedRefs packed refs} file once
+ * there are {@link #REPACK_THRESHOLD} loose ones. Loose refs take precedence over packed ones.
+ * <p>
+ * The packed refs and the loose refs under {@code refs/} plus the top level refs like {@code HEAD}
+ * are kept in memory, so lookups and listings need no file system access other than reading a
+ * small generation file, whose contents change whenever any instance modifies the refs, to
+ * detect changes made by other instances or processes and reload them.
  */
+@Slf4j
 public class FileRefDatabase extends SimpleLockingRefDatabase {
 
+    /**
+     * Number of loose refs that trigger packing them
+     */
+    public static final int REPACK_THRESHOLD = 256;
+
+    static final String GENERATION_FILE_NAME = "refs-generation";
+
     private static final List<String> NO_NS_NAMES = Arrays.asList(CHERRY_PICK_HEAD, ORIG_HEAD, HEAD,
             WORK_HEAD, STAGE_HEAD, MERGE_HEAD);
 
+    private static final String SYMREF_PREFIX = "ref: ";
+
+    /**
+     * File locks are held by the whole process and can't be acquired twice, so instances in this
+     * process sharing a generation file acquire its monitor first
+     */
+    private static final Map<Path, Object> GENERATION_MONITORS = new ConcurrentHashMap<>();
+
     private final Path refsDirectory;
 
+    private final Path packedRefsFile;
+
+    private final Path generationFile;
+
+    /**
+     * Refs in the packed refs file, replaced as a whole when it changes
+     */
+    private volatile PackedRefs packed = PackedRefs.EMPTY;
+
+    /**
+     * Value of all the {@link #isIndexed indexed} loose refs, replaced when reloading and updated
+     * in place by this instance's changes
+     */
+    private volatile ConcurrentSkipListMap<String, String> loose = new ConcurrentSkipListMap<>();
+
+    /**
+     * Contents of the generation file as of the last reload or change made by this instance
+     */
+    private volatile long generation;
+
     /**
      * Constructs a new {@code FileRefDatabase} with the given base directory (e.g.
      * {@code /repo/.geogig/refs}).
@@ -69,6 +132,8 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
     public FileRefDatabase(@NonNull File refsDirectory, boolean readOnly) {
         super(readOnly);
         this.refsDirectory = refsDirectory.toPath();
+        this.packedRefsFile = this.refsDirectory.resolve(PackedRefs.FILE_NAME);
+        this.generationFile = this.refsDirectory.resolve(GENERATION_FILE_NAME);
     }
 
     /**
@@ -89,16 +154,26 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
                         "Cannot create refs directory '" + refs.toString() + "'", e);
             }
         }
+        reload(readGeneration());
         super.open();
     }
 
     public @Override Optional<Ref> get(@NonNull String name) {
         checkOpen();
+        refresh();
         return Optional.ofNullable(getInternal(name));
     }
 
     public @Override @NonNull RefChange put(@NonNull Ref ref) {
         checkWritable();
+        refresh();
+        RefChange change = putInternal(ref);
+        changed();
+        repackIfNeeded();
+        return change;
+    }
+
+    private synchronized RefChange putInternal(Ref ref) {
         Ref current;
         try {
             current = getInternal(ref.getName());
@@ -107,7 +182,7 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
         }
         String value;
         if (ref instanceof SymRef) {
-            value = "ref: " + ref.peel().getName();
+            value = SYMREF_PREFIX + ref.peel().getName();
         } else {
             value = ref.getObjectId().toString();
         }
@@ -117,7 +192,12 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
 
     public @Override @NonNull List<RefChange> putAll(@NonNull Iterable<Ref> refs) {
         checkWritable();
-        return Streams.stream(refs).map(this::put).collect(Collectors.toList());
+        refresh();
+        List<RefChange> changes = Streams.stream(refs).map(this::putInternal)
+                .collect(Collectors.toList());
+        changed();
+        repackIfNeeded();
+        return changes;
     }
 
     public @Override @NonNull RefChange putRef(@NonNull String name, @NonNull ObjectId id) {
@@ -131,25 +211,7 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
     }
 
     public @Override @NonNull RefChange delete(@NonNull String refName) {
-        checkWritable();
-        Optional<Ref> oldRef;
-        try {
-            oldRef = get(refName);
-        } catch (IllegalStateException symRefPointsToNonExistingRef) {
-            oldRef = Optional.empty();
-        }
-        if (oldRef.isPresent()) {
-            Path refFile = toFile(refName);
-            try {
-                if (!Files.deleteIfExists(refFile)) {
-                    throw new RuntimeException(
-                            "Unable to delete ref file '" + refFile.toAbsolutePath() + "'");
-                }
-            } catch (IOException e) {
-                throw new IllegalStateException(e);
-            }
-        }
-        return RefChange.of(refName, oldRef, Optional.empty());
+        return delete(Collections.singleton(refName)).get(0);
     }
 
     public @Override @NonNull RefChange delete(@NonNull Ref ref) {
@@ -158,7 +220,7 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
 
     public @Override List<Ref> deleteAll(@NonNull String namespace) {
         List<Ref> matches = getAll(namespace);
-        matches.forEach(this::delete);
+        delete(Lists.transform(matches, Ref::getName));
         return matches;
     }
 
@@ -166,24 +228,43 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
         return this.refsDirectory.resolve(refPath);
     }
 
-    private String readRef(final Path refFile) {
+    private Optional<String> readLoose(String name) {
+        final Path refFile = toFile(name);
+        if (!Files.isRegularFile(refFile)) {
+            return Optional.empty();
+        }
         try {
-            return Files.readAllLines(refFile, StandardCharsets.UTF_8).get(0);
+            List<String> lines = Files.readAllLines(refFile, StandardCharsets.UTF_8);
+            return lines.isEmpty() ? Optional.empty() : Optional.of(lines.get(0));
+        } catch (NoSuchFileException concurrentlyDeleted) {
+            return Optional.empty();
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
     }
 
+    private @Nullable String value(String name) {
+        if (!isIndexed(name)) {
+            return readLoose(name).orElse(null);
+        }
+        String value = loose.get(name);
+        return value == null ? packed.get(name) : value;
+    }
+
     private Ref getInternal(String name) {
-        Path refFile = toFile(name);
-        if (!Files.isRegularFile(refFile)) {
+        return toRef(name, value(name));
+    }
+
+    private Ref toRef(String name, @Nullable String value) {
+        if (value == null) {
             return null;
         }
-        String value = readRef(refFile);
-        if (value.startsWith("ref: ")) {
-            String targetName = value.substring("ref: ".length());
-            Ref target = get(targetName).orElseThrow(() -> new IllegalStateException(String
-                    .format("SymRef %s points to a non exsisting ref: %s", name, targetName)));
+        if (value.startsWith(SYMREF_PREFIX)) {
+            String targetName = value.substring(SYMREF_PREFIX.length());
+            Ref target = Optional.ofNullable(getInternal(targetName))
+                    .orElseThrow(() -> new IllegalStateException(
+                            String.format("SymRef %s points to a non exsisting ref: %s", name,
+                                    targetName)));
             return new SymRef(name, target);
 
         }
@@ -199,6 +280,9 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
+        if (isIndexed(refName)) {
+            loose.put(refName, refValue);
+        }
     }
 
     public @Override List<Ref> getAll() {
@@ -219,6 +303,21 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
         if ("".equals(namespace)) {
             return getAll();
         }
+        final String prefix = namespace.endsWith("/") ? namespace : namespace + "/";
+        if (!isIndexed(prefix)) {
+            return getAllPresent(listLoose(namespace));
+        }
+        refresh();
+        final SortedMap<String, String> values = new TreeMap<>();
+        packed.forEach(prefix, values::put);
+        values.putAll(loose.subMap(prefix, true, prefix + Character.MAX_VALUE, false));
+
+        List<Ref> refs = new ArrayList<>(values.size());
+        values.forEach((name, value) -> refs.add(toRef(name, value)));
+        return refs;
+    }
+
+    private List<String> listLoose(String namespace) {
         final List<String> names = new ArrayList<>();
         final Path nsRoot = this.refsDirectory.resolve(namespace);
         if (Files.isDirectory(nsRoot)) {
@@ -236,11 +335,12 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
                 throw new IllegalStateException(e);
             }
         }
-        return getAllPresent(names);
+        return names;
     }
 
     public @Override List<Ref> getAllPresent(@NonNull Iterable<String> names) {
         checkOpen();
+        refresh();
         return Streams.stream(names).parallel().map(this::getInternal).filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
@@ -249,15 +349,254 @@ public class FileRefDatabase extends SimpleLockingRefDatabase {
         return String.format("%s[geogig dir: %s]", getClass().getSimpleName(), refsDirectory);
     }
 
+    /**
+     * Deletes the loose ref files of the given refs, and rewrites the packed refs file once if any
+     * of them is packed.
+     */
     public @Override @NonNull List<RefChange> delete(@NonNull Iterable<String> refNames) {
         checkWritable();
-        return Streams.stream(refNames).map(this::delete).collect(Collectors.toList());
+        refresh();
+        List<RefChange> changes = new ArrayList<>();
+        synchronized (this) {
+            final PackedRefs packed = this.packed;
+            final Set<String> unpack = new HashSet<>();
+            for (String refName : refNames) {
+                Ref oldRef;
+                try {
+                    oldRef = getInternal(refName);
+                } catch (IllegalStateException symRefPointsToNonExistingRef) {
+                    oldRef = null;
+                }
+                if (oldRef != null) {
+                    Path refFile = toFile(refName);
+                    try {
+                        Files.deleteIfExists(refFile);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    loose.remove(refName);
+                    if (packed.get(refName) != null) {
+                        unpack.add(refName);
+                    }
+                }
+                changes.add(RefChange.of(refName, Optional.ofNullable(oldRef), Optional.empty()));
+            }
+            if (!unpack.isEmpty()) {
+                SortedMap<String, String> remaining = packed.toMap();
+                remaining.keySet().removeAll(unpack);
+                writePacked(remaining);
+            }
+        }
+        changed();
+        return changes;
     }
 
     public @Override @NonNull List<Ref> deleteAll() {
         checkWritable();
         List<Ref> all = getAll();
-        all.forEach(this::delete);
+        delete(Lists.transform(all, Ref::getName));
         return all;
     }
+
+    /**
+     * Moves all the loose refs under {@code refs/}, except transaction refs, to the packed refs
+     * file.
+     * 
+     * @return the number of refs packed
+     */
+    public int repack() {
+        checkWritable();
+        refresh();
+        final int count;
+        synchronized (this) {
+            SortedMap<String, String> packable = packable();
+            count = packable.size();
+            if (count == 0) {
+                return 0;
+            }
+            SortedMap<String, String> all = packed.toMap();
+            all.putAll(packable);
+            // write the packed file before removing the loose files so the refs are never missing
+            writePacked(all);
+            for (Map.Entry<String, String> e : packable.entrySet()) {
+                final String name = e.getKey();
+                try {
+                    Files.deleteIfExists(toFile(name));
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                loose.remove(name, e.getValue());
+            }
+        }
+        changed();
+        log.debug("Packed {} refs in {}", count, packedRefsFile);
+        return count;
+    }
+
+    private void repackIfNeeded() {
+        if (packable().size() >= REPACK_THRESHOLD) {
+            repack();
+        }
+    }
+
+    private SortedMap<String, String> packable() {
+        SortedMap<String, String> packable = new TreeMap<>(
+                loose.subMap(Ref.REFS_PREFIX, true, Ref.REFS_PREFIX + Character.MAX_VALUE, false));
+        packable.keySet().removeIf(name -> name.startsWith(Ref.TRANSACTIONS_PREFIX));
+        return packable;
+    }
+
+    private void writePacked(SortedMap<String, String> refs) {
+        try {
+            if (refs.isEmpty()) {
+                Files.deleteIfExists(packedRefsFile);
+                this.packed = PackedRefs.EMPTY;
+                for (String namespace : PackedRefs.MARKED_NAMESPACES) {
+                    Files.deleteIfExists(markerFile(namespace));
+                }
+            } else {
+                for (String namespace : PackedRefs.MARKED_NAMESPACES) {
+                    Path marker = markerFile(namespace);
+                    if (!Files.exists(marker)) {
+                        Files.createDirectories(marker.getParent());
+                        Files.write(marker,
+                                PackedRefs.MARKER_CONTENTS.getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                PackedRefs.write(packedRefsFile, refs);
+                this.packed = PackedRefs.read(packedRefsFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path markerFile(String namespace) {
+        return toFile(namespace).resolve(PackedRefs.MARKER_FILE_NAME);
+    }
+
+    /**
+     * Loose refs that are kept in memory, other loose refs are read from disk when requested
+     */
+    private static boolean isIndexed(String name) {
+        return name.startsWith(Ref.REFS_PREFIX) || NO_NS_NAMES.contains(name);
+    }
+
+    private long readGeneration() {
+        try {
+            byte[] contents = Files.readAllBytes(generationFile);
+            return Long.parseLong(new String(contents, StandardCharsets.UTF_8).trim());
+        } catch (NoSuchFileException e) {
+            return 0L;
+        } catch (IOException | NumberFormatException e) {
+            // being written, force a reload
+            return ThreadLocalRandom.current().nextLong();
+        }
+    }
+
+    /**
+     * Reloads the packed and loose refs if the generation file changed since they were last
+     * loaded, meaning another instance or process changed the refs
+     */
+    private void refresh() {
+        final long current = readGeneration();
+        if (current != this.generation) {
+            reload(current);
+        }
+    }
+
+    private synchronized void reload(long currentGeneration) {
+        if (currentGeneration == this.generation && isOpen()) {
+            return;
+        }
+        load(currentGeneration);
+    }
+
+    private synchronized void load(long currentGeneration) {
+        PackedRefs packed;
+        try {
+            packed = PackedRefs.read(packedRefsFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ConcurrentSkipListMap<String, String> loose = new ConcurrentSkipListMap<>();
+        for (String name : NO_NS_NAMES) {
+            readLoose(name).ifPresent(value -> loose.put(name, value));
+        }
+        final Path refs = refsDirectory.resolve(Ref.REFS_PREFIX);
+        if (Files.isDirectory(refs)) {
+            try {
+                Files.walkFileTree(refs, new SimpleFileVisitor<Path>() {
+                    public @Override FileVisitResult visitFile(Path file,
+                            BasicFileAttributes attrs) throws IOException {
+                        if (PackedRefs.MARKER_FILE_NAME.equals(file.getFileName().toString())) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        String name = refsDirectory.relativize(file).toString().replace('\\',
+                                '/');
+                        readLoose(name).ifPresent(value -> loose.put(name, value));
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        this.packed = packed;
+        this.loose = loose;
+        this.generation = currentGeneration;
+    }
+
+    /**
+     * Writes a new generation so that other instances reload the refs, reloading them here too if
+     * another instance changed them since the last refresh
+     * <p>
+     * The generation file is locked while comparing and replacing its contents, so that a change
+     * made by another process in between is never missed.
+     */
+    private synchronized void changed() {
+        final Object monitor = GENERATION_MONITORS
+                .computeIfAbsent(generationFile.toAbsolutePath().normalize(), p -> new Object());
+        final boolean concurrentChange;
+        long next;
+        synchronized (monitor) {
+            try (FileChannel channel = FileChannel.open(generationFile, CREATE, READ, WRITE);
+                    FileLock lock = channel.lock()) {
+                final long current = readGeneration(channel);
+                concurrentChange = current != this.generation;
+                do {
+                    next = ThreadLocalRandom.current().nextLong();
+                } while (next == 0L || next == current || next == generation);
+                byte[] contents = Long.toString(next).getBytes(StandardCharsets.UTF_8);
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(contents), 0);
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (concurrentChange) {
+            load(next);
+        } else {
+            this.generation = next;
+        }
+    }
+
+    private long readGeneration(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) != -1) {
+            // keep reading
+        }
+        if (buffer.position() == 0) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(
+                    new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8)
+                            .trim());
+        } catch (NumberFormatException e) {
+            // left corrupt by a crashed writer, force a reload
+            return ThreadLocalRandom.current().nextLong();
+        }
+    }
 }
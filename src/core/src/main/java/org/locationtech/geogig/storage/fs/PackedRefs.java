@@ -0,0 +1,198 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.fs;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Ref;
+
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
+
+/**
+ * Immutable, sorted snapshot of the refs stored in a {@link FileRefDatabase}'s packed refs file,
+ * with {@code O(log n)} lookups and listing by prefix.
+ * <p>
+ * The file is a UTF-8 text file with a header line followed by one {@code <name> <value>} line per
+ * ref, sorted by name, where value is either an object id or {@code ref: <target>} for symbolic
+ * refs. The header carries the format version, and files of an unknown version are refused.
+ * <p>
+ * Clients predating packed refs only know about loose ref files and would silently miss the packed
+ * ones, so while there's a packed refs file a {@link #MARKER_FILE_NAME marker file} whose contents
+ * are not a valid ref value is kept in each of the {@link #MARKED_NAMESPACES} directories, making
+ * them fail when listing refs instead.
+ */
+final class PackedRefs {
+
+    static final String FILE_NAME = "packed-refs";
+
+    static final int VERSION = 1;
+
+    private static final String HEADER_PREFIX = "# geogig packed-refs v";
+
+    private static final String HEADER = HEADER_PREFIX + VERSION;
+
+    static final String MARKER_FILE_NAME = ".packed-refs";
+
+    static final String MARKER_CONTENTS = "Refs are stored in packed-refs v" + VERSION
+            + " format, this repository requires a newer version of GeoGig";
+
+    static final List<String> MARKED_NAMESPACES = Arrays.asList(Ref.HEADS_PREFIX,
+            Ref.TAGS_PREFIX, Ref.REMOTES_PREFIX);
+
+    static final PackedRefs EMPTY = new PackedRefs(new String[0], new String[0]);
+
+    private final String[] names;
+
+    private final String[] values;
+
+    private PackedRefs(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * Reads and parses the given packed refs file
+     * <p>
+     * The file is read at once rather than memory mapped, since a mapping outlives the channel
+     * until garbage collected and prevents the file from being replaced on Windows.
+     *
+     * @return the file's refs, or {@link #EMPTY} if the file doesn't exist
+     * @throws IllegalStateException if the file is not a packed refs file or its format version
+     *         is not supported
+     */
+    static PackedRefs read(@NonNull Path file) throws IOException {
+        final String contents;
+        try {
+            contents = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return EMPTY;
+        }
+        checkHeader(file, contents);
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        int start = 0;
+        final int length = contents.length();
+        for (int i = 0; i <= length; i++) {
+            if (i == length || contents.charAt(i) == '\n') {
+                if (i > start) {
+                    String line = contents.substring(start, i);
+                    if (!line.startsWith("#")) {
+                        int sep = line.indexOf(' ');
+                        Preconditions.checkState(sep > 0, "Invalid packed ref line in %s: %s",
+                                file, line);
+                        names.add(line.substring(0, sep));
+                        values.add(line.substring(sep + 1));
+                    }
+                }
+                start = i + 1;
+            }
+        }
+        String[] sortedNames = names.toArray(new String[names.size()]);
+        String[] sortedValues = values.toArray(new String[values.size()]);
+        for (int i = 1; i < sortedNames.length; i++) {
+            Preconditions.checkState(sortedNames[i - 1].compareTo(sortedNames[i]) < 0,
+                    "Packed refs file %s is not sorted", file);
+        }
+        return new PackedRefs(sortedNames, sortedValues);
+    }
+
+    private static void checkHeader(Path file, String contents) {
+        final int eol = contents.indexOf('\n');
+        final String header = eol == -1 ? contents : contents.substring(0, eol);
+        Preconditions.checkState(header.startsWith(HEADER_PREFIX),
+                "%s is not a packed refs file, header: %s", file, header);
+        Preconditions.checkState(HEADER.equals(header),
+                "Unsupported packed refs format version %s in %s, only version %s is supported",
+                header.substring(HEADER_PREFIX.length()), file, VERSION);
+    }
+
+    /**
+     * Writes the given refs to {@code file}, through a temporary file that's atomically moved once
+     * complete.
+     */
+    static void write(@NonNull Path file, @NonNull SortedMap<String, String> refs)
+            throws IOException {
+        Path tmp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                out.write(HEADER);
+                out.write('\n');
+                for (Map.Entry<String, String> e : refs.entrySet()) {
+                    out.write(e.getKey());
+                    out.write(' ');
+                    out.write(e.getValue());
+                    out.write('\n');
+                }
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the value of the given ref, or {@code null} if it's not packed
+     */
+    public @Nullable String get(@NonNull String name) {
+        int index = Arrays.binarySearch(names, name);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * Calls {@code consumer} with the name and value of every ref whose name starts with
+     * {@code prefix}, in name order
+     */
+    public void forEach(@NonNull String prefix, @NonNull BiConsumer<String, String> consumer) {
+        int index = Arrays.binarySearch(names, prefix);
+        if (index < 0) {
+            index = -(index + 1);
+        }
+        for (int i = index; i < names.length && names[i].startsWith(prefix); i++) {
+            consumer.accept(names[i], values[i]);
+        }
+    }
+
+    /**
+     * @return a mutable copy of all the packed refs, sorted by name
+     */
+    public SortedMap<String, String> toMap() {
+        SortedMap<String, String> map = new TreeMap<>();
+        for (int i = 0; i < names.length; i++) {
+            map.put(names[i], values[i]);
+        }
+        return map;
+    }
+}
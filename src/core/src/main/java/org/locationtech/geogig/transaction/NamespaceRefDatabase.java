@@ -1,7 +1,9 @@
 package org.locationtech.geogig.transaction;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -90,6 +92,16 @@ class NamespaceRefDatabase extends ForwardingRefDatabase implements RefDatabase
         return toExternal(super.deleteAll(toInternal(namespace)));
     }
 
+    /**
+     * Checks and applies the changes through this namespaced view instead of forwarding them with
+     * the external ref names
+     */
+    public @Override Optional<List<RefChange>> compareAndSet(
+            @NonNull Map<String, Optional<Ref>> expected, @NonNull Iterable<Ref> updates,
+            @NonNull Iterable<String> deletes) throws TimeoutException {
+        return RefDatabase.super.compareAndSet(expected, updates, deletes);
+    }
+
     private List<Ref> toExternal(List<Ref> prefixed) {
         return prefixed.stream().map(this::toExternal).collect(Collectors.toList());
     }
@@ -17,18 +17,21 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.TimeoutException;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.dsl.Geogig;
 import org.locationtech.geogig.hooks.Hookable;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.SymRef;
+import org.locationtech.geogig.plumbing.ConcurrentRefUpdateException;
 import org.locationtech.geogig.plumbing.UpdateRefs;
 import org.locationtech.geogig.porcelain.ConflictsException;
 import org.locationtech.geogig.porcelain.NothingToCommitException;
 import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
 import org.locationtech.geogig.storage.RefChange;
+import org.locationtech.geogig.storage.RefDatabase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +45,11 @@ import lombok.extern.slf4j.Slf4j;
  * <p>
  * If the repository ref was updated while the transaction occurred, the changes will be brought
  * together via a merge or rebase operation and the new ref will be updated to the result.
+ * <p>
+ * The merges and rebases are computed without locking the repository refs, and their results
+ * published atomically only if the repository refs they were computed against didn't change in the
+ * meantime. Otherwise they're computed again against the new values, up to {@link #MAX_ATTEMPTS}
+ * times, so concurrent transactions only serialize while publishing their refs.
  * 
  * @see GeogigTransaction
  */
@@ -51,6 +59,12 @@ public class TransactionEnd extends AbstractGeoGigOp<Void> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionEnd.class);
 
+    /**
+     * Maximum number of times the transaction refs are merged and published when other writers
+     * keep changing the repository refs in between
+     */
+    public static final int MAX_ATTEMPTS = 10;
+
     private boolean cancel = false;
 
     private GeogigTransaction transaction = null;
@@ -117,46 +131,94 @@ public class TransactionEnd extends AbstractGeoGigOp<Void> {
             transaction.close();
             return null;
         }
-        try {
-            refDatabase().lock();// Lock the repository
-            final Optional<Ref> currHead = geogig().refs().head();
-            final Optional<Ref> currentBranch = currHead.filter(SymRef.class::isInstance)
-                    .map(Ref::peel);
-
-            final List<RefChange> changedRefs = transaction.changedRefs();
-
-            UpdateRefs updateLiveRefs = command(UpdateRefs.class)
-                    .setReason(format("Commit transaction %s", transaction.getTransactionId()));
-            for (RefChange changeInTx : changedRefs) {
-                if (!Ref.isChild(Ref.REFS_PREFIX, changeInTx.name())) {
-                    continue;
-                }
-                log.debug("Handling {}", changeInTx);
-                if (changeInTx.isDelete()) {
-                    handleDeleted(currentBranch, changeInTx).ifPresent(updateLiveRefs::remove);
-                } else if (changeInTx.isNew()) {
-                    handleCreated(currentBranch, changeInTx).forEach(updateLiveRefs::add);
-                } else {
-                    handleUpdated(currentBranch, changeInTx).forEach(updateLiveRefs::add);
+        // snapshot the transaction refs, so each attempt merges the same changes, and not the
+        // results of a previous attempt
+        final List<RefChange> changedRefs = transaction.changedRefs();
+        final List<Ref> transactionRefs = transaction.refDatabase().getAll();
+        for (int attempt = 1;; attempt++) {
+            try {
+                publish(changedRefs);
+                break;
+            } catch (ConcurrentRefUpdateException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
                 }
+                log.debug("Refs changed while committing transaction {}, retrying ({}/{})",
+                        transaction.getTransactionId(), attempt, MAX_ATTEMPTS);
+                resetTransactionRefs(transactionRefs);
             }
+        }
+        // TODO: What happens if there are unstaged or staged changes in the repository when
+        // a transaction is committed?
 
-            updateLiveRefs.call();
-            // TODO: What happens if there are unstaged or staged changes in the repository when
-            // a transaction is committed?
+        // Erase old refs and remove transaction specific blobs
+        transaction.close();
+        return null;
+    }
 
-            // Erase old refs and remove transaction specific blobs
-            transaction.close();
-        } catch (TimeoutException refDbLockTimeout) {
-            throw new RuntimeException(refDbLockTimeout);
-        } finally {
-            // Unlock the repository
-            refDatabase().unlock();
+    /**
+     * Merges or rebases the transaction refs against the current repository refs without holding
+     * the ref database lock, and publishes the results only if none of the repository refs
+     * involved changed in the meantime.
+     * 
+     * @param changedRefs the refs changed in the transaction, as they were before the first
+     *        attempt
+     * @throws ConcurrentRefUpdateException if any of the repository refs involved changed while
+     *         computing the updates
+     */
+    private void publish(List<RefChange> changedRefs) {
+        final Optional<Ref> currHead = geogig().refs().head();
+        final Optional<Ref> currentBranch = currHead.filter(SymRef.class::isInstance)
+                .map(Ref::peel);
+
+        UpdateRefs updateLiveRefs = command(UpdateRefs.class)
+                .setReason(format("Commit transaction %s", transaction.getTransactionId()));
+        for (RefChange changeInTx : changedRefs) {
+            if (!Ref.isChild(Ref.REFS_PREFIX, changeInTx.name())) {
+                continue;
+            }
+            log.debug("Handling {}", changeInTx);
+            final Optional<Ref> valueOutsideTx = geogig().refs().find(changeInTx.name());
+            updateLiveRefs.expect(changeInTx.name(), valueOutsideTx);
+            final List<Ref> updates;
+            if (changeInTx.isDelete()) {
+                handleDeleted(currentBranch, changeInTx, valueOutsideTx)
+                        .ifPresent(updateLiveRefs::remove);
+                updates = Collections.emptyList();
+            } else if (changeInTx.isNew()) {
+                updates = handleCreated(currentBranch, changeInTx, valueOutsideTx);
+            } else {
+                updates = handleUpdated(currentBranch, changeInTx, valueOutsideTx);
+            }
+            if (updates.stream().map(Ref::getName).anyMatch(Ref.HEAD::equals)) {
+                // make sure HEAD still points to the updated branch when publishing
+                updateLiveRefs.expect(Ref.HEAD, currHead);
+            }
+            updates.forEach(updateLiveRefs::add);
         }
-        return null;
+
+        updateLiveRefs.call();
+    }
+
+    /**
+     * Restores the transaction refs to their values before the first attempt to publish them,
+     * undoing the merges, rebases, and checkouts of a failed attempt, so that the next one doesn't
+     * build on top of them
+     */
+    private void resetTransactionRefs(List<Ref> transactionRefs) {
+        final RefDatabase refs = transaction.refDatabase();
+        final Set<String> names = transactionRefs.stream().map(Ref::getName)
+                .collect(Collectors.toSet());
+        List<String> created = refs.getAll().stream().map(Ref::getName)
+                .filter(name -> !names.contains(name)).collect(Collectors.toList());
+        if (!created.isEmpty()) {
+            refs.delete(created);
+        }
+        refs.putAll(transactionRefs);
     }
 
-    private Optional<Ref> handleDeleted(Optional<Ref> currentBranchOutsideTx, RefChange deleted) {
+    private Optional<Ref> handleDeleted(Optional<Ref> currentBranchOutsideTx, RefChange deleted,
+            Optional<Ref> currValue) {
         // deleted refs, make sure not to delete the current branch
         if (currentBranchOutsideTx.isPresent()
                 && currentBranchOutsideTx.get().getName().equals(deleted.name())) {
@@ -164,7 +226,6 @@ public class TransactionEnd extends AbstractGeoGigOp<Void> {
                     transaction.getTransactionId());
             return Optional.empty();
         }
-        Optional<Ref> currValue = geogig().refs().find(deleted.name());
         if (currValue.isPresent() && !currValue.equals(deleted.oldValue())) {
             log.warn(
                     "Not deleting {} when committing transaction {}. Ref changed outside the transaction.",
@@ -175,25 +236,27 @@ public class TransactionEnd extends AbstractGeoGigOp<Void> {
         return currValue;
     }
 
-    private List<Ref> handleCreated(Optional<Ref> currentBranchOutsideTx, RefChange newref) {
+    private List<Ref> handleCreated(Optional<Ref> currentBranchOutsideTx, RefChange newref,
+            Optional<Ref> currValue) {
         if (currentBranchOutsideTx.isPresent()) {
             log.debug(
                     "Ref {} was created both inside and outside transaction {}, attempting a merge",
                     newref.name(), transaction.getTransactionId());
-            return handleUpdated(currentBranchOutsideTx, newref);
+            return handleUpdated(currentBranchOutsideTx, newref, currValue);
         }
 
         return Collections.singletonList(newref.newValue().get());
     }
 
-    private List<Ref> handleUpdated(Optional<Ref> currentBranchOutsideTx, RefChange change) {
+    private List<Ref> handleUpdated(Optional<Ref> currentBranchOutsideTx, RefChange change,
+            Optional<Ref> currValue) {
         final String refName = change.name();
         checkArgument(Ref.isChild(Ref.REFS_PREFIX, refName));
         checkArgument(change.newValue().isPresent());
 
         Geogig tx = Geogig.of(transaction);
 
-        final @Nullable Ref valueOutsideTx = geogig().refs().find(refName).orElse(null);
+        final @Nullable Ref valueOutsideTx = currValue.orElse(null);
         final Ref valueInsideTx = change.newValue().get();
         final Ref finalValue;
 
@@ -0,0 +1,103 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DefaultMetricsRegistryTest {
+
+    private DefaultMetricsRegistry registry;
+
+    @Before
+    public void before() {
+        registry = new DefaultMetricsRegistry();
+    }
+
+    @Test
+    public void testCounter() {
+        Counter counter = registry.counter("count", "k1", "v1", "k2", "v2");
+        assertSame(counter, registry.counter("count", "k2", "v2", "k1", "v1"));
+        assertNotSame(counter, registry.counter("count", "k1", "v1"));
+        counter.increment();
+        counter.increment(9);
+        assertEquals(10L, counter.count());
+        assertEquals(MeterId.of("count", "k1", "v1", "k2", "v2"), counter.getId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddTags() {
+        registry.counter("count", "k1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMeterTypeMismatch() {
+        registry.counter("meter");
+        registry.timer("meter");
+    }
+
+    @Test
+    public void testTimer() {
+        Timer timer = registry.timer("timer");
+        timer.record(TimeUnit.MICROSECONDS.toNanos(500));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(3));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(4));
+        timer.record(TimeUnit.SECONDS.toNanos(60));
+
+        assertEquals(4L, timer.count());
+        assertEquals(60_007L, timer.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(60L, timer.max(TimeUnit.SECONDS));
+
+        long[] expected = new long[Timer.BUCKET_BOUNDS_MS.length + 1];
+        expected[0] = 1;// <= 1ms
+        expected[2] = 2;// <= 4ms
+        expected[Timer.BUCKET_BOUNDS_MS.length] = 1;// > 32768ms
+        assertArrayEquals(expected, timer.histogram());
+    }
+
+    @Test
+    public void testGauge() {
+        AtomicLong value = new AtomicLong(1);
+        Gauge gauge = registry.gauge("gauge", value::get, "k", "v");
+        assertEquals(1D, gauge.value(), 0D);
+        value.set(2);
+        assertEquals(2D, gauge.value(), 0D);
+        assertTrue(registry.getMeters().contains(gauge));
+    }
+
+    @Test
+    public void testMeterStats() {
+        Timer timer = registry.timer("timer", "op", "get");
+        timer.record(TimeUnit.MILLISECONDS.toNanos(2));
+        timer.record(TimeUnit.MILLISECONDS.toNanos(4));
+        MeterStats stats = MeterStats.of(timer);
+        assertEquals("timer", stats.getName());
+        assertEquals("{op=get}", stats.getTags());
+        assertEquals("timer", stats.getType());
+        assertEquals(2L, stats.getCount());
+        assertEquals(6D, stats.getTotalMs(), 0D);
+        assertEquals(3D, stats.getMeanMs(), 0D);
+        assertEquals(4D, stats.getMaxMs(), 0D);
+
+        registry.counter("counter").increment(3);
+        String report = InProcessMetricsReporter.report(registry);
+        assertTrue(report, report.contains("counter: count=3"));
+        assertTrue(report, report.contains("timer{op=get}: count=2"));
+    }
+}
@@ -0,0 +1,122 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.repository.IndexInfo.IndexType;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.RefDatabase;
+import org.locationtech.geogig.storage.memory.HeapIndexDatabase;
+import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
+import org.locationtech.geogig.storage.memory.HeapRefDatabase;
+
+public class MetricsDecoratorTest {
+
+    private DefaultMetricsRegistry registry;
+
+    private MetricsDecorator decorator;
+
+    @Before
+    public void before() {
+        registry = new DefaultMetricsRegistry();
+        decorator = new MetricsDecorator(registry);
+    }
+
+    private Timer timer(String store, String backend, String op) {
+        return registry.timer(StoreMetrics.TIMER_NAME, "store", store, "backend", backend, "op",
+                op);
+    }
+
+    @Test
+    public void testCanDecorate() {
+        ObjectDatabase odb = new HeapObjectDatabase();
+        assertTrue(decorator.canDecorate(odb));
+        assertTrue(decorator.canDecorate(new HeapRefDatabase()));
+        assertFalse(decorator.canDecorate(new Object()));
+        assertFalse(decorator.canDecorate(decorator.decorate(odb)));
+    }
+
+    @Test
+    public void testObjectDatabase() {
+        ObjectDatabase odb = decorator.decorate(new HeapObjectDatabase());
+        odb.open();
+        try {
+            odb.put(RevTree.EMPTY);
+            assertEquals(RevTree.EMPTY, odb.get(RevTree.EMPTY_TREE_ID));
+            assertTrue(odb.exists(RevTree.EMPTY_TREE_ID));
+
+            Iterator<RevObject> all = odb
+                    .getAll(Collections.singletonList(RevTree.EMPTY_TREE_ID));
+            assertEquals(0L, timer("objects", "HeapObjectDatabase", "getAll").count());
+            while (all.hasNext()) {
+                all.next();
+            }
+        } finally {
+            odb.close();
+        }
+        assertEquals(1L, timer("objects", "HeapObjectDatabase", "put").count());
+        assertEquals(1L, timer("objects", "HeapObjectDatabase", "get").count());
+        assertEquals(1L, timer("objects", "HeapObjectDatabase", "exists").count());
+        assertEquals(1L, timer("objects", "HeapObjectDatabase", "getAll").count());
+    }
+
+    @Test
+    public void testRefDatabase() {
+        RefDatabase refs = decorator.decorate(new HeapRefDatabase());
+        refs.open();
+        try {
+            refs.putRef(Ref.HEAD, RevTree.EMPTY_TREE_ID);
+            refs.get(Ref.HEAD);
+            refs.get(Ref.WORK_HEAD);
+        } finally {
+            refs.close();
+        }
+        assertEquals(1L, timer("refs", "HeapRefDatabase", "putRef").count());
+        assertEquals(2L, timer("refs", "HeapRefDatabase", "get").count());
+    }
+
+    @Test
+    public void testCopyIndexesUnwrapsMeteredTarget() {
+        // e.g. what CloneOp does with the origin and clone repositories' index databases
+        IndexDatabase source = spy(new HeapIndexDatabase());
+        IndexDatabase target = new HeapIndexDatabase();
+        source.open();
+        target.open();
+        try {
+            source.createIndexInfo("points", "pp", IndexType.QUADTREE, null);
+            IndexDatabase meteredSource = decorator.decorate(source);
+            IndexDatabase meteredTarget = decorator.decorate(target);
+
+            meteredSource.copyIndexesTo(meteredTarget);
+
+            // the actual source gets the actual target, so type checks for fast paths work
+            verify(source).copyIndexesTo(same(target));
+            assertEquals(1, target.getIndexInfos().size());
+        } finally {
+            source.close();
+            target.close();
+        }
+    }
+}
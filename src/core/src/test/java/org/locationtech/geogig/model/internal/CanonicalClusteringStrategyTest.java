@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.After;
 import org.junit.Before;
@@ -290,6 +291,31 @@ public abstract class CanonicalClusteringStrategyTest {
         assertEquals(new HashSet<>(randomEdits.values()), difference);
     }
 
+    @Test
+    public void concurrentPutsAndRemoves() throws Exception {
+        strategy = canonical.build();
+
+        final List<Node> nodes = featureNodes(0, 100_000, false);
+        final List<Node> removeNodes = nodes.subList(100, 99_700);
+
+        final ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            pool.submit(() -> nodes.parallelStream().forEach(strategy::put)).get();
+            assertEquals(nodes.size(), strategy.buildRoot().getTotalChildCount());
+            assertEquals(nodes.size(), flatten(strategy.buildRoot()).size());
+
+            pool.submit(() -> removeNodes.parallelStream().forEach(strategy::remove)).get();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        DAG root = strategy.buildRoot();
+        final int expectedSize = nodes.size() - removeNodes.size();
+        assertEquals(expectedSize, root.getTotalChildCount());
+        assertTrue(buckets(root).isEmpty());
+        assertEquals(expectedSize, children(root).size());
+    }
+
     @Test
     public void bucketDAGShrinksOnRemoveBellowThreshold() {
 
@@ -0,0 +1,210 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.fs.CommitGraphFile;
+import org.locationtech.geogig.storage.fs.CommitGraphFile.Commit;
+import org.locationtech.geogig.storage.memory.HeapGraphDatabase;
+
+public class CommitGraphWalkerTest {
+
+    public @Rule TemporaryFolder tmp = new TemporaryFolder();
+
+    private HeapGraphDatabase graph;
+
+    private Map<String, ObjectId> ids = new LinkedHashMap<>();
+
+    private Path file;
+
+    public @Before void before() throws Exception {
+        graph = new HeapGraphDatabase();
+        graph.open();
+        file = tmp.getRoot().toPath().resolve(CommitGraphFile.FILE_NAME);
+        // a - b - c - d ------- m1 - e
+        //      \          /
+        //       f - g - h - i
+        //        \
+        //         j (octopus merge of c, g, and k)
+        // k (unrelated root)
+        commit("a");
+        commit("b", "a");
+        commit("c", "b");
+        commit("d", "c");
+        commit("f", "b");
+        commit("g", "f");
+        commit("h", "g");
+        commit("i", "h");
+        commit("m1", "d", "h");
+        commit("e", "m1");
+        commit("k");
+        commit("j", "c", "g", "k");
+    }
+
+    public @After void after() {
+        graph.close();
+    }
+
+    private ObjectId commit(String name, String... parents) {
+        ObjectId id = RevObjectTestSupport.hashString(name);
+        List<ObjectId> parentIds = new ArrayList<>();
+        for (String p : parents) {
+            parentIds.add(ids.get(p));
+        }
+        graph.put(id, parentIds);
+        ids.put(name, id);
+        return id;
+    }
+
+    private void writeIndex(String... names) throws Exception {
+        List<Commit> commits = new ArrayList<>();
+        for (String name : names) {
+            ObjectId id = ids.get(name);
+            commits.add(new Commit(id, graph.getParents(id), name.hashCode()));
+        }
+        CommitGraphFile.write(file, commits);
+    }
+
+    private CommitGraphWalker walker() {
+        return new CommitGraphWalker(CommitGraphFile.open(file).get(), graph);
+    }
+
+    private Optional<ObjectId> mergeBase(String left, String right) {
+        return walker().mergeBase(ids.get(left), ids.get(right));
+    }
+
+    private boolean isAncestor(String ancestor, String descendant) {
+        return walker().isAncestor(ids.get(ancestor), ids.get(descendant));
+    }
+
+    @Test
+    public void testCommitGraphFile() throws Exception {
+        writeIndex(ids.keySet().toArray(new String[0]));
+        CommitGraphFile index = CommitGraphFile.open(file).get();
+        assertEquals(ids.size(), index.size());
+        assertEquals(-1, index.position(RevObjectTestSupport.hashString("unknown")));
+
+        int a = index.position(ids.get("a"));
+        int m1 = index.position(ids.get("m1"));
+        int j = index.position(ids.get("j"));
+        assertEquals(ids.get("a"), index.id(a));
+        assertEquals(1, index.generation(a));
+        assertEquals(0, index.parents(a).length);
+        assertEquals("a".hashCode(), index.timestamp(a));
+
+        // m1 = 1 + max(gen(d) = 4, gen(h) = 5)
+        assertEquals(6, index.generation(m1));
+        assertArrayEquals(
+                new int[] { index.position(ids.get("d")), index.position(ids.get("h")) },
+                index.parents(m1));
+
+        assertEquals(5, index.generation(j));
+        assertArrayEquals(new int[] { index.position(ids.get("c")),
+                index.position(ids.get("g")), index.position(ids.get("k")) }, index.parents(j));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriteMissingParent() throws Exception {
+        writeIndex("b");
+    }
+
+    @Test
+    public void testMergeBase() throws Exception {
+        writeIndex(ids.keySet().toArray(new String[0]));
+        assertMergeBase("b", "d", "i");
+        assertMergeBase("h", "e", "i");
+        assertMergeBase("d", "e", "d");
+        assertMergeBase("a", "a", "e");
+        // c and g are both best common ancestors, g has the highest generation
+        assertMergeBase("g", "j", "e");
+        assertMergeBase("k", "j", "k");
+        assertEquals(Optional.empty(), mergeBase("k", "e"));
+    }
+
+    @Test
+    public void testMergeBaseUnindexedCommits() throws Exception {
+        writeIndex("a", "b", "c", "f", "g");
+        assertMergeBase("b", "d", "i");
+        assertMergeBase("h", "e", "i");
+        assertMergeBase("g", "j", "e");
+        assertEquals(Optional.empty(), mergeBase("k", "e"));
+    }
+
+    @Test
+    public void testMergeBaseCrissCross() throws Exception {
+        // x and y merge b and c in opposite orders, both are best common ancestors
+        commit("cc-b", "a");
+        commit("cc-c", "a");
+        commit("cc-m1", "cc-b", "cc-c");
+        commit("cc-m2", "cc-c", "cc-b");
+        commit("cc-x", "cc-m1");
+        commit("cc-y", "cc-m2");
+        writeIndex(ids.keySet().toArray(new String[0]));
+        // same generation, cc-c has the most recent timestamp
+        assertTrue("cc-c".hashCode() > "cc-b".hashCode());
+        assertMergeBase("cc-c", "cc-x", "cc-y");
+        assertMergeBase("cc-c", "cc-m1", "cc-m2");
+    }
+
+    @Test
+    public void testIsAncestor() throws Exception {
+        writeIndex(ids.keySet().toArray(new String[0]));
+        assertTrue(isAncestor("a", "e"));
+        assertTrue(isAncestor("h", "e"));
+        assertTrue(isAncestor("e", "e"));
+        assertTrue(isAncestor("k", "j"));
+        assertTrue(isAncestor("g", "j"));
+        assertFalse(isAncestor("e", "a"));
+        assertFalse(isAncestor("i", "e"));
+        assertFalse(isAncestor("d", "i"));
+        assertFalse(isAncestor("k", "e"));
+    }
+
+    @Test
+    public void testIsAncestorUnindexedCommits() throws Exception {
+        writeIndex("a", "b", "f");
+        assertTrue(isAncestor("a", "e"));
+        assertTrue(isAncestor("h", "e"));
+        assertFalse(isAncestor("i", "e"));
+        assertFalse(isAncestor("k", "e"));
+    }
+
+    private void assertMergeBase(String expected, String left, String right) {
+        assertEquals(Optional.of(ids.get(expected)), mergeBase(left, right));
+        assertEquals(Optional.of(ids.get(expected)), mergeBase(right, left));
+    }
+
+    @Test
+    public void testEmptyIndex() throws Exception {
+        CommitGraphFile.write(file, Collections.emptyList());
+        assertEquals(0, CommitGraphFile.open(file).get().size());
+        assertMergeBase("b", "d", "i");
+        assertTrue(isAncestor("a", "e"));
+    }
+}
@@ -44,6 +44,7 @@ import org.locationtech.geogig.model.CanonicalNodeNameOrder;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.model.RevObjectFactory;
 import org.locationtech.geogig.model.RevTree;
@@ -56,8 +57,10 @@ import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.BucketIndex;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.Consumer;
 import org.locationtech.geogig.plumbing.diff.PreOrderDiffWalk.MaxFeatureDiffsLimiter;
 import org.locationtech.geogig.repository.impl.SpatialOps;
+import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.decorator.ForwardingObjectStore;
 import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
 import org.locationtech.jts.geom.Envelope;
 import org.mockito.ArgumentCaptor;
@@ -845,6 +848,57 @@ public class PreOrderDiffWalkTest {
         checkFalseReturnValueOnConsumerFeatureAbortsTraversal(left, right);
     }
 
+    @Test
+    public void testPrefetchBatchesBucketTreeRequests() {
+        final RevTree left = RevObjectTestSupport.INSTANCE.createLargeFeaturesTree(leftSource,
+                "f", 100_000, 0, false);
+        final RevTree right = RevObjectTestSupport.INSTANCE.createLargeFeaturesTree(rightSource,
+                "f", 100_000, 50_000, false);
+
+        GetAllCounter leftCounter = new GetAllCounter(leftSource);
+        GetAllCounter rightCounter = new GetAllCounter(rightSource);
+        AtomicLong noPrefetchFeatures = new AtomicLong();
+        new PreOrderDiffWalk(left, right, leftCounter, rightCounter).prefetchDepth(0)
+                .walk(featureCounter(noPrefetchFeatures));
+        final int noPrefetchCalls = leftCounter.calls.get() + rightCounter.calls.get();
+
+        leftCounter = new GetAllCounter(leftSource);
+        rightCounter = new GetAllCounter(rightSource);
+        AtomicLong prefetchFeatures = new AtomicLong();
+        new PreOrderDiffWalk(left, right, leftCounter, rightCounter).prefetchDepth(2)
+                .walk(featureCounter(prefetchFeatures));
+        final int prefetchCalls = leftCounter.calls.get() + rightCounter.calls.get();
+
+        assertEquals(100_000, noPrefetchFeatures.get());
+        assertEquals(100_000, prefetchFeatures.get());
+        assertTrue(String.format("expected less than %d getAll calls, got %d", noPrefetchCalls,
+                prefetchCalls), prefetchCalls < noPrefetchCalls);
+    }
+
+    private Consumer featureCounter(AtomicLong count) {
+        return new AbstractConsumer() {
+            public @Override boolean feature(@Nullable NodeRef left, @Nullable NodeRef right) {
+                count.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    private static class GetAllCounter extends ForwardingObjectStore {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        GetAllCounter(ObjectStore store) {
+            super(store);
+        }
+
+        public @Override <T extends RevObject> Iterator<T> getAll(Iterable<ObjectId> ids,
+                BulkOpListener listener, Class<T> type) {
+            calls.incrementAndGet();
+            return super.getAll(ids, listener, type);
+        }
+    }
+
     @Test
     public void checkExpectedNotificationOrder() {
         final int size = 100_000;
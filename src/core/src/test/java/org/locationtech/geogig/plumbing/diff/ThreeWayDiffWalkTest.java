@@ -0,0 +1,204 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.plumbing.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.locationtech.geogig.model.impl.RevObjectTestSupport.featureNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.RevTreeBuilder;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.memory.HeapObjectDatabase;
+
+public class ThreeWayDiffWalkTest {
+
+    private ObjectDatabase store;
+
+    private TestConsumer consumer;
+
+    @Before
+    public void before() {
+        store = new HeapObjectDatabase();
+        store.open();
+        consumer = new TestConsumer();
+    }
+
+    @After
+    public void after() {
+        store.close();
+    }
+
+    private static class TestConsumer implements ThreeWayDiffWalk.Consumer {
+
+        final Map<String, NodeRef[]> features = new TreeMap<>();
+
+        public @Override void feature(@Nullable NodeRef ancestor, @Nullable NodeRef ours,
+                @Nullable NodeRef theirs) {
+            String path = (theirs == null ? ancestor : theirs).path();
+            features.put(path, new NodeRef[] { ancestor, ours, theirs });
+        }
+
+        public @Override boolean tree(@Nullable NodeRef ancestor, @Nullable NodeRef ours,
+                @Nullable NodeRef theirs) {
+            return true;
+        }
+    }
+
+    private List<Node> nodes(int from, int to) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            nodes.add(featureNode("f", i));
+        }
+        return nodes;
+    }
+
+    private Node modified(int index) {
+        Node node = featureNode("f", index);
+        return node.update(RevObjectTestSupport.hashString("modified" + node.getName()));
+    }
+
+    private RevTree tree(List<Node> nodes) {
+        RevTreeBuilder builder = RevTreeBuilder.builder(store);
+        nodes.forEach(builder::put);
+        RevTree tree = builder.build();
+        store.put(tree);
+        return tree;
+    }
+
+    private void walk(RevTree ancestor, RevTree ours, RevTree theirs) {
+        new ThreeWayDiffWalk(ancestor, ours, theirs, store).walk(consumer);
+    }
+
+    @Test
+    public void testTheirsUnchanged() {
+        RevTree ancestor = tree(nodes(0, 1000));
+        RevTree ours = tree(nodes(0, 2000));
+        walk(ancestor, ours, ancestor);
+        assertTrue(consumer.features.isEmpty());
+    }
+
+    @Test
+    public void testOursEqualsTheirs() {
+        RevTree ancestor = tree(nodes(0, 1000));
+        RevTree ours = tree(nodes(0, 2000));
+        walk(ancestor, ours, ours);
+        assertTrue(consumer.features.isEmpty());
+    }
+
+    @Test
+    public void testOnlyTheirsChangedBucketTrees() {
+        List<Node> ancestorNodes = nodes(0, 2000);
+        List<Node> theirsNodes = new ArrayList<>(ancestorNodes);
+        theirsNodes.set(10, modified(10));
+        theirsNodes.remove(1500);
+        theirsNodes.add(featureNode("f", 3000));
+
+        RevTree ancestor = tree(ancestorNodes);
+        RevTree theirs = tree(theirsNodes);
+        walk(ancestor, ancestor, theirs);
+
+        assertEquals(3, consumer.features.size());
+        NodeRef[] changed = consumer.features.get("f10");
+        assertEquals(changed[0], changed[1]);
+        assertEquals(modified(10), changed[2].getNode());
+
+        NodeRef[] removed = consumer.features.get("f1500");
+        assertNotNull(removed[0]);
+        assertNull(removed[2]);
+
+        NodeRef[] added = consumer.features.get("f3000");
+        assertNull(added[0]);
+        assertNull(added[1]);
+        assertNotNull(added[2]);
+    }
+
+    @Test
+    public void testLeafAncestorBucketTheirs() {
+        RevTree ancestor = tree(nodes(0, 10));
+        RevTree theirs = tree(nodes(0, 1000));
+        assertEquals(0, ancestor.bucketsSize());
+        assertTrue(theirs.bucketsSize() > 0);
+
+        walk(ancestor, ancestor, theirs);
+        assertEquals(990, consumer.features.size());
+        assertNull(consumer.features.get("f9"));
+        assertNotNull(consumer.features.get("f10"));
+    }
+
+    @Test
+    public void testBothChanged() {
+        List<Node> ancestorNodes = nodes(0, 2000);
+        List<Node> oursNodes = new ArrayList<>(ancestorNodes);
+        List<Node> theirsNodes = new ArrayList<>(ancestorNodes);
+        // changed only by ours, not reported
+        oursNodes.set(1, modified(1));
+        // changed the same way by both, not reported
+        oursNodes.set(2, modified(2));
+        theirsNodes.set(2, modified(2));
+        // changed by ours and removed by theirs
+        oursNodes.set(3, modified(3));
+        theirsNodes.set(3, null);
+        // changed only by theirs
+        theirsNodes.set(4, modified(4));
+        theirsNodes.removeIf(n -> n == null);
+
+        RevTree ancestor = tree(ancestorNodes);
+        RevTree ours = tree(oursNodes);
+        RevTree theirs = tree(theirsNodes);
+        walk(ancestor, ours, theirs);
+
+        assertEquals(2, consumer.features.size());
+        NodeRef[] f3 = consumer.features.get("f3");
+        assertEquals(modified(3), f3[1].getNode());
+        assertNull(f3[2]);
+        NodeRef[] f4 = consumer.features.get("f4");
+        assertEquals(f4[0], f4[1]);
+        assertEquals(modified(4), f4[2].getNode());
+    }
+
+    @Test
+    public void testSubtrees() {
+        RevTree ancestorChild = tree(nodes(0, 100));
+        RevTree theirsChild = tree(nodes(0, 101));
+        RevTree ancestor = tree(Collections.singletonList(treeNode("layer", ancestorChild)));
+        RevTree ours = tree(Arrays.asList(treeNode("layer", ancestorChild),
+                treeNode("other", tree(nodes(0, 5)))));
+        RevTree theirs = tree(Collections.singletonList(treeNode("layer", theirsChild)));
+
+        walk(ancestor, ours, theirs);
+        assertEquals(1, consumer.features.size());
+        assertNotNull(consumer.features.get("layer/f100"));
+    }
+
+    private Node treeNode(String name, RevTree tree) {
+        return RevObjectFactory.defaultInstance().createNode(name, tree.getId(), ObjectId.NULL,
+                TYPE.TREE, null, null);
+    }
+}
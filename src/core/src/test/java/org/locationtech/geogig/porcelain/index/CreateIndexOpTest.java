@@ -11,9 +11,12 @@ package org.locationtech.geogig.porcelain.index;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
@@ -34,6 +37,8 @@ import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.plumbing.ResolveTreeish;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
 import org.locationtech.geogig.plumbing.index.BuildIndexOp;
 import org.locationtech.geogig.plumbing.index.IndexTestSupport;
 import org.locationtech.geogig.porcelain.BranchCreateOp;
@@ -45,6 +50,8 @@ import org.locationtech.geogig.repository.Repository;
 import org.locationtech.geogig.storage.IndexDatabase;
 import org.locationtech.geogig.test.integration.RepositoryTestCase;
 import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.simplify.DouglasPeuckerSimplifier;
 
 public class CreateIndexOpTest extends RepositoryTestCase {
 
@@ -184,6 +191,144 @@ public class CreateIndexOpTest extends RepositoryTestCase {
         IndexTestSupport.verifyIndex(repo.context(), index.indexTreeId(), worldPointsTree.getId());
     }
 
+    @Test
+    public void testCreateIndexSimplifiedGeometries() {
+        final double[] tolerances = { 0.5, 10 };
+        Map<String, Object> metadata = new HashMap<String, Object>();
+        metadata.put(IndexInfo.MD_QUAD_MAX_BOUNDS, new Envelope(-180, 180, -90, 90));
+        metadata.put(IndexInfo.MD_SIMPLIFICATION_TOLERANCES, tolerances);
+        Index index = repo.command(CreateIndexOp.class)//
+                .setTreeName(worldPointsLayer.getName())//
+                .setCanonicalTypeTree(worldPointsTree)//
+                .setFeatureTypeId(worldPointsLayer.getMetadataId().get())//
+                .setAttributeName("geom")//
+                .setIndexType(IndexType.QUADTREE)//
+                .setMetadata(metadata)//
+                .call();
+
+        assertArrayEquals(tolerances, IndexInfo.getSimplificationTolerances(index.info()), 0d);
+        IndexTestSupport.verifyIndex(repo.context(), index.indexTreeId(), worldPointsTree.getId());
+
+        RevTree indexTree = indexdb.getTree(index.indexTreeId());
+        DepthTreeIterator nodes = new DepthTreeIterator("", ObjectId.NULL, indexTree, indexdb,
+                Strategy.FEATURES_ONLY);
+        assertTrue(nodes.hasNext());
+        nodes.forEachRemaining(ref -> {
+            Node node = ref.getNode();
+            assertNull(IndexInfo.getMaterializedAttributes(node));
+            Envelope bounds = node.bounds().get();
+            for (double tolerance : tolerances) {
+                Geometry simplified = IndexInfo.getSimplifiedGeometry(node, tolerance);
+                assertNotNull(simplified);
+                // points can't be simplified
+                assertEquals(bounds.centre(), simplified.getCoordinate());
+            }
+        });
+    }
+
+    /**
+     * Creates a quadtree index with simplified geometries at the given tolerances on the
+     * {@code pp} attribute of the given layer, and returns the index nodes by feature id
+     */
+    private Map<String, Node> createSimplifiedIndex(String layer, double... tolerances) {
+        Index index = repo.command(CreateQuadTree.class)//
+                .setTreeRefSpec(layer)//
+                .setGeometryAttributeName("pp")//
+                .setSimplificationTolerances(tolerances)//
+                .call();
+        assertArrayEquals(tolerances, IndexInfo.getSimplificationTolerances(index.info()), 0d);
+
+        Map<String, Node> nodes = new HashMap<>();
+        RevTree indexTree = indexdb.getTree(index.indexTreeId());
+        new DepthTreeIterator("", ObjectId.NULL, indexTree, indexdb, Strategy.FEATURES_ONLY)
+                .forEachRemaining(ref -> nodes.put(ref.name(), ref.getNode()));
+        return nodes;
+    }
+
+    private Geometry simplified(Node node, double tolerance) {
+        Geometry simplified = IndexInfo.getSimplifiedGeometry(node, tolerance);
+        assertNotNull(simplified);
+        assertFalse(simplified.isEmpty());
+        return simplified;
+    }
+
+    /**
+     * @return a regular polygon with {@code sides} sides inscribed in a circle of the given radius
+     */
+    private String regularPolygon(double x, double y, double radius, int sides) {
+        StringBuilder wkt = new StringBuilder("POLYGON ((");
+        for (int i = 0; i <= sides; i++) {
+            double angle = 2 * Math.PI * (i % sides) / sides;
+            wkt.append(i == 0 ? "" : ", ").append(x + radius * Math.cos(angle)).append(' ')
+                    .append(y + radius * Math.sin(angle));
+        }
+        return wkt.append("))").toString();
+    }
+
+    @Test
+    public void testCreateIndexSimplifiedLines() throws Exception {
+        // a zigzag 0.3 units high, and a straight line with redundant vertices
+        StringBuilder zigzag = new StringBuilder("LINESTRING (");
+        for (int x = 0; x <= 20; x++) {
+            zigzag.append(x == 0 ? "" : ", ").append(x).append(x % 2 == 0 ? " 0" : " 0.3");
+        }
+        populate(false, feature(linesType, "zigzag", "zigzag", 1, zigzag.append(')').toString()),
+                feature(linesType, "straight", "straight", 2,
+                        "LINESTRING (0 10, 5 10, 10 10, 15 10, 20 10)"));
+
+        Map<String, Node> nodes = createSimplifiedIndex(linesName, 0.1, 1, 5);
+        assertEquals(2, nodes.size());
+
+        Node zigzagNode = nodes.get("zigzag");
+        assertEquals(21, simplified(zigzagNode, 0.1).getNumPoints());
+        assertEquals(2, simplified(zigzagNode, 1).getNumPoints());
+        assertEquals(2, simplified(zigzagNode, 5).getNumPoints());
+
+        Node straightNode = nodes.get("straight");
+        for (double tolerance : new double[] { 0.1, 1, 5 }) {
+            Geometry geometry = simplified(straightNode, tolerance);
+            assertEquals(2, geometry.getNumPoints());
+            assertEquals(geom("LINESTRING (0 10, 20 10)"), geometry);
+        }
+    }
+
+    @Test
+    public void testCreateIndexSimplifiedPolygons() throws Exception {
+        insertAndAdd(feature(polyType, "circle", "circle", 1, regularPolygon(0, 0, 10, 32)));
+        commit("polygons");
+
+        Map<String, Node> nodes = createSimplifiedIndex(polyName, 0.1, 1, 5);
+        Node circle = nodes.get("circle");
+        final Geometry level0 = simplified(circle, 0.1);
+        final Geometry level1 = simplified(circle, 1);
+        final Geometry level2 = simplified(circle, 5);
+        assertEquals(33, level0.getNumPoints());
+        assertTrue(level1.getNumPoints() < level0.getNumPoints());
+        assertTrue(level2.getNumPoints() < level1.getNumPoints());
+        // a square, the coarsest level DouglasPeucker can take a closed ring to
+        assertEquals(5, level2.getNumPoints());
+    }
+
+    @Test
+    public void testCreateIndexSimplifiedGeometryCollapsesKeepsPreviousLevel() throws Exception {
+        // at tolerance 1 it simplifies to a square, at tolerance 5 all its vertices are within
+        // tolerance and it collapses
+        final Geometry original = geom(regularPolygon(0, 0, 2, 16));
+        DouglasPeuckerSimplifier simplifier = new DouglasPeuckerSimplifier(original);
+        simplifier.setDistanceTolerance(5);
+        simplifier.setEnsureValid(false);
+        assertTrue(simplifier.getResultGeometry().isEmpty());
+
+        insertAndAdd(feature(polyType, "small", "small", 1, original));
+        commit("polygons");
+
+        Node small = createSimplifiedIndex(polyName, 0.01, 1, 5).get("small");
+        assertEquals(original.getNumPoints(), simplified(small, 0.01).getNumPoints());
+        final Geometry coarse = simplified(small, 1);
+        assertEquals(5, coarse.getNumPoints());
+        assertTrue(coarse.equalsExact(simplified(small, 5)));
+    }
+
     @Test
     public void testCreateIndexFullHistory() {
         Envelope bounds = new Envelope(-180, 180, -90, 90);
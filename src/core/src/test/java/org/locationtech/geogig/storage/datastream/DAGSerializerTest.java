@@ -1,4 +1,4 @@
-package org.locationtech.geogig.tempstorage.rocksdb;
+package org.locationtech.geogig.storage.datastream;
 
 import static org.junit.Assert.assertEquals;
 
@@ -0,0 +1,107 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.fs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.fs.ChangedPathsFile.Filter;
+
+public class ChangedPathsFileTest {
+
+    public @Rule TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testFilter() {
+        Filter filter = Filter.create(Arrays.asList("roads", "roads/1", "buildings/b/2"), false);
+        assertFalse(filter.isTruncated());
+        assertTrue(filter.mightHaveChanged("roads"));
+        assertTrue(filter.mightHaveChanged("roads/1"));
+        // parent paths are added
+        assertTrue(filter.mightHaveChanged("buildings"));
+        assertTrue(filter.mightHaveChanged("buildings/b"));
+        assertTrue(filter.mightHaveChanged("buildings/b/2"));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mightHaveChanged("rivers/" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("too many false positives: " + falsePositives, falsePositives < 50);
+    }
+
+    @Test
+    public void testEmptyFilter() {
+        Filter filter = Filter.create(Collections.emptyList(), false);
+        assertFalse(filter.mightHaveChanged("roads"));
+        assertFalse(filter.mightHaveChanged("roads/1"));
+    }
+
+    @Test
+    public void testTruncatedFilter() {
+        Filter filter = Filter.create(Arrays.asList("roads"), true);
+        assertTrue(filter.isTruncated());
+        assertTrue(filter.mightHaveChanged("roads"));
+        // any feature in a changed tree may have changed
+        assertTrue(filter.mightHaveChanged("roads/1"));
+        assertTrue(filter.mightHaveChanged("roads/2"));
+        assertFalse(filter.mightHaveChanged("buildings"));
+    }
+
+    @Test
+    public void testWriteAndOpen() throws Exception {
+        Path file = tmp.getRoot().toPath().resolve(ChangedPathsFile.FILE_NAME);
+        ObjectId c1 = RevObjectTestSupport.hashString("c1");
+        ObjectId c2 = RevObjectTestSupport.hashString("c2");
+        ObjectId c3 = RevObjectTestSupport.hashString("c3");
+        ObjectId notIndexed = RevObjectTestSupport.hashString("c4");
+
+        Map<ObjectId, Filter> filters = new HashMap<>();
+        filters.put(c1, Filter.create(Arrays.asList("roads/1"), false));
+        filters.put(c2, Filter.create(Arrays.asList("buildings"), true));
+        filters.put(c3, Filter.create(Collections.emptyList(), false));
+        ChangedPathsFile.write(file, filters);
+
+        ChangedPathsFile paths = ChangedPathsFile.open(file).get();
+        assertEquals(3, paths.size());
+        assertTrue(paths.contains(c1));
+        assertFalse(paths.contains(notIndexed));
+
+        assertTrue(paths.mightHaveChanged(c1, "roads"));
+        assertTrue(paths.mightHaveChanged(c1, "roads/1"));
+        assertFalse(paths.mightHaveChanged(c1, "buildings"));
+
+        assertTrue(paths.mightHaveChanged(c2, "buildings/10"));
+        assertFalse(paths.mightHaveChanged(c2, "roads/1"));
+        assertTrue(paths.filter(c2).get().isTruncated());
+
+        assertFalse(paths.mightHaveChanged(c3, "roads"));
+        // commits not in the file might have changed anything
+        assertTrue(paths.mightHaveChanged(notIndexed, "roads"));
+        assertFalse(paths.filter(notIndexed).isPresent());
+
+        Filter reread = paths.filter(c1).get();
+        assertTrue(reread.mightHaveChanged("roads/1"));
+        assertFalse(reread.mightHaveChanged("buildings"));
+    }
+}
@@ -9,14 +9,218 @@
  */
 package org.locationtech.geogig.storage.fs;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
 import org.locationtech.geogig.repository.Platform;
 import org.locationtech.geogig.storage.RefDatabase;
 import org.locationtech.geogig.test.integration.repository.RefDatabaseTest;
 
 public class FileRefDatabaseTest extends RefDatabaseTest {
 
+    private File refsDirectory;
+
     protected @Override RefDatabase createDatabase(Platform platform) throws Exception {
-        return new FileRefDatabase(platform.pwd());
+        refsDirectory = platform.pwd();
+        return new FileRefDatabase(refsDirectory);
+    }
+
+    private Path packedRefsFile() {
+        return refsDirectory.toPath().resolve(PackedRefs.FILE_NAME);
+    }
+
+    private List<String> names(List<Ref> refs) {
+        return refs.stream().map(Ref::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRepack() {
+        FileRefDatabase db = (FileRefDatabase) refDb;
+        ObjectId id = RevObjectTestSupport.hashString("repack");
+        db.putRef("refs/heads/b1", id);
+        db.putRef("refs/heads/b2", id);
+        db.putRef("refs/tags/t1", id);
+        db.putRef("refs/transactions/tx1/refs/heads/b1", id);
+        db.putSymRef(Ref.HEAD, "refs/heads/b1");
+
+        assertEquals(3, db.repack());
+        assertTrue(Files.exists(packedRefsFile()));
+        assertFalse(Files.exists(refsDirectory.toPath().resolve("refs/heads/b1")));
+        assertTrue(Files.exists(
+                refsDirectory.toPath().resolve("refs/transactions/tx1/refs/heads/b1")));
+        assertEquals(0, db.repack());
+
+        assertEquals(id, db.get("refs/heads/b1").get().getObjectId());
+        assertEquals("refs/heads/b1", db.get(Ref.HEAD).get().peel().getName());
+        assertEquals(Arrays.asList("refs/heads/b1", "refs/heads/b2"),
+                names(db.getAll(Ref.HEADS_PREFIX)));
+        assertEquals(4, db.getAll().size());
+    }
+
+    @Test
+    public void testLooseOverridesPacked() {
+        FileRefDatabase db = (FileRefDatabase) refDb;
+        ObjectId id1 = RevObjectTestSupport.hashString("1");
+        ObjectId id2 = RevObjectTestSupport.hashString("2");
+        db.putRef("refs/heads/b1", id1);
+        db.repack();
+        db.putRef("refs/heads/b1", id2);
+        assertEquals(id2, db.get("refs/heads/b1").get().getObjectId());
+        assertEquals(1, db.getAll(Ref.HEADS_PREFIX).size());
+        assertEquals(id2, db.getAll(Ref.HEADS_PREFIX).get(0).getObjectId());
     }
 
+    @Test
+    public void testDeletePacked() {
+        FileRefDatabase db = (FileRefDatabase) refDb;
+        ObjectId id = RevObjectTestSupport.hashString("delete");
+        db.putRef("refs/heads/b1", id);
+        db.putRef("refs/heads/b2", id);
+        db.repack();
+
+        assertTrue(db.delete("refs/heads/b1").oldValue().isPresent());
+        assertFalse(db.get("refs/heads/b1").isPresent());
+        assertEquals(1, db.getAll(Ref.HEADS_PREFIX).size());
+
+        db.deleteAll(Ref.HEADS_PREFIX);
+        assertTrue(db.getAll(Ref.HEADS_PREFIX).isEmpty());
+        assertFalse(Files.exists(packedRefsFile()));
+    }
+
+    @Test
+    public void testAutoRepack() {
+        ObjectId id = RevObjectTestSupport.hashString("auto");
+        for (int i = 0; i < FileRefDatabase.REPACK_THRESHOLD; i++) {
+            refDb.putRef("refs/heads/branch" + i, id);
+        }
+        assertTrue(Files.exists(packedRefsFile()));
+        assertFalse(Files.exists(refsDirectory.toPath().resolve("refs/heads/branch0")));
+        assertEquals(FileRefDatabase.REPACK_THRESHOLD, refDb.getAll(Ref.HEADS_PREFIX).size());
+    }
+
+    @Test
+    public void testSeesChangesFromOtherInstances() {
+        ObjectId id1 = RevObjectTestSupport.hashString("1");
+        ObjectId id2 = RevObjectTestSupport.hashString("2");
+        refDb.putRef("refs/heads/b1", id1);
+
+        FileRefDatabase other = new FileRefDatabase(refsDirectory);
+        other.open();
+        try {
+            assertEquals(id1, other.get("refs/heads/b1").get().getObjectId());
+
+            refDb.putRef("refs/heads/b1", id2);
+            refDb.putRef("refs/heads/b2", id2);
+            assertEquals(id2, other.get("refs/heads/b1").get().getObjectId());
+            assertEquals(2, other.getAll(Ref.HEADS_PREFIX).size());
+
+            other.repack();
+            other.delete("refs/heads/b2");
+            assertEquals(id2, refDb.get("refs/heads/b1").get().getObjectId());
+            assertFalse(refDb.get("refs/heads/b2").isPresent());
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void testPackedRefsMarker() throws Exception {
+        FileRefDatabase db = (FileRefDatabase) refDb;
+        ObjectId id = RevObjectTestSupport.hashString("marker");
+        db.putRef("refs/heads/b1", id);
+        db.repack();
+        for (String namespace : PackedRefs.MARKED_NAMESPACES) {
+            Path marker = refsDirectory.toPath().resolve(namespace)
+                    .resolve(PackedRefs.MARKER_FILE_NAME);
+            assertTrue(Files.exists(marker));
+            // clients unaware of packed refs parse it as a loose ref and fail
+            String contents = new String(Files.readAllBytes(marker), StandardCharsets.UTF_8);
+            try {
+                ObjectId.valueOf(contents);
+                fail("expected IAE");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("packed-refs v" + PackedRefs.VERSION));
+            }
+        }
+        assertEquals(Arrays.asList("refs/heads/b1"), names(db.getAll(Ref.HEADS_PREFIX)));
+
+        FileRefDatabase other = new FileRefDatabase(refsDirectory);
+        other.open();
+        try {
+            assertEquals(Arrays.asList("refs/heads/b1"), names(other.getAll(Ref.HEADS_PREFIX)));
+        } finally {
+            other.close();
+        }
+
+        db.delete("refs/heads/b1");
+        assertFalse(Files.exists(packedRefsFile()));
+        assertFalse(Files.exists(refsDirectory.toPath().resolve(Ref.HEADS_PREFIX)
+                .resolve(PackedRefs.MARKER_FILE_NAME)));
+    }
+
+    @Test
+    public void testUnsupportedPackedRefsVersion() throws Exception {
+        Files.write(packedRefsFile(),
+                "# geogig packed-refs v2\nrefs/heads/b1 abc\n".getBytes(StandardCharsets.UTF_8));
+        FileRefDatabase other = new FileRefDatabase(refsDirectory);
+        try {
+            other.open();
+            fail("expected ISE");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(),
+                    e.getMessage().contains("Unsupported packed refs format version 2"));
+        }
+    }
+
+    @Test
+    public void testConcurrentChangesFromOtherInstances() throws Exception {
+        final int numInstances = 4;
+        final int refsPerInstance = 50;
+        final ObjectId id = RevObjectTestSupport.hashString("concurrent");
+        List<FileRefDatabase> dbs = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(numInstances);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < numInstances; i++) {
+                FileRefDatabase db = new FileRefDatabase(refsDirectory);
+                db.open();
+                dbs.add(db);
+                final int instance = i;
+                futures.add(executor.submit(() -> {
+                    for (int r = 0; r < refsPerInstance; r++) {
+                        db.putRef(String.format("refs/heads/db%d/branch%d", instance, r), id);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+            // no instance missed the changes made by the others
+            for (FileRefDatabase db : dbs) {
+                assertEquals(numInstances * refsPerInstance,
+                        db.getAll(Ref.HEADS_PREFIX).size());
+            }
+        } finally {
+            executor.shutdownNow();
+            dbs.forEach(FileRefDatabase::close);
+        }
+    }
 }
@@ -13,6 +13,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import java.io.File;
 import java.io.IOException;
@@ -20,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -40,6 +45,7 @@ import org.locationtech.geogig.storage.GraphDatabase.GraphNode;
 import org.locationtech.geogig.test.TestPlatform;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * Abstract test suite for {@link GraphDatabase} implementations.
@@ -195,6 +201,120 @@ public abstract class GraphDatabaseTest {
         assertEquals(1, database.getDepth(commit11));
     }
 
+    @Test
+    public void testGetAncestors() {
+        // root <- c1 <- c2 <- c4
+        // root <- c3 <-------/
+        ObjectId rootId = RevObjectTestSupport.hashString("root");
+        database.put(rootId, Collections.emptyList());
+        ObjectId commit1 = RevObjectTestSupport.hashString("c1");
+        database.put(commit1, ImmutableList.of(rootId));
+        ObjectId commit2 = RevObjectTestSupport.hashString("c2");
+        database.put(commit2, ImmutableList.of(commit1));
+        ObjectId commit3 = RevObjectTestSupport.hashString("c3");
+        database.put(commit3, ImmutableList.of(rootId));
+        ObjectId commit4 = RevObjectTestSupport.hashString("c4");
+        database.put(commit4, ImmutableList.of(commit2, commit3));
+
+        List<ObjectId> ancestors = database.getAncestors(ImmutableList.of(commit4), 100);
+        assertEquals(5, ancestors.size());
+        assertEquals(ImmutableSet.of(rootId, commit1, commit2, commit3, commit4),
+                ImmutableSet.copyOf(ancestors));
+        assertEquals(commit4, ancestors.get(0));
+
+        ancestors = database.getAncestors(ImmutableList.of(commit4), 3);
+        assertEquals(ImmutableSet.of(commit4, commit2, commit3), ImmutableSet.copyOf(ancestors));
+
+        ancestors = database.getAncestors(ImmutableList.of(commit1, commit3), 100);
+        assertEquals(ImmutableSet.of(rootId, commit1, commit3), ImmutableSet.copyOf(ancestors));
+
+        assertTrue(database.getAncestors(ImmutableList.of(commit4), 0).isEmpty());
+        assertTrue(database.getAncestors(Collections.emptyList(), 10).isEmpty());
+    }
+
+    @Test
+    public void testFindLowestCommonAncestor() {
+        // root <- c1 <- c2 <- c3 <- c5
+        // root <- c1 <- c4 <-------/
+        // root <- c6
+        // orphan
+        ObjectId rootId = RevObjectTestSupport.hashString("root");
+        database.put(rootId, Collections.emptyList());
+        ObjectId commit1 = RevObjectTestSupport.hashString("c1");
+        database.put(commit1, ImmutableList.of(rootId));
+        ObjectId commit2 = RevObjectTestSupport.hashString("c2");
+        database.put(commit2, ImmutableList.of(commit1));
+        ObjectId commit3 = RevObjectTestSupport.hashString("c3");
+        database.put(commit3, ImmutableList.of(commit2));
+        ObjectId commit4 = RevObjectTestSupport.hashString("c4");
+        database.put(commit4, ImmutableList.of(commit1));
+        ObjectId commit5 = RevObjectTestSupport.hashString("c5");
+        database.put(commit5, ImmutableList.of(commit3, commit4));
+        ObjectId commit6 = RevObjectTestSupport.hashString("c6");
+        database.put(commit6, ImmutableList.of(rootId));
+        ObjectId orphan = RevObjectTestSupport.hashString("orphan");
+        database.put(orphan, Collections.emptyList());
+
+        assertEquals(Optional.of(commit1), database.findLowestCommonAncestor(commit3, commit4));
+        assertEquals(Optional.of(commit1), database.findLowestCommonAncestor(commit4, commit3));
+        assertEquals(Optional.of(commit4), database.findLowestCommonAncestor(commit5, commit4));
+        assertEquals(Optional.of(commit2), database.findLowestCommonAncestor(commit2, commit5));
+        assertEquals(Optional.of(rootId), database.findLowestCommonAncestor(commit5, commit6));
+        assertEquals(Optional.of(commit5), database.findLowestCommonAncestor(commit5, commit5));
+        assertEquals(Optional.empty(), database.findLowestCommonAncestor(commit5, orphan));
+    }
+
+    @Test
+    public void testFindLowestCommonAncestorCrissCross() {
+        // root <- b <- m1 <- left
+        // root <- c <- m2 <- right
+        // m1 and m2 merge b and c in opposite orders, so both are best common ancestors
+        ObjectId rootId = RevObjectTestSupport.hashString("root");
+        database.put(rootId, Collections.emptyList());
+        // ids differing in the sign bit of their first bytes, lowest one is c
+        ObjectId b = ObjectId.valueOf("8000000000000000000000000000000000000000");
+        database.put(b, ImmutableList.of(rootId));
+        ObjectId c = ObjectId.valueOf("7fffffffffffffffffffffffffffffffffffffff");
+        database.put(c, ImmutableList.of(rootId));
+        ObjectId m1 = RevObjectTestSupport.hashString("m1");
+        database.put(m1, ImmutableList.of(b, c));
+        ObjectId m2 = RevObjectTestSupport.hashString("m2");
+        database.put(m2, ImmutableList.of(c, b));
+        ObjectId left = RevObjectTestSupport.hashString("left");
+        database.put(left, ImmutableList.of(m1));
+        ObjectId right = RevObjectTestSupport.hashString("right");
+        database.put(right, ImmutableList.of(m2));
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Optional.of(c), database.findLowestCommonAncestor(left, right));
+            assertEquals(Optional.of(c), database.findLowestCommonAncestor(right, left));
+            assertEquals(Optional.of(c), database.findLowestCommonAncestor(m1, m2));
+        }
+    }
+
+    @Test
+    public void testFindLowestCommonAncestorStopsAtMergeBase() {
+        // a long linear history with a branch off a recent commit, the merge base shall be found
+        // without walking the whole history
+        final List<ObjectId> history = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ObjectId id = RevObjectTestSupport.hashString("c" + i);
+            database.put(id, history.isEmpty() ? Collections.emptyList()
+                    : ImmutableList.of(history.get(i - 1)));
+            history.add(id);
+        }
+        final ObjectId tip = history.get(999);
+        final ObjectId base = history.get(990);
+        final ObjectId branch = RevObjectTestSupport.hashString("branch");
+        database.put(branch, ImmutableList.of(base));
+
+        GraphDatabase graph = spy(database);
+        assertEquals(Optional.of(base), graph.findLowestCommonAncestor(tip, branch));
+        assertEquals(Optional.of(base), graph.findLowestCommonAncestor(branch, tip));
+        assertEquals(Optional.of(base), graph.findLowestCommonAncestor(tip, base));
+        verify(graph, atMost(3 * 30)).getParents(any());
+    }
+
     @Test
     public void testProperties() throws IOException {
         ObjectId rootId = RevObjectTestSupport.hashString("root");
@@ -10,6 +10,7 @@
 package org.locationtech.geogig.test.integration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -19,7 +20,9 @@ import java.util.Map;
 import org.junit.Test;
 import org.locationtech.geogig.feature.Feature;
 import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.porcelain.BlameException;
 import org.locationtech.geogig.porcelain.BlameException.StatusCode;
 import org.locationtech.geogig.porcelain.BlameOp;
@@ -125,6 +128,36 @@ public class BlameOpTest extends RepositoryTestCase {
         }
     }
 
+    @Test
+    public void testBlameAcrossHistoryBatches() throws Exception {
+        insertAndAdd(points1);
+        RevCommit firstCommit = repo.command(CommitOp.class).call();
+        // enough commits for the history to be walked in several batches
+        RevCommit lastIpCommit = null;
+        Feature lastIpChange = null;
+        for (int i = 1; i <= 40; i++) {
+            lastIpChange = feature(pointsType, idP1, "StringProp1_1", Integer.valueOf(1000 + i),
+                    "POINT(1 1)");
+            insertAndAdd(lastIpChange);
+            lastIpCommit = repo.command(CommitOp.class).call();
+        }
+        Feature spChange = feature(pointsType, idP1, "StringProp1_changed",
+                lastIpChange.getAttribute("ip"), "POINT(1 1)");
+        insertAndAdd(spChange);
+        RevCommit lastCommit = repo.command(CommitOp.class).call();
+
+        String path = NodeRef.appendChild(pointsName, idP1);
+        BlameReport report = repo.command(BlameOp.class).setPath(path).call();
+        Map<String, ValueAndCommit> changes = report.getChanges();
+        assertEquals(3, changes.size());
+        assertEquals(lastCommit, changes.get("sp").commit);
+        assertEquals(lastIpCommit, changes.get("ip").commit);
+        assertEquals(firstCommit, changes.get("pp").commit);
+        assertEquals(spChange.getAttribute("sp"), changes.get("sp").value.get());
+        assertEquals(lastIpChange.getAttribute("ip"), changes.get("ip").value.get());
+        assertEquals(points1.getAttribute("pp"), changes.get("pp").value.get());
+    }
+
     @Test
     public void testBlameWithWrongFeaturePath() throws Exception {
         insertAndAdd(points1);
@@ -151,4 +184,19 @@ public class BlameOpTest extends RepositoryTestCase {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testBlameWithMissingFeatureObject() throws Exception {
+        insertAndAdd(points1);
+        repo.command(CommitOp.class).call();
+        ObjectId missing = RevFeature.builder().build(points1).getId();
+        insertAndAdd(points1_modified);
+        repo.command(CommitOp.class).call();
+        repo.context().objectDatabase().delete(missing);
+
+        String path = NodeRef.appendChild(pointsName, idP1);
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> repo.command(BlameOp.class).setPath(path).call());
+        assertTrue(e.getMessage(), e.getMessage().contains("object not found: " + missing));
+    }
+
+}
@@ -19,18 +19,22 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.locationtech.geogig.porcelain.CheckoutResult.Results.CHECKOUT_LOCAL_BRANCH;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
+import org.junit.Assume;
 import org.junit.Test;
 import org.locationtech.geogig.dsl.Commands;
 import org.locationtech.geogig.dsl.Geogig;
@@ -40,6 +44,7 @@ import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevCommit;
 import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.plumbing.WriteChangedPathsOp;
 import org.locationtech.geogig.porcelain.BranchCreateOp;
 import org.locationtech.geogig.porcelain.CheckoutOp;
 import org.locationtech.geogig.porcelain.CommitOp;
@@ -50,6 +55,8 @@ import org.locationtech.geogig.porcelain.ResetOp;
 import org.locationtech.geogig.repository.DefaultProgressListener;
 import org.locationtech.geogig.repository.Platform;
 import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.fs.ChangedPathsFile;
+import org.locationtech.geogig.storage.fs.ChangedPathsFile.Filter;
 
 import com.google.common.base.Suppliers;
 import com.google.common.collect.Iterators;
@@ -779,4 +786,46 @@ public class LogOpTest extends RepositoryTestCase {
         assertFalse(iterator.hasNext());
     }
 
+    @Test
+    public void testPathFilterWithChangedPathFilters() throws Exception {
+        final Path filtersFile = ChangedPathsFile.locate(repo).orElse(null);
+        Assume.assumeTrue("changed path filters need a file based repository",
+                filtersFile != null);
+
+        List<RevCommit> commits = new ArrayList<>();
+        for (Feature f : Arrays.asList(points1, lines1, points2, lines2, points3, lines3)) {
+            insertAndAdd(f);
+            commits.add(repo.command(CommitOp.class).setMessage(f.getId()).call());
+        }
+        final String featurePath = NodeRef.appendChild(linesName, lines1.getId());
+        final List<String> paths = Arrays.asList(featurePath, pointsName);
+
+        // no filters file, every commit's tree is checked
+        Map<String, List<RevCommit>> expected = new HashMap<>();
+        for (String path : paths) {
+            expected.put(path, toList(repo.command(LogOp.class).addPath(path).call()));
+        }
+        assertEquals(1, expected.get(featurePath).size());
+        assertEquals(3, expected.get(pointsName).size());
+
+        assertEquals(commits.size(), repo.command(WriteChangedPathsOp.class).call().intValue());
+        final ChangedPathsFile filters = ChangedPathsFile.open(filtersFile).get();
+        for (String path : paths) {
+            long skipped = commits.stream().map(RevCommit::getId)
+                    .filter(id -> !filters.mightHaveChanged(id, path)).count();
+            assertTrue(path, skipped > 0);
+            assertEquals(path, expected.get(path),
+                    toList(repo.command(LogOp.class).addPath(path).call()));
+        }
+
+        // commits the filters say didn't change a path are discarded without loading their trees
+        Map<ObjectId, Filter> empty = new HashMap<>();
+        commits.forEach(c -> empty.put(c.getId(), Filter.create(Collections.emptySet(), false)));
+        ChangedPathsFile.write(filtersFile, empty);
+        for (String path : paths) {
+            assertEquals(path, Collections.emptyList(),
+                    toList(repo.command(LogOp.class).addPath(path).call()));
+        }
+    }
+
 }
@@ -16,10 +16,12 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.locationtech.geogig.model.NodeRef.appendChild;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import org.junit.Test;
 import org.locationtech.geogig.feature.Feature;
@@ -28,6 +30,7 @@ import org.locationtech.geogig.model.DiffEntry;
 import org.locationtech.geogig.model.Node;
 import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevObjectTestUtil;
 import org.locationtech.geogig.model.RevTree;
@@ -116,6 +119,80 @@ public class WorkingTreeTest extends RepositoryTestCase {
                 workTree.findUnstaged(appendChild(pointsName, idP3)).get().getObjectId());
     }
 
+    @Test
+    public void testInsertPipelined() throws Exception {
+        final List<Feature> features = points(5_000);
+
+        ObjectId root = workTree.insert(features.iterator(), this::featureInfo,
+                new DefaultProgressListener());
+
+        RevTree workHead = workTree.getTree();
+        assertEquals(root, workHead.getId());
+        assertEquals(features.size(), workHead.size());
+        for (Feature f : features) {
+            ObjectId expected = RevFeature.builder().build(f).getId();
+            assertEquals(expected, workTree.findUnstaged(appendChild(pointsName, f.getId())).get()
+                    .getObjectId());
+        }
+    }
+
+    @Test
+    public void testInsertPipelinedAbortsOnError() throws Exception {
+        insert(points1);
+        final ObjectId workHead = workTree.getTree().getId();
+        final List<Feature> features = points(5_000);
+        Function<Feature, FeatureInfo> failing = f -> {
+            if (f.getId().equals("p2500")) {
+                throw new IllegalStateException("expected");
+            }
+            return featureInfo(f);
+        };
+        try {
+            workTree.insert(features.iterator(), failing, new DefaultProgressListener());
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("expected", e.getMessage());
+        }
+        assertEquals(workHead, workTree.getTree().getId());
+    }
+
+    @Test
+    public void testInsertPipelinedDuplicatePathsLastWins() throws Exception {
+        final List<Feature> original = points(5_000);
+        final List<Feature> features = new ArrayList<>();
+        final List<Feature> later = new ArrayList<>();
+        final List<Feature> expected = new ArrayList<>(original);
+        // a duplicate for every other feature, some in the same batch, most in a later one
+        for (int i = 0; i < original.size(); i++) {
+            features.add(original.get(i));
+            if (i % 2 == 0) {
+                Feature f = feature(pointsType, "p" + i, "modified_" + i, Integer.valueOf(-i),
+                        "POINT(" + i + " 0)");
+                (i < 1_000 ? features : later).add(f);
+                expected.set(i, f);
+            }
+        }
+        features.addAll(later);
+
+        workTree.insert(features.iterator(), this::featureInfo, new DefaultProgressListener());
+
+        assertEquals(original.size(), workTree.getTree().size());
+        for (Feature f : expected) {
+            ObjectId expectedId = RevFeature.builder().build(f).getId();
+            assertEquals(expectedId, workTree.findUnstaged(appendChild(pointsName, f.getId()))
+                    .get().getObjectId());
+        }
+    }
+
+    private List<Feature> points(int count) {
+        List<Feature> features = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            features.add(feature(pointsType, "p" + i, "StringProp1_" + i, Integer.valueOf(i),
+                    "POINT(" + i + " " + i + ")"));
+        }
+        return features;
+    }
+
     @Test
     public void testInsertCollectionNullCollectionSize() throws Exception {
         List<Feature> featureList = new LinkedList<Feature>();
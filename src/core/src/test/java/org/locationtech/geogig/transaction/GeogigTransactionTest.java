@@ -17,18 +17,31 @@ import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.NodeRef;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.plumbing.ConcurrentRefUpdateException;
 import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.plumbing.RevObjectParse;
 import org.locationtech.geogig.plumbing.UpdateRef;
+import org.locationtech.geogig.plumbing.UpdateRefs;
 import org.locationtech.geogig.plumbing.merge.ConflictsCountOp;
 import org.locationtech.geogig.porcelain.BranchCreateOp;
 import org.locationtech.geogig.porcelain.CheckoutOp;
@@ -36,6 +49,8 @@ import org.locationtech.geogig.porcelain.CommitOp;
 import org.locationtech.geogig.porcelain.ConflictsException;
 import org.locationtech.geogig.porcelain.LogOp;
 import org.locationtech.geogig.porcelain.MergeOp;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.repository.ProgressListener;
 import org.locationtech.geogig.test.integration.RepositoryTestCase;
 
 import com.google.common.collect.Lists;
@@ -569,4 +584,144 @@ public class GeogigTransactionTest extends RepositoryTestCase {
         TransactionEnd endTransaction = repo.command(TransactionEnd.class);
         endTransaction.setCancel(false).setTransaction(txNew.get()).call();
     }
+
+    @Test
+    public void testConcurrentTransactionsArePublished() throws Exception {
+        insertAndAdd(points1);
+        repo.command(CommitOp.class).call();
+
+        // A writer only fails to publish if another one published in between, so none can be
+        // retried more than numTransactions - 1 times regardless of how threads interleave
+        final int numTransactions = 8;
+        assertTrue(numTransactions <= TransactionEnd.MAX_ATTEMPTS);
+
+        List<Feature> features = new ArrayList<>();
+        List<GeogigTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < numTransactions; i++) {
+            Feature f = feature(pointsType, "Points.tx" + i, "StringProp1_tx" + i,
+                    Integer.valueOf(i), "POINT(" + i + " " + i + ")");
+            GeogigTransaction tx = repo.command(TransactionBegin.class).call();
+            insertAndAdd(tx, f);
+            tx.command(CommitOp.class).setMessage(f.getId()).call();
+            features.add(f);
+            transactions.add(tx);
+        }
+        // release all writers at once, so they all compute their first attempt against the
+        // same repository refs and contend to publish them
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(numTransactions);
+        try {
+            List<Future<?>> commits = new ArrayList<>();
+            for (GeogigTransaction tx : transactions) {
+                commits.add(executor.submit(() -> {
+                    start.await();
+                    repo.command(TransactionEnd.class).setTransaction(tx).call();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> commit : commits) {
+                commit.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Feature f : features) {
+            String path = NodeRef.appendChild(pointsName, f.getId());
+            assertTrue(path, repo.command(RevObjectParse.class).setRefSpec("HEAD:" + path)
+                    .call().isPresent());
+        }
+        assertTrue(repo.command(RevObjectParse.class)
+                .setRefSpec("HEAD:" + NodeRef.appendChild(pointsName, idP1)).call().isPresent());
+    }
+
+    /**
+     * Sets up a transaction whose branch changed outside of it, and returns a progress listener
+     * that commits to the branch outside the transaction again the first time a merge or rebase
+     * is started, forcing {@link TransactionEnd} to retry
+     */
+    private ProgressListener commitOutsideOnFirstMerge(AtomicReference<RevCommit> outsideTip)
+            throws Exception {
+        insertAndAdd(points2);
+        repo.command(CommitOp.class).setMessage("outside 1").call();
+        return new DefaultProgressListener() {
+            public @Override void started() {
+                super.started();
+                if (outsideTip.get() == null) {
+                    try {
+                        insertAndAdd(points3);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                    outsideTip.set(repo.command(CommitOp.class).setMessage("outside 2").call());
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testRetriedMergeStartsFromTransactionTip() throws Exception {
+        insertAndAdd(points1);
+        repo.command(CommitOp.class).setMessage("base").call();
+
+        GeogigTransaction tx = repo.command(TransactionBegin.class).call();
+        insertAndAdd(tx, lines1);
+        final RevCommit txTip = tx.command(CommitOp.class).setMessage("tx").call();
+
+        AtomicReference<RevCommit> outsideTip = new AtomicReference<>();
+        ProgressListener listener = commitOutsideOnFirstMerge(outsideTip);
+        repo.command(TransactionEnd.class).setTransaction(tx).setProgressListener(listener)
+                .call();
+        assertNotNull("retry not forced", outsideTip.get());
+
+        RevCommit published = repo.command(RevObjectParse.class).setRefSpec("HEAD")
+                .call(RevCommit.class).get();
+        assertEquals(Arrays.asList(txTip.getId(), outsideTip.get().getId()),
+                published.getParentIds());
+    }
+
+    @Test
+    public void testRetriedRebaseStartsFromTransactionTip() throws Exception {
+        insertAndAdd(points1);
+        repo.command(CommitOp.class).setMessage("base").call();
+
+        GeogigTransaction tx = repo.command(TransactionBegin.class).call();
+        insertAndAdd(tx, lines1);
+        tx.command(CommitOp.class).setMessage("tx").call();
+
+        AtomicReference<RevCommit> outsideTip = new AtomicReference<>();
+        ProgressListener listener = commitOutsideOnFirstMerge(outsideTip);
+        repo.command(TransactionEnd.class).setTransaction(tx).setRebase(true)
+                .setProgressListener(listener).call();
+        assertNotNull("retry not forced", outsideTip.get());
+
+        RevCommit published = repo.command(RevObjectParse.class).setRefSpec("HEAD")
+                .call(RevCommit.class).get();
+        assertEquals("tx", published.getMessage());
+        assertEquals(Collections.singletonList(outsideTip.get().getId()),
+                published.getParentIds());
+    }
+
+    @Test
+    public void testUpdateRefsExpectedValueChanged() throws Exception {
+        insertAndAdd(points1);
+        RevCommit commit1 = repo.command(CommitOp.class).call();
+        insertAndAdd(points2);
+        RevCommit commit2 = repo.command(CommitOp.class).call();
+
+        final String branch = "refs/heads/master";
+        Optional<Ref> stale = Optional.of(new Ref(branch, commit1.getId()));
+        UpdateRefs cmd = repo.command(UpdateRefs.class).setReason("test")
+                .expect(branch, stale).add(branch, commit1.getId());
+        assertThrows(ConcurrentRefUpdateException.class, cmd::call);
+        assertEquals(commit2.getId(),
+                repo.command(RefParse.class).setName(branch).call().get().getObjectId());
+
+        Optional<Ref> current = Optional.of(new Ref(branch, commit2.getId()));
+        repo.command(UpdateRefs.class).setReason("test").expect(branch, current)
+                .add(branch, commit1.getId()).call();
+        assertEquals(commit1.getId(),
+                repo.command(RefParse.class).setName(branch).call().get().getObjectId());
+    }
 }
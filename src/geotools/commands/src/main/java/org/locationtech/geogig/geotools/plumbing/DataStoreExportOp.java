@@ -80,6 +80,11 @@ public abstract class DataStoreExportOp<T> extends AbstractGeoGigOp<T> {
     @Nullable
     private ReferencedEnvelope bboxFilter;
 
+    @Nullable
+    private Integer threads;
+
+    private boolean preserveOrder = true;
+
     public DataStoreExportOp<T> setTarget(Supplier<DataStore> supplier) {
         this.dataStore = supplier;
         return this;
@@ -115,6 +120,24 @@ public abstract class DataStoreExportOp<T> extends AbstractGeoGigOp<T> {
         return this;
     }
 
+    /**
+     * @param threads Optional number of threads to export each layer with, defaults to the
+     *        {@link ExportOp#setThreads(int) ExportOp default}
+     */
+    public DataStoreExportOp<T> setThreads(@Nullable Integer threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param preserveOrder whether to export each layer's features in tree order, defaults to
+     *        {@code true}
+     */
+    public DataStoreExportOp<T> setPreserveOrder(boolean preserveOrder) {
+        this.preserveOrder = preserveOrder;
+        return this;
+    }
+
     protected @Override T _call() {
 
         final ProgressListener progress = getProgressListener();
@@ -171,7 +194,12 @@ public abstract class DataStoreExportOp<T> extends AbstractGeoGigOp<T> {
                 .setFeatureStore(featureStore)//
                 .setPath(treeSpec)//
                 .setTransactional(true)//
-                .setBBoxFilter(this.bboxFilter);//
+                .setBBoxFilter(this.bboxFilter)//
+                .setPreserveOrder(this.preserveOrder);
+
+        if (threads != null) {
+            cmd.setThreads(threads.intValue());
+        }
 
         Function<Feature, Optional<Feature>> transformingFunction = getTransformingFunction(
                 featureType);
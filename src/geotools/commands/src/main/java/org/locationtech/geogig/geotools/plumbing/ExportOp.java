@@ -12,6 +12,7 @@ package org.locationtech.geogig.geotools.plumbing;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -22,6 +23,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.data.DataUtilities;
 import org.geotools.data.DefaultTransaction;
 import org.geotools.data.Transaction;
 import org.geotools.data.simple.SimpleFeatureStore;
@@ -85,6 +87,11 @@ import com.google.common.collect.Sets;
 @Hookable(name = "export")
 public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
 
+    /**
+     * Number of features added to the target store at once by multi-threaded exports
+     */
+    public static final int BATCH_SIZE = 10_000;
+
     private static final Function<Feature, Optional<Feature>> IDENTITY = (feature) -> Optional
             .ofNullable(feature);
 
@@ -104,6 +111,10 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
 
     private ReferencedEnvelope bboxFilter;
 
+    private int threads = 1;
+
+    private boolean preserveOrder = true;
+
     /**
      * Constructs a new export operation.
      */
@@ -141,49 +152,12 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
         progressListener.setDescription(
                 "Exporting from " + path + " to " + targetStore.getName().getLocalPart() + "... ");
 
-        final ReferencedEnvelope bboxFilter = this.bboxFilter;
-        final Iterator<SimpleFeature> filtered;
-        {
-            final Iterator<SimpleFeature> plainFeatures = getFeatures(typeTree, database,
-                    defaultMetadataId, bboxFilter, progressListener);
-
-            Iterator<SimpleFeature> adaptedFeatures = adaptToArguments(plainFeatures,
-                    defaultMetadataId);
-
-            Iterator<Optional<Feature>> transformed = Iterators.transform(adaptedFeatures,
-                    ExportOp.this.function::apply);
-
-            Iterator<SimpleFeature> filteredIter = Iterators.filter(
-                    Iterators.transform(transformed, f -> (SimpleFeature) f.orElse(null)),
-                    Predicates.notNull());
-
-            // check the resulting schema has something to contribute
-            PeekingIterator<SimpleFeature> peekingIt = Iterators.peekingIterator(filteredIter);
-            if (peekingIt.hasNext()) {
-                SimpleFeature peek = peekingIt.peek();
-                Set<String> sourceAtts = new HashSet<String>(
-                        Lists.transform(peek.getFeatureType().getAttributeDescriptors(),
-                                AttributeDescriptor::getLocalName));
-                Set<String> targetAtts = new HashSet<String>(
-                        Lists.transform(targetStore.getSchema().getAttributeDescriptors(),
-                                AttributeDescriptor::getLocalName));
-                if (Sets.intersection(sourceAtts, targetAtts).isEmpty()) {
-                    throw new GeoToolsOpException(StatusCode.UNABLE_TO_ADD,
-                            "No common attributes between source and target feature types");
-                }
-            }
+        final Predicate<Bounded> boundsFilter = bboxFilter == null ? null
+                : new BBoxPredicate(database, bboxFilter, defaultMetadataId);
+        final Function<SimpleFeature, Optional<SimpleFeature>> converter = converter(
+                defaultMetadataId);
 
-            filtered = peekingIt;
-        }
-        FeatureCollection<SimpleFeatureType, SimpleFeature> asFeatureCollection = new BaseFeatureCollection<SimpleFeatureType, SimpleFeature>() {
-
-            public @Override FeatureIterator<SimpleFeature> features() {
-
-                return new DelegateFeatureIterator<SimpleFeature>(filtered);
-            }
-        };
-
-        // add the feature collection to the feature store
+        // add the features to the feature store
         final Transaction transaction;
         if (transactional) {
             transaction = new DefaultTransaction("create");
@@ -193,13 +167,13 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
         try {
             targetStore.setTransaction(transaction);
             try {
-                targetStore.addFeatures(asFeatureCollection);
-                // ArrayList al = new ArrayList();
-                // while (filtered.hasNext())
-                // al.add(filtered.next());
-                // FeatureReader<SimpleFeatureType, SimpleFeature> reader = new
-                // IteratorBackedFeatureReader(null,filtered );
-                // targetStore.setFeatures(reader);
+                if (threads > 1) {
+                    exportParallel(database, typeTree, defaultMetadataId, boundsFilter, converter,
+                            targetStore, progressListener);
+                } else {
+                    exportSequential(database, typeTree, defaultMetadataId, boundsFilter,
+                            converter, targetStore, progressListener);
+                }
                 transaction.commit();
             } catch (final Exception e) {
                 if (transactional) {
@@ -220,9 +194,79 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
 
     }
 
+    private void exportSequential(final ObjectDatabase database, final RevTree typeTree,
+            final ObjectId defaultMetadataId, final @Nullable Predicate<Bounded> boundsFilter,
+            final Function<SimpleFeature, Optional<SimpleFeature>> converter,
+            final SimpleFeatureStore targetStore, final ProgressListener progressListener)
+            throws IOException {
+
+        final Iterator<SimpleFeature> plainFeatures = getFeatures(typeTree, database,
+                defaultMetadataId, boundsFilter, progressListener);
+
+        Iterator<SimpleFeature> filteredIter = Iterators.filter(
+                Iterators.transform(plainFeatures, f -> converter.apply(f).orElse(null)),
+                Predicates.notNull());
+
+        // check the resulting schema has something to contribute
+        PeekingIterator<SimpleFeature> peekingIt = Iterators.peekingIterator(filteredIter);
+        if (peekingIt.hasNext()) {
+            checkCommonAttributes(peekingIt.peek(), targetStore);
+        }
+        final Iterator<SimpleFeature> filtered = peekingIt;
+
+        FeatureCollection<SimpleFeatureType, SimpleFeature> asFeatureCollection = new BaseFeatureCollection<SimpleFeatureType, SimpleFeature>() {
+
+            public @Override FeatureIterator<SimpleFeature> features() {
+
+                return new DelegateFeatureIterator<SimpleFeature>(filtered);
+            }
+        };
+        targetStore.addFeatures(asFeatureCollection);
+    }
+
+    /**
+     * Reads and converts the features on {@link #setThreads(int) threads} worker threads, and adds
+     * them to the target store in batches of {@link #BATCH_SIZE} features, all within the same
+     * transaction.
+     */
+    private void exportParallel(final ObjectDatabase database, final RevTree typeTree,
+            final ObjectId defaultMetadataId, final @Nullable Predicate<Bounded> boundsFilter,
+            final Function<SimpleFeature, Optional<SimpleFeature>> converter,
+            final SimpleFeatureStore targetStore, final ProgressListener progressListener) {
+
+        progressListener.setMaxProgress(typeTree.size());
+        progressListener.setProgress(0);
+
+        FeatureExportPipeline pipeline = new FeatureExportPipeline(database, typeTree,
+                defaultMetadataId, boundsFilter, converter, progressListener, threads,
+                BATCH_SIZE, preserveOrder);
+
+        pipeline.run(batch -> {
+            checkCommonAttributes(batch.get(0), targetStore);
+            try {
+                targetStore.addFeatures(DataUtilities.collection(batch));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void checkCommonAttributes(SimpleFeature feature, SimpleFeatureStore targetStore) {
+        Set<String> sourceAtts = new HashSet<String>(
+                Lists.transform(feature.getFeatureType().getAttributeDescriptors(),
+                        AttributeDescriptor::getLocalName));
+        Set<String> targetAtts = new HashSet<String>(
+                Lists.transform(targetStore.getSchema().getAttributeDescriptors(),
+                        AttributeDescriptor::getLocalName));
+        if (Sets.intersection(sourceAtts, targetAtts).isEmpty()) {
+            throw new GeoToolsOpException(StatusCode.UNABLE_TO_ADD,
+                    "No common attributes between source and target feature types");
+        }
+    }
+
     private static AutoCloseableIterator<SimpleFeature> getFeatures(final RevTree typeTree,
             final ObjectDatabase database, final ObjectId defaultMetadataId,
-            final @Nullable ReferencedEnvelope bboxFilter,
+            final @Nullable Predicate<Bounded> boundsFilter,
             final ProgressListener progressListener) {
 
         Iterator<NodeRef> nodes;
@@ -230,10 +274,8 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
             DepthTreeIterator iterator = new DepthTreeIterator("", defaultMetadataId, typeTree,
                     database, Strategy.FEATURES_ONLY);
 
-            if (bboxFilter != null) {
-                Predicate<Bounded> bboxPredicate = new BBoxPredicate(database, bboxFilter,
-                        defaultMetadataId);
-                iterator.setBoundsFilter(bboxPredicate);
+            if (boundsFilter != null) {
+                iterator.setBoundsFilter(boundsFilter);
             }
             nodes = iterator;
         }
@@ -259,75 +301,77 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
         return simpleFeatures;
     }
 
-    private Iterator<SimpleFeature> adaptToArguments(final Iterator<SimpleFeature> plainFeatures,
+    /**
+     * @return the function that adapts each exported feature to the arguments of this operation
+     *         and applies the {@link #setFeatureTypeConversionFunction conversion function} to
+     *         it, or returns empty if the feature is not to be exported
+     */
+    private Function<SimpleFeature, Optional<SimpleFeature>> converter(
             final ObjectId defaultMetadataId) {
+        final Function<SimpleFeature, Optional<SimpleFeature>> adapter = adaptToArguments(
+                defaultMetadataId);
+        final Function<Feature, Optional<Feature>> function = this.function;
+        return feature -> adapter.apply(feature).flatMap(function).map(SimpleFeature.class::cast);
+    }
 
-        Iterator<SimpleFeature> features = plainFeatures;
+    private Function<SimpleFeature, Optional<SimpleFeature>> adaptToArguments(
+            final ObjectId defaultMetadataId) {
 
         if (alter) {
             ObjectId featureTypeId = this.filterFeatureTypeId == null ? defaultMetadataId
                     : this.filterFeatureTypeId;
-            features = alter(features, featureTypeId);
+            return alter(featureTypeId);
 
         } else if (forceExportDefaultFeatureType) {
 
-            features = filter(features, defaultMetadataId);
+            return filter(defaultMetadataId);
 
         } else if (this.filterFeatureTypeId != null) {
 
-            features = filter(features, filterFeatureTypeId);
-
-        } else {
-
-            features = force(features, defaultMetadataId);
+            return filter(filterFeatureTypeId);
 
         }
-
-        return features;
+        return force(defaultMetadataId);
     }
 
-    private Iterator<SimpleFeature> force(Iterator<SimpleFeature> plainFeatures,
+    private Function<SimpleFeature, Optional<SimpleFeature>> force(
             final ObjectId forceMetadataId) {
 
-        return Iterators.filter(plainFeatures, new Predicate<SimpleFeature>() {
-            public @Override boolean apply(SimpleFeature input) {
-                RevFeatureType type;
-                type = (RevFeatureType) input.getUserData().get(RevFeatureType.class);
-                ObjectId metadataId = type.getId();
-                if (!forceMetadataId.equals(metadataId)) {
-                    throw new GeoToolsOpException(StatusCode.MIXED_FEATURE_TYPES);
-                }
-                return true;
+        return input -> {
+            RevFeatureType type;
+            type = (RevFeatureType) input.getUserData().get(RevFeatureType.class);
+            ObjectId metadataId = type.getId();
+            if (!forceMetadataId.equals(metadataId)) {
+                throw new GeoToolsOpException(StatusCode.MIXED_FEATURE_TYPES);
             }
-        });
+            return Optional.of(input);
+        };
     }
 
-    private Iterator<SimpleFeature> filter(Iterator<SimpleFeature> plainFeatures,
+    private Function<SimpleFeature, Optional<SimpleFeature>> filter(
             final ObjectId filterFeatureTypeId) {
 
-        return Iterators.filter(plainFeatures, new Predicate<SimpleFeature>() {
-            public @Override boolean apply(SimpleFeature input) {
-                RevFeatureType type;
-                type = (RevFeatureType) input.getUserData().get(RevFeatureType.class);
-                ObjectId metadataId = type.getId();
-                boolean applies = filterFeatureTypeId.equals(metadataId);
-                return applies;
-            }
-        });
+        return input -> {
+            RevFeatureType type;
+            type = (RevFeatureType) input.getUserData().get(RevFeatureType.class);
+            ObjectId metadataId = type.getId();
+            boolean applies = filterFeatureTypeId.equals(metadataId);
+            return applies ? Optional.of(input) : Optional.empty();
+        };
     }
 
-    private Iterator<SimpleFeature> alter(Iterator<SimpleFeature> plainFeatures,
+    private Function<SimpleFeature, Optional<SimpleFeature>> alter(
             final ObjectId targetFeatureTypeId) {
 
         final RevFeatureType targetType = objectDatabase().getFeatureType(targetFeatureTypeId);
 
-        final Function<SimpleFeature, SimpleFeature> alterFunction = (sf) -> {
+        return (sf) -> {
             final RevFeatureType oldFeatureType;
             oldFeatureType = (RevFeatureType) sf.getUserData().get(RevFeatureType.class);
 
             final ObjectId metadataId = oldFeatureType.getId();
             if (targetType.getId().equals(metadataId)) {
-                return sf;
+                return Optional.of(sf);
             }
 
             final RevFeature oldFeature;
@@ -349,10 +393,8 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
             RevFeature newFeature = builder.build();
             FeatureBuilder featureBuilder = new FeatureBuilder(targetType);
             SimpleFeature feature = (SimpleFeature) featureBuilder.build(sf.getID(), newFeature);
-            return feature;
+            return Optional.of(feature);
         };
-
-        return Iterators.transform(plainFeatures, alterFunction::apply);
     }
 
     private NodeRef resolTypeTreeRef(final String refspec, final String treePath,
@@ -491,6 +533,9 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
      * This function can be used as a filter as well. If the returned object is Optional.absent, no
      * feature will be added
      * 
+     * The function is called concurrently unless the export runs on a
+     * {@link #setThreads(int) single thread}, so it must be thread safe.
+     * 
      * @param function
      * @return {@code this}
      */
@@ -509,6 +554,27 @@ public class ExportOp extends AbstractGeoGigOp<SimpleFeatureStore> {
         return this;
     }
 
+    /**
+     * @param threads number of threads to read and convert the features with, defaults to
+     *        {@code 1}. If greater than one, the features are added to the target store in batches
+     *        of {@link #BATCH_SIZE} features, otherwise they're streamed to it from the calling
+     *        thread.
+     */
+    public ExportOp setThreads(int threads) {
+        checkArgument(threads > 0, "threads must be > 0: %s", threads);
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param preserveOrder whether multi-threaded exports shall add the features to the target
+     *        store in the same order as a single threaded export, defaults to {@code true}
+     */
+    public ExportOp setPreserveOrder(boolean preserveOrder) {
+        this.preserveOrder = preserveOrder;
+        return this;
+    }
+
     private static class BBoxPredicate implements Predicate<Bounded> {
 
         private final ObjectStore store;
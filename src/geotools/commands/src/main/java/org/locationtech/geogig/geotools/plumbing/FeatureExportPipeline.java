@@ -0,0 +1,263 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.plumbing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.data.retrieve.BulkFeatureRetriever;
+import org.locationtech.geogig.geotools.adapt.GT;
+import org.locationtech.geogig.model.Bounded;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
+import org.locationtech.geogig.repository.ProgressListener;
+import org.locationtech.geogig.storage.AutoCloseableIterator;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+
+/**
+ * Multi-threaded engine used by {@link ExportOp} to read and convert the features of a feature
+ * tree in parallel, handing them over to a single writer in large batches.
+ * <p>
+ * The tree is split into partitions of at most {@link #PARTITION_SIZE} features by descending its
+ * buckets, skipping those that don't pass the bounds filter. Each partition is read through a
+ * {@link BulkFeatureRetriever} and its features adapted to GeoTools and converted on a worker
+ * pool, while the calling thread collects the results and calls the writer with batches of
+ * {@code batchSize} features, so the target store is only ever accessed from the calling thread.
+ * <p>
+ * At most two partitions per worker are in flight at any time. If {@code preserveOrder} is set,
+ * partitions are written in tree order, which is the same order a single threaded export produces;
+ * otherwise they're written as soon as they're ready.
+ */
+final class FeatureExportPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FeatureExportPipeline.class);
+
+    static final int PARTITION_SIZE = 10_000;
+
+    private static final int PARTITIONS_PER_THREAD = 2;
+
+    private static final class Partition {
+        final List<SimpleFeature> features;
+
+        final int read;
+
+        Partition(List<SimpleFeature> features, int read) {
+            this.features = features;
+            this.read = read;
+        }
+    }
+
+    private final ObjectStore store;
+
+    private final RevTree tree;
+
+    private final ObjectId defaultMetadataId;
+
+    private final @Nullable Predicate<Bounded> boundsFilter;
+
+    private final Function<SimpleFeature, Optional<SimpleFeature>> converter;
+
+    private final ProgressListener progress;
+
+    private final int threads;
+
+    private final int batchSize;
+
+    private final boolean preserveOrder;
+
+    /**
+     * @param store where to read the tree and features from
+     * @param tree the feature tree to export
+     * @param defaultMetadataId the feature type id of the tree's features that don't have one of
+     *        their own
+     * @param boundsFilter if provided, only the buckets and features that pass it are exported
+     * @param converter called concurrently to adapt each feature to the target store, or to filter
+     *        it out by returning empty
+     * @param threads number of read and convert threads
+     * @param batchSize number of features handed over to the writer at once
+     * @param preserveOrder whether to write the features in tree order
+     */
+    FeatureExportPipeline(@NonNull ObjectStore store, @NonNull RevTree tree,
+            @NonNull ObjectId defaultMetadataId, @Nullable Predicate<Bounded> boundsFilter,
+            @NonNull Function<SimpleFeature, Optional<SimpleFeature>> converter,
+            @NonNull ProgressListener progress, int threads, int batchSize,
+            boolean preserveOrder) {
+        Preconditions.checkArgument(threads > 0, "threads must be > 0: %s", threads);
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be > 0: %s", batchSize);
+        this.store = store;
+        this.tree = tree;
+        this.defaultMetadataId = defaultMetadataId;
+        this.boundsFilter = boundsFilter;
+        this.converter = converter;
+        this.progress = progress;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.preserveOrder = preserveOrder;
+    }
+
+    /**
+     * Runs the export until all the features are written or the progress listener is canceled.
+     *
+     * @param writer called on the calling thread with each batch of converted features
+     * @return the number of features written
+     * @throws RuntimeException the first error thrown by a worker or the writer
+     */
+    long run(@NonNull Consumer<List<SimpleFeature>> writer) {
+        final Stopwatch sw = Stopwatch.createStarted();
+        final List<RevTree> partitions = new ArrayList<>();
+        addPartitions(tree, partitions);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("FeatureExportPipeline-%d")
+                        .setDaemon(true).build());
+        final CompletionService<Partition> completion = new ExecutorCompletionService<>(executor);
+        final Deque<Future<Partition>> pending = new ArrayDeque<>();
+        final int maxPending = PARTITIONS_PER_THREAD * threads;
+        final Iterator<RevTree> remaining = partitions.iterator();
+
+        long written = 0;
+        List<SimpleFeature> batch = new ArrayList<>(batchSize);
+        try {
+            while (!progress.isCanceled()) {
+                while (pending.size() < maxPending && remaining.hasNext()) {
+                    final RevTree partition = remaining.next();
+                    pending.add(preserveOrder ? executor.submit(() -> read(partition))
+                            : completion.submit(() -> read(partition)));
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                final Partition next = preserveOrder ? get(pending.removeFirst())
+                        : get(removeCompleted(completion, pending));
+                progress.incrementBy(next.read);
+                for (SimpleFeature feature : next.features) {
+                    batch.add(feature);
+                    if (batch.size() == batchSize) {
+                        writer.accept(batch);
+                        written += batch.size();
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+            if (!batch.isEmpty() && !progress.isCanceled()) {
+                writer.accept(batch);
+                written += batch.size();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        LOG.debug("Exported {} features from {} partitions in {}", written, partitions.size(),
+                sw.stop());
+        return written;
+    }
+
+    /**
+     * Descends the tree's buckets in order until reaching trees of at most
+     * {@link #PARTITION_SIZE} features or leaf trees, loading the bucket trees of each tree in a
+     * single batch.
+     */
+    private void addPartitions(RevTree tree, List<RevTree> target) {
+        if (tree.bucketsSize() == 0 || tree.size() <= PARTITION_SIZE) {
+            target.add(tree);
+            return;
+        }
+        List<ObjectId> bucketIds = new ArrayList<>(tree.bucketsSize());
+        tree.forEachBucket(bucket -> {
+            if (boundsFilter == null || boundsFilter.apply(bucket)) {
+                bucketIds.add(bucket.getObjectId());
+            }
+        });
+        Map<ObjectId, RevTree> bucketTrees = Maps.uniqueIndex(
+                store.getAll(bucketIds, BulkOpListener.NOOP_LISTENER, RevTree.class),
+                RevTree::getId);
+        for (ObjectId bucketId : bucketIds) {
+            RevTree bucketTree = bucketTrees.get(bucketId);
+            Preconditions.checkState(bucketTree != null, "Bucket tree %s not found", bucketId);
+            addPartitions(bucketTree, target);
+        }
+    }
+
+    private Partition read(RevTree partition) {
+        DepthTreeIterator nodes = new DepthTreeIterator("", defaultMetadataId, partition, store,
+                Strategy.FEATURES_ONLY);
+        if (boundsFilter != null) {
+            nodes.setBoundsFilter(boundsFilter);
+        }
+        List<SimpleFeature> features = new ArrayList<>();
+        int read = 0;
+        SimpleFeatureType cachedType = null;
+        try (AutoCloseableIterator<org.locationtech.geogig.feature.Feature> it = new BulkFeatureRetriever(
+                store).getGeoToolsFeatures(nodes)) {
+            while (it.hasNext()) {
+                org.locationtech.geogig.feature.Feature feature = it.next();
+                if (cachedType == null) {
+                    cachedType = GT.adapt(feature.getType());
+                }
+                read++;
+                converter.apply(GT.adapt(cachedType, feature)).ifPresent(features::add);
+            }
+        }
+        return new Partition(features, read);
+    }
+
+    private static Future<Partition> removeCompleted(CompletionService<Partition> completion,
+            Deque<Future<Partition>> pending) {
+        try {
+            Future<Partition> done = completion.take();
+            pending.remove(done);
+            return done;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Partition get(Future<Partition> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
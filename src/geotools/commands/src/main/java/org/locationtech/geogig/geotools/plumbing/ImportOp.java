@@ -533,22 +533,17 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
             Iterator<Feature> features, final ProgressListener taskProgress,
             RevFeatureType featureType) {
         try {
-
-            // RevFeature rf = RevFeature.builder().build(f);
-            // String path = NodeRef.appendChild(treePath, f.getIdentifier().getID());
-            // return FeatureInfo.insert(rf, featureTypeId, path);
-            Function<Feature, FeatureInfo> fn = new Function<Feature, FeatureInfo>() {
-                public @Override FeatureInfo apply(org.opengis.feature.Feature f) {
-                    org.locationtech.geogig.feature.Feature gigFeature = GT
-                            .adapt(featureType.type(), (SimpleFeature) f);
-                    RevFeature rf = RevFeature.builder().build(gigFeature);
-                    String path = NodeRef.appendChild(treePath, f.getIdentifier().getID());
-                    return FeatureInfo.insert(rf, featureType.getId(), path);
-                }
-            };
-
-            Iterator<FeatureInfo> infos = Iterators.transform(features, fn::apply);
-            workTree.insert(infos, taskProgress);
+            // GeoTools features are copied on the reading thread, since they may not be valid
+            // once the FeatureIterator advances nor safe to read from another thread
+            Iterator<DetachedFeature> detached = Iterators.transform(features, f -> {
+                String path = NodeRef.appendChild(treePath, f.getIdentifier().getID());
+                return new DetachedFeature(path, GT.adapt(featureType.type(), (SimpleFeature) f));
+            });
+
+            // hashing the features runs concurrently with reading, saving, and building the trees
+            Function<DetachedFeature, FeatureInfo> fn = f -> FeatureInfo
+                    .insert(RevFeature.builder().build(f.feature), featureType.getId(), f.path);
+            workTree.insert(detached, fn, taskProgress);
         } catch (Exception e) {
             LOG.warn("Unable to insert into " + treePath, e);
             throw new GeoToolsOpException(e, StatusCode.UNABLE_TO_INSERT);
@@ -681,6 +676,20 @@ public class ImportOp extends AbstractGeoGigOp<RevTree> {
         return this;
     }
 
+    /**
+     * A feature copied out of a GeoTools feature, and the path to insert it at
+     */
+    private static final class DetachedFeature {
+        final String path;
+
+        final org.locationtech.geogig.feature.Feature feature;
+
+        DetachedFeature(String path, org.locationtech.geogig.feature.Feature feature) {
+            this.path = path;
+            this.feature = feature;
+        }
+    }
+
     private static final class FidAndFtOverrideFeature extends DecoratingFeature {
 
         private String fid;
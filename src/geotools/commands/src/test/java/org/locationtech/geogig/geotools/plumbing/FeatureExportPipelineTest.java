@@ -0,0 +1,116 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.plumbing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.locationtech.geogig.feature.Feature;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator;
+import org.locationtech.geogig.plumbing.diff.DepthTreeIterator.Strategy;
+import org.locationtech.geogig.repository.DefaultProgressListener;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.test.integration.RepositoryTestCase;
+import org.opengis.feature.simple.SimpleFeature;
+
+public class FeatureExportPipelineTest extends RepositoryTestCase {
+
+    private static final int NUM_FEATURES = 3 * FeatureExportPipeline.PARTITION_SIZE;
+
+    private ObjectDatabase db;
+
+    private NodeRef typeTreeRef;
+
+    private RevTree typeTree;
+
+    protected @Override void setUpInternal() throws Exception {
+        List<Feature> features = new ArrayList<>(NUM_FEATURES);
+        for (int i = 0; i < NUM_FEATURES; i++) {
+            features.add(feature(pointsType, "p" + i, "StringProp1_" + i, Integer.valueOf(i),
+                    "POINT(" + (i % 360 - 180) + " " + (i % 180 - 90) + ")"));
+        }
+        repo.context().workingTree().insert(features.iterator(), this::featureInfo,
+                new DefaultProgressListener());
+        RevTree root = repo.context().workingTree().getTree();
+        db = repo.context().objectDatabase();
+        typeTreeRef = repo.command(FindTreeChild.class).setParent(root).setChildPath(pointsName)
+                .call().get();
+        typeTree = db.getTree(typeTreeRef.getObjectId());
+        assertTrue(typeTree.bucketsSize() > 0);
+    }
+
+    @Test
+    public void testPreserveOrder() {
+        List<String> expected = new ArrayList<>();
+        new DepthTreeIterator("", typeTreeRef.getMetadataId(), typeTree, db,
+                Strategy.FEATURES_ONLY).forEachRemaining(ref -> expected.add(ref.name()));
+
+        List<String> exported = export(4, true, Optional::of);
+        assertEquals(NUM_FEATURES, exported.size());
+        assertEquals(expected, exported);
+    }
+
+    @Test
+    public void testUnordered() {
+        List<String> exported = export(4, false, Optional::of);
+        assertEquals(NUM_FEATURES, exported.size());
+        assertEquals(NUM_FEATURES, new HashSet<>(exported).size());
+    }
+
+    @Test
+    public void testConverterFilters() {
+        List<String> exported = export(4, false,
+                f -> ((Integer) f.getAttribute("ip")).intValue() % 2 == 0 ? Optional.of(f)
+                        : Optional.empty());
+        assertEquals(NUM_FEATURES / 2, exported.size());
+    }
+
+    @Test
+    public void testConverterErrorPropagates() {
+        try {
+            export(4, false, f -> {
+                if ("p1000".equals(f.getID())) {
+                    throw new IllegalStateException("expected");
+                }
+                return Optional.of(f);
+            });
+            fail("Expected ISE");
+        } catch (IllegalStateException e) {
+            assertEquals("expected", e.getMessage());
+        }
+    }
+
+    private List<String> export(int threads, boolean preserveOrder,
+            Function<SimpleFeature, Optional<SimpleFeature>> converter) {
+        final int batchSize = 1_000;
+        List<String> ids = Collections.synchronizedList(new ArrayList<>());
+        FeatureExportPipeline pipeline = new FeatureExportPipeline(db, typeTree,
+                typeTreeRef.getMetadataId(), null, converter, new DefaultProgressListener(),
+                threads, batchSize, preserveOrder);
+        long written = pipeline.run(batch -> {
+            assertTrue(batch.size() <= batchSize);
+            batch.forEach(f -> ids.add(f.getID()));
+        });
+        assertEquals(ids.size(), written);
+        return ids;
+    }
+}
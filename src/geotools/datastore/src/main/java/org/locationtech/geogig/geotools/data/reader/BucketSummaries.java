@@ -0,0 +1,155 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Process wide cache of {@link BucketSummary bucket summaries} of quad-tree index trees, key'ed by
+ * the bucket's tree id.
+ * <p>
+ * Since trees are immutable and content addressed, a summary is valid for as long as its tree
+ * exists, no matter which index or repository it belongs to. Summaries are computed for a whole
+ * index tree in a single pass on a background thread the first time a rendering query with a
+ * screen map runs against it, so the query that triggers it is not delayed, and subsequent ones
+ * can skip entire subtrees. A summary takes around a hundred bytes, so
+ * {@link #MAX_ENTRIES} is enough for the buckets of several indexes of tens of millions of
+ * features.
+ */
+@Slf4j
+final class BucketSummaries {
+
+    static final long MAX_ENTRIES = 500_000;
+
+    /**
+     * Stands for subtrees that can't be summarized, since the cache doesn't allow {@code null}
+     * values
+     */
+    private static final Optional<BucketSummary> NONE = Optional.empty();
+
+    private static final Cache<ObjectId, Optional<BucketSummary>> SUMMARIES = CacheBuilder
+            .newBuilder()//
+            .maximumSize(MAX_ENTRIES)//
+            .build();
+
+    /**
+     * Index trees being summarized, to avoid computing them more than once concurrently
+     */
+    private static final Map<ObjectId, Boolean> IN_PROGRESS = new ConcurrentHashMap<>();
+
+    private static final ExecutorService EXECUTOR = Executors
+            .newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("geogig-bucket-summaries-%d").setDaemon(true).build());
+
+    private BucketSummaries() {
+    }
+
+    /**
+     * @return the summary of the bucket tree with the given id, or {@code null} if it hasn't been
+     *         computed or the tree can't be summarized
+     */
+    static @Nullable BucketSummary get(@NonNull ObjectId bucketTreeId) {
+        Optional<BucketSummary> summary = SUMMARIES.getIfPresent(bucketTreeId);
+        return summary == null ? null : summary.orElse(null);
+    }
+
+    /**
+     * Schedules the computation of the summaries of all the buckets in the given index tree, unless
+     * they're already computed or being computed
+     */
+    static void summarizeAsync(@NonNull ObjectStore indexStore, @NonNull ObjectId indexTreeId) {
+        if (RevTree.EMPTY_TREE_ID.equals(indexTreeId)
+                || SUMMARIES.getIfPresent(indexTreeId) != null
+                || IN_PROGRESS.putIfAbsent(indexTreeId, Boolean.TRUE) != null) {
+            return;
+        }
+        EXECUTOR.execute(() -> {
+            try {
+                Stopwatch sw = Stopwatch.createStarted();
+                summarize(indexStore, indexStore.getTree(indexTreeId));
+                log.debug("Computed bucket summaries of index tree {} in {}", indexTreeId,
+                        sw.stop());
+            } catch (RuntimeException e) {
+                log.warn("Error computing bucket summaries of index tree {}", indexTreeId, e);
+            } finally {
+                IN_PROGRESS.remove(indexTreeId);
+            }
+        });
+    }
+
+    /**
+     * Computes and caches the summaries of the tree and all its buckets, depth first, loading the
+     * bucket trees of each tree in a single batch and reusing the summaries already cached.
+     */
+    @VisibleForTesting
+    static @Nullable BucketSummary summarize(ObjectStore store, RevTree tree) {
+        Optional<BucketSummary> cached = SUMMARIES.getIfPresent(tree.getId());
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        final BucketSummary summary;
+        if (tree.bucketsSize() == 0) {
+            summary = tree.treesSize() > 0 ? null : BucketSummary.ofFeatures(tree.features());
+        } else {
+            final List<ObjectId> bucketIds = new ArrayList<>(tree.bucketsSize());
+            tree.forEachBucket(b -> bucketIds.add(b.getObjectId()));
+            final List<BucketSummary> bucketSummaries = new ArrayList<>(bucketIds.size());
+            final List<ObjectId> missing = new ArrayList<>();
+            for (ObjectId id : bucketIds) {
+                Optional<BucketSummary> bucketSummary = SUMMARIES.getIfPresent(id);
+                if (bucketSummary == null) {
+                    missing.add(id);
+                } else {
+                    bucketSummaries.add(bucketSummary.orElse(null));
+                }
+            }
+            if (!missing.isEmpty()) {
+                Iterator<RevTree> trees = store.getAll(missing, BulkOpListener.NOOP_LISTENER,
+                        RevTree.class);
+                Map<ObjectId, RevTree> bucketTrees = Maps.uniqueIndex(trees, RevTree::getId);
+                for (ObjectId id : missing) {
+                    RevTree bucketTree = bucketTrees.get(id);
+                    bucketSummaries.add(bucketTree == null ? null : summarize(store, bucketTree));
+                }
+            }
+            summary = BucketSummary.ofBuckets(bucketSummaries);
+        }
+        SUMMARIES.put(tree.getId(), summary == null ? NONE : Optional.of(summary));
+        return summary;
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        SUMMARIES.invalidateAll();
+    }
+}
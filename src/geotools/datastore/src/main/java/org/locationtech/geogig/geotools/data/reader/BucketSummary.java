@@ -0,0 +1,189 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.data.util.ScreenMap;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Aggregated statistics of all the features under a quad-tree index bucket, used by
+ * {@link ScreenMapPredicate} to skip whole subtrees whose features would all be skipped anyway
+ * because they fall on already painted pixels, without loading their trees.
+ * <p>
+ * Holds the number of features, the bounds of the subtree, the largest feature width and height,
+ * and a {@link #GRID_SIZE}x{@link #GRID_SIZE} occupancy bitmap over those bounds where each cell
+ * intersected by a feature's bounds is set.
+ */
+final class BucketSummary {
+
+    static final int GRID_SIZE = 8;
+
+    private final long size;
+
+    private final double minX, minY, maxX, maxY;
+
+    private final double maxFeatureWidth, maxFeatureHeight;
+
+    private final long occupancy;
+
+    private BucketSummary(long size, Envelope bounds, double maxFeatureWidth,
+            double maxFeatureHeight, long occupancy) {
+        this.size = size;
+        this.minX = bounds.getMinX();
+        this.minY = bounds.getMinY();
+        this.maxX = bounds.getMaxX();
+        this.maxY = bounds.getMaxY();
+        this.maxFeatureWidth = maxFeatureWidth;
+        this.maxFeatureHeight = maxFeatureHeight;
+        this.occupancy = occupancy;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the summary of a leaf tree's feature nodes, or {@code null} if there are none or any
+     *         of them has no bounds, in which case the subtree can't be skipped as a whole
+     */
+    static @Nullable BucketSummary ofFeatures(List<Node> features) {
+        if (features.isEmpty()) {
+            return null;
+        }
+        final Envelope bounds = new Envelope();
+        final Envelope[] featureBounds = new Envelope[features.size()];
+        double maxWidth = 0, maxHeight = 0;
+        for (int i = 0; i < featureBounds.length; i++) {
+            Envelope env = new Envelope();
+            features.get(i).expand(env);
+            if (env.isNull()) {
+                return null;
+            }
+            featureBounds[i] = env;
+            bounds.expandToInclude(env);
+            maxWidth = Math.max(maxWidth, env.getWidth());
+            maxHeight = Math.max(maxHeight, env.getHeight());
+        }
+        long occupancy = 0L;
+        for (Envelope env : featureBounds) {
+            occupancy |= cells(bounds, env);
+        }
+        return new BucketSummary(featureBounds.length, bounds, maxWidth, maxHeight, occupancy);
+    }
+
+    /**
+     * @return the summary of a tree given the summaries of all its buckets, or {@code null} if
+     *         there are none or any of them is {@code null}
+     */
+    static @Nullable BucketSummary ofBuckets(List<BucketSummary> buckets) {
+        if (buckets.isEmpty() || buckets.contains(null)) {
+            return null;
+        }
+        final Envelope bounds = new Envelope();
+        long size = 0;
+        double maxWidth = 0, maxHeight = 0;
+        for (BucketSummary b : buckets) {
+            bounds.expandToInclude(b.minX, b.minY);
+            bounds.expandToInclude(b.maxX, b.maxY);
+            size += b.size;
+            maxWidth = Math.max(maxWidth, b.maxFeatureWidth);
+            maxHeight = Math.max(maxHeight, b.maxFeatureHeight);
+        }
+        long occupancy = 0L;
+        final Envelope cell = new Envelope();
+        for (BucketSummary b : buckets) {
+            for (int i = 0; i < GRID_SIZE * GRID_SIZE; i++) {
+                if ((b.occupancy & (1L << i)) != 0) {
+                    b.cell(i, cell);
+                    occupancy |= cells(bounds, cell);
+                }
+            }
+        }
+        return new BucketSummary(size, bounds, maxWidth, maxHeight, occupancy);
+    }
+
+    /**
+     * Determines whether every feature in the subtree falls on a screen map pixel that's already
+     * set, meaning {@link ScreenMapPredicate} would skip each and every one of them.
+     * <p>
+     * That's the case if all the features are small enough to be simplified, and every occupied
+     * cell fits in a pixel and has all four corners on set pixels, since the center of a feature,
+     * which determines its pixel, lies in one of the cells its bounds intersect.
+     */
+    boolean allPixelsSet(ScreenMap screenMap) throws TransformException {
+        if (!screenMap.canSimplify(new Envelope(0, maxFeatureWidth, 0, maxFeatureHeight))) {
+            return false;
+        }
+        final Envelope cell = new Envelope();
+        final Envelope corner = new Envelope();
+        for (int i = 0; i < GRID_SIZE * GRID_SIZE; i++) {
+            if ((occupancy & (1L << i)) == 0) {
+                continue;
+            }
+            cell(i, cell);
+            if (!screenMap.canSimplify(cell)) {
+                return false;
+            }
+            for (int c = 0; c < 4; c++) {
+                double x = (c & 1) == 0 ? cell.getMinX() : cell.getMaxX();
+                double y = (c & 2) == 0 ? cell.getMinY() : cell.getMaxY();
+                corner.init(x, x, y, y);
+                if (!screenMap.get(corner)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void cell(int index, Envelope target) {
+        final int col = index % GRID_SIZE;
+        final int row = index / GRID_SIZE;
+        final double cellWidth = (maxX - minX) / GRID_SIZE;
+        final double cellHeight = (maxY - minY) / GRID_SIZE;
+        double x1 = minX + col * cellWidth;
+        double y1 = minY + row * cellHeight;
+        double x2 = col == GRID_SIZE - 1 ? maxX : x1 + cellWidth;
+        double y2 = row == GRID_SIZE - 1 ? maxY : y1 + cellHeight;
+        target.init(x1, x2, y1, y2);
+        // guard against rounding errors placing a feature's center right outside its cell
+        target.expandBy(cellWidth * 1E-6, cellHeight * 1E-6);
+    }
+
+    /**
+     * @return the bitmap of cells of a grid over {@code bounds} intersected by {@code env}
+     */
+    private static long cells(Envelope bounds, Envelope env) {
+        final int minCol = index(bounds.getMinX(), bounds.getWidth(), env.getMinX());
+        final int maxCol = index(bounds.getMinX(), bounds.getWidth(), env.getMaxX());
+        final int minRow = index(bounds.getMinY(), bounds.getHeight(), env.getMinY());
+        final int maxRow = index(bounds.getMinY(), bounds.getHeight(), env.getMaxY());
+        long cells = 0L;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                cells |= 1L << (row * GRID_SIZE + col);
+            }
+        }
+        return cells;
+    }
+
+    private static int index(double min, double span, double value) {
+        if (span <= 0) {
+            return 0;
+        }
+        int index = (int) ((value - min) * GRID_SIZE / span);
+        return Math.max(0, Math.min(GRID_SIZE - 1, index));
+    }
+}
@@ -83,6 +83,7 @@ import org.opengis.filter.sort.SortBy;
 import org.opengis.filter.spatial.BBOX;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
@@ -338,6 +339,7 @@ public class FeatureReaderBuilder {
                 diffNodeOrdering = QuadTreeBuilder.nodeOrdering(maxBounds);
                 info.diffUsesIndex = true;
                 info.materializedIndexProperties = resolveMaterializedProperties(indexInfo);
+                info.simplifiedGeometryTolerance = resolveSimplifiedGeometryTolerance(indexInfo);
             }
 
             PrePostFilterSplitter filterSplitter;
@@ -347,7 +349,18 @@ public class FeatureReaderBuilder {
             info.preFilter = filterSplitter.getPreFilter();
             info.postFilter = filterSplitter.getPostFilter();
 
-            info.indexContainsAllRequiredProperties = info.materializedIndexProperties
+            Set<String> indexProperties = info.materializedIndexProperties;
+            if (info.simplifiedGeometryTolerance != null) {
+                final String geometryAttribute = info.leftIndex.get().info().getAttributeName();
+                if (requiredAttributes(info.postFilter).contains(geometryAttribute)) {
+                    // the filter needs the full resolution geometry
+                    info.simplifiedGeometryTolerance = null;
+                } else {
+                    indexProperties = Sets.union(indexProperties,
+                            Collections.singleton(geometryAttribute));
+                }
+            }
+            info.indexContainsAllRequiredProperties = indexProperties
                     .containsAll(info.requiredProperties);
 
             info.filterIsFullySupportedByIndex = Filter.INCLUDE.equals(info.postFilter);
@@ -428,8 +441,15 @@ public class FeatureReaderBuilder {
             CoordinateReferenceSystem nativeCrs = info.fullSchema.getCoordinateReferenceSystem();
             org.locationtech.geogig.crs.CoordinateReferenceSystem nativeGigCrs = GT
                     .adapt(nativeCrs);
-            features = MaterializedIndexFeatureIterator.create(GT.adapt(resultSchema), featureRefs,
-                    geometryFactory, nativeGigCrs);
+            if (info.simplifiedGeometryTolerance == null) {
+                features = MaterializedIndexFeatureIterator.create(GT.adapt(resultSchema),
+                        featureRefs, geometryFactory, nativeGigCrs);
+            } else {
+                features = MaterializedIndexFeatureIterator.create(GT.adapt(resultSchema),
+                        featureRefs, geometryFactory, nativeGigCrs,
+                        info.rightIndex.get().info().getAttributeName(),
+                        info.simplifiedGeometryTolerance.doubleValue());
+            }
         } else {
             BulkFeatureRetriever retriever;
             retriever = new BulkFeatureRetriever(leftFeatureSource, rightFeatureSource);
@@ -441,9 +461,12 @@ public class FeatureReaderBuilder {
                 resultSchema = nativeSchema;
                 typeNameOverride = null;
             }
+            // discard the features that can't match the post filter before decoding them
+            final RevFeatureFilter revFeatureFilter = info.filterIsFullySupportedByIndex ? null
+                    : RevFeatureFilter.forFilter(info.postFilter, nativeSchema).orElse(null);
             // using fullSchema here will build "normal" full-attribute lazy features
             AutoCloseableIterator<Feature> gigFeatures = retriever.getGeoToolsFeatures(featureRefs,
-                    nativeType, typeNameOverride, geometryFactory);
+                    nativeType, typeNameOverride, geometryFactory, revFeatureFilter);
 
             features = AutoCloseableIterator.transform(gigFeatures,
                     gf -> GT.adapt(resultSchema, gf));
@@ -671,6 +694,35 @@ public class FeatureReaderBuilder {
         return Optional.ofNullable(index);
     }
 
+    private @Nullable Double resolveSimplifiedGeometryTolerance(@NonNull IndexInfo info) {
+        return resolveSimplifiedGeometryTolerance(IndexInfo.getSimplificationTolerances(info),
+                simplificationDistance);
+    }
+
+    /**
+     * Picks the pre-simplified geometry level closest to the requested simplification distance,
+     * that is, the one with the largest tolerance that doesn't exceed it, so the geometries are
+     * never coarser than requested
+     * 
+     * @param tolerances the index's simplification tolerances, in ascending order
+     * @return the tolerance of the level to use, or {@code null} if no simplification was requested
+     *         or the index has no suitable level
+     */
+    @VisibleForTesting
+    static @Nullable Double resolveSimplifiedGeometryTolerance(double[] tolerances,
+            @Nullable Double simplificationDistance) {
+        if (simplificationDistance == null || simplificationDistance.doubleValue() <= 0) {
+            return null;
+        }
+        Double level = null;
+        for (double tolerance : tolerances) {
+            if (tolerance <= simplificationDistance.doubleValue()) {
+                level = Double.valueOf(tolerance);
+            }
+        }
+        return level;
+    }
+
     private Set<String> resolveMaterializedProperties(@NonNull IndexInfo info) {
         Set<String> availableAtts = IndexInfo.getMaterializedAttributeNames(info);
         return availableAtts;
@@ -873,6 +925,14 @@ public class FeatureReaderBuilder {
             final boolean filterBuckets = canFilterBuckets(preFilter);
             if (filterBuckets) {
                 screenMapFilter.filterTrees();
+                if (walkInfo.diffUsesIndex) {
+                    // summaries of the index tree are computed in the background the first time
+                    // and let subsequent queries skip whole buckets on already painted pixels
+                    Index index = walkInfo.rightIndex.get();
+                    BucketSummaries.summarizeAsync(rightRepo.indexDatabase(),
+                            index.indexTreeId());
+                    screenMapFilter.useBucketSummaries();
+                }
             }
             if (preserveIterationOrder) {
                 screenMapFilter.optimizeForSingleThreadedCalls();
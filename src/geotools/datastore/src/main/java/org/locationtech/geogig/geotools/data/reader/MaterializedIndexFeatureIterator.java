@@ -16,6 +16,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.simple.SimpleFeatureImpl;
 import org.geotools.filter.identity.FeatureIdImpl;
@@ -57,13 +58,20 @@ class MaterializedIndexFeatureIterator implements AutoCloseableIterator<SimpleFe
 
     private final CoordinateReferenceSystem crs;
 
+    private final @Nullable String simplifiedGeometryAttribute;
+
+    private final double simplificationTolerance;
+
     private MaterializedIndexFeatureIterator(final SimpleFeatureBuilder builder,
             AutoCloseableIterator<NodeRef> nodes, GeometryFactory geometryFactory,
-            CoordinateReferenceSystem crs) {
+            CoordinateReferenceSystem crs, @Nullable String simplifiedGeometryAttribute,
+            double simplificationTolerance) {
         this.featureBuilder = builder;
         this.nodes = nodes;
         this.geometryFactory = geometryFactory;
         this.crs = crs;
+        this.simplifiedGeometryAttribute = simplifiedGeometryAttribute;
+        this.simplificationTolerance = simplificationTolerance;
     }
 
     public static MaterializedIndexFeatureIterator create(FeatureType outputSchema,
@@ -71,7 +79,23 @@ class MaterializedIndexFeatureIterator implements AutoCloseableIterator<SimpleFe
             org.locationtech.geogig.crs.CoordinateReferenceSystem crs) {
 
         SimpleFeatureBuilder builder = new SimpleFeatureBuilder(GT.adapt(outputSchema));
-        return new MaterializedIndexFeatureIterator(builder, nodes, geometryFactory, GT.adapt(crs));
+        return new MaterializedIndexFeatureIterator(builder, nodes, geometryFactory, GT.adapt(crs),
+                null, 0);
+    }
+
+    /**
+     * Creates an iterator that takes the value of {@code simplifiedGeometryAttribute} from the
+     * index's geometry pre-simplified at {@code simplificationTolerance} instead of the
+     * materialized attributes
+     */
+    public static MaterializedIndexFeatureIterator create(FeatureType outputSchema,
+            AutoCloseableIterator<NodeRef> nodes, GeometryFactory geometryFactory,
+            org.locationtech.geogig.crs.CoordinateReferenceSystem crs,
+            String simplifiedGeometryAttribute, double simplificationTolerance) {
+
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(GT.adapt(outputSchema));
+        return new MaterializedIndexFeatureIterator(builder, nodes, geometryFactory, GT.adapt(crs),
+                simplifiedGeometryAttribute, simplificationTolerance);
     }
 
     public @Override void close() {
@@ -118,15 +142,28 @@ class MaterializedIndexFeatureIterator implements AutoCloseableIterator<SimpleFe
             return BoundedSimpleFeature.empty(featureType, node.getNode(), crs);
 
         } else {
-            final Map<String, Object> materializedAttributes;
+            Map<String, Object> materializedAttributes;
             materializedAttributes = IndexInfo.getMaterializedAttributes(node.getNode());
-            checkNotNull(materializedAttributes);
+            if (simplifiedGeometryAttribute == null) {
+                checkNotNull(materializedAttributes);
+            } else if (materializedAttributes == null) {
+                materializedAttributes = Collections.emptyMap();
+            }
 
             featureBuilder.reset();
             for (int i = 0; i < attributeDescriptors.size(); i++) {
                 AttributeDescriptor descriptor = attributeDescriptors.get(i);
                 String localName = descriptor.getLocalName();
-                Object value = materializedAttributes.get(localName);
+                Object value;
+                if (localName.equals(simplifiedGeometryAttribute)) {
+                    value = IndexInfo.getSimplifiedGeometry(node.getNode(),
+                            simplificationTolerance);
+                    if (value == null) {
+                        value = materializedAttributes.get(localName);
+                    }
+                } else {
+                    value = materializedAttributes.get(localName);
+                }
                 if (value instanceof Geometry) {
                     value = geometryFactory.createGeometry((Geometry) value);
                 }
@@ -0,0 +1,273 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntPredicate;
+import java.util.function.ToIntFunction;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Converters;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.ValueArray;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+
+/**
+ * Adapts the parts of a GeoTools {@link Filter} that can be evaluated through the primitive
+ * accessors of {@link ValueArray} to a {@link Predicate} to be applied over the {@link RevFeature}s
+ * before they're converted to GeoTools features, so that features that can't match the filter are
+ * discarded without decoding their geometries nor creating their attribute values.
+ * <p>
+ * Supports comparisons and {@code BETWEEN} of numeric attributes against literals, and
+ * {@code BBOX} on geometry attributes, combined with {@code AND} and {@code OR}. Unsupported
+ * {@code AND} operands are ignored, and an {@code OR} is supported only if all its operands are.
+ * <p>
+ * The predicate is a necessary but not sufficient condition: it only rejects features the full
+ * filter would reject, but accepts features with {@code null} values on the evaluated attributes,
+ * and {@code BBOX} is evaluated against the geometries' bounds. Hence the full filter still needs
+ * to be evaluated on the features that pass it.
+ */
+final class RevFeatureFilter implements Predicate<RevFeature> {
+
+    private final Filter filter;
+
+    private final Predicate<ValueArray> predicate;
+
+    private RevFeatureFilter(Filter filter, Predicate<ValueArray> predicate) {
+        this.filter = filter;
+        this.predicate = predicate;
+    }
+
+    public @Override boolean apply(RevFeature feature) {
+        return predicate.apply(feature);
+    }
+
+    public @Override String toString() {
+        return String.format("RevFeatureFilter(%s)", filter);
+    }
+
+    /**
+     * @param filter the filter to adapt
+     * @param nativeType the feature type the {@link RevFeature} values to evaluate adhere to
+     * @return the predicate to discard features that can't match {@code filter}, or
+     *         {@link Optional#empty() empty} if none of its parts can be evaluated on the
+     *         {@code RevFeature}s
+     */
+    public static Optional<RevFeatureFilter> forFilter(Filter filter,
+            SimpleFeatureType nativeType) {
+        if (Filter.INCLUDE.equals(filter)) {
+            return Optional.empty();
+        }
+        Predicate<ValueArray> predicate = compile(filter, nativeType);
+        return predicate == null ? Optional.empty()
+                : Optional.of(new RevFeatureFilter(filter, predicate));
+    }
+
+    @VisibleForTesting
+    static @Nullable Predicate<ValueArray> compile(Filter filter, SimpleFeatureType type) {
+        if (filter instanceof IncludeFilter) {
+            return Predicates.alwaysTrue();
+        }
+        if (filter instanceof ExcludeFilter) {
+            return Predicates.alwaysFalse();
+        }
+        if (filter instanceof And) {
+            List<Predicate<ValueArray>> operands = new ArrayList<>();
+            for (Filter child : ((And) filter).getChildren()) {
+                Predicate<ValueArray> operand = compile(child, type);
+                if (operand != null) {
+                    operands.add(operand);
+                }
+            }
+            return operands.isEmpty() ? null : Predicates.and(operands);
+        }
+        if (filter instanceof Or) {
+            List<Predicate<ValueArray>> operands = new ArrayList<>();
+            for (Filter child : ((Or) filter).getChildren()) {
+                Predicate<ValueArray> operand = compile(child, type);
+                if (operand == null) {
+                    return null;
+                }
+                operands.add(operand);
+            }
+            return operands.isEmpty() ? null : Predicates.or(operands);
+        }
+        if (filter instanceof BinaryComparisonOperator) {
+            return comparison((BinaryComparisonOperator) filter, type);
+        }
+        if (filter instanceof PropertyIsBetween) {
+            return between((PropertyIsBetween) filter, type);
+        }
+        if (filter instanceof BBOX) {
+            return bbox((BBOX) filter, type);
+        }
+        return null;
+    }
+
+    private static @Nullable Predicate<ValueArray> comparison(BinaryComparisonOperator filter,
+            SimpleFeatureType type) {
+        final Expression e1 = filter.getExpression1();
+        final Expression e2 = filter.getExpression2();
+        final boolean reversed;
+        final ToIntFunction<ValueArray> comparator;
+        if (e1 instanceof PropertyName && e2 instanceof Literal) {
+            reversed = false;
+            comparator = comparator(type, (PropertyName) e1, (Literal) e2);
+        } else if (e1 instanceof Literal && e2 instanceof PropertyName) {
+            reversed = true;
+            comparator = comparator(type, (PropertyName) e2, (Literal) e1);
+        } else {
+            return null;
+        }
+        if (comparator == null) {
+            return null;
+        }
+        final IntPredicate test;
+        if (filter instanceof PropertyIsEqualTo) {
+            test = c -> c == 0;
+        } else if (filter instanceof PropertyIsNotEqualTo) {
+            test = c -> c != 0;
+        } else if (filter instanceof PropertyIsLessThan) {
+            test = reversed ? c -> c > 0 : c -> c < 0;
+        } else if (filter instanceof PropertyIsLessThanOrEqualTo) {
+            test = reversed ? c -> c >= 0 : c -> c <= 0;
+        } else if (filter instanceof PropertyIsGreaterThan) {
+            test = reversed ? c -> c < 0 : c -> c > 0;
+        } else if (filter instanceof PropertyIsGreaterThanOrEqualTo) {
+            test = reversed ? c -> c <= 0 : c -> c >= 0;
+        } else {
+            return null;
+        }
+        final int index = type.indexOf(propertyName(e1, e2));
+        return values -> values.isNull(index) || test.test(comparator.applyAsInt(values));
+    }
+
+    private static @Nullable Predicate<ValueArray> between(PropertyIsBetween filter,
+            SimpleFeatureType type) {
+        final Expression e = filter.getExpression();
+        final Expression lower = filter.getLowerBoundary();
+        final Expression upper = filter.getUpperBoundary();
+        if (!(e instanceof PropertyName && lower instanceof Literal
+                && upper instanceof Literal)) {
+            return null;
+        }
+        final PropertyName property = (PropertyName) e;
+        final ToIntFunction<ValueArray> lowerComparator = comparator(type, property,
+                (Literal) lower);
+        final ToIntFunction<ValueArray> upperComparator = comparator(type, property,
+                (Literal) upper);
+        if (lowerComparator == null || upperComparator == null) {
+            return null;
+        }
+        final int index = type.indexOf(property.getPropertyName());
+        return values -> values.isNull(index) || (lowerComparator.applyAsInt(values) >= 0
+                && upperComparator.applyAsInt(values) <= 0);
+    }
+
+    private static @Nullable Predicate<ValueArray> bbox(BBOX filter, SimpleFeatureType type) {
+        if (!(filter.getExpression1() instanceof PropertyName)) {
+            return null;
+        }
+        final String propertyName = ((PropertyName) filter.getExpression1()).getPropertyName();
+        final AttributeDescriptor descriptor = propertyName == null || propertyName.isEmpty()
+                ? type.getGeometryDescriptor()
+                : type.getDescriptor(propertyName);
+        if (descriptor == null
+                || !Geometry.class.isAssignableFrom(descriptor.getType().getBinding())) {
+            return null;
+        }
+        final ReferencedEnvelope bounds = ReferencedEnvelope.reference(filter.getBounds());
+        if (bounds == null) {
+            return null;
+        }
+        final Envelope bbox = new Envelope(bounds);
+        final int index = type.indexOf(descriptor.getLocalName());
+        return values -> {
+            Envelope env = values.getEnvelope(index);
+            return env == null || env.intersects(bbox);
+        };
+    }
+
+    private static String propertyName(Expression e1, Expression e2) {
+        PropertyName property = (PropertyName) (e1 instanceof PropertyName ? e1 : e2);
+        return property.getPropertyName();
+    }
+
+    /**
+     * Creates a function that compares the value of a numeric attribute with a literal, the same
+     * way the GeoTools filters do, by first converting the literal to the attribute's binding.
+     *
+     * @return the comparator, or {@code null} if the property is not a numeric attribute of
+     *         {@code type} or the literal can't be losslessly converted to its binding
+     */
+    private static @Nullable ToIntFunction<ValueArray> comparator(SimpleFeatureType type,
+            PropertyName property, Literal literal) {
+        final int index = type.indexOf(property.getPropertyName());
+        if (index < 0) {
+            return null;
+        }
+        final Class<?> binding = type.getDescriptor(index).getType().getBinding();
+        final Object value = literal.getValue();
+        if (value == null) {
+            return null;
+        }
+        final Object converted = Converters.convert(value, binding);
+        if (!(converted instanceof Number)) {
+            return null;
+        }
+        final Number number = (Number) converted;
+        if (value instanceof Number && Double.compare(number.doubleValue(),
+                ((Number) value).doubleValue()) != 0) {
+            // don't second guess how a lossy conversion compares
+            return null;
+        }
+        if (Long.class.equals(binding) || Integer.class.equals(binding)
+                || Short.class.equals(binding) || Byte.class.equals(binding)) {
+            final long l = number.longValue();
+            return values -> Long.compare(values.getLong(index), l);
+        }
+        if (Float.class.equals(binding)) {
+            final float f = number.floatValue();
+            return values -> Float.compare((float) values.getDouble(index), f);
+        }
+        if (Double.class.equals(binding)) {
+            final double d = number.doubleValue();
+            return values -> Double.compare(values.getDouble(index), d);
+        }
+        return null;
+    }
+}
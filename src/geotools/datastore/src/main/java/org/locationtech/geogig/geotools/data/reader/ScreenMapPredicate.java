@@ -14,6 +14,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -21,16 +22,21 @@ import org.geotools.data.util.ScreenMap;
 import org.locationtech.geogig.model.Bounded;
 import org.locationtech.geogig.model.Bucket;
 import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.jts.geom.Envelope;
 import org.opengis.referencing.operation.TransformException;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
 
 /**
  * Filters out {@link Bounded} ({@link NodeRef node refs} and {@link Bucket buckets}) based on a
  * geotools {@link ScreenMap}
- *
+ * <p>
+ * When {@link #filterTrees() filtering trees} and {@link #useBucketSummaries() using bucket
+ * summaries}, buckets whose bounds span more than one pixel are also skipped if their
+ * {@link BucketSummary summary} tells all their features would be skipped.
  */
 public class ScreenMapPredicate implements Predicate<Bounded> {
 
@@ -38,6 +44,9 @@ public class ScreenMapPredicate implements Predicate<Bounded> {
         void add(final Bounded b, final boolean skip) {
         }
 
+        void addSummarized(final BucketSummary summary) {
+        }
+
         public @Override String toString() {
             return "No Stats";
         }
@@ -50,6 +59,14 @@ public class ScreenMapPredicate implements Predicate<Bounded> {
         public final AtomicLong acceptedTrees = new AtomicLong(),
                 acceptedBuckets = new AtomicLong(), acceptedFeatures = new AtomicLong();
 
+        public final AtomicLong summarizedBuckets = new AtomicLong(),
+                summarizedFeatures = new AtomicLong();
+
+        protected @Override void addSummarized(final BucketSummary summary) {
+            summarizedBuckets.incrementAndGet();
+            summarizedFeatures.addAndGet(summary.size());
+        }
+
         protected @Override void add(final Bounded b, final boolean skip) {
             NodeRef n = b instanceof NodeRef ? (NodeRef) b : null;
             Bucket bucket = b instanceof Bucket ? (Bucket) b : null;
@@ -78,10 +95,12 @@ public class ScreenMapPredicate implements Predicate<Bounded> {
 
         public @Override String toString() {
             return String.format(
-                    "skipped/accepted: Features(%,d/%,d) Buckets(%,d/%,d) Trees(%,d/%,d)",
+                    "skipped/accepted: Features(%,d/%,d) Buckets(%,d/%,d) Trees(%,d/%,d)"
+                            + ", skipped by summary: Buckets(%,d) Features(%,d)",
                     skippedFeatures.longValue(), acceptedFeatures.longValue(),
                     skippedBuckets.longValue(), acceptedBuckets.longValue(),
-                    skippedTrees.longValue(), acceptedTrees.longValue());
+                    skippedTrees.longValue(), acceptedTrees.longValue(),
+                    summarizedBuckets.longValue(), summarizedFeatures.longValue());
         }
     }
 
@@ -95,6 +114,8 @@ public class ScreenMapPredicate implements Predicate<Bounded> {
 
     private boolean filterTrees = false;
 
+    private Function<ObjectId, BucketSummary> summaries = null;
+
     public ScreenMapPredicate(ScreenMap screenMap) {
         this.screenMap = screenMap;
     }
@@ -109,6 +130,20 @@ public class ScreenMapPredicate implements Predicate<Bounded> {
         return this;
     }
 
+    /**
+     * Uses the {@link BucketSummaries cached bucket summaries} to skip buckets spanning several
+     * pixels, only effective when {@link #filterTrees() filtering trees}
+     */
+    public ScreenMapPredicate useBucketSummaries() {
+        return useBucketSummaries(BucketSummaries::get);
+    }
+
+    @VisibleForTesting
+    ScreenMapPredicate useBucketSummaries(Function<ObjectId, BucketSummary> summaries) {
+        this.summaries = summaries;
+        return this;
+    }
+
     public ScreenMapPredicate optimizeForSingleThreadedCalls() {
         this.lock = new NoOpLock();
         final Envelope reuse = new Envelope();
@@ -135,7 +170,24 @@ public class ScreenMapPredicate implements Predicate<Bounded> {
 
         boolean skip = false;
         // canSimplify is thread-safe
-        if (screenMap.canSimplify(envelope)) {
+        if (filterTrees && summaries != null && b instanceof Bucket
+                && !screenMap.canSimplify(envelope)) {
+            BucketSummary summary = summaries.apply(((Bucket) b).getObjectId());
+            if (summary != null) {
+                lock.lock();
+                try {
+                    skip = summary.allPixelsSet(screenMap);
+                } catch (TransformException e) {
+                    e.printStackTrace();
+                    return true;
+                } finally {
+                    lock.unlock();
+                }
+                if (skip) {
+                    stats.addSummarized(summary);
+                }
+            }
+        } else if (screenMap.canSimplify(envelope)) {
             // these aren't thread safe
             lock.lock();
             try {
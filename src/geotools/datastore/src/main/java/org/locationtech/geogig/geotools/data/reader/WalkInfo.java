@@ -37,6 +37,10 @@ public class WalkInfo {
     // properties present in the RevTree nodes' extra data
     public Set<String> materializedIndexProperties = Collections.emptySet();
 
+    // the pre-simplified geometry level of the index to use as the value of the indexed geometry
+    // attribute, if the query asks for simplification and the filter doesn't need the geometry
+    public @Nullable Double simplifiedGeometryTolerance;
+
     // whether the RevTree nodes contain all required properties (hence no need to fetch
     // RevFeatures from the database)
     public boolean indexContainsAllRequiredProperties;
@@ -10,7 +10,9 @@
 package org.locationtech.geogig.geotools.data.reader;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -37,6 +39,7 @@ import org.geotools.data.util.ScreenMap;
 import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.NameImpl;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.operation.transform.IdentityTransform;
 import org.geotools.util.factory.Hints;
 import org.junit.After;
 import org.junit.BeforeClass;
@@ -87,6 +90,9 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
     // spy'ed DiffTree command
     private DiffTree difftree;
 
+    // last builder created by linesReader()
+    private FeatureReaderBuilder linesBuilder;
+
     public @BeforeClass static void beforeClass() {
         System.setProperty("org.geotools.referencing.forceXY", "true");
     }
@@ -356,6 +362,83 @@ public class FeatureReaderBuilderTest extends RepositoryTestCase {
         verifyUsesIndex(index);
     }
 
+    @Test
+    public void testResolveSimplifiedGeometryTolerance() {
+        final double[] tolerances = { 0.5, 2, 10 };
+        assertNull(FeatureReaderBuilder.resolveSimplifiedGeometryTolerance(tolerances, null));
+        assertNull(FeatureReaderBuilder.resolveSimplifiedGeometryTolerance(tolerances, 0d));
+        assertNull(FeatureReaderBuilder.resolveSimplifiedGeometryTolerance(tolerances, -1d));
+        // finer than any level
+        assertNull(FeatureReaderBuilder.resolveSimplifiedGeometryTolerance(tolerances, 0.1));
+        assertNull(FeatureReaderBuilder.resolveSimplifiedGeometryTolerance(new double[0], 1d));
+        // largest level not coarser than requested
+        assertEquals(Double.valueOf(0.5),
+                FeatureReaderBuilder.resolveSimplifiedGeometryTolerance(tolerances, 0.5));
+        assertEquals(Double.valueOf(0.5),
+                FeatureReaderBuilder.resolveSimplifiedGeometryTolerance(tolerances, 1.9));
+        assertEquals(Double.valueOf(2),
+                FeatureReaderBuilder.resolveSimplifiedGeometryTolerance(tolerances, 2d));
+        assertEquals(Double.valueOf(10),
+                FeatureReaderBuilder.resolveSimplifiedGeometryTolerance(tolerances, 100d));
+    }
+
+    @Test
+    public void testSimplifiedGeometriesServedFromIndex() throws Exception {
+        // a zigzag 0.3 units high, simplified to a straight line at tolerance 1
+        StringBuilder zigzag = new StringBuilder("LINESTRING (");
+        for (int x = 0; x <= 20; x++) {
+            zigzag.append(x == 0 ? "" : ", ").append(x).append(x % 2 == 0 ? " 0" : " 0.3");
+        }
+        insertAndAdd(feature(linesType, "zigzag", "zigzag", 1, zigzag.append(')').toString()));
+        commit("lines");
+        Index index = repo.command(CreateQuadTree.class).setGeometryAttributeName("pp")
+                .setTreeRefSpec(linesName).setSimplificationTolerances(0.1, 1, 5).call();
+
+        // a 1.5 units per pixel screen map, which is the simplification distance requested
+        // when rendering
+        final double resolution = 1.5;
+        ScreenMap screenMap = new ScreenMap(-180, -90, 360, 180, IdentityTransform.create(2));
+        screenMap.setSpans(resolution, resolution);
+
+        reader = linesReader().propertyNames("pp").screenMap(screenMap)
+                .simplificationDistance(resolution).build();
+        WalkInfo walkInfo = linesBuilder.getBuiltWalkInfo();
+        assertEquals(Double.valueOf(1), walkInfo.simplifiedGeometryTolerance);
+        assertTrue(walkInfo.indexContainsAllRequiredProperties);
+        verify(difftree).setNewTree(eq(index.indexTreeId()));
+        assertEquals(2, readGeometry(reader).getNumPoints());
+
+        // full resolution geometries without simplification
+        reader = linesReader().propertyNames("pp").screenMap(screenMap).build();
+        assertNull(linesBuilder.getBuiltWalkInfo().simplifiedGeometryTolerance);
+        assertEquals(21, readGeometry(reader).getNumPoints());
+
+        // finer than the finest level
+        reader = linesReader().propertyNames("pp").simplificationDistance(0.01).build();
+        assertNull(linesBuilder.getBuiltWalkInfo().simplifiedGeometryTolerance);
+        assertEquals(21, readGeometry(reader).getNumPoints());
+    }
+
+    private FeatureReaderBuilder linesReader() {
+        RevFeatureType nativeType = RevFeatureType.builder().type(linesType).build();
+        NodeRef typeRef = context.workingTree().getFeatureTypeTrees().stream()
+                .filter(ref -> linesName.equals(ref.name())).findFirst().get();
+        linesBuilder = FeatureReaderBuilder.builder(context, nativeType, typeRef);
+        return linesBuilder;
+    }
+
+    private Geometry readGeometry(FeatureReader<SimpleFeatureType, SimpleFeature> reader)
+            throws IOException {
+        try {
+            assertTrue(reader.hasNext());
+            Geometry geometry = (Geometry) reader.next().getDefaultGeometry();
+            assertFalse(reader.hasNext());
+            return geometry;
+        } finally {
+            reader.close();
+        }
+    }
+
     public @Test void testDiffTreeIteratorIsClosedOnError() throws IOException {
         RuntimeException expected = new RuntimeException();
         AutoCloseableIterator<DiffEntry> mockIt = mock(AutoCloseableIterator.class);
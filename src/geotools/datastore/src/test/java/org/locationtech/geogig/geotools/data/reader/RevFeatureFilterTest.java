@@ -0,0 +1,166 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.geotools.data.reader;
+
+import static org.geotools.filter.text.ecql.ECQL.toFilter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+public class RevFeatureFilterTest {
+
+    private SimpleFeatureType type;
+
+    private final GeometryFactory gf = new GeometryFactory();
+
+    public @Before void before() throws Exception {
+        type = DataUtilities.createType("test",
+                "d:Double,i:Integer,l:Long,f:Float,s:String,geom:Point");
+    }
+
+    private RevFeature feature(Double d, Integer i, Long l, Float f, String s, Point geom) {
+        return RevFeature.builder().addValue(d).addValue(i).addValue(l).addValue(f).addValue(s)
+                .addValue(geom).build();
+    }
+
+    private RevFeature feature(Double d, Integer i) {
+        return feature(d, i, 10L, 1.5f, "name", point(0, 0));
+    }
+
+    private Point point(double x, double y) {
+        return gf.createPoint(new Coordinate(x, y));
+    }
+
+    private RevFeatureFilter filter(String ecql) throws Exception {
+        Optional<RevFeatureFilter> filter = RevFeatureFilter.forFilter(toFilter(ecql), type);
+        assertTrue("expected filter to be supported: " + ecql, filter.isPresent());
+        return filter.get();
+    }
+
+    private void assertUnsupported(String ecql) throws Exception {
+        Optional<RevFeatureFilter> filter = RevFeatureFilter.forFilter(toFilter(ecql), type);
+        assertFalse("expected filter to be unsupported: " + ecql, filter.isPresent());
+    }
+
+    /**
+     * Asserts the predicate returns the expected value and never rejects a feature the GeoTools
+     * filter accepts
+     */
+    private void assertFilter(String ecql, RevFeature feature, boolean expected)
+            throws Exception {
+        RevFeatureFilter predicate = filter(ecql);
+        assertEquals(ecql, expected, predicate.apply(feature));
+
+        SimpleFeature simpleFeature = SimpleFeatureBuilder.build(type,
+                feature.getValues().stream().map(v -> v.orElse(null)).toArray(), "fid");
+        if (toFilter(ecql).evaluate(simpleFeature)) {
+            assertTrue(ecql, predicate.apply(feature));
+        }
+    }
+
+    public @Test void testInclude() throws Exception {
+        assertFalse(RevFeatureFilter.forFilter(Filter.INCLUDE, type).isPresent());
+    }
+
+    public @Test void testUnsupported() throws Exception {
+        assertUnsupported("s = 'name'");
+        assertUnsupported("s LIKE 'n%'");
+        assertUnsupported("i = l");
+        assertUnsupported("NOT (i > 5)");
+        assertUnsupported("i > 5 OR s = 'name'");
+        assertUnsupported("missing > 5");
+        // lossy conversion of the literal to the attribute binding
+        assertUnsupported("i = 7.5");
+    }
+
+    public @Test void testComparisons() throws Exception {
+        RevFeature f = feature(1.5, 7);
+        assertFilter("i = 7", f, true);
+        assertFilter("i = 8", f, false);
+        assertFilter("i <> 7", f, false);
+        assertFilter("i <> 8", f, true);
+        assertFilter("i > 5", f, true);
+        assertFilter("i > 7", f, false);
+        assertFilter("i >= 7", f, true);
+        assertFilter("i < 7", f, false);
+        assertFilter("i <= 7", f, true);
+        assertFilter("d > 1", f, true);
+        assertFilter("d < 1.5", f, false);
+        assertFilter("l = 10", f, true);
+        assertFilter("f = 1.5", f, true);
+        assertFilter("f > 2", f, false);
+    }
+
+    public @Test void testReversedComparisons() throws Exception {
+        RevFeature f = feature(1.5, 7);
+        assertFilter("5 < i", f, true);
+        assertFilter("7 < i", f, false);
+        assertFilter("7 <= i", f, true);
+        assertFilter("8 > i", f, true);
+        assertFilter("7 > i", f, false);
+        assertFilter("7 >= i", f, true);
+    }
+
+    public @Test void testStringLiteralConvertedToBinding() throws Exception {
+        RevFeature f = feature(1.5, 7);
+        assertFilter("i = '7'", f, true);
+        assertFilter("i > '7'", f, false);
+        assertFilter("d < '2.5'", f, true);
+    }
+
+    public @Test void testBetween() throws Exception {
+        RevFeature f = feature(1.5, 7);
+        assertFilter("i BETWEEN 5 AND 7", f, true);
+        assertFilter("i BETWEEN 8 AND 10", f, false);
+        assertFilter("d BETWEEN 1.6 AND 2", f, false);
+        assertFilter("d BETWEEN 1 AND 2", f, true);
+    }
+
+    public @Test void testNullValuesAccepted() throws Exception {
+        RevFeature f = feature(null, null);
+        assertFilter("i = 7", f, true);
+        assertFilter("d BETWEEN 1 AND 2", f, true);
+    }
+
+    public @Test void testAndOr() throws Exception {
+        RevFeature f = feature(1.5, 7);
+        assertFilter("i > 5 AND d < 2", f, true);
+        assertFilter("i > 5 AND d > 2", f, false);
+        assertFilter("i > 8 OR d < 2", f, true);
+        assertFilter("i > 8 OR d > 2", f, false);
+        // unsupported AND operands are ignored
+        assertFilter("i > 8 AND s = 'name'", f, false);
+        assertFilter("i > 5 AND s = 'other'", f, true);
+    }
+
+    public @Test void testBBOX() throws Exception {
+        RevFeature f = feature(1.5, 7, 10L, 1.5f, "name", point(10, 10));
+        assertFilter("BBOX(geom, 0, 0, 20, 20)", f, true);
+        assertFilter("BBOX(geom, 0, 0, 5, 5)", f, false);
+        assertFilter("BBOX(geom, 0, 0, 20, 20) AND i = 8", f, false);
+
+        RevFeature nullGeom = feature(1.5, 7, 10L, 1.5f, "name", null);
+        assertTrue(filter("BBOX(geom, 0, 0, 5, 5)").apply(nullGeom));
+    }
+}
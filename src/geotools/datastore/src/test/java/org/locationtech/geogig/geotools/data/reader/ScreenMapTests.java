@@ -12,14 +12,24 @@ package org.locationtech.geogig.geotools.data.reader;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import org.geotools.data.DataUtilities;
 import org.geotools.data.util.ScreenMap;
 import org.geotools.feature.SchemaException;
 import org.geotools.referencing.operation.transform.IdentityTransform;
 import org.junit.Test;
+import org.locationtech.geogig.model.Bucket;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.NodeRef;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevObjectFactory;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LineString;
@@ -89,4 +99,71 @@ public class ScreenMapTests {
         assertEquals(feature2, feature2b);
 
     }
+
+    @Test
+    public void testBucketSummary() throws TransformException {
+        ScreenMap sm = new ScreenMap(0, 0, 100, 100, IdentityTransform.create(2));
+        sm.setSpans(1, 1);
+
+        BucketSummary summary = BucketSummary.ofFeatures(Arrays.asList(point("f1", 0.5, 0.5),
+                point("f2", 1.5, 0.5), point("f3", 0.5, 1.5), point("f4", 1.5, 1.5)));
+        assertEquals(4, summary.size());
+        assertFalse(summary.allPixelsSet(sm));
+
+        sm.checkAndSet(new Envelope(0.5, 0.5, 0.5, 0.5));
+        sm.checkAndSet(new Envelope(1.5, 1.5, 0.5, 0.5));
+        sm.checkAndSet(new Envelope(0.5, 0.5, 1.5, 1.5));
+        assertFalse(summary.allPixelsSet(sm));
+        sm.checkAndSet(new Envelope(1.5, 1.5, 1.5, 1.5));
+        assertTrue(summary.allPixelsSet(sm));
+
+        BucketSummary parent = BucketSummary.ofBuckets(Arrays.asList(summary,
+                BucketSummary.ofFeatures(Arrays.asList(point("f5", 50.5, 50.5)))));
+        assertEquals(5, parent.size());
+        assertFalse(parent.allPixelsSet(sm));
+        sm.checkAndSet(new Envelope(50.5, 50.5, 50.5, 50.5));
+        // cells of the parent bucket are larger than a pixel
+        assertFalse(parent.allPixelsSet(sm));
+
+        // features larger than a pixel can't be simplified
+        Node big = RevObjectFactory.defaultInstance().createNode("big",
+                RevObjectTestSupport.hashString("big"), ObjectId.NULL, TYPE.FEATURE,
+                new Envelope(0, 5, 0, 5), null);
+        assertFalse(BucketSummary.ofFeatures(Arrays.asList(big)).allPixelsSet(sm));
+        // features without bounds can't be summarized
+        Node unbounded = RevObjectFactory.defaultInstance().createNode("unbounded",
+                RevObjectTestSupport.hashString("unbounded"), ObjectId.NULL, TYPE.FEATURE, null,
+                null);
+        assertNull(BucketSummary.ofFeatures(Arrays.asList(point("f1", 0.5, 0.5), unbounded)));
+        assertNull(BucketSummary.ofBuckets(Arrays.asList(summary, null)));
+    }
+
+    @Test
+    public void testScreenMapPredicateBucketSummaries() {
+        ScreenMap sm = new ScreenMap(0, 0, 100, 100, IdentityTransform.create(2));
+        sm.setSpans(1, 1);
+
+        ObjectId bucketTreeId = RevObjectTestSupport.hashString("bucket");
+        BucketSummary summary = BucketSummary
+                .ofFeatures(Arrays.asList(point("f1", 0.5, 0.5), point("f2", 1.5, 1.5)));
+        Bucket bucket = RevObjectFactory.defaultInstance().createBucket(bucketTreeId, 0,
+                new Envelope(0.5, 1.5, 0.5, 1.5));
+
+        ScreenMapPredicate predicate = new ScreenMapPredicate(sm).filterTrees()
+                .useBucketSummaries(id -> bucketTreeId.equals(id) ? summary : null);
+        assertTrue(predicate.apply(bucket));
+
+        assertTrue(predicate.apply(NodeRef.create(NodeRef.ROOT, point("f1", 0.5, 0.5))));
+        assertTrue(predicate.apply(NodeRef.create(NodeRef.ROOT, point("f2", 1.5, 1.5))));
+        assertFalse(predicate.apply(bucket));
+
+        // without summaries the bucket is larger than a pixel and can't be skipped
+        assertTrue(new ScreenMapPredicate(sm).filterTrees().apply(bucket));
+    }
+
+    private Node point(String name, double x, double y) {
+        return RevObjectFactory.defaultInstance().createNode(name,
+                RevObjectTestSupport.hashString(name), ObjectId.NULL, TYPE.FEATURE,
+                new Envelope(x, x, y, y), null);
+    }
 }
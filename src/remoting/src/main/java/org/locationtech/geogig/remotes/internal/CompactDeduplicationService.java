@@ -0,0 +1,20 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.internal;
+
+/**
+ * Default {@link DeduplicationService}, creates {@link CompactDeduplicator}s whose memory usage is
+ * bounded regardless of the number of objects transferred.
+ */
+public class CompactDeduplicationService implements DeduplicationService {
+    public @Override Deduplicator createDeduplicator() {
+        return new CompactDeduplicator();
+    }
+}
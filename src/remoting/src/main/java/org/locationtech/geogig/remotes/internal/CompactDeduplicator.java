@@ -0,0 +1,517 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A {@link Deduplicator} whose memory usage stays bounded regardless of the number of visited
+ * objects, for clones, fetches, and pushes of huge histories.
+ * <p>
+ * Visited {@code (left, right)} id pairs are stored as their raw 40 bytes in an open addressing,
+ * linear probing hash table, instead of as {@link ObjectId} instances in a hash set. Since object
+ * ids are SHA-1 hashes, the table is indexed directly by their bits.
+ * <p>
+ * The table lives in heap memory up to {@code maxHeapSlots} slots. Past that, it's spilled to a
+ * memory-mapped temporary file, and a Bloom filter is put in front of it so that looking up ids
+ * that haven't been visited, the most common case, seldom touches the file. The filter is sized
+ * after the table capacity, up to {@code maxBloomBits}, and rebuilt each time the spilled table
+ * grows. The heap table is not filtered, since probing it costs about the same as the filter.
+ * <p>
+ * The table is split in {@link #SHARDS} shards by the ids' hash, each one with its own lock, so
+ * instances can be shared among the threads of a parallel tree walk without serializing them.
+ */
+@Slf4j
+public class CompactDeduplicator implements Deduplicator {
+
+    /**
+     * Default maximum number of heap table slots, 40MiB worth of ids
+     */
+    public static final long DEFAULT_MAX_HEAP_SLOTS = 1L << 20;
+
+    /**
+     * Default maximum size of the Bloom filters used once the table is spilled to disk, 128MiB,
+     * reached once the table is 5GiB
+     */
+    public static final long DEFAULT_MAX_BLOOM_BITS = 1L << 30;
+
+    /**
+     * Number of independently locked shards the table is split in
+     */
+    static final int SHARDS = 16;
+
+    private static final int SHARD_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(SHARDS);
+
+    private static final int ENTRY_BYTES = 2 * ObjectId.NUM_BYTES;
+
+    private static final int ENTRY_LONGS = ENTRY_BYTES / Long.BYTES;
+
+    private static final int SEGMENT_SHIFT = 20;
+
+    /**
+     * Initial capacity of each shard's table
+     */
+    private static final long INITIAL_CAPACITY = 1L << 8;
+
+    /**
+     * Bloom filter bits per table slot, about 10.7 bits per id at the table's maximum load factor
+     * of 3/4, for a false positive rate below 2% with {@link #BLOOM_HASHES} hash functions
+     */
+    private static final int BLOOM_BITS_PER_SLOT = 8;
+
+    private static final int BLOOM_HASHES = 3;
+
+    private static final long M = 0x9E3779B97F4A7C15L;
+
+    private final Shard[] shards;
+
+    private final AtomicBoolean nullPairVisited = new AtomicBoolean();
+
+    public CompactDeduplicator() {
+        this(DEFAULT_MAX_HEAP_SLOTS, DEFAULT_MAX_BLOOM_BITS,
+                new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param maxHeapSlots maximum number of slots of the in-memory table before spilling to disk
+     * @param maxBloomBits maximum size of the Bloom filter in front of the on-disk table
+     * @param spillDirectory directory where to create the temporary table files
+     */
+    public CompactDeduplicator(long maxHeapSlots, long maxBloomBits,
+            @NonNull File spillDirectory) {
+        Preconditions.checkArgument(maxHeapSlots > 0);
+        Preconditions.checkArgument(maxBloomBits >= SHARDS * Long.SIZE);
+        final long shardHeapSlots = Math.max(1, maxHeapSlots / SHARDS);
+        // bounded by the maximum size of a long[]
+        final long shardBloomBits = Long.highestOneBit(Math.min(maxBloomBits / SHARDS, 1L << 36));
+        this.shards = new Shard[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(shardHeapSlots, shardBloomBits, spillDirectory);
+        }
+    }
+
+    public @Override boolean visit(ObjectId id) {
+        return visit(ObjectId.NULL, id);
+    }
+
+    public @Override boolean visit(ObjectId left, ObjectId right) {
+        final long[] key = key(left, right);
+        if (isNullKey(key)) {
+            return nullPairVisited.compareAndSet(false, true);
+        }
+        final long hash = hash(key);
+        return shard(hash).visit(key, hash);
+    }
+
+    public @Override boolean isDuplicate(ObjectId id) {
+        return isDuplicate(ObjectId.NULL, id);
+    }
+
+    public @Override boolean isDuplicate(ObjectId left, ObjectId right) {
+        return contains(key(left, right));
+    }
+
+    public @Override void removeDuplicates(List<ObjectId> ids) {
+        Iterator<ObjectId> iterator = ids.iterator();
+        while (iterator.hasNext()) {
+            if (contains(key(ObjectId.NULL, iterator.next()))) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public @Override void reset() {
+        for (Shard shard : shards) {
+            shard.reset();
+        }
+        nullPairVisited.set(false);
+    }
+
+    public @Override void release() {
+        for (Shard shard : shards) {
+            shard.release();
+        }
+    }
+
+    @VisibleForTesting
+    boolean isSpilled() {
+        for (Shard shard : shards) {
+            if (shard.isSpilled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @VisibleForTesting
+    long size() {
+        long size = nullPairVisited.get() ? 1 : 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the total size of the shards' Bloom filters, in bits
+     */
+    @VisibleForTesting
+    long bloomBits() {
+        long bits = 0;
+        for (Shard shard : shards) {
+            bits += shard.bloomBits();
+        }
+        return bits;
+    }
+
+    private boolean contains(long[] key) {
+        if (isNullKey(key)) {
+            return nullPairVisited.get();
+        }
+        final long hash = hash(key);
+        return shard(hash).contains(key, hash);
+    }
+
+    private Shard shard(long hash) {
+        // the top bits, the table and Bloom filter are indexed by the bottom ones
+        return shards[(int) (hash >>> SHARD_SHIFT)];
+    }
+
+    private static long[] key(ObjectId left, ObjectId right) {
+        final byte[] rawLeft = new byte[ObjectId.NUM_BYTES];
+        final byte[] rawRight = new byte[ObjectId.NUM_BYTES];
+        left.getRawValue(rawLeft);
+        right.getRawValue(rawRight);
+        final ByteBuffer rawKey = ByteBuffer.allocate(ENTRY_BYTES).put(rawLeft).put(rawRight);
+        final long[] key = new long[ENTRY_LONGS];
+        for (int i = 0; i < ENTRY_LONGS; i++) {
+            key[i] = rawKey.getLong(i * Long.BYTES);
+        }
+        return key;
+    }
+
+    private static boolean isNullKey(long[] key) {
+        for (long k : key) {
+            if (k != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(long[] key) {
+        // the leading bytes of the left id and the trailing bytes of the right one, which are
+        // what's random when the left id is NULL
+        long h = key[0] * M + key[3];
+        h = (h ^ (h >>> 32)) * M + key[4];
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * A lock protected portion of the visited pairs, with its own table and Bloom filter
+     */
+    private static class Shard {
+
+        private final long maxHeapSlots;
+
+        private final long maxBloomBits;
+
+        private final File spillDirectory;
+
+        private Table table;
+
+        private long size;
+
+        /**
+         * Bloom filter over the visited pairs, created when the table is spilled to disk
+         */
+        private long[] bloom;
+
+        private long bloomMask;
+
+        Shard(long maxHeapSlots, long maxBloomBits, File spillDirectory) {
+            this.maxHeapSlots = maxHeapSlots;
+            this.maxBloomBits = maxBloomBits;
+            this.spillDirectory = spillDirectory;
+            this.table = Table.heap(INITIAL_CAPACITY);
+        }
+
+        synchronized boolean visit(long[] key, long hash) {
+            if (mightContain(key, hash) && table.indexOf(key, hash) >= 0) {
+                return false;
+            }
+            if (size + 1 > table.threshold) {
+                grow();
+            }
+            table.insert(key, hash);
+            addToBloom(key, hash);
+            size++;
+            return true;
+        }
+
+        synchronized boolean contains(long[] key, long hash) {
+            return mightContain(key, hash) && table.indexOf(key, hash) >= 0;
+        }
+
+        synchronized void reset() {
+            if (table != null) {
+                table.dispose();
+            }
+            table = Table.heap(INITIAL_CAPACITY);
+            bloom = null;
+            size = 0;
+        }
+
+        synchronized void release() {
+            if (table != null) {
+                table.dispose();
+                table = null;
+                bloom = null;
+            }
+        }
+
+        synchronized boolean isSpilled() {
+            return table.file != null;
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        synchronized long bloomBits() {
+            return bloom == null ? 0 : (long) bloom.length * Long.SIZE;
+        }
+
+        private boolean mightContain(long[] key, long h1) {
+            if (bloom == null) {
+                return true;
+            }
+            final long h2 = key[1] * M + key[2];
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = (h1 + i * h2) & bloomMask;
+                if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addToBloom(long[] key, long h1) {
+            if (bloom == null) {
+                return;
+            }
+            final long h2 = key[1] * M + key[2];
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = (h1 + i * h2) & bloomMask;
+                bloom[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        /**
+         * Rehashes the table into one twice its size, spilling it to disk if it grows past
+         * {@link #maxHeapSlots}, in which case the Bloom filter is rebuilt to match the new
+         * capacity unless it's already at its maximum size
+         */
+        private void grow() {
+            final Table current = this.table;
+            final long capacity = 2 * current.capacity;
+            final Table grown;
+            if (capacity <= maxHeapSlots) {
+                grown = Table.heap(capacity);
+            } else {
+                try {
+                    grown = Table.mapped(capacity, spillDirectory);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to spill deduplication table to disk",
+                            e);
+                }
+                log.debug("Spilled deduplication table of {} ids to {} ({} slots)", size,
+                        grown.file, capacity);
+            }
+            final long bits = targetBloomBits(capacity);
+            final boolean rebuildBloom = grown.file != null && bloomBits() < bits;
+            if (rebuildBloom) {
+                bloom = new long[(int) (bits / Long.SIZE)];
+                bloomMask = bits - 1;
+            }
+            final long[] entry = new long[ENTRY_LONGS];
+            for (long slot = 0; slot < current.capacity; slot++) {
+                if (current.get(slot, entry)) {
+                    final long hash = hash(entry);
+                    grown.insert(entry, hash);
+                    if (rebuildBloom) {
+                        addToBloom(entry, hash);
+                    }
+                }
+            }
+            current.dispose();
+            this.table = grown;
+        }
+
+        private long targetBloomBits(long capacity) {
+            return Math.max(Long.SIZE, Math.min(maxBloomBits, capacity * BLOOM_BITS_PER_SLOT));
+        }
+    }
+
+    /**
+     * Fixed capacity open addressing table of {@link #ENTRY_BYTES} entries, split in buffers of up
+     * to {@code 2^SEGMENT_SHIFT} slots each. An all zeroes entry marks an empty slot.
+     */
+    private static class Table {
+
+        final long capacity;
+
+        final long threshold;
+
+        private final long mask;
+
+        private final int segmentShift;
+
+        private final long segmentMask;
+
+        private final ByteBuffer[] segments;
+
+        final @Nullable File file;
+
+        private Table(long capacity, ByteBuffer[] segments, int segmentShift,
+                @Nullable File file) {
+            this.capacity = capacity;
+            this.threshold = capacity - (capacity >>> 2);
+            this.mask = capacity - 1;
+            this.segments = segments;
+            this.segmentShift = segmentShift;
+            this.segmentMask = (1L << segmentShift) - 1;
+            this.file = file;
+        }
+
+        private static int segmentShift(long capacity) {
+            return Math.min(SEGMENT_SHIFT, Long.numberOfTrailingZeros(capacity));
+        }
+
+        static Table heap(long capacity) {
+            final int shift = segmentShift(capacity);
+            final int segmentBytes = (1 << shift) * ENTRY_BYTES;
+            ByteBuffer[] segments = new ByteBuffer[(int) (capacity >>> shift)];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = ByteBuffer.allocate(segmentBytes);
+            }
+            return new Table(capacity, segments, shift, null);
+        }
+
+        static Table mapped(long capacity, File directory) throws IOException {
+            final int shift = segmentShift(capacity);
+            final long segmentBytes = (1L << shift) * ENTRY_BYTES;
+            ByteBuffer[] segments = new ByteBuffer[(int) (capacity >>> shift)];
+            File file = File.createTempFile("geogig-dedup-", ".tbl", directory);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(capacity * ENTRY_BYTES);
+                FileChannel channel = raf.getChannel();
+                for (int i = 0; i < segments.length; i++) {
+                    segments[i] = channel.map(MapMode.READ_WRITE, i * segmentBytes,
+                            segmentBytes);
+                }
+            } catch (IOException | RuntimeException e) {
+                file.delete();
+                throw e;
+            }
+            return new Table(capacity, segments, shift, file);
+        }
+
+        private ByteBuffer segment(long slot) {
+            return segments[(int) (slot >>> segmentShift)];
+        }
+
+        private int offset(long slot) {
+            return (int) (slot & segmentMask) * ENTRY_BYTES;
+        }
+
+        /**
+         * @return the slot {@code key} is stored at, or {@code -1} if it's not in the table
+         */
+        long indexOf(long[] key, long hash) {
+            for (long slot = hash & mask;; slot = (slot + 1) & mask) {
+                final ByteBuffer segment = segment(slot);
+                final int offset = offset(slot);
+                boolean empty = true, matches = true;
+                for (int i = 0; i < ENTRY_LONGS; i++) {
+                    long l = segment.getLong(offset + i * Long.BYTES);
+                    empty &= l == 0L;
+                    matches &= l == key[i];
+                }
+                if (matches) {
+                    return slot;
+                }
+                if (empty) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * Stores {@code key} at the first empty slot of its probe sequence, the caller must make
+         * sure it's not already in the table
+         */
+        void insert(long[] key, long hash) {
+            for (long slot = hash & mask;; slot = (slot + 1) & mask) {
+                final ByteBuffer segment = segment(slot);
+                final int offset = offset(slot);
+                boolean empty = true;
+                for (int i = 0; empty && i < ENTRY_LONGS; i++) {
+                    empty = segment.getLong(offset + i * Long.BYTES) == 0L;
+                }
+                if (empty) {
+                    for (int i = 0; i < ENTRY_LONGS; i++) {
+                        segment.putLong(offset + i * Long.BYTES, key[i]);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return {@code false} if the slot is empty, otherwise copies its entry to {@code target}
+         */
+        boolean get(long slot, long[] target) {
+            final ByteBuffer segment = segment(slot);
+            final int offset = offset(slot);
+            boolean empty = true;
+            for (int i = 0; i < ENTRY_LONGS; i++) {
+                target[i] = segment.getLong(offset + i * Long.BYTES);
+                empty &= target[i] == 0L;
+            }
+            return !empty;
+        }
+
+        void dispose() {
+            if (file != null && !file.delete()) {
+                // still mapped on some platforms, the mapping is released when garbage collected
+                file.deleteOnExit();
+            }
+        }
+    }
+}
@@ -21,7 +21,8 @@ import com.google.common.collect.Lists;
  * A service for providing deduplicators.
  * <p>
  * Implementations are to be looked up through the standard Java {@link ServiceLoader SPI mechanism}
- * under {@code META-INF/services/org.locationtech.geogig.repository.DeduplicationService}
+ * under {@code META-INF/services/org.locationtech.geogig.repository.DeduplicationService}.
+ * Defaults to {@link CompactDeduplicationService} if none is found.
  */
 public interface DeduplicationService {
     /**
@@ -47,7 +48,7 @@ public interface DeduplicationService {
 
         DeduplicationService service;
         if (services.isEmpty()) {
-            service = new HeapDeduplicationService();
+            service = new CompactDeduplicationService();
         } else {
             service = services.get(0);
             if (services.size() > 1) {
@@ -0,0 +1,200 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.RevObjectSerializer;
+import org.locationtech.geogig.storage.datastream.DataStreamRevObjectSerializerV2_2;
+import org.locationtech.geogig.storage.impl.IndexInfoSerializer;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Constants and encoding helpers for the bundle file format written by {@link BundleWriter} and
+ * read by {@link BundleReader}.
+ * <p>
+ * A bundle file is laid out as follows:
+ *
+ * <pre>
+ * <code>
+ * header:  MAGIC (8 bytes), VERSION (int)
+ * blocks:  block*
+ * block:   type (byte), raw length (int), compressed length (int), DEFLATE compressed bytes
+ * trailer: block count (int), (type (byte), offset (long), raw length (int))*,
+ *          trailer offset (long), TRAILER_MAGIC (8 bytes)
+ * </code>
+ * </pre>
+ *
+ * Block contents, once decompressed, are:
+ * <ul>
+ * <li>{@link #OBJECTS} and {@link #INDEX_OBJECTS}: a sequence of {@code (object id, varint
+ * length, serialized object)}, to be saved to the object and index databases respectively
+ * <li>{@link #INDEX}: an {@link IndexDef}, followed in the file by the {@link #INDEX_OBJECTS}
+ * blocks with the index trees missing from its parent index tree
+ * <li>{@link #REFS}: the refs contained in the bundle, always the last block
+ * </ul>
+ * Objects are split in blocks of about {@link #BLOCK_SIZE} bytes so they can be decompressed and
+ * parsed in parallel while the file is read sequentially, and the trailing offset index allows to
+ * read the bundle refs without scanning the whole file.
+ */
+@UtilityClass class BundleFormat {
+
+    static final byte[] MAGIC = "GGBUNDLE".getBytes(StandardCharsets.US_ASCII);
+
+    static final byte[] TRAILER_MAGIC = "GGBNDEND".getBytes(StandardCharsets.US_ASCII);
+
+    static final int VERSION = 1;
+
+    static final byte OBJECTS = 1;
+
+    static final byte INDEX = 2;
+
+    static final byte INDEX_OBJECTS = 3;
+
+    static final byte REFS = 4;
+
+    /**
+     * Target uncompressed size of object blocks
+     */
+    static final int BLOCK_SIZE = 1024 * 1024;
+
+    static final RevObjectSerializer SERIALIZER = DataStreamRevObjectSerializerV2_2.INSTANCE;
+
+    /**
+     * Size of a block's header: type, raw length, and compressed length
+     */
+    static final int BLOCK_HEADER_LENGTH = 1 + Integer.BYTES + Integer.BYTES;
+
+    /**
+     * Size of a trailing block index entry: type, offset, and raw length
+     */
+    static final int BLOCK_INFO_LENGTH = 1 + Long.BYTES + Integer.BYTES;
+
+    /**
+     * Entry of the trailing block index
+     */
+    static class BlockInfo {
+        final byte type;
+
+        final long offset;
+
+        final int rawLength;
+
+        BlockInfo(byte type, long offset, int rawLength) {
+            this.type = type;
+            this.offset = offset;
+            this.rawLength = rawLength;
+        }
+    }
+
+    static byte[] compress(byte[] raw, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] buff = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buff);
+                out.write(buff, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] decompress(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int offset = 0;
+            while (offset < rawLength) {
+                int count = inflater.inflate(raw, offset, rawLength - offset);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated bundle block");
+                }
+                offset += count;
+            }
+            // the checksum follows the data, and is only verified once it's been consumed too
+            if (!inflater.finished() && (inflater.inflate(new byte[1]) != 0
+                    || !inflater.finished())) {
+                throw new IOException("Corrupt bundle block, data exceeds its length");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt bundle block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static void writeIndexDef(IndexDef def, DataOutput out) throws IOException {
+        IndexInfoSerializer.serialize(def.getIndex(), out);
+        def.getCanonical().writeTo(out);
+        def.getParentIndexTreeId().writeTo(out);
+        def.getIndexTreeId().writeTo(out);
+    }
+
+    static IndexDef readIndexDef(DataInput in) throws IOException {
+        IndexInfo index = IndexInfoSerializer.deserialize(in);
+        return IndexDef.builder()//
+                .index(index)//
+                .canonical(ObjectId.readFrom(in))//
+                .parentIndexTreeId(ObjectId.readFrom(in))//
+                .indexTreeId(ObjectId.readFrom(in))//
+                .build();
+    }
+
+    /**
+     * Writes the refs as {@code (name, new id, old id or NULL)}, the old ref being the version of
+     * the ref the bundle is based on, hence whose objects are required to be present in the
+     * repository the bundle is applied to
+     */
+    static void writeRefs(List<RefDiff> refs, DataOutput out) throws IOException {
+        out.writeInt(refs.size());
+        for (RefDiff diff : refs) {
+            Ref newRef = diff.getNewRef();
+            Ref oldRef = diff.getOldRef();
+            out.writeUTF(newRef.getName());
+            newRef.getObjectId().writeTo(out);
+            (oldRef == null ? ObjectId.NULL : oldRef.getObjectId()).writeTo(out);
+        }
+    }
+
+    static List<RefDiff> readRefs(DataInput in) throws IOException {
+        final int size = in.readInt();
+        List<RefDiff> refs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = in.readUTF();
+            ObjectId newId = ObjectId.readFrom(in);
+            ObjectId oldId = ObjectId.readFrom(in);
+            Ref oldRef = oldId.isNull() ? null : new Ref(name, oldId);
+            refs.add(new RefDiff(oldRef, new Ref(name, newId)));
+        }
+        return refs;
+    }
+}
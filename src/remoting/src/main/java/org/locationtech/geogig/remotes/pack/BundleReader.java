@@ -0,0 +1,339 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.remotes.pack.BundleFormat.BlockInfo;
+import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.Varint;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads a bundle file written by {@link BundleWriter} and applies its contents to an object and
+ * index database.
+ * <p>
+ * The file is read sequentially, while its blocks are decompressed and parsed in parallel, a
+ * bounded number of blocks ahead of the ones being saved to the database.
+ */
+@Slf4j
+class BundleReader {
+
+    private final File file;
+
+    private final List<BlockInfo> blocks;
+
+    private final List<RefDiff> refs;
+
+    private final long trailerOffset;
+
+    /**
+     * Opens the bundle file and reads its block index and refs
+     *
+     * @throws IllegalArgumentException if {@code file} is not a bundle file
+     */
+    public BundleReader(@NonNull File file) throws IOException {
+        this.file = file;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            final int headerLength = BundleFormat.MAGIC.length + Integer.BYTES;
+            final int tailLength = Long.BYTES + BundleFormat.TRAILER_MAGIC.length;
+            checkFormat(raf.length() >= headerLength + tailLength, file, "file too short");
+            checkFormat(BundleFormat.MAGIC, raf, file);
+            final int version = raf.readInt();
+            checkFormat(version == BundleFormat.VERSION, file,
+                    "unsupported bundle version " + version);
+
+            final long tailOffset = raf.length() - tailLength;
+            raf.seek(tailOffset);
+            final long trailerOffset = raf.readLong();
+            checkFormat(BundleFormat.TRAILER_MAGIC, raf, file);
+            checkFormat(
+                    trailerOffset >= headerLength && trailerOffset <= tailOffset - Integer.BYTES,
+                    file, "bad trailer offset " + trailerOffset);
+            raf.seek(trailerOffset);
+            final int count = raf.readInt();
+            checkFormat(count > 0 && Integer.BYTES
+                    + (long) count * BundleFormat.BLOCK_INFO_LENGTH == tailOffset - trailerOffset,
+                    file, "bad block count " + count);
+            List<BlockInfo> blocks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                blocks.add(new BlockInfo(raf.readByte(), raf.readLong(), raf.readInt()));
+            }
+            this.blocks = Collections.unmodifiableList(blocks);
+            this.trailerOffset = trailerOffset;
+
+            BlockInfo refsBlock = blocks.get(blocks.size() - 1);
+            checkFormat(refsBlock.type == BundleFormat.REFS, file, "refs block not found");
+            raf.seek(refsBlock.offset);
+            byte[] raw = readBlock(raf, blocks.size() - 1);
+            this.refs = BundleFormat.readRefs(ByteStreams.newDataInput(raw));
+        }
+    }
+
+    private static void checkFormat(boolean condition, File file, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(
+                    String.format("%s is not a valid bundle file: %s", file, message));
+        }
+    }
+
+    private static void checkFormat(byte[] magic, DataInput in, File file) throws IOException {
+        byte[] read = new byte[magic.length];
+        in.readFully(read);
+        checkFormat(Arrays.equals(magic, read), file, "bad magic number");
+    }
+
+    private byte[] readBlock(DataInput in, int index) throws IOException {
+        final byte[] compressed = readCompressedBlock(in, index);
+        return BundleFormat.decompress(compressed, blocks.get(index).rawLength);
+    }
+
+    /**
+     * Reads the header and compressed contents of the {@code index}th block, checking the header
+     * matches the block index, so that a corrupt or truncated block is not mistaken for a valid
+     * one
+     */
+    private byte[] readCompressedBlock(DataInput in, int index) throws IOException {
+        final BlockInfo info = blocks.get(index);
+        final long next = index + 1 < blocks.size() ? blocks.get(index + 1).offset : trailerOffset;
+        final long expectedLength = next - info.offset - BundleFormat.BLOCK_HEADER_LENGTH;
+        final byte type = in.readByte();
+        final int rawLength = in.readInt();
+        final int compressedLength = in.readInt();
+        if (type != info.type || rawLength != info.rawLength
+                || compressedLength != expectedLength) {
+            throw new IOException(String.format(
+                    "Corrupt bundle block %d, header does not match the block index", index));
+        }
+        final byte[] compressed = new byte[compressedLength];
+        in.readFully(compressed);
+        return compressed;
+    }
+
+    /**
+     * @return the refs contained in the bundle, each one's {@link RefDiff#getOldRef() old ref}, if
+     *         present, being the commit the bundle contents are based on
+     */
+    public List<RefDiff> getRefs() {
+        return refs;
+    }
+
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Saves all objects in the bundle to {@code objects}, and the spatial index updates to
+     * {@code indexes}.
+     * <p>
+     * An index update is skipped if {@code indexes} does not have the index tree it's based on,
+     * since it'd produce an incomplete index.
+     */
+    public void applyTo(@NonNull ObjectStore objects, @NonNull IndexDatabase indexes,
+            @NonNull BulkOpListener listener) throws IOException {
+
+        final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        final ExecutorService decoders = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("geogig-bundle-decoder-%d").build());
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BundleFormat.BLOCK_SIZE))) {
+            ByteStreams.skipFully(in, BundleFormat.MAGIC.length + Integer.BYTES);
+            PeekingIterator<DecodedBlock> it = Iterators
+                    .peekingIterator(new DecodingIterator(in, decoders, 2 * threads));
+            while (it.hasNext()) {
+                final DecodedBlock block = it.peek();
+                switch (block.type) {
+                case BundleFormat.OBJECTS:
+                    objects.putAll(objects(it, BundleFormat.OBJECTS), listener);
+                    break;
+                case BundleFormat.INDEX:
+                    it.next();
+                    applyIndex(block.index, it, indexes, listener);
+                    break;
+                default:
+                    it.next();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            decoders.shutdownNow();
+        }
+    }
+
+    private void applyIndex(IndexDef def, PeekingIterator<DecodedBlock> it, IndexDatabase indexes,
+            BulkOpListener listener) {
+        final IndexInfo index = def.getIndex();
+        final ObjectId parentIndexTree = def.getParentIndexTreeId();
+        final Optional<IndexInfo> existing = indexes.getIndexInfo(index.getTreeName(),
+                index.getAttributeName());
+
+        final boolean complete = RevTree.EMPTY_TREE_ID.equals(parentIndexTree)
+                || (existing.isPresent() && indexes.exists(parentIndexTree));
+        if (!complete) {
+            log.warn("Skipping update of index {}, its base index tree {} is not present", index,
+                    parentIndexTree);
+            Iterators.size(objects(it, BundleFormat.INDEX_OBJECTS));
+            return;
+        }
+        final IndexInfo target = existing
+                .orElseGet(() -> indexes.createIndexInfo(index.getTreeName(),
+                        index.getAttributeName(), index.getIndexType(), index.getMetadata()));
+        indexes.putAll(objects(it, BundleFormat.INDEX_OBJECTS), listener);
+        indexes.addIndexedTree(target, def.getCanonical(), def.getIndexTreeId());
+    }
+
+    /**
+     * @return the objects of all the consecutive blocks of the given type
+     */
+    private Iterator<RevObject> objects(PeekingIterator<DecodedBlock> blocks, byte type) {
+        Iterator<Iterator<RevObject>> consecutive = new AbstractIterator<Iterator<RevObject>>() {
+            protected @Override Iterator<RevObject> computeNext() {
+                if (blocks.hasNext() && blocks.peek().type == type) {
+                    return blocks.next().objects.iterator();
+                }
+                return endOfData();
+            }
+        };
+        return Iterators.concat(consecutive);
+    }
+
+    private static class DecodedBlock {
+        final byte type;
+
+        final List<RevObject> objects;
+
+        final @Nullable IndexDef index;
+
+        DecodedBlock(byte type, List<RevObject> objects, @Nullable IndexDef index) {
+            this.type = type;
+            this.objects = objects;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Reads blocks sequentially and decodes them in parallel, up to {@code window} blocks ahead of
+     * the one being returned, preserving the order of the blocks in the file
+     */
+    private class DecodingIterator extends AbstractIterator<DecodedBlock> {
+
+        private final DataInputStream in;
+
+        private final ExecutorService decoders;
+
+        private final int window;
+
+        private final Deque<Future<DecodedBlock>> pending = new ArrayDeque<>();
+
+        private int read;
+
+        DecodingIterator(DataInputStream in, ExecutorService decoders, int window) {
+            this.in = in;
+            this.decoders = decoders;
+            this.window = window;
+        }
+
+        protected @Override DecodedBlock computeNext() {
+            try {
+                while (pending.size() < window && read < blocks.size()) {
+                    final byte[] compressed = readCompressedBlock(in, read);
+                    final byte type = blocks.get(read).type;
+                    final int rawLength = blocks.get(read).rawLength;
+                    read++;
+                    pending.add(decoders.submit(() -> decode(type, compressed, rawLength)));
+                }
+                if (pending.isEmpty()) {
+                    return endOfData();
+                }
+                return pending.poll().get();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw new UncheckedIOException((IOException) cause);
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    private static DecodedBlock decode(byte type, byte[] compressed, int rawLength)
+            throws IOException {
+        final byte[] raw = BundleFormat.decompress(compressed, rawLength);
+        switch (type) {
+        case BundleFormat.OBJECTS:
+        case BundleFormat.INDEX_OBJECTS: {
+            List<RevObject> objects = new ArrayList<>();
+            ByteArrayInputStream bin = new ByteArrayInputStream(raw);
+            DataInputStream in = new DataInputStream(bin);
+            while (bin.available() > 0) {
+                ObjectId id = ObjectId.readFrom(in);
+                int length = Varint.readUnsignedVarInt(in);
+                int offset = rawLength - bin.available();
+                objects.add(BundleFormat.SERIALIZER.read(id, raw, offset, length));
+                ByteStreams.skipFully(in, length);
+            }
+            return new DecodedBlock(type, objects, null);
+        }
+        case BundleFormat.INDEX:
+            return new DecodedBlock(type, Collections.emptyList(),
+                    BundleFormat.readIndexDef(ByteStreams.newDataInput(raw)));
+        default:
+            return new DecodedBlock(type, Collections.emptyList(), null);
+        }
+    }
+}
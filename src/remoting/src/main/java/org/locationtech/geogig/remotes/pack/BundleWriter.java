@@ -0,0 +1,170 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.remotes.internal.Deduplicator;
+import org.locationtech.geogig.remotes.pack.BundleFormat.BlockInfo;
+import org.locationtech.geogig.remotes.pack.Pack.IndexDef;
+import org.locationtech.geogig.storage.BulkOpListener;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.storage.datastream.Varint;
+
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
+
+/**
+ * A {@link PackProcessor} that, instead of applying the {@link Pack} to a repository, writes it
+ * sequentially to a bundle file as described in {@link BundleFormat}, to be applied to another
+ * repository through {@link BundleReader}.
+ * <p>
+ * Once the pack has been {@link Pack#applyTo applied}, {@link #finish} shall be called with the
+ * resulting ref diffs to write them down and complete the file.
+ */
+class BundleWriter implements PackProcessor, Closeable {
+
+    private final DataOutputStream out;
+
+    private long offset;
+
+    private final List<BlockInfo> blocks = new ArrayList<>();
+
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream(
+            BundleFormat.BLOCK_SIZE + BundleFormat.BLOCK_SIZE / 4);
+
+    private final DataOutputStream blockOut = new DataOutputStream(block);
+
+    private final ByteArrayOutputStream object = new ByteArrayOutputStream();
+
+    private boolean finished;
+
+    public BundleWriter(@NonNull File file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),
+                BundleFormat.BLOCK_SIZE));
+        out.write(BundleFormat.MAGIC);
+        out.writeInt(BundleFormat.VERSION);
+        offset = out.size();
+    }
+
+    public @Override void putAll(Iterator<? extends RevObject> iterator,
+            BulkOpListener listener) {
+        try {
+            writeObjects(BundleFormat.OBJECTS, iterator, listener);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the {@link IndexDef} and the index trees missing from the parent index tree, leaving
+     * it up to the receiving end whether it can apply the index delta
+     */
+    public @Override void putIndex(@NonNull IndexDef indexDef, @NonNull IndexDatabase sourceStore,
+            @NonNull ObjectReporter objectReport, @NonNull Deduplicator deduplicator) {
+
+        final ExecutorService producerThread = Executors.newSingleThreadExecutor();
+        try {
+            BundleFormat.writeIndexDef(indexDef, blockOut);
+            flushBlock(BundleFormat.INDEX);
+
+            List<ObjectId[]> treeIds = Collections.singletonList(
+                    new ObjectId[] { indexDef.getParentIndexTreeId(), indexDef.getIndexTreeId() });
+            final ContentIdsProducer producer = ContentIdsProducer.forIndex(indexDef.getIndex(),
+                    sourceStore, treeIds, deduplicator, objectReport);
+            producerThread.submit(producer);
+            Iterator<ObjectId> missingContentIds = producer.iterator();
+            Iterator<RevTree> missingContents = sourceStore.getAll(() -> missingContentIds,
+                    NOOP_LISTENER, RevTree.class);
+            writeObjects(BundleFormat.INDEX_OBJECTS, missingContents, objectReport);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            producerThread.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the refs block and the trailing block index, completing the bundle file
+     */
+    public void finish(@NonNull List<RefDiff> refs) throws IOException {
+        Preconditions.checkState(!finished, "bundle already finished");
+        BundleFormat.writeRefs(refs, blockOut);
+        flushBlock(BundleFormat.REFS);
+
+        final long trailerOffset = offset;
+        out.writeInt(blocks.size());
+        for (BlockInfo b : blocks) {
+            out.writeByte(b.type);
+            out.writeLong(b.offset);
+            out.writeInt(b.rawLength);
+        }
+        out.writeLong(trailerOffset);
+        out.write(BundleFormat.TRAILER_MAGIC);
+        out.flush();
+        finished = true;
+    }
+
+    public @Override void close() throws IOException {
+        out.close();
+    }
+
+    private void writeObjects(byte type, Iterator<? extends RevObject> iterator,
+            BulkOpListener listener) throws IOException {
+        while (iterator.hasNext()) {
+            RevObject o = iterator.next();
+            object.reset();
+            BundleFormat.SERIALIZER.write(o, object);
+            o.getId().writeTo(blockOut);
+            Varint.writeUnsignedVarInt(object.size(), blockOut);
+            object.writeTo(blockOut);
+            listener.inserted(o.getId(), object.size());
+            if (block.size() >= BundleFormat.BLOCK_SIZE) {
+                flushBlock(type);
+            }
+        }
+        if (block.size() > 0) {
+            flushBlock(type);
+        }
+    }
+
+    private void flushBlock(byte type) throws IOException {
+        blockOut.flush();
+        final int rawLength = block.size();
+        final byte[] compressed = BundleFormat.compress(block.toByteArray(), rawLength);
+        blocks.add(new BlockInfo(type, offset, rawLength));
+        out.writeByte(type);
+        out.writeInt(rawLength);
+        out.writeInt(compressed.length);
+        out.write(compressed);
+        offset += BundleFormat.BLOCK_HEADER_LENGTH + compressed.length;
+        block.reset();
+    }
+}
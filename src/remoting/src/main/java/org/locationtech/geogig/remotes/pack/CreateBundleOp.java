@@ -0,0 +1,151 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.hooks.Hookable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.plumbing.ForEachRef;
+import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.plumbing.RevParse;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+
+import lombok.NonNull;
+
+/**
+ * Writes the objects needed to complete the history of the requested refs, and optionally their
+ * spatial index updates, to a self-contained bundle file that can be applied to another repository
+ * with {@link FetchBundleOp}, for example to sync repositories that can't reach each other over
+ * the network.
+ * <p>
+ * If a {@link #setSince(String) since} commit is given, the bundle excludes all the objects
+ * reachable from it, and it's required to be present at the repository the bundle is applied to.
+ * Otherwise the bundle contains the whole history of the requested refs.
+ * <p>
+ * The pack of missing objects is computed by {@link PreparePackOp} the same way as for a push or
+ * fetch, but is applied to a {@link BundleWriter} instead of a repository. Returns the refs
+ * written to the bundle.
+ */
+@Hookable(name = "create-bundle")
+public class CreateBundleOp extends AbstractGeoGigOp<List<RefDiff>> {
+
+    private File file;
+
+    private List<String> refs = new ArrayList<>();
+
+    private @Nullable String since;
+
+    private boolean includeIndexes;
+
+    public CreateBundleOp setFile(@NonNull File file) {
+        this.file = file;
+        return this;
+    }
+
+    /**
+     * Adds a branch or tag to the bundle, if none is added, all branches and tags are bundled
+     */
+    public CreateBundleOp addRef(@NonNull String ref) {
+        this.refs.add(ref);
+        return this;
+    }
+
+    /**
+     * @param since a commit known to be present at the receiving repository, whose history is
+     *        hence excluded from the bundle
+     */
+    public CreateBundleOp setSince(@Nullable String since) {
+        this.since = since;
+        return this;
+    }
+
+    public CreateBundleOp setIncludeIndexes(boolean includeIndexes) {
+        this.includeIndexes = includeIndexes;
+        return this;
+    }
+
+    protected @Override List<RefDiff> _call() {
+        checkArgument(file != null, "bundle file not provided");
+        final List<Ref> wantRefs = resolveRefs();
+        checkArgument(!wantRefs.isEmpty(), "no refs to bundle");
+        final @Nullable ObjectId have = resolveSince();
+
+        PackRequest request = new PackRequest().syncIndexes(includeIndexes);
+        for (Ref ref : wantRefs) {
+            // tag requests' have ids are expected to be tags, the history of the since commit
+            // is excluded from them anyways as it's shared with the branch requests
+            boolean isTag = ref.getName().startsWith(Ref.TAGS_PREFIX);
+            request.addRef(RefRequest.want(ref, isTag ? null : have));
+        }
+
+        getProgressListener().setDescription("Preparing bundle " + file.getName());
+        final Pack pack = command(PreparePackOp.class)//
+                .setRequest(request)//
+                .setPackBuilder(new LocalPackBuilder(repository()))//
+                .setProgressListener(getProgressListener())//
+                .call();
+
+        boolean success = false;
+        try (BundleWriter writer = new BundleWriter(file)) {
+            List<RefDiff> bundled = pack.applyTo(writer, getProgressListener());
+            writer.finish(bundled);
+            success = true;
+            return bundled;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!success) {
+                file.delete();
+            }
+        }
+    }
+
+    private List<Ref> resolveRefs() {
+        if (refs.isEmpty()) {
+            return command(ForEachRef.class)
+                    .setFilter(r -> r.getName().startsWith(Ref.HEADS_PREFIX)
+                            || r.getName().startsWith(Ref.TAGS_PREFIX))
+                    .call().stream().sorted(Comparator.comparing(Ref::getName))
+                    .collect(Collectors.toList());
+        }
+        List<Ref> resolved = new ArrayList<>();
+        for (String name : refs) {
+            Optional<Ref> ref = command(RefParse.class).setName(name).call();
+            checkArgument(ref.isPresent(), "ref %s not found", name);
+            resolved.add(ref.get().peel());
+        }
+        return resolved;
+    }
+
+    private @Nullable ObjectId resolveSince() {
+        if (since == null) {
+            return null;
+        }
+        Optional<ObjectId> id = command(RevParse.class).setRefSpec(since).call();
+        checkArgument(id.isPresent(), "%s does not resolve to a commit", since);
+        RevCommit commit = objectDatabase().getIfPresent(id.get(), RevCommit.class);
+        checkArgument(commit != null, "%s does not resolve to a commit", since);
+        return commit.getId();
+    }
+}
@@ -0,0 +1,111 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.locationtech.geogig.hooks.Hookable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.plumbing.UpdateRef;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+
+import lombok.NonNull;
+
+/**
+ * Applies a bundle file created by {@link CreateBundleOp} to the local repository, and updates the
+ * refs it contains.
+ * <p>
+ * Branches are saved as remote tracking branches of the {@link #setRemote(String) remote} name
+ * (i.e. {@code refs/remotes/<remote>/<branch>}, defaulting to {@code bundle}), to be merged as
+ * with a regular fetch. Tags are saved as local tags.
+ * <p>
+ * Fails without modifying the repository if the bundle was created out of a commit that's not
+ * present in the local repository. Returns the refs updated, in the local namespace.
+ */
+@Hookable(name = "fetch-bundle")
+public class FetchBundleOp extends AbstractGeoGigOp<List<RefDiff>> {
+
+    public static final String DEFAULT_REMOTE = "bundle";
+
+    private File file;
+
+    private String remote = DEFAULT_REMOTE;
+
+    public FetchBundleOp setFile(@NonNull File file) {
+        this.file = file;
+        return this;
+    }
+
+    public FetchBundleOp setRemote(@NonNull String remote) {
+        this.remote = remote;
+        return this;
+    }
+
+    protected @Override List<RefDiff> _call() {
+        checkArgument(file != null, "bundle file not provided");
+        checkArgument(file.isFile(), "bundle file %s does not exist", file);
+
+        final BundleReader bundle;
+        try {
+            bundle = new BundleReader(file);
+            for (RefDiff ref : bundle.getRefs()) {
+                Optional<Ref> base = ref.oldRef();
+                checkState(!base.isPresent() || objectDatabase().exists(base.get().getObjectId()),
+                        "The bundle requires commit %s, which is not present in this repository",
+                        base.map(Ref::getObjectId).orElse(null));
+            }
+            getProgressListener().started();
+            getProgressListener().setDescription("Applying bundle " + file.getName());
+            ObjectReporter objectReport = new ObjectReporter(getProgressListener());
+            bundle.applyTo(objectDatabase(), indexDatabase(), objectReport);
+            getProgressListener().setDescription(String.format("Objects inserted: %,d, repeated: %,d",
+                    objectReport.inserted(), objectReport.found()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<RefDiff> updated = new ArrayList<>();
+        for (RefDiff ref : bundle.getRefs()) {
+            final String localName = toLocal(ref.getNewRef().getName());
+            final ObjectId newValue = ref.getNewRef().getObjectId();
+            final Optional<Ref> current = command(RefParse.class).setName(localName).call();
+            if (current.isPresent() && current.get().getObjectId().equals(newValue)) {
+                continue;
+            }
+            Ref newRef = command(UpdateRef.class)//
+                    .setName(localName)//
+                    .setNewValue(newValue)//
+                    .setReason("fetch-bundle: %s", file.getName())//
+                    .call().get();
+            updated.add(new RefDiff(current.orElse(null), newRef));
+        }
+        getProgressListener().complete();
+        return updated;
+    }
+
+    private String toLocal(String bundleRef) {
+        if (bundleRef.startsWith(Ref.HEADS_PREFIX)) {
+            String branch = bundleRef.substring(Ref.HEADS_PREFIX.length());
+            return Ref.REMOTES_PREFIX + remote + "/" + branch;
+        }
+        return bundleRef;
+    }
+}
@@ -0,0 +1,210 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+
+import com.google.common.collect.Lists;
+
+public class CompactDeduplicatorTest {
+
+    public @Rule TemporaryFolder tmp = new TemporaryFolder();
+
+    private CompactDeduplicator deduplicator;
+
+    private final Random random = new Random(1);
+
+    public @Before void before() {
+        deduplicator = new CompactDeduplicator(1 << 13, 1 << 16, tmp.getRoot());
+    }
+
+    public @After void after() {
+        deduplicator.release();
+    }
+
+    private ObjectId randomId() {
+        byte[] raw = new byte[ObjectId.NUM_BYTES];
+        random.nextBytes(raw);
+        return ObjectId.create(raw);
+    }
+
+    private List<ObjectId> randomIds(int count) {
+        List<ObjectId> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(randomId());
+        }
+        return ids;
+    }
+
+    public @Test void testVisit() {
+        ObjectId id = randomId();
+        assertFalse(deduplicator.isDuplicate(id));
+        assertTrue(deduplicator.visit(id));
+        assertTrue(deduplicator.isDuplicate(id));
+        assertFalse(deduplicator.visit(id));
+        assertEquals(1, deduplicator.size());
+    }
+
+    public @Test void testVisitPairs() {
+        ObjectId left = randomId();
+        ObjectId right = randomId();
+        assertTrue(deduplicator.visit(left, right));
+        assertFalse(deduplicator.visit(left, right));
+        assertTrue(deduplicator.isDuplicate(left, right));
+        assertFalse(deduplicator.isDuplicate(right, left));
+        assertFalse(deduplicator.isDuplicate(right));
+        assertTrue(deduplicator.visit(right));
+        assertTrue(deduplicator.isDuplicate(ObjectId.NULL, right));
+    }
+
+    public @Test void testNullIds() {
+        assertFalse(deduplicator.isDuplicate(ObjectId.NULL));
+        assertTrue(deduplicator.visit(ObjectId.NULL));
+        assertFalse(deduplicator.visit(ObjectId.NULL, ObjectId.NULL));
+        assertTrue(deduplicator.isDuplicate(ObjectId.NULL));
+    }
+
+    public @Test void testRemoveDuplicates() {
+        List<ObjectId> visited = randomIds(100);
+        List<ObjectId> unvisited = randomIds(100);
+        visited.forEach(deduplicator::visit);
+
+        List<ObjectId> ids = new ArrayList<>(visited);
+        ids.addAll(unvisited);
+        deduplicator.removeDuplicates(ids);
+        assertEquals(unvisited, ids);
+    }
+
+    public @Test void testSpillToDisk() {
+        List<ObjectId> visited = randomIds(50_000);
+        for (ObjectId id : visited) {
+            assertTrue(deduplicator.visit(id));
+        }
+        assertTrue(deduplicator.isSpilled());
+        assertTrue(tmp.getRoot().list().length > 0);
+        assertTrue(deduplicator.bloomBits() > 0);
+        assertEquals(visited.size(), deduplicator.size());
+
+        for (ObjectId id : visited) {
+            assertTrue(deduplicator.isDuplicate(id));
+            assertFalse(deduplicator.visit(id));
+        }
+        for (ObjectId id : randomIds(10_000)) {
+            assertFalse(deduplicator.isDuplicate(id));
+        }
+        List<ObjectId> ids = Lists.newArrayList(visited);
+        deduplicator.removeDuplicates(ids);
+        assertTrue(ids.isEmpty());
+    }
+
+    public @Test void testReset() {
+        List<ObjectId> visited = randomIds(50_000);
+        visited.forEach(deduplicator::visit);
+        assertTrue(deduplicator.isSpilled());
+
+        deduplicator.reset();
+        assertFalse(deduplicator.isSpilled());
+        assertEquals(0, deduplicator.size());
+        assertEquals(0, deduplicator.bloomBits());
+        assertEquals(0, tmp.getRoot().list().length);
+        for (ObjectId id : visited) {
+            assertFalse(deduplicator.isDuplicate(id));
+        }
+        assertTrue(deduplicator.visit(visited.get(0)));
+    }
+
+    public @Test void testReleaseDeletesSpillFile() {
+        randomIds(50_000).forEach(deduplicator::visit);
+        assertTrue(tmp.getRoot().list().length > 0);
+        deduplicator.release();
+        assertEquals(0, tmp.getRoot().list().length);
+    }
+
+    public @Test void testResetAfterRelease() {
+        List<ObjectId> visited = randomIds(50_000);
+        visited.forEach(deduplicator::visit);
+        deduplicator.release();
+
+        deduplicator.reset();
+        assertFalse(deduplicator.isSpilled());
+        assertEquals(0, deduplicator.size());
+        assertFalse(deduplicator.isDuplicate(visited.get(0)));
+        assertTrue(deduplicator.visit(visited.get(0)));
+        assertTrue(deduplicator.isDuplicate(visited.get(0)));
+    }
+
+    public @Test void testBloomFilterGrowsWithSpilledTable() {
+        deduplicator.release();
+        deduplicator = new CompactDeduplicator(1 << 13, 1 << 30, tmp.getRoot());
+        List<ObjectId> visited = new ArrayList<>();
+        while (!deduplicator.isSpilled()) {
+            ObjectId id = randomId();
+            visited.add(id);
+            assertEquals(0, deduplicator.bloomBits());
+            deduplicator.visit(id);
+        }
+        final long spilledBloomBits = deduplicator.bloomBits();
+        assertTrue(spilledBloomBits > 0);
+
+        List<ObjectId> more = randomIds(100_000);
+        more.forEach(deduplicator::visit);
+        visited.addAll(more);
+        assertTrue(deduplicator.bloomBits() > spilledBloomBits);
+        for (ObjectId id : visited) {
+            assertTrue(deduplicator.isDuplicate(id));
+        }
+    }
+
+    public @Test void testConcurrentVisits() throws Exception {
+        final List<ObjectId> ids = randomIds(50_000);
+        final int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    int visited = 0;
+                    for (ObjectId id : ids) {
+                        if (deduplicator.visit(id)) {
+                            visited++;
+                        }
+                    }
+                    return visited;
+                }));
+            }
+            int visited = 0;
+            for (Future<Integer> future : futures) {
+                visited += future.get();
+            }
+            // each id is reported as first visited by exactly one thread
+            assertEquals(ids.size(), visited);
+            assertEquals(ids.size(), deduplicator.size());
+            assertTrue(deduplicator.isSpilled());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
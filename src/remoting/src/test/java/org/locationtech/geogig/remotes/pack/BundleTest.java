@@ -0,0 +1,283 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.remotes.pack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
+import static org.locationtech.geogig.test.integration.remoting.RemotesIndexTestSupport.createIndexes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.FindTreeChild;
+import org.locationtech.geogig.plumbing.RefParse;
+import org.locationtech.geogig.plumbing.ResolveTreeish;
+import org.locationtech.geogig.porcelain.CommitOp;
+import org.locationtech.geogig.remotes.RefDiff;
+import org.locationtech.geogig.repository.IndexInfo;
+import org.locationtech.geogig.repository.Repository;
+import org.locationtech.geogig.storage.IndexDatabase;
+import org.locationtech.geogig.test.TestSupport;
+import org.locationtech.geogig.test.integration.remoting.RemoteRepositoryTestCase;
+
+/**
+ * Round trip tests for {@link CreateBundleOp} and {@link FetchBundleOp}, and the handling of
+ * invalid bundle files by {@link BundleReader}
+ */
+public class BundleTest extends RemoteRepositoryTestCase {
+
+    private static final String BUNDLE_MASTER = Ref.REMOTES_PREFIX + FetchBundleOp.DEFAULT_REMOTE
+            + "/master";
+
+    public @Rule TemporaryFolder tmp = new TemporaryFolder();
+
+    private File bundleFile;
+
+    protected @Override void setUpInternal() throws Exception {
+        bundleFile = new File(tmp.getRoot(), "test.bundle");
+    }
+
+    private RevCommit commit(Repository repo, String message) {
+        return repo.command(CommitOp.class).setMessage(message).call();
+    }
+
+    private List<RefDiff> createBundle(Repository repo, String since, boolean indexes) {
+        return repo.command(CreateBundleOp.class).setFile(bundleFile).addRef("master")
+                .setSince(since).setIncludeIndexes(indexes).call();
+    }
+
+    private List<RefDiff> fetchBundle(Repository repo) {
+        return repo.command(FetchBundleOp.class).setFile(bundleFile).call();
+    }
+
+    private void cloneOrigin(boolean indexes) {
+        cloneOp().setCloneIndexes(indexes).setRemoteURI(originRepo.getLocation())
+                .setCloneURI(localRepo.getLocation()).call();
+    }
+
+    private Optional<Ref> ref(Repository repo, String name) {
+        return repo.command(RefParse.class).setName(name).call();
+    }
+
+    private ObjectId pointsTree(Repository repo, ObjectId commit) {
+        ObjectId rootId = repo.command(ResolveTreeish.class).setTreeish(commit).call().get();
+        RevTree root = repo.context().objectDatabase().getTree(rootId);
+        return repo.command(FindTreeChild.class).setParent(root).setChildPath(pointsName).call()
+                .get().getObjectId();
+    }
+
+    @Test
+    public void testFullBundle() throws Exception {
+        insertAndAdd(originRepo, points1, lines1);
+        commit(originRepo, "c1");
+        insertAndAdd(originRepo, points2, lines2);
+        final RevCommit tip = commit(originRepo, "c2");
+
+        List<RefDiff> bundled = createBundle(originRepo, null, false);
+        assertEquals(1, bundled.size());
+        assertNull(bundled.get(0).getOldRef());
+        assertEquals(tip.getId(), bundled.get(0).getNewRef().getObjectId());
+
+        List<RefDiff> fetched = fetchBundle(upstreamRepo);
+        assertEquals(1, fetched.size());
+        assertEquals(BUNDLE_MASTER, fetched.get(0).getNewRef().getName());
+        assertEquals(tip.getId(), ref(upstreamRepo, BUNDLE_MASTER).get().getObjectId());
+        TestSupport.verifyRepositoryContents(upstreamRepo, BUNDLE_MASTER);
+
+        // applying it again inserts nothing new and leaves the refs alone
+        assertTrue(fetchBundle(upstreamRepo).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalBundleAppliedToClone() throws Exception {
+        insertAndAdd(originRepo, points1, lines1);
+        final RevCommit base = commit(originRepo, "c1");
+        cloneOrigin(false);
+
+        insertAndAdd(originRepo, points2);
+        commit(originRepo, "c2");
+        insertAndAdd(originRepo, points3_modified);
+        final RevCommit tip = commit(originRepo, "c3");
+
+        List<RefDiff> bundled = createBundle(originRepo, base.getId().toString(), false);
+        assertEquals(base.getId(), bundled.get(0).getOldRef().getObjectId());
+        assertEquals(tip.getId(), bundled.get(0).getNewRef().getObjectId());
+
+        fetchBundle(localRepo);
+        assertEquals(tip.getId(), ref(localRepo, BUNDLE_MASTER).get().getObjectId());
+        TestSupport.verifyRepositoryContents(localRepo, BUNDLE_MASTER);
+    }
+
+    @Test
+    public void testMissingBaseCommitRefused() throws Exception {
+        insertAndAdd(originRepo, points1);
+        final RevCommit base = commit(originRepo, "c1");
+        insertAndAdd(originRepo, points2);
+        final RevCommit tip = commit(originRepo, "c2");
+        createBundle(originRepo, base.getId().toString(), false);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> fetchBundle(upstreamRepo));
+        assertTrue(e.getMessage(), e.getMessage().contains(base.getId().toString()));
+        assertFalse(ref(upstreamRepo, BUNDLE_MASTER).isPresent());
+        assertFalse(upstreamRepo.context().objectDatabase().exists(tip.getId()));
+    }
+
+    @Test
+    public void testIndexDeltaAppliedWhenBaseIndexExists() throws Exception {
+        insertAndAdd(originRepo, points1, points2);
+        final RevCommit base = commit(originRepo, "c1");
+        createIndexes(originRepo);
+        cloneOrigin(true);
+
+        insertAndAdd(originRepo, points3);
+        final RevCommit tip = commit(originRepo, "c2");
+        createBundle(originRepo, base.getId().toString(), true);
+
+        final IndexDatabase originIndexes = originRepo.context().indexDatabase();
+        final IndexDatabase localIndexes = localRepo.context().indexDatabase();
+        final IndexInfo index = localIndexes.getIndexInfos(pointsName).get(0);
+        final ObjectId canonical = pointsTree(originRepo, tip.getId());
+        final ObjectId expected = originIndexes.resolveIndexedTree(index, canonical).get();
+        assertFalse(localIndexes.resolveIndexedTree(index, canonical).isPresent());
+
+        // apply straight through the reader, FetchBundleOp would update the index itself while
+        // updating the refs
+        new BundleReader(bundleFile).applyTo(localRepo.context().objectDatabase(), localIndexes,
+                NOOP_LISTENER);
+        assertEquals(expected, localIndexes.resolveIndexedTree(index, canonical).get());
+        assertNotNull(localIndexes.getTree(expected));
+    }
+
+    @Test
+    public void testIndexDeltaSkippedWithoutBaseIndex() throws Exception {
+        insertAndAdd(originRepo, points1, points2);
+        final RevCommit base = commit(originRepo, "c1");
+        createIndexes(originRepo);
+        cloneOrigin(false);
+
+        insertAndAdd(originRepo, points3);
+        final RevCommit tip = commit(originRepo, "c2");
+        createBundle(originRepo, base.getId().toString(), true);
+
+        final IndexDatabase localIndexes = localRepo.context().indexDatabase();
+        new BundleReader(bundleFile).applyTo(localRepo.context().objectDatabase(), localIndexes,
+                NOOP_LISTENER);
+        assertTrue(localIndexes.getIndexInfos().isEmpty());
+        // but the objects are applied
+        assertTrue(localRepo.context().objectDatabase().exists(tip.getId()));
+    }
+
+    private void createFullBundle() throws Exception {
+        insertAndAdd(originRepo, points1, lines1);
+        commit(originRepo, "c1");
+        createBundle(originRepo, null, false);
+    }
+
+    private void overwrite(long offset, byte... bytes) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(bundleFile, "rw")) {
+            raf.seek(offset);
+            raf.write(bytes);
+        }
+    }
+
+    private void assertInvalid(String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> fetchBundle(upstreamRepo));
+        assertTrue(e.getMessage(), e.getMessage().contains(message));
+        assertFalse(ref(upstreamRepo, BUNDLE_MASTER).isPresent());
+    }
+
+    private void assertCorrupt(String message) {
+        UncheckedIOException e = assertThrows(UncheckedIOException.class,
+                () -> fetchBundle(upstreamRepo));
+        assertTrue(e.getMessage(), e.getMessage().contains(message));
+        assertFalse(ref(upstreamRepo, BUNDLE_MASTER).isPresent());
+    }
+
+    @Test
+    public void testBadMagic() throws Exception {
+        createFullBundle();
+        overwrite(0, (byte) 'X');
+        assertInvalid("bad magic number");
+    }
+
+    @Test
+    public void testBadTrailer() throws Exception {
+        createFullBundle();
+        overwrite(bundleFile.length() - 1, (byte) 'X');
+        assertInvalid("bad magic number");
+    }
+
+    @Test
+    public void testBadTrailerOffset() throws Exception {
+        createFullBundle();
+        final long tailOffset = bundleFile.length() - Long.BYTES
+                - BundleFormat.TRAILER_MAGIC.length;
+        overwrite(tailOffset, new byte[] { 0, 0, 0, 0, 0, 0, 0, 20 });
+        assertInvalid("bad");
+    }
+
+    @Test
+    public void testTruncatedFile() throws Exception {
+        createFullBundle();
+        try (RandomAccessFile raf = new RandomAccessFile(bundleFile, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        assertInvalid("not a valid bundle file");
+    }
+
+    @Test
+    public void testTruncatedBlock() throws Exception {
+        createFullBundle();
+        final int firstBlock = BundleFormat.MAGIC.length + Integer.BYTES;
+        // shrink the first block's compressed length
+        try (RandomAccessFile raf = new RandomAccessFile(bundleFile, "rw")) {
+            raf.seek(firstBlock + 1 + Integer.BYTES);
+            int compressedLength = raf.readInt();
+            raf.seek(firstBlock + 1 + Integer.BYTES);
+            raf.writeInt(compressedLength - 10);
+        }
+        assertCorrupt("Corrupt bundle block 0");
+    }
+
+    @Test
+    public void testCorruptBlock() throws Exception {
+        createFullBundle();
+        final int firstBlock = BundleFormat.MAGIC.length + Integer.BYTES;
+        final int compressedLength;
+        try (RandomAccessFile raf = new RandomAccessFile(bundleFile, "rw")) {
+            raf.seek(firstBlock + 1 + Integer.BYTES);
+            compressedLength = raf.readInt();
+            long middle = raf.getFilePointer() + compressedLength / 2;
+            raf.seek(middle);
+            int b = raf.read();
+            raf.seek(middle);
+            raf.write(~b);
+        }
+        assertCorrupt("bundle block");
+    }
+}
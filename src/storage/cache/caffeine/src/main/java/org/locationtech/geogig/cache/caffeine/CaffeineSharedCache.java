@@ -6,11 +6,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.RevFeatureType;
 import org.locationtech.geogig.model.RevObject;
 import org.locationtech.geogig.model.RevTree;
 import org.locationtech.geogig.storage.RevObjectSerializer;
@@ -27,11 +30,39 @@ import com.github.benmanes.caffeine.cache.Weigher;
 import com.google.common.annotations.VisibleForTesting;
 
 /**
+ * Two tier {@link SharedCache} based on Caffeine.
+ * <p>
+ * The L2 tier holds the serialized version of all cached {@link RevObject}s, weighted by their
+ * size in bytes. The L1 tier holds already decoded {@link RevTree}s and {@link RevFeatureType}s,
+ * weighted by their number of direct child nodes, to avoid decoding over and over the trees at the
+ * top of large feature type trees, which are requested very frequently by diff walks and feature
+ * readers. The L1 tier is a subset of the L2 tier, objects evicted from L2 are invalidated from
+ * L1 as well, and is bounded to at most {@link #L1_MAX_WEIGHT} nodes, or roughly a tenth of the L2
+ * capacity for small caches.
  * 
  * @since 1.4
  */
 public class CaffeineSharedCache implements SharedCache {
 
+    /**
+     * Maximum accumulated number of nodes of the decoded objects held in the L1 cache
+     */
+    static final long L1_MAX_WEIGHT = 1_000_000;
+
+    /**
+     * Rough estimate of the memory taken by each node of a decoded tree, used to limit the L1 cache
+     * weight for small caches
+     */
+    private static final long L1_ESTIMATED_BYTES_PER_NODE = 64;
+
+    private static final Weigher<CacheKey, RevObject> L1_WEIGHER = (key, obj) -> {
+        if (obj instanceof RevTree) {
+            RevTree tree = (RevTree) obj;
+            return 1 + tree.treesSize() + tree.featuresSize() + tree.bucketsSize();
+        }
+        return 1 + ((RevFeatureType) obj).descriptors().size();
+    };
+
     private static final RevObjectSerializer ENCODER = new FlatBuffersRevObjectSerializer();
 
     private RevObjectSerializer encoder = ENCODER;
@@ -77,46 +108,85 @@ public class CaffeineSharedCache implements SharedCache {
      */
     final Cache<CacheKey, byte[]> byteCache;
 
+    /**
+     * The Level1 cache contains decoded {@link RevTree}s and {@link RevFeatureType}s
+     */
+    final Cache<CacheKey, RevObject> l1Cache;
+
     private final SizeTracker sizeTracker;
 
     private long maxCacheSizeBytes;
 
     CaffeineSharedCache() {
         this.byteCache = Caffeine.newBuilder().maximumSize(0).build();
+        this.l1Cache = Caffeine.newBuilder().maximumSize(0).build();
         this.sizeTracker = new SizeTracker();
     }
 
     public CaffeineSharedCache(final long maxCacheSizeBytes) {
+        this(maxCacheSizeBytes, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor the executor used to run the caches maintenance tasks, including the
+     *        removal notifications
+     */
+    @VisibleForTesting
+    CaffeineSharedCache(final long maxCacheSizeBytes, Executor executor) {
         this.maxCacheSizeBytes = maxCacheSizeBytes;
         checkArgument(maxCacheSizeBytes >= 0, "Cache size can't be < 0, 0 meaning no cache at all");
 
+        final long l1MaxWeight = Math.min(L1_MAX_WEIGHT,
+                maxCacheSizeBytes / (10 * L1_ESTIMATED_BYTES_PER_NODE));
+        this.l1Cache = Caffeine.newBuilder()//
+                .maximumWeight(l1MaxWeight)//
+                .weigher(L1_WEIGHER)//
+                .executor(executor)//
+                .recordStats()//
+                .build();
+
         int initialCapacityCount = 1_000_000;
 
         Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder();
         cacheBuilder = cacheBuilder.maximumWeight(maxCacheSizeBytes);
         cacheBuilder.weigher(SizeTracker.WEIGHER);
         cacheBuilder.initialCapacity(initialCapacityCount);
+        cacheBuilder.executor(executor);
         cacheBuilder.recordStats();
         sizeTracker = new SizeTracker();
-        cacheBuilder.removalListener(sizeTracker);
+        final Cache<CacheKey, RevObject> l1 = this.l1Cache;
+        cacheBuilder.removalListener((CacheKey key, byte[] value, RemovalCause cause) -> {
+            sizeTracker.onRemoval(key, value, cause);
+            // keep L1 a subset of L2, explicit removals already invalidate both
+            if (cause.wasEvicted()) {
+                l1.invalidate(key);
+            }
+        });
         this.byteCache = cacheBuilder.build();
     }
 
     CaffeineSharedCache(Cache<CacheKey, byte[]> byteCache, SizeTracker sizeTracker) {
         this.byteCache = byteCache;
+        this.l1Cache = Caffeine.newBuilder().maximumSize(0).build();
         this.sizeTracker = sizeTracker;
     }
 
+    private static boolean isL1Cacheable(RevObject obj) {
+        return obj instanceof RevTree || obj instanceof RevFeatureType;
+    }
+
     public @Override boolean contains(CacheKey id) {
         return byteCache.asMap().containsKey(id);
     }
 
     public @Override void invalidateAll() {
+        l1Cache.invalidateAll();
         byteCache.invalidateAll();
         byteCache.cleanUp();
     }
 
     public @Override void invalidateAll(CacheIdentifier prefix) {
+        invalidateAll(prefix, l1Cache.asMap());
         invalidateAll(prefix, byteCache.asMap());
     }
 
@@ -133,6 +203,7 @@ public class CaffeineSharedCache implements SharedCache {
     }
 
     public @Override void invalidate(CacheKey id) {
+        l1Cache.invalidate(id);
         byteCache.invalidate(id);
     }
 
@@ -145,13 +216,20 @@ public class CaffeineSharedCache implements SharedCache {
      * a {@code RevTree}, will result in the tree being added back to the L1 cache.
      */
     public @Override @Nullable RevObject getIfPresent(CacheKey key) {
+        RevObject obj = l1Cache.getIfPresent(key);
+        if (obj != null) {
+            return obj;
+        }
         // call cache.getIfPresent instead of map.get() or the cache stats don't record the
         // hits/misses
         byte[] val = byteCache.getIfPresent(key);
         if (val != null) {
-            return decode(key, val);
+            obj = decode(key, val);
+            if (isL1Cacheable(obj)) {
+                putL1(key, obj);
+            }
         }
-        return null;
+        return obj;
     }
 
     /**
@@ -171,11 +249,22 @@ public class CaffeineSharedCache implements SharedCache {
         byte[] value = encode(obj);
         if (null == byteCache.asMap().putIfAbsent(key, value)) {
             sizeTracker.inserted(key, value);
+            if (isL1Cacheable(obj)) {
+                putL1(key, obj);
+            }
             return CompletableFuture.completedFuture(null);
         }
         return null;
     }
 
+    private void putL1(CacheKey key, RevObject obj) {
+        l1Cache.put(key, obj);
+        // it may have been evicted from L2 before the L1 entry was added
+        if (!byteCache.asMap().containsKey(key)) {
+            l1Cache.invalidate(key);
+        }
+    }
+
     private byte[] encode(RevObject obj) {
         if (encoder instanceof FlatBuffersRevObjectSerializer) {
             return ((FlatBuffersRevObjectSerializer) encoder).encode(obj);
@@ -202,8 +291,8 @@ public class CaffeineSharedCache implements SharedCache {
         long size = byteCache.estimatedSize();
         long bytes = sizeTracker.size.get();
         long avg = size == 0 ? 0 : bytes / size;
-        return String.format("Size: %,d, bytes: %,d, avg: %,d bytes/entry, %s", size, bytes, avg,
-                byteCache.stats());
+        return String.format("Size: %,d, bytes: %,d, avg: %,d bytes/entry, %s, L1 size: %,d, %s",
+                size, bytes, avg, byteCache.stats(), l1Cache.estimatedSize(), l1Cache.stats());
     }
 
     public @Override long sizeBytes() {
@@ -214,8 +303,29 @@ public class CaffeineSharedCache implements SharedCache {
         return byteCache.estimatedSize();
     }
 
+    public @Override long l1ObjectCount() {
+        return l1Cache.estimatedSize();
+    }
+
+    /**
+     * @return the stats of the cache as a whole, where hits are the sum of the L1 and L2 hits,
+     *         and misses the L2 misses, since every L1 miss falls back to the L2 cache
+     */
     public @Override CacheStats getStats() {
-        final com.github.benmanes.caffeine.cache.stats.CacheStats stats = byteCache.stats();
+        final com.github.benmanes.caffeine.cache.stats.CacheStats l1 = l1Cache.stats();
+        final com.github.benmanes.caffeine.cache.stats.CacheStats l2 = byteCache.stats();
+        return toCacheStats(new com.github.benmanes.caffeine.cache.stats.CacheStats(
+                l1.hitCount() + l2.hitCount(), l2.missCount(), l2.loadSuccessCount(),
+                l2.loadFailureCount(), l2.totalLoadTime(), l2.evictionCount(),
+                l2.evictionWeight()));
+    }
+
+    public @Override CacheStats getL1Stats() {
+        return toCacheStats(l1Cache.stats());
+    }
+
+    private static CacheStats toCacheStats(
+            final com.github.benmanes.caffeine.cache.stats.CacheStats stats) {
         return new CacheStats() {
             public @Override long hitCount() {
                 return stats.hitCount();
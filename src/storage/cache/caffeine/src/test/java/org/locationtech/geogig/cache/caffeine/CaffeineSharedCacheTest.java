@@ -9,12 +9,94 @@
  */
 package org.locationtech.geogig.cache.caffeine;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.cache.CacheIdentifier;
+import org.locationtech.geogig.storage.cache.CacheKey;
 import org.locationtech.geogig.storage.cache.SharedCache;
 import org.locationtech.geogig.storage.cache.SharedCacheTest;
+import org.locationtech.geogig.storage.memory.HeapObjectStore;
 
 public class CaffeineSharedCacheTest extends SharedCacheTest {
 
     protected @Override SharedCache createCache(int l1Capacity, long maxCacheSizeBytes) {
         return new CaffeineSharedCache(maxCacheSizeBytes);
     }
+
+    @Test
+    public void testL1DecodedTreeTier() {
+        HeapObjectStore store = new HeapObjectStore();
+        store.open();
+        CaffeineSharedCache cache = new CaffeineSharedCache(32 * 1024 * 1024);
+        try {
+            RevTree tree = RevObjectTestSupport.INSTANCE.createFeaturesTree(store, "f-", 10);
+            CacheKey key = new CacheIdentifier(1).create(tree.getId());
+            assertNotNull(cache.put(key, tree));
+            assertEquals(1L, cache.l1ObjectCount());
+
+            RevObject first = cache.getIfPresent(key);
+            RevObject second = cache.getIfPresent(key);
+            assertEquals(tree, first);
+            assertSame(first, second);
+            assertEquals(2L, cache.getL1Stats().hitCount());
+            assertEquals(2L, cache.getStats().hitCount());
+
+            // evicted from L1 only, resolved and decoded from L2
+            cache.l1Cache.invalidate(key);
+            RevObject third = cache.getIfPresent(key);
+            assertEquals(tree, third);
+            assertEquals(1L, cache.getL1Stats().missCount());
+            assertEquals(3L, cache.getStats().hitCount());
+            assertSame(third, cache.getIfPresent(key));
+
+            cache.invalidate(key);
+            assertEquals(0L, cache.l1ObjectCount());
+            assertNull(cache.getIfPresent(key));
+        } finally {
+            cache.dispose();
+            store.close();
+        }
+    }
+
+    @Test
+    public void testL2EvictionInvalidatesL1() {
+        HeapObjectStore store = new HeapObjectStore();
+        store.open();
+        // run the removal notifications in the calling thread
+        CaffeineSharedCache cache = new CaffeineSharedCache(32 * 1024 * 1024, Runnable::run);
+        try {
+            CacheIdentifier prefix = new CacheIdentifier(1);
+            List<CacheKey> keys = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                RevTree tree = RevObjectTestSupport.INSTANCE.createFeaturesTree(store, "f" + i,
+                        10);
+                CacheKey key = prefix.create(tree.getId());
+                cache.put(key, tree);
+                keys.add(key);
+            }
+            assertEquals(10L, cache.l1ObjectCount());
+
+            cache.byteCache.policy().eviction().get().setMaximum(0);
+            cache.byteCache.cleanUp();
+            cache.l1Cache.cleanUp();
+            assertEquals(0L, cache.objectCount());
+            assertEquals(0L, cache.l1ObjectCount());
+            for (CacheKey key : keys) {
+                assertNull(cache.getIfPresent(key));
+            }
+        } finally {
+            cache.dispose();
+            store.close();
+        }
+    }
 }
@@ -0,0 +1,209 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Fixed size block allocator over slabs of direct (off-heap) memory.
+ * <p>
+ * Values are stored as a chain of blocks, each block starting with the {@code int} index of the
+ * next block in the chain, or {@code -1} for the last one. Freed blocks are linked together through
+ * the same header, so the free list takes no heap space at all.
+ * <p>
+ * Slabs are allocated lazily as blocks are first handed out, up to the maximum number of blocks
+ * given at construction time, and are never returned to the OS until {@link #clear()} is called.
+ * <p>
+ * Instances are not thread safe.
+ */
+final class BlockStore {
+
+    private static final int NIL = -1;
+
+    static final int DEFAULT_SLAB_SIZE = 64 * 1024 * 1024;
+
+    private final int blockSize;
+
+    private final int payloadSize;
+
+    private final int blocksPerSlab;
+
+    private final int maxBlocks;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+
+    /**
+     * Number of blocks ever handed out, blocks past this index have not been allocated yet
+     */
+    private int highWaterMark;
+
+    private int freeHead = NIL;
+
+    private int freeBlocks;
+
+    private int usedBlocks;
+
+    BlockStore(int blockSize, int maxBlocks) {
+        this(blockSize, maxBlocks, DEFAULT_SLAB_SIZE);
+    }
+
+    BlockStore(int blockSize, int maxBlocks, int slabSize) {
+        Preconditions.checkArgument(blockSize > Integer.BYTES, "block size too small: %s",
+                blockSize);
+        Preconditions.checkArgument(maxBlocks >= 0);
+        Preconditions.checkArgument(slabSize >= blockSize);
+        this.blockSize = blockSize;
+        this.payloadSize = blockSize - Integer.BYTES;
+        this.maxBlocks = maxBlocks;
+        this.blocksPerSlab = Math.max(1, Math.min(maxBlocks, slabSize / blockSize));
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    public int maxBlocks() {
+        return maxBlocks;
+    }
+
+    public int usedBlocks() {
+        return usedBlocks;
+    }
+
+    /**
+     * @return the number of blocks that can still be allocated without freeing any
+     */
+    public int availableBlocks() {
+        return freeBlocks + (maxBlocks - highWaterMark);
+    }
+
+    /**
+     * @return the number of blocks needed to store a value of the given length
+     */
+    public int blocksFor(int length) {
+        return Math.max(1, (length + payloadSize - 1) / payloadSize);
+    }
+
+    /**
+     * Stores {@code value} in a newly allocated chain of blocks
+     *
+     * @return the index of the first block of the chain
+     * @throws IllegalStateException if there are not enough {@link #availableBlocks() available
+     *         blocks}
+     */
+    public int write(byte[] value) {
+        final int numBlocks = blocksFor(value.length);
+        Preconditions.checkState(numBlocks <= availableBlocks(),
+                "Not enough free blocks: required %s, available %s", numBlocks,
+                availableBlocks());
+        int first = NIL;
+        int prev = NIL;
+        int offset = 0;
+        for (int i = 0; i < numBlocks; i++) {
+            final int block = allocate();
+            if (prev == NIL) {
+                first = block;
+            } else {
+                setNext(prev, block);
+            }
+            final int length = Math.min(payloadSize, value.length - offset);
+            ByteBuffer slab = slab(block);
+            slab.position(position(block) + Integer.BYTES);
+            slab.put(value, offset, length);
+            offset += length;
+            prev = block;
+        }
+        setNext(prev, NIL);
+        usedBlocks += numBlocks;
+        return first;
+    }
+
+    /**
+     * @return the value of the given {@code length} stored in the chain of blocks starting at
+     *         {@code firstBlock}
+     */
+    public byte[] read(final int firstBlock, final int length) {
+        final byte[] value = new byte[length];
+        int block = firstBlock;
+        int offset = 0;
+        while (offset < length) {
+            final int chunk = Math.min(payloadSize, length - offset);
+            ByteBuffer slab = slab(block);
+            slab.position(position(block) + Integer.BYTES);
+            slab.get(value, offset, chunk);
+            offset += chunk;
+            block = next(block);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the chain of blocks starting at {@code firstBlock} to the free list
+     */
+    public void free(final int firstBlock) {
+        int last = firstBlock;
+        int count = 1;
+        for (int next = next(firstBlock); next != NIL; next = next(next)) {
+            last = next;
+            count++;
+        }
+        setNext(last, freeHead);
+        freeHead = firstBlock;
+        freeBlocks += count;
+        usedBlocks -= count;
+    }
+
+    /**
+     * Discards all the stored values and releases the slabs
+     */
+    public void clear() {
+        slabs.clear();
+        highWaterMark = 0;
+        freeHead = NIL;
+        freeBlocks = 0;
+        usedBlocks = 0;
+    }
+
+    private int allocate() {
+        if (freeHead != NIL) {
+            final int block = freeHead;
+            freeHead = next(block);
+            freeBlocks--;
+            return block;
+        }
+        final int block = highWaterMark++;
+        final int slabIndex = block / blocksPerSlab;
+        if (slabIndex == slabs.size()) {
+            final int slabBlocks = Math.min(blocksPerSlab, maxBlocks - slabIndex * blocksPerSlab);
+            slabs.add(ByteBuffer.allocateDirect(slabBlocks * blockSize));
+        }
+        return block;
+    }
+
+    private ByteBuffer slab(int block) {
+        return slabs.get(block / blocksPerSlab);
+    }
+
+    private int position(int block) {
+        return (block % blocksPerSlab) * blockSize;
+    }
+
+    private int next(int block) {
+        return slab(block).getInt(position(block));
+    }
+
+    private void setNext(int block, int next) {
+        slab(block).putInt(position(block), next);
+    }
+}
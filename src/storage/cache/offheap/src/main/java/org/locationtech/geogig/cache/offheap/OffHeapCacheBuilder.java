@@ -0,0 +1,44 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import org.locationtech.geogig.storage.cache.CacheManager;
+import org.locationtech.geogig.storage.cache.SharedCache;
+import org.locationtech.geogig.storage.cache.SharedCacheBuilder;
+
+/**
+ * Builder for {@link OffHeapSharedCache}.
+ * <p>
+ * Has a lower priority than the default heap based cache, and hence has to be explicitly enabled
+ * by setting the {@link CacheManager#ENV_VAR SHARED_CACHE_BUILDER} System property or environment
+ * variable to this class name.
+ *
+ * @since 2.0
+ */
+public class OffHeapCacheBuilder implements SharedCacheBuilder {
+
+    private long maxSizeBytes;
+
+    public @Override int getPriority() {
+        return -1;
+    }
+
+    public @Override boolean isHeapBound() {
+        return false;
+    }
+
+    public @Override void setMaxSizeBytes(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    public @Override SharedCache build() {
+        return new OffHeapSharedCache(maxSizeBytes);
+    }
+}
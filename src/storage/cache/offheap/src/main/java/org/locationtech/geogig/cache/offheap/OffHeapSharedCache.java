@@ -0,0 +1,230 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.storage.RevObjectSerializer;
+import org.locationtech.geogig.storage.cache.CacheIdentifier;
+import org.locationtech.geogig.storage.cache.CacheKey;
+import org.locationtech.geogig.storage.cache.CacheStats;
+import org.locationtech.geogig.storage.cache.SharedCache;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * {@link SharedCache} that keeps the serialized {@link RevObject}s in direct memory slabs outside
+ * the Java heap, so that its capacity can be sized independently of {@code -Xmx} and cached
+ * objects do not add to garbage collection pauses.
+ * <p>
+ * The cache is split into a power of two number of {@link Segment segments}, each one guarded by
+ * its own lock and holding an equal share of the capacity in fixed size blocks, evicted following
+ * a segmented LRU policy. Only the key to block index is kept on the heap.
+ * <p>
+ * Since the slabs are allocated with {@link java.nio.ByteBuffer#allocateDirect(int)}, the JVM's
+ * {@code -XX:MaxDirectMemorySize} shall be set to a value larger than the cache size plus whatever
+ * direct memory the rest of the application uses.
+ *
+ * @since 2.0
+ */
+public class OffHeapSharedCache implements SharedCache {
+
+    static final int DEFAULT_BLOCK_SIZE = 256;
+
+    static final int MAX_SEGMENTS = 16;
+
+    /**
+     * Minimum capacity of each segment, for small caches to use less segments
+     */
+    static final long MIN_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final RevObjectSerializer ENCODER = new FlatBuffersRevObjectSerializer();
+
+    private RevObjectSerializer encoder = ENCODER;
+
+    private final long maxCacheSizeBytes;
+
+    private final Segment[] segments;
+
+    private final int segmentMask;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    public OffHeapSharedCache(final long maxCacheSizeBytes) {
+        this(maxCacheSizeBytes, DEFAULT_BLOCK_SIZE);
+    }
+
+    OffHeapSharedCache(final long maxCacheSizeBytes, final int blockSize) {
+        checkArgument(maxCacheSizeBytes >= 0, "Cache size can't be < 0, 0 meaning no cache at all");
+        this.maxCacheSizeBytes = maxCacheSizeBytes;
+        int numSegments = 1;
+        while (numSegments < MAX_SEGMENTS
+                && maxCacheSizeBytes / (2 * numSegments) >= MIN_SEGMENT_SIZE) {
+            numSegments *= 2;
+        }
+        final long blocksPerSegment = maxCacheSizeBytes / numSegments / blockSize;
+        checkArgument(blocksPerSegment <= Integer.MAX_VALUE, "Cache size too large: %s",
+                maxCacheSizeBytes);
+        this.segments = new Segment[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment(new BlockStore(blockSize, (int) blocksPerSegment));
+        }
+        this.segmentMask = numSegments - 1;
+    }
+
+    @VisibleForTesting
+    public @Override void setEncoder(RevObjectSerializer encoder) {
+        this.encoder = encoder;
+    }
+
+    private Segment segment(CacheKey key) {
+        final int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & segmentMask];
+    }
+
+    public @Override boolean contains(CacheKey id) {
+        return segment(id).contains(id);
+    }
+
+    public @Override void invalidateAll() {
+        for (Segment s : segments) {
+            s.invalidateAll(k -> true);
+        }
+    }
+
+    public @Override void invalidateAll(CacheIdentifier prefix) {
+        final int expectedPrefix = prefix.prefix();
+        for (Segment s : segments) {
+            s.invalidateAll(k -> k.prefix() == expectedPrefix);
+        }
+    }
+
+    /**
+     * Discards all entries and releases the off-heap memory slabs
+     */
+    public @Override void dispose() {
+        for (Segment s : segments) {
+            s.clear();
+        }
+    }
+
+    public @Override void invalidate(CacheKey id) {
+        segment(id).invalidate(id);
+    }
+
+    public @Override @Nullable RevObject getIfPresent(CacheKey key) {
+        byte[] val = segment(key).get(key);
+        if (val == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return decode(key, val);
+    }
+
+    public @Override @Nullable Future<?> put(CacheKey key, RevObject obj) {
+        if (maxCacheSizeBytes > 0L) {
+            final Segment segment = segment(key);
+            if (!segment.contains(key) && segment.put(key, encode(obj))) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        return null;
+    }
+
+    private byte[] encode(RevObject obj) {
+        if (encoder instanceof FlatBuffersRevObjectSerializer) {
+            return ((FlatBuffersRevObjectSerializer) encoder).encode(obj);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+        try {
+            encoder.write(obj, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private RevObject decode(CacheKey key, byte[] val) {
+        try {
+            return encoder.read(key.id(), val, 0, val.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public @Override long sizeBytes() {
+        long size = 0;
+        for (Segment s : segments) {
+            size += s.sizeBytes();
+        }
+        return size;
+    }
+
+    public @Override long objectCount() {
+        long count = 0;
+        for (Segment s : segments) {
+            count += s.size();
+        }
+        return count;
+    }
+
+    public @Override CacheStats getStats() {
+        final long hits = hitCount.sum();
+        final long misses = missCount.sum();
+        final long requests = hits + misses;
+        long evictions = 0;
+        for (Segment s : segments) {
+            evictions += s.evictionCount();
+        }
+        final long evictionCount = evictions;
+        return new CacheStats() {
+            public @Override long hitCount() {
+                return hits;
+            }
+
+            public @Override double hitRate() {
+                return requests == 0 ? 1D : (double) hits / requests;
+            }
+
+            public @Override long missCount() {
+                return misses;
+            }
+
+            public @Override double missRate() {
+                return requests == 0 ? 0D : (double) misses / requests;
+            }
+
+            public @Override long evictionCount() {
+                return evictionCount;
+            }
+        };
+    }
+
+    public @Override String toString() {
+        long size = objectCount();
+        long bytes = sizeBytes();
+        long avg = size == 0 ? 0 : bytes / size;
+        return String.format("Size: %,d, bytes: %,d, avg: %,d bytes/entry, segments: %d", size,
+                bytes, avg, segments.length);
+    }
+}
@@ -0,0 +1,236 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.storage.cache.CacheKey;
+
+/**
+ * A lock protected partition of {@link OffHeapSharedCache}, holding the values in a
+ * {@link BlockStore} and evicting them following a segmented LRU policy.
+ * <p>
+ * New entries are added to the <i>probation</i> segment, and promoted to the <i>protected</i>
+ * segment when hit. When the protected segment exceeds {@link #PROTECTED_RATIO} of the capacity
+ * its least recently used entries are demoted back to the probation segment, and victims are
+ * always taken from the least recently used end of the probation segment first. This way entries
+ * that are accessed only once, such as the ones loaded by a full scan, don't flush out the
+ * frequently used ones.
+ */
+final class Segment {
+
+    static final double PROTECTED_RATIO = 0.8;
+
+    private static final class Entry {
+        final int firstBlock;
+
+        final int length;
+
+        final int blocks;
+
+        Entry(int firstBlock, int length, int blocks) {
+            this.firstBlock = firstBlock;
+            this.length = length;
+            this.blocks = blocks;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final BlockStore store;
+
+    private final int maxProtectedBlocks;
+
+    private final LinkedHashMap<CacheKey, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LinkedHashMap<CacheKey, Entry> protectedEntries = new LinkedHashMap<>(16, 0.75f,
+            true);
+
+    private int protectedBlocks;
+
+    private volatile int size;
+
+    private volatile long sizeBytes;
+
+    private long evictionCount;
+
+    Segment(BlockStore store) {
+        this.store = store;
+        this.maxProtectedBlocks = (int) (store.maxBlocks() * PROTECTED_RATIO);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long sizeBytes() {
+        return sizeBytes;
+    }
+
+    public long evictionCount() {
+        lock.lock();
+        try {
+            return evictionCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(CacheKey key) {
+        lock.lock();
+        try {
+            // containsKey does not alter the access order
+            return protectedEntries.containsKey(key) || probation.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public @Nullable byte[] get(CacheKey key) {
+        lock.lock();
+        try {
+            Entry entry = protectedEntries.get(key);
+            if (entry == null) {
+                entry = probation.remove(key);
+                if (entry == null) {
+                    return null;
+                }
+                promote(key, entry);
+            }
+            return store.read(entry.firstBlock, entry.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the value to the probation segment if not already present, evicting as many entries as
+     * needed to make room for it.
+     *
+     * @return {@code true} if the value was added, {@code false} if it was already present or it's
+     *         larger than the segment capacity
+     */
+    public boolean put(CacheKey key, byte[] value) {
+        final int blocks = store.blocksFor(value.length);
+        if (blocks > store.maxBlocks()) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (protectedEntries.containsKey(key) || probation.containsKey(key)) {
+                return false;
+            }
+            while (store.availableBlocks() < blocks) {
+                evict();
+            }
+            final int firstBlock = store.write(value);
+            probation.put(key, new Entry(firstBlock, value.length, blocks));
+            updateSize();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(CacheKey key) {
+        lock.lock();
+        try {
+            Entry entry = protectedEntries.remove(key);
+            if (entry != null) {
+                protectedBlocks -= entry.blocks;
+            } else {
+                entry = probation.remove(key);
+            }
+            if (entry != null) {
+                store.free(entry.firstBlock);
+                updateSize();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll(Predicate<CacheKey> filter) {
+        lock.lock();
+        try {
+            protectedBlocks -= removeAll(protectedEntries, filter);
+            removeAll(probation, filter);
+            updateSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            protectedEntries.clear();
+            probation.clear();
+            protectedBlocks = 0;
+            store.clear();
+            updateSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of blocks freed
+     */
+    private int removeAll(Map<CacheKey, Entry> entries, Predicate<CacheKey> filter) {
+        int freed = 0;
+        for (Iterator<Map.Entry<CacheKey, Entry>> it = entries.entrySet().iterator(); it
+                .hasNext();) {
+            Map.Entry<CacheKey, Entry> e = it.next();
+            if (filter.test(e.getKey())) {
+                Entry entry = e.getValue();
+                store.free(entry.firstBlock);
+                freed += entry.blocks;
+                it.remove();
+            }
+        }
+        return freed;
+    }
+
+    private void promote(CacheKey key, Entry entry) {
+        protectedEntries.put(key, entry);
+        protectedBlocks += entry.blocks;
+        while (protectedBlocks > maxProtectedBlocks && protectedEntries.size() > 1) {
+            Iterator<Map.Entry<CacheKey, Entry>> eldest = protectedEntries.entrySet().iterator();
+            Map.Entry<CacheKey, Entry> demoted = eldest.next();
+            eldest.remove();
+            protectedBlocks -= demoted.getValue().blocks;
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+    }
+
+    private void evict() {
+        final boolean fromProbation = !probation.isEmpty();
+        Iterator<Map.Entry<CacheKey, Entry>> eldest = (fromProbation ? probation
+                : protectedEntries).entrySet().iterator();
+        Entry victim = eldest.next().getValue();
+        eldest.remove();
+        if (!fromProbation) {
+            protectedBlocks -= victim.blocks;
+        }
+        store.free(victim.firstBlock);
+        evictionCount++;
+    }
+
+    private void updateSize() {
+        this.size = probation.size() + protectedEntries.size();
+        this.sizeBytes = (long) store.usedBlocks() * store.blockSize();
+    }
+}
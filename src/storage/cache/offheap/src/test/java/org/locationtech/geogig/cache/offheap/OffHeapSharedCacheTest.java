@@ -0,0 +1,97 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.cache.offheap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.storage.cache.CacheKey;
+import org.locationtech.geogig.storage.cache.SharedCache;
+import org.locationtech.geogig.storage.cache.SharedCacheTest;
+
+public class OffHeapSharedCacheTest extends SharedCacheTest {
+
+    protected @Override SharedCache createCache(int l1Capacity, long maxCacheSizeBytes) {
+        return new OffHeapSharedCache(maxCacheSizeBytes);
+    }
+
+    @Test
+    public void testBlockStoreChains() {
+        BlockStore store = new BlockStore(32, 100, 32 * 10);
+        Random random = new Random(1);
+        byte[] small = new byte[10];
+        byte[] large = new byte[1000];
+        random.nextBytes(small);
+        random.nextBytes(large);
+
+        int b1 = store.write(small);
+        int b2 = store.write(large);
+        assertEquals(1 + store.blocksFor(1000), store.usedBlocks());
+        assertArrayEquals(small, store.read(b1, small.length));
+        assertArrayEquals(large, store.read(b2, large.length));
+
+        store.free(b2);
+        assertEquals(1, store.usedBlocks());
+        assertEquals(99, store.availableBlocks());
+        int b3 = store.write(large);
+        assertArrayEquals(large, store.read(b3, large.length));
+        assertArrayEquals(small, store.read(b1, small.length));
+    }
+
+    @Test
+    public void testSegmentedLRUEviction() {
+        // 64 blocks of 32 bytes, each value takes exactly one block
+        Segment segment = new Segment(new BlockStore(32, 64));
+        List<CacheKey> keys = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            CacheKey key = CacheKey.create(1, RevObjectTestSupport.hashString("k" + i));
+            keys.add(key);
+            assertTrue(segment.put(key, new byte[] { (byte) i }));
+        }
+        assertEquals(64, segment.size());
+        assertEquals(0, segment.evictionCount());
+
+        // promote the first 10 entries to the protected segment
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(new byte[] { (byte) i }, segment.get(keys.get(i)));
+        }
+        // a scan of new entries shall evict only from the probation segment
+        for (int i = 64; i < 128; i++) {
+            CacheKey key = CacheKey.create(1, RevObjectTestSupport.hashString("k" + i));
+            assertTrue(segment.put(key, new byte[] { (byte) i }));
+        }
+        assertEquals(64, segment.size());
+        assertEquals(64, segment.evictionCount());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(segment.contains(keys.get(i)));
+        }
+        for (int i = 10; i < 64; i++) {
+            assertFalse(segment.contains(keys.get(i)));
+            assertNull(segment.get(keys.get(i)));
+        }
+    }
+
+    @Test
+    public void testValueLargerThanCapacity() {
+        Segment segment = new Segment(new BlockStore(32, 4));
+        CacheKey key = CacheKey.create(1, RevObjectTestSupport.hashString("k"));
+        assertFalse(segment.put(key, new byte[1024]));
+        assertFalse(segment.contains(key));
+    }
+}
@@ -9,14 +9,17 @@
  */
 package org.locationtech.geogig.flatbuffers;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.flatbuffers.generated.v1.Feature;
+import org.locationtech.geogig.flatbuffers.generated.v1.values.ValueUnion;
 import org.locationtech.geogig.model.FieldType;
 import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.model.RevObjects;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 
@@ -63,6 +66,26 @@ final class FBFeature extends FBRevObject<Feature> implements RevFeature {
         }
     }
 
+    public @Override boolean isNull(int index) {
+        return ValueUnion.NONE == getTable().values(index).valueType();
+    }
+
+    public @Override double getDouble(int index) {
+        return ValueSerializer.getDouble(getTable().values(index), index);
+    }
+
+    public @Override long getLong(int index) {
+        return ValueSerializer.getLong(getTable().values(index), index);
+    }
+
+    public @Override Envelope getEnvelope(int index) {
+        return ValueSerializer.getEnvelope(getTable().values(index));
+    }
+
+    public @Override Optional<ByteBuffer> getGeometryWKB(int index) {
+        return ValueSerializer.getGeometryWKB(getTable().values(index), index);
+    }
+
     private @Nullable Object getInternal(int index, GeometryFactory gf) {
         return ValueSerializer.decodeValue(getTable().values(index), gf);
     }
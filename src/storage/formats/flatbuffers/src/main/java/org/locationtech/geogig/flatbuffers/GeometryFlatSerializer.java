@@ -102,6 +102,16 @@ final @UtilityClass class GeometryFlatSerializer {
         return geom;
     }
 
+    public static Envelope getEnvelope(@NonNull FLATGEOMETRY fg) {
+        final int dimension = fg.dimension();
+        final int numOrdinates = fg.ordinatesLength();
+        Envelope env = new Envelope();
+        for (int i = 0; i < numOrdinates; i += dimension) {
+            env.expandToInclude(fg.ordinates(i), fg.ordinates(i + 1));
+        }
+        return env;
+    }
+
     private static @RequiredArgsConstructor class ByteBufferInStream implements InStream {
         private final ByteBuffer bb;
 
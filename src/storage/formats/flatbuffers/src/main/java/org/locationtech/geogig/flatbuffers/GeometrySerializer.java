@@ -9,16 +9,20 @@
  */
 package org.locationtech.geogig.flatbuffers;
 
+import java.nio.ByteBuffer;
+
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.flatbuffers.generated.v1.values.ENCODEDGEOMETRY;
 import org.locationtech.geogig.flatbuffers.generated.v1.values.FLATGEOMETRY;
 import org.locationtech.geogig.flatbuffers.generated.v1.values.GEOMETRY;
 import org.locationtech.geogig.flatbuffers.generated.v1.values.WKBGEOMETRY;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+import org.locationtech.jts.io.WKBWriter;
 
 import com.google.flatbuffers.FlatBufferBuilder;
 
@@ -56,4 +60,35 @@ final @UtilityClass class GeometrySerializer {
         }
         throw new IllegalStateException("Uknown ENCODEDGEOMETRY enum value: " + gtype);
     }
+
+    /**
+     * Computes the bounds of the encoded geometry straight from the buffer, without creating the
+     * geometry
+     */
+    public static Envelope getEnvelope(@NonNull GEOMETRY gval) {
+        final byte gtype = gval.valueType();
+        if (ENCODEDGEOMETRY.WKBGEOMETRY == gtype) {
+            WKBGEOMETRY wkb = (WKBGEOMETRY) gval.value(new WKBGEOMETRY());
+            return GeometryWKBSerializer.getEnvelope(wkb);
+        }
+        if (ENCODEDGEOMETRY.FLATGEOMETRY == gtype) {
+            FLATGEOMETRY fg = (FLATGEOMETRY) gval.value(new FLATGEOMETRY());
+            return GeometryFlatSerializer.getEnvelope(fg);
+        }
+        throw new IllegalStateException("Uknown ENCODEDGEOMETRY enum value: " + gtype);
+    }
+
+    /**
+     * @return a read-only view of the WKB encoded geometry, sharing the underlying buffer if the
+     *         geometry is stored as WKB, or a newly encoded WKB otherwise
+     */
+    public static ByteBuffer getWKB(@NonNull GEOMETRY gval) {
+        final byte gtype = gval.valueType();
+        if (ENCODEDGEOMETRY.WKBGEOMETRY == gtype) {
+            WKBGEOMETRY wkb = (WKBGEOMETRY) gval.value(new WKBGEOMETRY());
+            return wkb.valueAsByteBuffer().slice().asReadOnlyBuffer();
+        }
+        byte[] wkb = new WKBWriter().write(decode(gval, null));
+        return ByteBuffer.wrap(wkb).asReadOnlyBuffer();
+    }
 }
@@ -11,9 +11,11 @@ package org.locationtech.geogig.flatbuffers;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.flatbuffers.generated.v1.values.WKBGEOMETRY;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.io.InStream;
@@ -47,6 +49,76 @@ final @UtilityClass class GeometryWKBSerializer {
         }
     }
 
+    /**
+     * Computes the bounds of the WKB encoded geometry by scanning its coordinates, without creating
+     * the geometry.
+     * <p>
+     * Supports ISO and extended (EWKB) type codes with any combination of Z, M, and SRID, only the
+     * X and Y ordinates contribute to the envelope.
+     */
+    public static Envelope getEnvelope(@NonNull WKBGEOMETRY wkb) {
+        ByteBuffer bb = wkb.valueAsByteBuffer();
+        Envelope env = new Envelope();
+        expandEnvelope(bb, env);
+        return env;
+    }
+
+    private static void expandEnvelope(ByteBuffer bb, Envelope env) {
+        bb.order(bb.get() == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        final int typeInt = bb.getInt();
+        final int isoType = typeInt & 0xffff;
+        final int geometryType = isoType % 1000;
+        final int isoDims = isoType / 1000;
+        final boolean hasZ = (typeInt & 0x80000000) != 0 || isoDims == 1 || isoDims == 3;
+        final boolean hasM = (typeInt & 0x40000000) != 0 || isoDims == 2 || isoDims == 3;
+        if ((typeInt & 0x20000000) != 0) {
+            bb.getInt();// SRID
+        }
+        final int dimension = 2 + (hasZ ? 1 : 0) + (hasM ? 1 : 0);
+        switch (geometryType) {
+        case 1:// Point
+            expandCoordinates(bb, 1, dimension, env);
+            break;
+        case 2:// LineString
+            expandCoordinates(bb, bb.getInt(), dimension, env);
+            break;
+        case 3: {// Polygon
+            final int numRings = bb.getInt();
+            for (int r = 0; r < numRings; r++) {
+                expandCoordinates(bb, bb.getInt(), dimension, env);
+            }
+            break;
+        }
+        case 4:// MultiPoint
+        case 5:// MultiLineString
+        case 6:// MultiPolygon
+        case 7: {// GeometryCollection
+            final int numGeometries = bb.getInt();
+            for (int g = 0; g < numGeometries; g++) {
+                expandEnvelope(bb, env);
+            }
+            break;
+        }
+        default:
+            throw new IllegalArgumentException("Unknown WKB geometry type: " + typeInt);
+        }
+    }
+
+    private static void expandCoordinates(ByteBuffer bb, int numCoordinates, int dimension,
+            Envelope env) {
+        for (int c = 0; c < numCoordinates; c++) {
+            final double x = bb.getDouble();
+            final double y = bb.getDouble();
+            for (int d = 2; d < dimension; d++) {
+                bb.getDouble();
+            }
+            // empty points are encoded as NaN ordinates
+            if (!Double.isNaN(x) && !Double.isNaN(y)) {
+                env.expandToInclude(x, y);
+            }
+        }
+    }
+
     private static @RequiredArgsConstructor class ByteBufferInStream implements InStream {
         private final ByteBuffer bb;
 
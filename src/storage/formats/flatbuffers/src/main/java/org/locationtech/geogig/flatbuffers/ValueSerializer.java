@@ -15,6 +15,7 @@ import java.nio.ByteBuffer;
 import java.sql.Timestamp;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.flatbuffers.generated.v1.values.BIG_DECIMAL;
@@ -48,6 +49,7 @@ import org.locationtech.geogig.flatbuffers.generated.v1.values.UUID;
 import org.locationtech.geogig.flatbuffers.generated.v1.values.Value;
 import org.locationtech.geogig.flatbuffers.generated.v1.values.ValueUnion;
 import org.locationtech.geogig.model.FieldType;
+import org.locationtech.geogig.model.ValueArray;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -344,6 +346,91 @@ final class ValueSerializer {
         }
     }
 
+    /**
+     * Reads a numeric value as a {@code double} straight from the buffer, only decoding the value
+     * if it's not of a primitive numeric type
+     * 
+     * @see ValueArray#getDouble(int)
+     */
+    public static double getDouble(@NonNull Value v, int index) {
+        switch (v.valueType()) {
+        case ValueUnion.BYTE:
+            return ((BYTE) v.value(new BYTE())).value();
+        case ValueUnion.SHORT:
+            return ((SHORT) v.value(new SHORT())).value();
+        case ValueUnion.INTEGER:
+            return ((INTEGER) v.value(new INTEGER())).value();
+        case ValueUnion.LONG:
+            return ((LONG) v.value(new LONG())).value();
+        case ValueUnion.FLOAT:
+            return ((FLOAT) v.value(new FLOAT())).value();
+        case ValueUnion.DOUBLE:
+            return ((DOUBLE) v.value(new DOUBLE())).value();
+        default:
+            return ValueArray.requireNumber(index, decodeValue(v)).doubleValue();
+        }
+    }
+
+    /**
+     * Reads a numeric value as a {@code long} straight from the buffer, only decoding the value if
+     * it's not of a primitive numeric type
+     * 
+     * @see ValueArray#getLong(int)
+     */
+    public static long getLong(@NonNull Value v, int index) {
+        switch (v.valueType()) {
+        case ValueUnion.BYTE:
+            return ((BYTE) v.value(new BYTE())).value();
+        case ValueUnion.SHORT:
+            return ((SHORT) v.value(new SHORT())).value();
+        case ValueUnion.INTEGER:
+            return ((INTEGER) v.value(new INTEGER())).value();
+        case ValueUnion.LONG:
+            return ((LONG) v.value(new LONG())).value();
+        case ValueUnion.FLOAT:
+            return (long) ((FLOAT) v.value(new FLOAT())).value();
+        case ValueUnion.DOUBLE:
+            return (long) ((DOUBLE) v.value(new DOUBLE())).value();
+        default:
+            return ValueArray.requireNumber(index, decodeValue(v)).longValue();
+        }
+    }
+
+    /**
+     * Reads the bounds of a geometry or envelope value straight from the buffer
+     * 
+     * @see ValueArray#getEnvelope(int)
+     */
+    public static @Nullable Envelope getEnvelope(@NonNull Value v) {
+        switch (v.valueType()) {
+        case ValueUnion.NONE:
+            return null;
+        case ValueUnion.GEOMETRY:
+            return GeometrySerializer.getEnvelope((GEOMETRY) v.value(new GEOMETRY()));
+        case ValueUnion.ENVELOPE_2D:
+            Bounds bounds = ((ENVELOPE_2D) v.value(new ENVELOPE_2D())).value();
+            return new Envelope(bounds.x1(), bounds.x2(), bounds.y1(), bounds.y2());
+        default:
+            return ValueArray.envelopeOf(decodeValue(v));
+        }
+    }
+
+    /**
+     * @see ValueArray#getGeometryWKB(int)
+     */
+    public static Optional<ByteBuffer> getGeometryWKB(@NonNull Value v, int index) {
+        switch (v.valueType()) {
+        case ValueUnion.NONE:
+            return Optional.empty();
+        case ValueUnion.GEOMETRY:
+            return Optional.of(GeometrySerializer.getWKB((GEOMETRY) v.value(new GEOMETRY())));
+        default:
+            throw new IllegalArgumentException(String.format(
+                    "Value at index %d is not a geometry: %s", index,
+                    FieldType.forValue(decodeValue(v))));
+        }
+    }
+
     public static int writeDictionary(FlatBufferBuilder builder, Map<String, Object> data) {
         int[] entriesOffsets = new int[data.size()];
         int i = 0;
@@ -0,0 +1,164 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.format.zstd;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.storage.RevObjectSerializer;
+import org.locationtech.geogig.storage.datastream.Varint;
+import org.locationtech.geogig.storage.format.zstd.ZstdDictionaries.Dictionary;
+
+import com.github.luben.zstd.Zstd;
+
+import lombok.NonNull;
+
+/**
+ * Wrapper serializer that compresses each object encoded by the wrapped serializer with ZSTD,
+ * using the {@link ZstdDictionaries dictionary} trained for objects like it if there's one.
+ * <p>
+ * Small objects such as features and tree nodes compress poorly on their own, but share most of
+ * their structure and attribute names with other objects of the same kind, which is what a trained
+ * dictionary captures, noticeably improving the compression ratio on them.
+ * <p>
+ * Each object is encoded as the unsigned varint id of the dictionary it was compressed with (
+ * {@code 0} for no dictionary), the unsigned varint length of the uncompressed and compressed
+ * objects, and the compressed bytes. Hence multiple objects can be read back from a single stream.
+ * <p>
+ * Dictionaries may be trained by another process while this one is in use. If a
+ * {@link #RevObjectSerializerZSTD(RevObjectSerializer, ZstdDictionaries, Supplier) loader} is
+ * given, reading an object compressed with an unknown dictionary reloads the dictionaries once for
+ * that dictionary id before failing.
+ */
+public class RevObjectSerializerZSTD implements RevObjectSerializer {
+
+    private static final int NO_DICTIONARY = 0;
+
+    private final RevObjectSerializer serializer;
+
+    private volatile ZstdDictionaries dictionaries;
+
+    private final @Nullable Supplier<ZstdDictionaries> loader;
+
+    /**
+     * Ids of the dictionaries that were not found, for which a reload was already attempted
+     */
+    private final Set<Integer> reloadedIds = new HashSet<>();
+
+    public RevObjectSerializerZSTD(@NonNull RevObjectSerializer serializer) {
+        this(serializer, ZstdDictionaries.EMPTY);
+    }
+
+    public RevObjectSerializerZSTD(@NonNull RevObjectSerializer serializer,
+            @NonNull ZstdDictionaries dictionaries) {
+        this(serializer, dictionaries, null);
+    }
+
+    /**
+     * @param loader if not {@code null}, used to reload the dictionaries when an object compressed
+     *        with an unknown dictionary is read, for example {@code () ->
+     *        ZstdDictionaries.load(blobStore)}
+     */
+    public RevObjectSerializerZSTD(@NonNull RevObjectSerializer serializer,
+            @NonNull ZstdDictionaries dictionaries,
+            @Nullable Supplier<ZstdDictionaries> loader) {
+        this.serializer = serializer;
+        this.dictionaries = dictionaries;
+        this.loader = loader;
+    }
+
+    public ZstdDictionaries getDictionaries() {
+        return dictionaries;
+    }
+
+    public @Override void write(RevObject o, OutputStream out) throws IOException {
+        ByteArrayOutputStream buff = new ByteArrayOutputStream();
+        serializer.write(o, buff);
+        final byte[] raw = buff.toByteArray();
+
+        final Dictionary dictionary = dictionaries.forObject(o);
+        final byte[] compressed;
+        if (dictionary == null) {
+            compressed = Zstd.compress(raw, ZstdDictionaries.COMPRESSION_LEVEL);
+        } else {
+            compressed = Zstd.compress(raw, dictionary.compressor());
+        }
+        DataOutputStream dataOut = new DataOutputStream(out);
+        Varint.writeUnsignedVarInt(dictionary == null ? NO_DICTIONARY : dictionary.id(), dataOut);
+        Varint.writeUnsignedVarInt(raw.length, dataOut);
+        Varint.writeUnsignedVarInt(compressed.length, dataOut);
+        dataOut.write(compressed);
+        dataOut.flush();
+    }
+
+    public @Override RevObject read(@Nullable ObjectId id, InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+        final int dictionaryId = Varint.readUnsignedVarInt(dataIn);
+        final int rawLength = Varint.readUnsignedVarInt(dataIn);
+        final byte[] compressed = new byte[Varint.readUnsignedVarInt(dataIn)];
+        dataIn.readFully(compressed);
+
+        final byte[] raw;
+        if (dictionaryId == NO_DICTIONARY) {
+            raw = Zstd.decompress(compressed, rawLength);
+        } else {
+            Dictionary dictionary = dictionaries.get(dictionaryId);
+            if (dictionary == null && loader != null) {
+                dictionary = reload(dictionaryId);
+            }
+            if (dictionary == null) {
+                throw new IllegalStateException(String.format(
+                        "Object %s was compressed with ZSTD dictionary %d, which is not available",
+                        id, dictionaryId));
+            }
+            raw = Zstd.decompress(compressed, dictionary.decompressor(), rawLength);
+        }
+        return serializer.read(id, raw, 0, raw.length);
+    }
+
+    /**
+     * Reloads the dictionaries if {@code dictionaryId} is not known and no reload has been
+     * attempted for it yet
+     *
+     * @return the dictionary, or {@code null} if it's still not found
+     */
+    private synchronized @Nullable Dictionary reload(int dictionaryId) {
+        Dictionary dictionary = dictionaries.get(dictionaryId);
+        if (dictionary == null && reloadedIds.add(dictionaryId)) {
+            // dictionaries are never removed, so the reloaded ones are a superset of the current
+            ZstdDictionaries reloaded = loader.get();
+            if (reloaded.size() > dictionaries.size()) {
+                dictionaries = reloaded;
+            }
+            dictionary = dictionaries.get(dictionaryId);
+        }
+        return dictionary;
+    }
+
+    public @Override RevObject read(@Nullable ObjectId id, byte[] data, int offset, int length)
+            throws IOException {
+        return read(id, new ByteArrayInputStream(data, offset, length));
+    }
+
+    public @Override String getDisplayName() {
+        return serializer.getDisplayName() + "/ZSTD";
+    }
+}
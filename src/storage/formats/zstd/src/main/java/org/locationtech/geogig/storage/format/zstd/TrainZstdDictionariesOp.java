@@ -0,0 +1,185 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.format.zstd;
+
+import static org.locationtech.geogig.storage.BulkOpListener.NOOP_LISTENER;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.RevCommit;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevFeatureType;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.plumbing.RevObjectParse;
+import org.locationtech.geogig.repository.impl.AbstractGeoGigOp;
+import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.RevObjectSerializer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+
+import lombok.NonNull;
+
+/**
+ * Trains the repository's {@link ZstdDictionaries} out of a sample of the objects reachable from
+ * {@code HEAD}, and saves them to the repository's blob store.
+ * <p>
+ * Samples commits following {@code HEAD}'s history, and walks {@code HEAD}'s root tree breadth
+ * first sampling trees, feature types, and up to {@link #setFeaturesPerTree featuresPerTree}
+ * features of each leaf tree, so all feature types are represented in the sample.
+ * <p>
+ * Newly trained dictionaries are merged with the existing ones, so objects already compressed with
+ * a previous dictionary can still be read. Object databases that support the ZSTD format start
+ * writing with the dictionaries the next time they're opened, while already open ones reload them
+ * when reading an object compressed with one they don't know yet.
+ * <p>
+ * Returns the repository's dictionaries after merging the trained ones.
+ */
+public class TrainZstdDictionariesOp extends AbstractGeoGigOp<ZstdDictionaries> {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    private RevObjectSerializer serializer = new FlatBuffersRevObjectSerializer();
+
+    private int dictionarySize = ZstdDictionaryTrainer.DEFAULT_DICTIONARY_SIZE;
+
+    private int maxSamples = 100_000;
+
+    private int featuresPerTree = 1_000;
+
+    /**
+     * @param serializer the serializer {@link RevObjectSerializerZSTD} wraps, defaults to
+     *        {@link FlatBuffersRevObjectSerializer}
+     */
+    public TrainZstdDictionariesOp setSerializer(@NonNull RevObjectSerializer serializer) {
+        this.serializer = serializer;
+        return this;
+    }
+
+    public TrainZstdDictionariesOp setDictionarySize(int dictionarySize) {
+        Preconditions.checkArgument(dictionarySize > 0);
+        this.dictionarySize = dictionarySize;
+        return this;
+    }
+
+    /**
+     * @param maxSamples maximum number of objects to sample, defaults to {@code 100,000}
+     */
+    public TrainZstdDictionariesOp setMaxSamples(int maxSamples) {
+        Preconditions.checkArgument(maxSamples > 0);
+        this.maxSamples = maxSamples;
+        return this;
+    }
+
+    /**
+     * @param featuresPerTree maximum number of features to sample from each leaf tree, defaults
+     *        to {@code 1,000}
+     */
+    public TrainZstdDictionariesOp setFeaturesPerTree(int featuresPerTree) {
+        Preconditions.checkArgument(featuresPerTree > 0);
+        this.featuresPerTree = featuresPerTree;
+        return this;
+    }
+
+    protected @Override ZstdDictionaries _call() {
+        final ObjectDatabase db = objectDatabase();
+        final ZstdDictionaryTrainer trainer = new ZstdDictionaryTrainer(serializer,
+                dictionarySize);
+        final Optional<RevCommit> head = command(RevObjectParse.class).setRefSpec(Ref.HEAD)
+                .call(RevCommit.class);
+        if (head.isPresent()) {
+            int samples = sampleCommits(db, head.get(), trainer);
+            sampleTrees(db, head.get().getTreeId(), trainer, maxSamples - samples);
+        }
+        final ZstdDictionaries current = ZstdDictionaries.load(db.getBlobStore());
+        final Map<String, byte[]> trained = trainer.train();
+        if (trained.isEmpty()) {
+            return current;
+        }
+        final ZstdDictionaries dictionaries = current.merge(trained);
+        dictionaries.save(db.getBlobStore());
+        return dictionaries;
+    }
+
+    /**
+     * Samples commits following the first parent of each commit until there are enough of them
+     *
+     * @return the number of commits sampled
+     */
+    private int sampleCommits(ObjectDatabase db, RevCommit head, ZstdDictionaryTrainer trainer) {
+        int samples = 0;
+        RevCommit commit = head;
+        while (commit != null && samples < maxSamples / 10 && trainer.addSample(commit)) {
+            samples++;
+            Optional<ObjectId> parent = commit.parentN(0);
+            commit = parent.isPresent() ? db.getIfPresent(parent.get(), RevCommit.class) : null;
+        }
+        return samples;
+    }
+
+    private void sampleTrees(ObjectDatabase db, ObjectId rootId, ZstdDictionaryTrainer trainer,
+            int maxSamples) {
+        int samples = 0;
+        List<ObjectId> level = new ArrayList<>();
+        level.add(rootId);
+        Set<ObjectId> featureTypes = new HashSet<>();
+        while (!level.isEmpty() && samples < maxSamples) {
+            final List<ObjectId> next = new ArrayList<>();
+            final List<ObjectId> features = new ArrayList<>();
+            for (List<ObjectId> batch : Iterables.partition(level, BATCH_SIZE)) {
+                Iterator<RevTree> trees = db.getAll(batch, NOOP_LISTENER, RevTree.class);
+                while (trees.hasNext()) {
+                    RevTree tree = trees.next();
+                    if (samples < maxSamples && trainer.addSample(tree)) {
+                        samples++;
+                    }
+                    tree.forEachBucket(bucket -> next.add(bucket.getObjectId()));
+                    for (Node node : tree.trees()) {
+                        next.add(node.getObjectId());
+                        node.getMetadataId().ifPresent(featureTypes::add);
+                    }
+                    tree.features().stream().limit(featuresPerTree)
+                            .forEach(node -> features.add(node.getObjectId()));
+                }
+            }
+            samples += sample(db, features, RevFeature.class, trainer, maxSamples - samples);
+            level = next;
+        }
+        sample(db, featureTypes, RevFeatureType.class, trainer, Integer.MAX_VALUE);
+    }
+
+    private <T extends RevObject> int sample(ObjectDatabase db, Iterable<ObjectId> ids,
+            Class<T> type, ZstdDictionaryTrainer trainer, int maxSamples) {
+        int samples = 0;
+        for (List<ObjectId> batch : Iterables.partition(ids, BATCH_SIZE)) {
+            Iterator<T> objects = db.getAll(batch, NOOP_LISTENER, type);
+            while (objects.hasNext() && samples < maxSamples) {
+                if (trainer.addSample(objects.next())) {
+                    samples++;
+                }
+            }
+            if (samples >= maxSamples) {
+                break;
+            }
+        }
+        return samples;
+    }
+}
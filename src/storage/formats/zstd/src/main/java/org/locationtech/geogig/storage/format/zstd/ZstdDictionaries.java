@@ -0,0 +1,245 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.format.zstd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.model.RevObject.TYPE;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.storage.BlobStore;
+import org.locationtech.geogig.storage.datastream.Varint;
+
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+import lombok.NonNull;
+
+/**
+ * Immutable set of ZSTD dictionaries trained by {@link ZstdDictionaryTrainer} for a repository,
+ * used by {@link RevObjectSerializerZSTD} to compress and decompress objects.
+ * <p>
+ * Each dictionary is trained for a group of similar objects identified by a {@link #keyOf key}:
+ * one per object type, except for trees, which are split in leaf and bucket trees, and features,
+ * which are grouped by number of attributes as a proxy of their feature type, since a
+ * {@link RevFeature} does not know its type.
+ * <p>
+ * Dictionaries are identified by a sequential id stored with each compressed object, so they're
+ * never removed: re-training {@link #merge adds} new dictionaries that take over compressing
+ * objects of their key, while the older ones are kept to decompress existing objects.
+ */
+public final class ZstdDictionaries {
+
+    /**
+     * Path under which the dictionaries are stored in the repository's {@link BlobStore}
+     */
+    public static final String BLOB_PATH = "zstd/dictionaries";
+
+    /**
+     * The compression level used for all objects, with or without dictionary
+     */
+    public static final int COMPRESSION_LEVEL = 3;
+
+    public static final ZstdDictionaries EMPTY = new ZstdDictionaries(new ArrayList<>());
+
+    private static final int ENCODING_VERSION = 1;
+
+    private final TreeMap<Integer, Dictionary> byId = new TreeMap<>();
+
+    private final Map<String, Dictionary> byKey = new HashMap<>();
+
+    private ZstdDictionaries(List<Dictionary> dictionaries) {
+        for (Dictionary d : dictionaries) {
+            byId.put(d.id(), d);
+            Dictionary current = byKey.get(d.key());
+            if (current == null || current.id() < d.id()) {
+                byKey.put(d.key(), d);
+            }
+        }
+    }
+
+    /**
+     * A trained dictionary, with its compression and decompression contexts ready to be shared
+     * among threads
+     */
+    public static final class Dictionary {
+
+        private final int id;
+
+        private final String key;
+
+        private final byte[] data;
+
+        private final ZstdDictCompress compressor;
+
+        private final ZstdDictDecompress decompressor;
+
+        Dictionary(int id, @NonNull String key, @NonNull byte[] data) {
+            Preconditions.checkArgument(id > 0, "dictionary id must be > 0: %s", id);
+            this.id = id;
+            this.key = key;
+            this.data = data;
+            this.compressor = new ZstdDictCompress(data, COMPRESSION_LEVEL);
+            this.decompressor = new ZstdDictDecompress(data);
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public int size() {
+            return data.length;
+        }
+
+        ZstdDictCompress compressor() {
+            return compressor;
+        }
+
+        ZstdDictDecompress decompressor() {
+            return decompressor;
+        }
+
+        public @Override String toString() {
+            return String.format("Dictionary[id: %d, key: %s, size: %,d]", id, key, data.length);
+        }
+    }
+
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * @return all dictionaries, in id order
+     */
+    public Collection<Dictionary> getAll() {
+        return byId.values();
+    }
+
+    /**
+     * @return the dictionary with the given id, or {@code null} if there's none
+     */
+    public @Nullable Dictionary get(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @return the dictionary to compress {@code object} with, or {@code null} if there's none
+     *         trained for its {@link #keyOf key}
+     */
+    public @Nullable Dictionary forObject(@NonNull RevObject object) {
+        return byKey.isEmpty() ? null : byKey.get(keyOf(object));
+    }
+
+    /**
+     * @return the key that identifies the group of similar objects {@code object} belongs to, and
+     *         hence which dictionary to train with and compress it with
+     */
+    public static String keyOf(@NonNull RevObject object) {
+        final TYPE type = object.getType();
+        switch (type) {
+        case FEATURE:
+            return "FEATURE/" + ((RevFeature) object).size();
+        case TREE:
+            return ((RevTree) object).bucketsSize() > 0 ? "TREE/buckets" : "TREE/leaf";
+        default:
+            return type.name();
+        }
+    }
+
+    /**
+     * @param trained newly trained dictionaries by {@link #keyOf key}
+     * @return a new instance with all of this instance's dictionaries plus the {@code trained}
+     *         ones, which take over compressing the objects of their keys
+     */
+    public ZstdDictionaries merge(@NonNull Map<String, byte[]> trained) {
+        List<Dictionary> dictionaries = new ArrayList<>(byId.values());
+        int nextId = byId.isEmpty() ? 1 : byId.lastKey() + 1;
+        for (Map.Entry<String, byte[]> e : new TreeMap<>(trained).entrySet()) {
+            dictionaries.add(new Dictionary(nextId++, e.getKey(), e.getValue()));
+        }
+        return new ZstdDictionaries(dictionaries);
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bout)) {
+            out.writeByte(ENCODING_VERSION);
+            Varint.writeUnsignedVarInt(byId.size(), out);
+            for (Dictionary d : byId.values()) {
+                Varint.writeUnsignedVarInt(d.id(), out);
+                out.writeUTF(d.key());
+                Varint.writeUnsignedVarInt(d.data.length, out);
+                out.write(d.data);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bout.toByteArray();
+    }
+
+    public static ZstdDictionaries decode(@NonNull byte[] encoded) {
+        DataInput in = ByteStreams.newDataInput(encoded);
+        try {
+            final int version = in.readUnsignedByte();
+            Preconditions.checkArgument(ENCODING_VERSION == version,
+                    "Unsupported ZSTD dictionaries encoding version: %s", version);
+            final int count = Varint.readUnsignedVarInt(in);
+            List<Dictionary> dictionaries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = Varint.readUnsignedVarInt(in);
+                String key = in.readUTF();
+                byte[] data = new byte[Varint.readUnsignedVarInt(in)];
+                in.readFully(data);
+                dictionaries.add(new Dictionary(id, key, data));
+            }
+            return new ZstdDictionaries(dictionaries);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Error decoding ZSTD dictionaries", e);
+        }
+    }
+
+    /**
+     * @return the dictionaries stored in {@code blobStore}, or {@link #EMPTY} if there are none
+     */
+    public static ZstdDictionaries load(@NonNull BlobStore blobStore) {
+        Optional<byte[]> blob = blobStore.getBlob(BLOB_PATH);
+        return blob.map(ZstdDictionaries::decode).orElse(EMPTY);
+    }
+
+    public void save(@NonNull BlobStore blobStore) {
+        blobStore.putBlob(BLOB_PATH, encode());
+    }
+
+    public @Override String toString() {
+        return String.format("ZstdDictionaries%s", byId.values());
+    }
+}
@@ -0,0 +1,141 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.format.zstd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.storage.RevObjectSerializer;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Trains a ZSTD dictionary for each group of similar objects, as determined by
+ * {@link ZstdDictionaries#keyOf}, out of the sample objects given to {@link #addSample}.
+ * <p>
+ * Samples are kept in their serialized form, as encoded by the same serializer
+ * {@link RevObjectSerializerZSTD} wraps, up to {@link #maxSampleBytes} per key. Keys with less
+ * than {@link #MIN_SAMPLES} samples get no dictionary, since there wouldn't be enough data to
+ * train a meaningful one.
+ */
+@Slf4j
+public class ZstdDictionaryTrainer {
+
+    public static final int DEFAULT_DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * Minimum number of samples for a key to be given a dictionary
+     */
+    public static final int MIN_SAMPLES = 64;
+
+    private final RevObjectSerializer serializer;
+
+    private final int dictionarySize;
+
+    private final int maxSampleBytes;
+
+    private final Map<String, Samples> samples = new TreeMap<>();
+
+    private static class Samples {
+        final List<byte[]> samples = new ArrayList<>();
+
+        long size;
+    }
+
+    public ZstdDictionaryTrainer(@NonNull RevObjectSerializer serializer) {
+        this(serializer, DEFAULT_DICTIONARY_SIZE);
+    }
+
+    /**
+     * @param serializer the serializer whose output is to be compressed with the dictionaries
+     * @param dictionarySize the maximum size of each dictionary, samples are collected up to 100
+     *        times that size per key, as recommended by the ZSTD documentation
+     */
+    public ZstdDictionaryTrainer(@NonNull RevObjectSerializer serializer, int dictionarySize) {
+        Preconditions.checkArgument(dictionarySize > 0, "dictionary size must be > 0: %s",
+                dictionarySize);
+        this.serializer = serializer;
+        this.dictionarySize = dictionarySize;
+        this.maxSampleBytes = 100 * dictionarySize;
+    }
+
+    /**
+     * Adds {@code object} to the samples of its {@link ZstdDictionaries#keyOf key}, unless there
+     * are already enough samples for it.
+     *
+     * @return {@code false} if there are already enough samples for the object's key, so the
+     *         caller may stop sampling objects like it
+     */
+    public boolean addSample(@NonNull RevObject object) {
+        final String key = ZstdDictionaries.keyOf(object);
+        Samples keySamples = samples.computeIfAbsent(key, k -> new Samples());
+        if (keySamples.size >= maxSampleBytes) {
+            return false;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            serializer.write(object, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] sample = out.toByteArray();
+        keySamples.samples.add(sample);
+        keySamples.size += sample.length;
+        return true;
+    }
+
+    /**
+     * @return the number of samples collected for each key
+     */
+    public Map<String, Integer> getSampleCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        samples.forEach((key, s) -> counts.put(key, s.samples.size()));
+        return counts;
+    }
+
+    /**
+     * Trains the dictionaries for all keys with enough samples
+     *
+     * @return the trained dictionaries by key, to be {@link ZstdDictionaries#merge merged} into
+     *         the repository's current ones
+     */
+    public Map<String, byte[]> train() {
+        Map<String, byte[]> dictionaries = new TreeMap<>();
+        samples.forEach((key, keySamples) -> {
+            if (keySamples.samples.size() < MIN_SAMPLES) {
+                log.debug("Not training ZSTD dictionary for {}, only {} samples", key,
+                        keySamples.samples.size());
+                return;
+            }
+            ZstdDictTrainer trainer = new ZstdDictTrainer((int) keySamples.size, dictionarySize);
+            keySamples.samples.forEach(trainer::addSample);
+            try {
+                byte[] dictionary = trainer.trainSamples();
+                log.debug("Trained {} bytes ZSTD dictionary for {} out of {} samples",
+                        dictionary.length, key, keySamples.samples.size());
+                dictionaries.put(key, dictionary);
+            } catch (RuntimeException e) {
+                // zstd refuses to train dictionaries out of too few or too similar samples
+                log.info("Unable to train ZSTD dictionary for {}: {}", key, e.getMessage());
+            }
+        });
+        return dictionaries;
+    }
+}
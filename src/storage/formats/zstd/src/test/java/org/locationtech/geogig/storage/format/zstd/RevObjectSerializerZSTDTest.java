@@ -0,0 +1,22 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.format.zstd;
+
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.storage.RevObjectSerializer;
+import org.locationtech.geogig.storage.impl.RevObjectSerializerConformanceTest;
+
+public class RevObjectSerializerZSTDTest extends RevObjectSerializerConformanceTest {
+
+    protected @Override RevObjectSerializer newObjectSerializer() {
+        return new RevObjectSerializerZSTD(new FlatBuffersRevObjectSerializer());
+    }
+
+}
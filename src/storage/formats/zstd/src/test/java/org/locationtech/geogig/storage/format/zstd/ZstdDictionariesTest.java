@@ -0,0 +1,172 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.format.zstd;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.RevFeature;
+import org.locationtech.geogig.model.RevObject;
+import org.locationtech.geogig.storage.RevObjectSerializer;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+public class ZstdDictionariesTest {
+
+    private static final int DICTIONARY_SIZE = 4 * 1024;
+
+    private final RevObjectSerializer flatbuffers = new FlatBuffersRevObjectSerializer();
+
+    private final GeometryFactory gf = new GeometryFactory();
+
+    private List<RevFeature> features;
+
+    public @Before void before() {
+        Random random = new Random(1);
+        features = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            features.add(RevFeature.builder()//
+                    .addValue("Feature number " + i)//
+                    .addValue(random.nextInt(100))//
+                    .addValue(random.nextDouble())//
+                    .addValue(gf.createPoint(new Coordinate(random.nextInt(1000),
+                            random.nextInt(1000))))//
+                    .build());
+        }
+    }
+
+    private ZstdDictionaries train(ZstdDictionaries current, List<? extends RevObject> samples) {
+        ZstdDictionaryTrainer trainer = new ZstdDictionaryTrainer(flatbuffers, DICTIONARY_SIZE);
+        samples.forEach(trainer::addSample);
+        Map<String, byte[]> trained = trainer.train();
+        return current.merge(trained);
+    }
+
+    private byte[] encode(RevObjectSerializer serializer, RevObject o) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(o, out);
+        return out.toByteArray();
+    }
+
+    public @Test void testKeyOf() {
+        assertEquals("FEATURE/4", ZstdDictionaries.keyOf(features.get(0)));
+        assertEquals("FEATURE/1",
+                ZstdDictionaries.keyOf(RevFeature.builder().addValue(1).build()));
+    }
+
+    public @Test void testTooFewSamples() {
+        ZstdDictionaries dictionaries = train(ZstdDictionaries.EMPTY,
+                features.subList(0, ZstdDictionaryTrainer.MIN_SAMPLES - 1));
+        assertTrue(dictionaries.isEmpty());
+    }
+
+    public @Test void testTrainAndRoundTrip() throws IOException {
+        ZstdDictionaries dictionaries = train(ZstdDictionaries.EMPTY, features);
+        assertEquals(1, dictionaries.size());
+        ZstdDictionaries.Dictionary dictionary = dictionaries.forObject(features.get(0));
+        assertNotNull(dictionary);
+        assertEquals(1, dictionary.id());
+        assertEquals("FEATURE/4", dictionary.key());
+        assertNull(dictionaries.forObject(RevFeature.builder().addValue(1).build()));
+
+        RevObjectSerializerZSTD noDictionary = new RevObjectSerializerZSTD(flatbuffers);
+        RevObjectSerializerZSTD withDictionary = new RevObjectSerializerZSTD(flatbuffers,
+                dictionaries);
+        long plainSize = 0, dictionarySize = 0;
+        for (RevFeature f : features) {
+            byte[] plain = encode(noDictionary, f);
+            byte[] compressed = encode(withDictionary, f);
+            plainSize += plain.length;
+            dictionarySize += compressed.length;
+            assertEquals(f, noDictionary.read(f.getId(), plain, 0, plain.length));
+            assertEquals(f, withDictionary.read(f.getId(), compressed, 0, compressed.length));
+        }
+        assertTrue(String.format("dictionary size %,d, plain size %,d", dictionarySize, plainSize),
+                dictionarySize < plainSize);
+    }
+
+    public @Test(expected = IllegalStateException.class) void testMissingDictionary()
+            throws IOException {
+        ZstdDictionaries dictionaries = train(ZstdDictionaries.EMPTY, features);
+        RevFeature f = features.get(0);
+        byte[] compressed = encode(new RevObjectSerializerZSTD(flatbuffers, dictionaries), f);
+        new RevObjectSerializerZSTD(flatbuffers).read(f.getId(), compressed, 0,
+                compressed.length);
+    }
+
+    public @Test void testEncodeDecode() {
+        assertTrue(ZstdDictionaries.decode(ZstdDictionaries.EMPTY.encode()).isEmpty());
+
+        ZstdDictionaries dictionaries = train(ZstdDictionaries.EMPTY, features);
+        ZstdDictionaries decoded = ZstdDictionaries.decode(dictionaries.encode());
+        assertEquals(dictionaries.toString(), decoded.toString());
+    }
+
+    public @Test void testMergeKeepsPreviousDictionaries() throws IOException {
+        ZstdDictionaries first = train(ZstdDictionaries.EMPTY, features);
+        RevFeature f = features.get(0);
+        byte[] compressedWithFirst = encode(new RevObjectSerializerZSTD(flatbuffers, first), f);
+
+        ZstdDictionaries second = train(first, features);
+        assertEquals(2, second.size());
+        assertEquals(2, second.forObject(f).id());
+        assertNotNull(second.get(1));
+
+        RevObjectSerializerZSTD serializer = new RevObjectSerializerZSTD(flatbuffers, second);
+        assertEquals(f, serializer.read(f.getId(), compressedWithFirst, 0,
+                compressedWithFirst.length));
+    }
+
+    public @Test void testReloadsMissingDictionaryOnce() throws IOException {
+        ZstdDictionaries dictionaries = train(ZstdDictionaries.EMPTY, features);
+        RevFeature f = features.get(0);
+        byte[] compressed = encode(new RevObjectSerializerZSTD(flatbuffers, dictionaries), f);
+
+        AtomicInteger loads = new AtomicInteger();
+        RevObjectSerializerZSTD reloading = new RevObjectSerializerZSTD(flatbuffers,
+                ZstdDictionaries.EMPTY, () -> {
+                    loads.incrementAndGet();
+                    return dictionaries;
+                });
+        assertEquals(f, reloading.read(f.getId(), compressed, 0, compressed.length));
+        assertEquals(f, reloading.read(f.getId(), compressed, 0, compressed.length));
+        assertEquals(1, loads.get());
+        assertEquals(1, reloading.getDictionaries().size());
+
+        RevObjectSerializerZSTD notFound = new RevObjectSerializerZSTD(flatbuffers,
+                ZstdDictionaries.EMPTY, () -> {
+                    loads.incrementAndGet();
+                    return ZstdDictionaries.EMPTY;
+                });
+        for (int i = 0; i < 2; i++) {
+            try {
+                notFound.read(f.getId(), compressed, 0, compressed.length);
+                fail("expected ISE");
+            } catch (IllegalStateException expected) {
+                assertTrue(expected.getMessage().contains("not available"));
+            }
+        }
+        assertEquals(2, loads.get());
+    }
+}
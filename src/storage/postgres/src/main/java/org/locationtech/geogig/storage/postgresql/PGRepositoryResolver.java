@@ -202,8 +202,11 @@ public class PGRepositoryResolver implements RepositoryResolver {
 
     public @Override RefDatabase resolveRefDatabase(@NonNull URI repoURI, Hints hints) {
         try {
+            ConfigDatabase configDatabase = resolveConfigDatabase(repoURI, null, false);
             Environment env = parseRequireRepositorySet(repoURI);
-            return new PGRefDatabase(env);
+            boolean cacheRefs = configDatabase.get(Environment.KEY_REFS_CACHE, Boolean.class)
+                    .orElse(Boolean.FALSE).booleanValue();
+            return new PGRefDatabase(env, cacheRefs);
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }
@@ -70,6 +70,10 @@ public class Environment implements Cloneable {
 
     public static final String KEY_PUTALL_BATCH_SIZE = "postgres.putAllBatchSize";
 
+    public static final String KEY_PUTALL_USE_COPY = "postgres.putAllUseCopy";
+
+    public static final String KEY_REFS_CACHE = "postgres.refsCache";
+
     public static final String KEY_ODB_BYTE_CACHE_MAX_SIZE = "postgres.bytecache.maxSize";
 
     public static final String KEY_ODB_BYTE_CACHE_CONCURRENCY_LEVEL = "postgres.bytecache.concurrencyLevel";
@@ -19,11 +19,12 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -46,7 +47,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 
 import lombok.NonNull;
 
@@ -63,6 +63,11 @@ public class PGGraphDatabase extends AbstractStore implements GraphDatabase {
 
     private final String MAPPINGS;
 
+    /**
+     * The {@link ObjectId#NULL NULL} id, pointed to by the edges of root commits
+     */
+    private static final String NULL_ID = "CAST(ROW(0,0,0) AS OBJECTID)";
+
     private DataSource dataSource;
 
     private Environment env;
@@ -356,34 +361,121 @@ public class PGGraphDatabase extends AbstractStore implements GraphDatabase {
         return mapped;
     }
 
+    /**
+     * Computes the depth with a single recursive query that walks the graph one generation at a
+     * time and stops at the first one containing a root commit (i.e. a commit whose only edge
+     * points to the {@link ObjectId#NULL NULL} id).
+     */
     public @Override int getDepth(ObjectId commitId) {
-        int depth = 0;
+        final PGId node = PGId.valueOf(commitId);
+        final String sql = format("WITH RECURSIVE walk(id, depth) AS (\n"//
+                + " SELECT CAST(ROW(?,?,?) AS OBJECTID), 0\n"//
+                + " UNION\n"//
+                + " SELECT e.dst, w.depth + 1 FROM walk w JOIN %s e ON e.src = w.id\n"//
+                + ")\n"//
+                + "SELECT depth - 1 FROM walk WHERE id = %s LIMIT 1", EDGES, NULL_ID);
 
-        Queue<PGId> q = Lists.newLinkedList();
         try (Connection cx = env.getConnection()) {
-            Iterables.addAll(q, outgoing(PGId.valueOf(commitId), cx));
-
-            List<PGId> next = Lists.newArrayList();
-            while (!q.isEmpty()) {
-                depth++;
-                while (!q.isEmpty()) {
-                    PGId n = q.poll();
-                    List<PGId> parents = Lists.newArrayList(outgoing(n, cx));
-                    if (parents.size() == 0) {
-                        return depth;
-                    }
-
-                    Iterables.addAll(next, parents);
+            try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, node))) {
+                node.setArgs(ps, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
                 }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                q.addAll(next);
-                next.clear();
+    /**
+     * Resolves the ancestors with a single recursive query over the edges table, which PostgreSQL
+     * evaluates one generation at a time and only as far as needed to satisfy {@code limit}.
+     */
+    public @Override List<ObjectId> getAncestors(@NonNull Collection<ObjectId> commitIds,
+            int limit) {
+        Preconditions.checkArgument(limit >= 0, "limit must be >= 0: %s", limit);
+        if (commitIds.isEmpty() || limit == 0) {
+            return Collections.emptyList();
+        }
+        final List<PGId> start = commitIds.stream().map(PGId::valueOf)
+                .collect(Collectors.toList());
+        final String values = String.join(", ",
+                Collections.nCopies(start.size(), "(CAST(ROW(?,?,?) AS OBJECTID))"));
+        final String sql = format("WITH RECURSIVE ancestors(id) AS (\n"//
+                + " VALUES %s\n"//
+                + " UNION\n"//
+                + " SELECT e.dst FROM ancestors a JOIN %s e ON e.src = a.id WHERE e.dst <> %s\n"//
+                + ")\n"//
+                + "SELECT ((id).h1), ((id).h2), ((id).h3) FROM ancestors LIMIT ?", values, EDGES,
+                NULL_ID);
+
+        List<ObjectId> ancestors = new ArrayList<>();
+        try (Connection cx = env.getConnection()) {
+            try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, start, limit))) {
+                int index = 1;
+                for (PGId id : start) {
+                    id.setArgs(ps, index);
+                    index += 3;
+                }
+                ps.setInt(index, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ancestors.add(PGId.valueOf(rs, 1).toObjectId());
+                    }
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        return ancestors;
+    }
+
+    /**
+     * Resolves the common ancestor with a single query that computes the intersection of both
+     * commits' histories and returns the member with the lowest id among the ones that have no
+     * child in it. Since every commit between two common ancestors is a common ancestor itself,
+     * those are the ones not reachable from any other common ancestor.
+     */
+    public @Override Optional<ObjectId> findLowestCommonAncestor(@NonNull ObjectId left,
+            @NonNull ObjectId right) {
+        if (left.equals(right)) {
+            return Optional.of(left);
+        }
+        final PGId l = PGId.valueOf(left);
+        final PGId r = PGId.valueOf(right);
+        final String sql = format("WITH RECURSIVE l(id) AS (\n"//
+                + " SELECT CAST(ROW(?,?,?) AS OBJECTID)\n"//
+                + " UNION\n"//
+                + " SELECT e.dst FROM l JOIN %1$s e ON e.src = l.id WHERE e.dst <> %2$s\n"//
+                + "), r(id) AS (\n"//
+                + " SELECT CAST(ROW(?,?,?) AS OBJECTID)\n"//
+                + " UNION\n"//
+                + " SELECT e.dst FROM r JOIN %1$s e ON e.src = r.id WHERE e.dst <> %2$s\n"//
+                + "), common AS (\n"//
+                + " SELECT id FROM l INTERSECT SELECT id FROM r\n"//
+                + ")\n"//
+                + "SELECT ((c.id).h1), ((c.id).h2), ((c.id).h3) FROM common c\n"//
+                + "WHERE NOT EXISTS (\n"//
+                + " SELECT 1 FROM %1$s e JOIN common child ON e.src = child.id\n"//
+                + " WHERE e.dst = c.id\n"//
+                // flipping the sign bits sorts as ObjectId.compareTo's unsigned comparison
+                + ") ORDER BY ((c.id).h1 # CAST(-2147483648 AS INTEGER)),\n"//
+                + " ((c.id).h2 # CAST(-9223372036854775808 AS BIGINT)),\n"//
+                + " ((c.id).h3 # CAST(-9223372036854775808 AS BIGINT))\n"//
+                + "LIMIT 1", EDGES, NULL_ID);
 
-        return depth;
+        try (Connection cx = env.getConnection()) {
+            try (PreparedStatement ps = cx.prepareStatement(log(sql, LOG, l, r))) {
+                l.setArgs(ps, 1);
+                r.setArgs(ps, 4);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? Optional.of(PGId.valueOf(rs, 1).toObjectId())
+                            : Optional.empty();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     /**
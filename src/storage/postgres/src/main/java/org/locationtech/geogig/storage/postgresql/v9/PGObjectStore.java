@@ -18,14 +18,18 @@ import static java.util.Spliterator.IMMUTABLE;
 import static java.util.Spliterator.NONNULL;
 import static org.locationtech.geogig.storage.postgresql.config.Environment.KEY_GETALL_BATCH_SIZE;
 import static org.locationtech.geogig.storage.postgresql.config.Environment.KEY_PUTALL_BATCH_SIZE;
+import static org.locationtech.geogig.storage.postgresql.config.Environment.KEY_PUTALL_USE_COPY;
 import static org.locationtech.geogig.storage.postgresql.config.Environment.KEY_THREADPOOL_SIZE;
 import static org.locationtech.geogig.storage.postgresql.config.PGStorage.log;
 import static org.locationtech.geogig.storage.postgresql.config.PGStorage.rollbackAndRethrow;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -36,6 +40,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.concurrent.Callable;
@@ -71,6 +76,8 @@ import org.locationtech.geogig.storage.postgresql.config.ConnectionConfig;
 import org.locationtech.geogig.storage.postgresql.config.Environment;
 import org.locationtech.geogig.storage.postgresql.config.PGId;
 import org.locationtech.geogig.storage.postgresql.config.TableNames;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -95,6 +102,8 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
 
     private static final int DEFAULT_PUT_ALL_PARTITION_SIZE = 100;
 
+    private static final int DEFAULT_PUT_ALL_COPY_PARTITION_SIZE = 10_000;
+
     private static final int DEFAULT_GET_ALL_PARTITION_SIZE = 10_000;
 
     private static final ObjectStoreSharedResources SHARED_RESOURCES = new ObjectStoreSharedResources();
@@ -111,6 +120,8 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
 
     private int putAllBatchSize = DEFAULT_PUT_ALL_PARTITION_SIZE;
 
+    private boolean putAllUseCopy;
+
     private SharedResourceReference resources;
 
     public PGObjectStore(final @NonNull ConfigDatabase configdb, final @NonNull Environment env) {
@@ -126,6 +137,7 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
         }
         Optional<Integer> getAllFetchSize = configdb.get(KEY_GETALL_BATCH_SIZE, Integer.class);
         Optional<Integer> putAllBatchSize = configdb.get(KEY_PUTALL_BATCH_SIZE, Integer.class);
+        Optional<Boolean> putAllUseCopy = configdb.get(KEY_PUTALL_USE_COPY, Boolean.class);
         Optional<Integer> tpoolSize = configdb.getGlobal(KEY_THREADPOOL_SIZE, Integer.class);
         if (getAllFetchSize.isPresent()) {
             Integer fetchSize = getAllFetchSize.get();
@@ -134,6 +146,10 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
                     fetchSize);
             this.getAllBatchSize = fetchSize;
         }
+        this.putAllUseCopy = putAllUseCopy.orElse(Boolean.FALSE).booleanValue();
+        if (this.putAllUseCopy) {
+            this.putAllBatchSize = DEFAULT_PUT_ALL_COPY_PARTITION_SIZE;
+        }
         if (putAllBatchSize.isPresent()) {
             Integer batchSize = putAllBatchSize.get();
             Preconditions.checkState(batchSize.intValue() > 0,
@@ -196,6 +212,11 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
         this.putAllBatchSize = size;
     }
 
+    @VisibleForTesting
+    boolean isPutAllUseCopy() {
+        return putAllUseCopy;
+    }
+
     protected String objectsTable() {
         return env.getTables().objects();
     }
@@ -599,7 +620,7 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
 
         private final BulkOpListener listener;
 
-        private final PGObjectStore objectStore;
+        final PGObjectStore objectStore;
 
         private List<EncodedObject> batch;
 
@@ -611,7 +632,7 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
             this.objectStore = objectStore;
         }
 
-        private boolean isAborted() {
+        boolean isAborted() {
             return null != abortFlag.get();
         }
 
@@ -646,7 +667,7 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
             return null;
         }
 
-        private Map<EncodedObject, Boolean> doInsert(Connection cx, List<EncodedObject> partition)
+        Map<EncodedObject, Boolean> doInsert(Connection cx, List<EncodedObject> partition)
                 throws Exception {
 
             final Map<String, PreparedStatement> perTableStatements = new HashMap<>();
@@ -709,6 +730,123 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
 
     }
 
+    /**
+     * An {@link InsertDbOp} that streams the whole batch to a temporary staging table through a
+     * single binary {@code COPY ... FROM STDIN}, and then moves the rows to each target table with
+     * one {@code INSERT ... SELECT} per table.
+     * <p>
+     * The object tables have no unique constraint but a rule that ignores duplicate inserts, and
+     * {@code INSERT ... RETURNING} is not allowed on tables with conditional rules. So the staged
+     * rows already present in the target table are deleted first, and reported as found; the rest
+     * are reported as inserted.
+     */
+    private static class CopyInsertDbOp extends InsertDbOp {
+
+        static final String STAGING_TABLE = "geogig_putall_staging";
+
+        private static final byte[] COPY_SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n',
+                (byte) 0xFF, '\r', '\n', 0 };
+
+        CopyInsertDbOp(AtomicReference<Throwable> abortFlag, List<EncodedObject> batch,
+                BulkOpListener listener, PGObjectStore objectStore) {
+            super(abortFlag, batch, listener, objectStore);
+        }
+
+        @Override
+        Map<EncodedObject, Boolean> doInsert(Connection cx, List<EncodedObject> partition)
+                throws Exception {
+
+            try (Statement st = cx.createStatement()) {
+                st.execute(format("CREATE TEMPORARY TABLE IF NOT EXISTS %s (h1 INTEGER, h2 BIGINT,"
+                        + " h3 BIGINT, tbl SMALLINT, object BYTEA) ON COMMIT DELETE ROWS",
+                        STAGING_TABLE));
+            }
+            final List<String> tables = copy(cx, partition);
+            if (isAborted()) {
+                return null;
+            }
+
+            final Set<ObjectId> found = new HashSet<>();
+            for (int tbl = 0; tbl < tables.size(); tbl++) {
+                final String tableName = tables.get(tbl);
+                final String deleteExisting = format(
+                        "DELETE FROM %s s USING %s t WHERE s.tbl = ? AND ((t.id).h1) = s.h1"
+                                + " AND t.id = CAST(ROW(s.h1, s.h2, s.h3) AS OBJECTID)"
+                                + " RETURNING s.h1, s.h2, s.h3",
+                        STAGING_TABLE, tableName);
+                try (PreparedStatement ps = cx.prepareStatement(log(deleteExisting, LOG, tbl))) {
+                    ps.setShort(1, (short) tbl);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            found.add(PGId.valueOf(rs, 1).toObjectId());
+                        }
+                    }
+                }
+                final String insert = format(
+                        "INSERT INTO %s (id, object) SELECT DISTINCT ON (h1, h2, h3)"
+                                + " CAST(ROW(h1, h2, h3) AS OBJECTID), object"
+                                + " FROM %s WHERE tbl = ?",
+                        tableName, STAGING_TABLE);
+                try (PreparedStatement ps = cx.prepareStatement(log(insert, LOG, tbl))) {
+                    ps.setShort(1, (short) tbl);
+                    ps.executeUpdate();
+                }
+            }
+
+            Map<EncodedObject, Boolean> insertResults = new HashMap<>();
+            for (EncodedObject obj : partition) {
+                insertResults.put(obj, Boolean.valueOf(!found.contains(obj.id())));
+            }
+            return insertResults;
+        }
+
+        /**
+         * Writes the objects to the staging table using the binary COPY format
+         *
+         * @return the target table names, indexed by the value of the staging table's {@code tbl}
+         *         column
+         */
+        private List<String> copy(Connection cx, List<EncodedObject> partition)
+                throws SQLException, IOException {
+
+            final List<String> tables = new ArrayList<>();
+            final Map<String, Integer> tableIndexes = new HashMap<>();
+            final String sql = format(
+                    "COPY %s (h1, h2, h3, tbl, object) FROM STDIN (FORMAT BINARY)", STAGING_TABLE);
+            final PGConnection pgcx = cx.unwrap(PGConnection.class);
+            try (DataOutputStream out = new DataOutputStream(
+                    new PGCopyOutputStream(pgcx, log(sql, LOG), 64 * 1024))) {
+                out.write(COPY_SIGNATURE);
+                out.writeInt(0);// flags
+                out.writeInt(0);// header extension length
+                for (Iterator<EncodedObject> it = partition.iterator(); it.hasNext()
+                        && !isAborted();) {
+                    EncodedObject obj = it.next();
+                    final PGId pgid = PGId.valueOf(obj.id());
+                    final String tableName = objectStore.tableNameForType(obj.type(), pgid);
+                    final int tbl = tableIndexes.computeIfAbsent(tableName, t -> {
+                        tables.add(t);
+                        return tables.size() - 1;
+                    });
+                    final byte[] bytes = obj.serialized();
+                    out.writeShort(5);// field count
+                    out.writeInt(Integer.BYTES);
+                    out.writeInt(pgid.hash1());
+                    out.writeInt(Long.BYTES);
+                    out.writeLong(pgid.hash2());
+                    out.writeInt(Long.BYTES);
+                    out.writeLong(pgid.hash3());
+                    out.writeInt(Short.BYTES);
+                    out.writeShort(tbl);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.writeShort(-1);// trailer
+            }
+            return tables;
+        }
+    }
+
     private EncodedObject encode(RevObject o) {
         byte[] serialized = encoder.encode(o);
         return new EncodedObject(o, serialized);
@@ -767,7 +905,9 @@ public class PGObjectStore extends AbstractStore implements ObjectStore {
             List<InsertDbOp> tasks = new ArrayList<>(maxTasks);
             for (int i = 0; i < maxTasks && partitions.hasNext() && null == abortFlag.get(); i++) {
                 List<EncodedObject> batch = partitions.next();
-                InsertDbOp task = new InsertDbOp(abortFlag, batch, listener, this);
+                InsertDbOp task = putAllUseCopy
+                        ? new CopyInsertDbOp(abortFlag, batch, listener, this)
+                        : new InsertDbOp(abortFlag, batch, listener, this);
                 tasks.add(task);
             }
             try {
@@ -0,0 +1,142 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.postgresql.v9;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.storage.postgresql.config.Environment;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An in-memory snapshot of all the refs of a repository, kept coherent across processes through
+ * PostgreSQL's {@code LISTEN/NOTIFY}.
+ * <p>
+ * {@link PGRefDatabase} issues a {@code NOTIFY} on the {@link #channel(Environment) refs channel}
+ * within every transaction that modifies refs, which PostgreSQL delivers to all listening
+ * sessions once the transaction commits. This cache registers with the {@link PGRefListener} of its
+ * data source and channel, which shares a single connection among all the repositories in the
+ * schema, and discards the snapshot whenever a change to its repository is notified.
+ * <p>
+ * The snapshot is only served while the listening connection is healthy, otherwise
+ * {@link #get(Supplier)} returns {@code null} and the refs shall be read from the database. Since
+ * notifications are delivered asynchronously, a snapshot may briefly lag behind changes committed
+ * by other processes; {@link #invalidate()} forces the next read to hit the database.
+ */
+class PGRefCache {
+
+    private final Environment env;
+
+    private final @Getter String channel;
+
+    private volatile @Getter String repositoryId;
+
+    private volatile DataSource dataSource;
+
+    private @Nullable Map<String, Ref> snapshot;
+
+    private long generation;
+
+    private volatile boolean listening;
+
+    // not guarded by this cache's monitor, which is only held while updating the snapshot, so
+    // that it can be safely acquired by the listener
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    PGRefCache(@NonNull Environment env) {
+        this.env = env;
+        this.channel = channel(env);
+    }
+
+    /**
+     * @return the name of the channel ref changes to the repositories in {@code env}'s database
+     *         schema are notified on, with the repository id as payload
+     */
+    static String channel(Environment env) {
+        // channel names are limited to 63 chars, table names may be longer once schema qualified
+        return "geogig_refs_" + Integer.toHexString(env.getTables().refs().hashCode());
+    }
+
+    public void start() {
+        if (started.compareAndSet(false, true)) {
+            repositoryId = String.valueOf(env.getRepositoryId());
+            dataSource = env.getDataSource();
+            PGRefListener.register(this, dataSource);
+        }
+    }
+
+    public void stop() {
+        if (started.compareAndSet(true, false)) {
+            PGRefListener.unregister(this, dataSource);
+            dataSource = null;
+        }
+        invalidate();
+    }
+
+    public boolean isListening() {
+        return listening;
+    }
+
+    /**
+     * Called by the {@link PGRefListener} whenever it starts or stops listening to ref changes; the
+     * snapshot is discarded either way since changes may have been missed while not listening
+     */
+    void setListening(boolean listening) {
+        this.listening = listening;
+        invalidate();
+    }
+
+    /**
+     * Discards the current snapshot, if any, so that the next call to {@link #get(Supplier)}
+     * reloads it from the database
+     */
+    public synchronized void invalidate() {
+        generation++;
+        snapshot = null;
+    }
+
+    /**
+     * @param loader reads all refs from the database, called if there's no current snapshot
+     * @return the refs snapshot, keyed by ref name, or {@code null} if not listening to ref
+     *         changes and hence the snapshot can't be trusted
+     */
+    public @Nullable Map<String, Ref> get(@NonNull Supplier<List<Ref>> loader) {
+        if (!listening) {
+            return null;
+        }
+        final long loadGeneration;
+        synchronized (this) {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            loadGeneration = generation;
+        }
+        Map<String, Ref> loaded = Collections.unmodifiableMap(loader.get().stream()
+                .collect(Collectors.toMap(Ref::getName, Function.identity(), (r1, r2) -> r1)));
+        synchronized (this) {
+            // don't keep it if a change was notified while loading
+            if (loadGeneration == generation && listening) {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+}
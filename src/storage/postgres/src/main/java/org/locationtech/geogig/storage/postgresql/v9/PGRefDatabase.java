@@ -16,12 +16,18 @@ import java.net.URISyntaxException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.Ref;
 import org.locationtech.geogig.model.SymRef;
@@ -36,9 +42,21 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Streams;
 
 import lombok.NonNull;
 
+/**
+ * PostgreSQL {@link RefDatabase}.
+ * <p>
+ * Every transaction that modifies refs also issues a {@code NOTIFY} on the repository's refs
+ * channel. If created with {@code cacheRefs = true}, the ref database keeps an in-memory snapshot
+ * of the repository refs that's discarded whenever a change is notified by any process, serving
+ * ref reads with no database round trip. Changes made by other processes become visible as soon as
+ * their notification is received; call {@link #sync()} to force the next read to hit the database.
+ * 
+ * @see PGRefCache
+ */
 public class PGRefDatabase extends AbstractStore implements RefDatabase {
 
     private static final Logger LOG = LoggerFactory.getLogger(PGRefDatabase.class);
@@ -49,11 +67,22 @@ public class PGRefDatabase extends AbstractStore implements RefDatabase {
 
     private final PGRefDatabaseWorker worker;
 
+    private final @Nullable PGRefCache cache;
+
     public PGRefDatabase(Environment env) throws URISyntaxException {
+        this(env, false);
+    }
+
+    /**
+     * @param cacheRefs whether to serve ref reads from an in-memory snapshot invalidated through
+     *        {@code LISTEN/NOTIFY}
+     */
+    public PGRefDatabase(Environment env, boolean cacheRefs) throws URISyntaxException {
         super(env.isReadOnly());
         Preconditions.checkState(env.isRepositoryNameSet());
         this.env = env;
         this.worker = new PGRefDatabaseWorker(env);
+        this.cache = cacheRefs ? new PGRefCache(env) : null;
     }
 
     public @Override void checkOpen() {
@@ -63,16 +92,40 @@ public class PGRefDatabase extends AbstractStore implements RefDatabase {
 
     public @Override void open() {
         super.open();
+        if (cache != null) {
+            cache.start();
+        }
     }
 
     public @Override void close() {
         super.close();
+        if (cache != null) {
+            cache.stop();
+        }
         env.close();
     }
 
+    /**
+     * Discards the in-memory refs snapshot, if any, so that the next read reflects all the changes
+     * committed to the database so far, regardless of whether their notification has been received
+     * yet
+     */
+    public void sync() {
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    @VisibleForTesting
+    boolean isCaching() {
+        return cache != null && cache.isListening();
+    }
+
     public @Override void lock() throws TimeoutException {
         checkWritable();
         lockWithTimeout(30);
+        // reads under the lock shall see all the changes made by the previous lock holders
+        sync();
     }
 
     @VisibleForTesting
@@ -138,7 +191,7 @@ public class PGRefDatabase extends AbstractStore implements RefDatabase {
 
     public @Override @NonNull RefChange put(@NonNull Ref ref) {
         checkWritable();
-        return runInTransaction(conn -> worker.put(conn, ref));
+        return runInTransaction(conn -> worker.put(conn, ref), PGRefDatabase::isChange);
     }
 
     public @Override @NonNull RefChange putRef(@NonNull String name, @NonNull ObjectId value) {
@@ -157,11 +210,50 @@ public class PGRefDatabase extends AbstractStore implements RefDatabase {
     public @Override @NonNull List<RefChange> putAll(@NonNull Iterable<Ref> refs) {
         checkWritable();
         List<Ref> list = refs instanceof List ? (List<Ref>) refs : Lists.newArrayList(refs);
-        return runInTransaction(c -> worker.putAll(c, list));
+        return runInTransaction(c -> worker.putAll(c, list), PGRefDatabase::anyChange);
+    }
+
+    /**
+     * Overrides the default implementation to check the expected values against the database
+     * within the same transaction the changes are applied in, instead of the in-memory snapshot,
+     * which may not yet reflect a change made by another process.
+     */
+    public @Override Optional<List<RefChange>> compareAndSet(
+            @NonNull Map<String, Optional<Ref>> expected, @NonNull Iterable<Ref> updates,
+            @NonNull Iterable<String> deletes) throws TimeoutException {
+        checkWritable();
+        final List<Ref> toPut = Lists.newArrayList(updates);
+        final List<String> toDelete = Lists.newArrayList(deletes);
+        lock();
+        try {
+            return runInTransaction(conn -> {
+                Map<String, Ref> current = worker.getPresent(conn, expected.keySet()).stream()
+                        .collect(Collectors.toMap(Ref::getName, Function.identity()));
+                for (Map.Entry<String, Optional<Ref>> e : expected.entrySet()) {
+                    if (!e.getValue().equals(Optional.ofNullable(current.get(e.getKey())))) {
+                        return Optional.empty();
+                    }
+                }
+                List<RefChange> changes = new ArrayList<>();
+                if (!toPut.isEmpty()) {
+                    changes.addAll(worker.putAll(conn, toPut));
+                }
+                if (!toDelete.isEmpty()) {
+                    changes.addAll(worker.deleteByName(conn, toDelete));
+                }
+                return Optional.of(changes);
+            }, result -> result.isPresent() && anyChange(result.get()));
+        } finally {
+            unlock();
+        }
     }
 
     public @Override Optional<Ref> get(@NonNull String name) {
         checkOpen();
+        Map<String, Ref> snapshot = snapshot();
+        if (snapshot != null) {
+            return Optional.ofNullable(snapshot.get(name));
+        }
         return run(conn -> worker.get(conn, name));
     }
 
@@ -178,17 +270,20 @@ public class PGRefDatabase extends AbstractStore implements RefDatabase {
 
     public @Override @NonNull List<RefChange> delete(@NonNull Iterable<String> refNames) {
         checkWritable();
-        return runInTransaction(conn -> worker.deleteByName(conn, refNames));
+        return runInTransaction(conn -> worker.deleteByName(conn, refNames),
+                PGRefDatabase::anyChange);
     }
 
     public @Override @NonNull List<Ref> deleteAll() {
         checkWritable();
-        return runInTransaction(c -> worker.deleteByPrefix(c, Arrays.asList("")));
+        return runInTransaction(c -> worker.deleteByPrefix(c, Arrays.asList("")),
+                deleted -> !deleted.isEmpty());
     }
 
     public @Override List<Ref> deleteAll(@NonNull String namespace) {
         checkWritable();
-        return runInTransaction(c -> worker.deleteByPrefix(c, Arrays.asList(namespace)));
+        return runInTransaction(c -> worker.deleteByPrefix(c, Arrays.asList(namespace)),
+                deleted -> !deleted.isEmpty());
     }
 
     public @Override List<Ref> getAll() {
@@ -197,6 +292,11 @@ public class PGRefDatabase extends AbstractStore implements RefDatabase {
     }
 
     public @Override List<Ref> getAllPresent(@NonNull Iterable<String> names) {
+        Map<String, Ref> snapshot = snapshot();
+        if (snapshot != null) {
+            return Streams.stream(names).distinct().map(snapshot::get).filter(r -> r != null)
+                    .collect(Collectors.toList());
+        }
         return run(c -> worker.getPresent(c, names));
     }
 
@@ -206,9 +306,23 @@ public class PGRefDatabase extends AbstractStore implements RefDatabase {
     }
 
     private List<Ref> getAllByPrefix(@NonNull String... prefixes) {
+        Map<String, Ref> snapshot = snapshot();
+        if (snapshot != null) {
+            // same matching as PGRefDatabaseWorker.getByPrefix on the stored ref paths
+            List<String> storedPrefixes = Arrays.stream(prefixes)
+                    .map(PGRefDatabaseWorker::asStoredPrefix).collect(Collectors.toList());
+            return snapshot.values().stream().filter(ref -> {
+                String path = PGRefDatabaseWorker.asStoredPrefix(Ref.parentPath(ref.getName()));
+                return storedPrefixes.stream().anyMatch(path::startsWith);
+            }).collect(Collectors.toList());
+        }
         return run(conn -> worker.getByPrefix(conn, Arrays.asList(prefixes)));
     }
 
+    private @Nullable Map<String, Ref> snapshot() {
+        return cache == null ? null : cache.get(() -> run(worker::getAll));
+    }
+
     private static @FunctionalInterface interface Command<T> {
         T run(Connection c) throws SQLException;
     }
@@ -223,12 +337,30 @@ public class PGRefDatabase extends AbstractStore implements RefDatabase {
         return result;
     }
 
-    private <T> T runInTransaction(Command<T> cmd) {
+    private static boolean isChange(RefChange change) {
+        return !change.oldValue().equals(change.newValue());
+    }
+
+    private static boolean anyChange(List<RefChange> changes) {
+        return changes.stream().anyMatch(PGRefDatabase::isChange);
+    }
+
+    /**
+     * Runs the command in a transaction, notifying the other instances of the change and
+     * discarding the local refs snapshot only if {@code changed} says the command's result
+     * modified any ref, so that failed or no-op updates don't invalidate all the caches
+     */
+    private <T> T runInTransaction(Command<T> cmd, Predicate<? super T> changed) {
         T result;
+        boolean modified = true;
         try (Connection conn = env.getConnection()) {
             conn.setAutoCommit(false);
             try {
                 result = cmd.run(conn);
+                modified = changed.test(result);
+                if (modified) {
+                    worker.notifyChange(conn);
+                }
                 conn.commit();
             } catch (Exception e) {
                 conn.rollback();
@@ -240,6 +372,10 @@ public class PGRefDatabase extends AbstractStore implements RefDatabase {
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
+        } finally {
+            if (modified) {
+                sync();
+            }
         }
         return result;
     }
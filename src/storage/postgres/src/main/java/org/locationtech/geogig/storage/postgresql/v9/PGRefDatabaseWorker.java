@@ -220,10 +220,35 @@ public @RequiredArgsConstructor class PGRefDatabaseWorker {
                 : ref.getObjectId().toString();
     }
 
-    private String asStoredPrefix(@NonNull String prefix) {
+    static String asStoredPrefix(@NonNull String prefix) {
         return prefix.endsWith("/") ? prefix : (prefix + "/");
     }
 
+    public List<Ref> getAll(Connection conn) throws SQLException {
+        final String query = String.format(//
+                "SELECT (path||name) AS name, value FROM %s WHERE repository = ?", //
+                env.getTables().refs());
+
+        try (PreparedStatement st = conn.prepareStatement(query)) {
+            st.setInt(1, env.getRepositoryId());
+            try (ResultSet rs = st.executeQuery()) {
+                return getFromResultset(conn, rs);
+            }
+        }
+    }
+
+    /**
+     * Issues a notification on the {@link PGRefCache#channel refs channel}, delivered to the
+     * listening sessions when the current transaction commits
+     */
+    public void notifyChange(Connection conn) throws SQLException {
+        try (PreparedStatement st = conn.prepareStatement("SELECT pg_notify(?, ?)")) {
+            st.setString(1, PGRefCache.channel(env));
+            st.setString(2, String.valueOf(env.getRepositoryId()));
+            st.executeQuery().close();
+        }
+    }
+
     public List<Ref> getByPrefix(Connection conn, List<@NonNull String> prefixes)
             throws SQLException {
         if (prefixes.isEmpty()) {
@@ -231,7 +256,7 @@ public @RequiredArgsConstructor class PGRefDatabaseWorker {
         }
 
         final String oredPaths = prefixes.stream()//
-                .map(this::asStoredPrefix)//
+                .map(PGRefDatabaseWorker::asStoredPrefix)//
                 .map(path -> String.format("path LIKE '%s%%'", path))
                 .collect(Collectors.joining(" OR "));
 
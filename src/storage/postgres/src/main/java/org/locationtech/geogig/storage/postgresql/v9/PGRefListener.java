@@ -0,0 +1,202 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.postgresql.v9;
+
+import static java.lang.String.format;
+import static org.locationtech.geogig.storage.postgresql.config.PGStorage.log;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Listens to the ref change notifications of a database schema on behalf of all the
+ * {@link PGRefCache}s of the repositories in it, so that a single pooled connection is taken no
+ * matter how many repositories are open.
+ * <p>
+ * There's one listener per {@link DataSource} and {@link PGRefCache#channel channel}, started when
+ * the first cache is {@link #register registered} and stopped once the last one is
+ * {@link #unregister unregistered}. Notifications are fanned out to the caches of the repository
+ * whose id is given as payload.
+ */
+class PGRefListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PGRefListener.class);
+
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+    private static final Map<Key, PGRefListener> LISTENERS = new HashMap<>();
+
+    private static @Value class Key {
+        // DataSource implementations don't override equals, so this is identity based
+        private DataSource dataSource;
+
+        private String channel;
+    }
+
+    private final Key key;
+
+    private final Set<PGRefCache> caches = new CopyOnWriteArraySet<>();
+
+    private volatile boolean listening;
+
+    private volatile boolean closed;
+
+    private ExecutorService executor;
+
+    private PGRefListener(Key key) {
+        this.key = key;
+    }
+
+    /**
+     * Starts delivering the notifications of the cache's repository to it, starting the listener
+     * for its data source and channel if not already running
+     */
+    static synchronized void register(@NonNull PGRefCache cache, @NonNull DataSource dataSource) {
+        Key key = new Key(dataSource, cache.getChannel());
+        PGRefListener listener = LISTENERS.get(key);
+        if (listener == null) {
+            listener = new PGRefListener(key);
+            LISTENERS.put(key, listener);
+            listener.start();
+        }
+        // notifications are delivered from now on if already listening, otherwise the cache is
+        // enabled once the listener connects
+        synchronized (listener) {
+            listener.caches.add(cache);
+            cache.setListening(listener.listening);
+        }
+    }
+
+    /**
+     * Stops delivering notifications to the cache, stopping the listener if it was the last one
+     */
+    static synchronized void unregister(@NonNull PGRefCache cache, @NonNull DataSource dataSource) {
+        Key key = new Key(dataSource, cache.getChannel());
+        PGRefListener listener = LISTENERS.get(key);
+        if (listener != null) {
+            synchronized (listener) {
+                listener.caches.remove(cache);
+            }
+        }
+        cache.setListening(false);
+        if (listener != null && listener.caches.isEmpty()) {
+            LISTENERS.remove(key);
+            listener.stop();
+        }
+    }
+
+    @VisibleForTesting
+    static synchronized int activeListeners() {
+        return LISTENERS.size();
+    }
+
+    private void start() {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("geogig-pg-refs-listener-%d").build());
+        executor.submit(this::listen);
+    }
+
+    private void stop() {
+        closed = true;
+        setListening(false);
+        executor.shutdownNow();
+    }
+
+    private synchronized void setListening(boolean listening) {
+        this.listening = listening;
+        caches.forEach(c -> c.setListening(listening));
+    }
+
+    private void listen() {
+        final String channel = key.getChannel();
+        while (!closed) {
+            try (Connection cx = key.getDataSource().getConnection()) {
+                try {
+                    try (Statement st = cx.createStatement()) {
+                        st.execute(log(format("LISTEN \"%s\"", channel), LOG));
+                    }
+                    final PGConnection pgcx = cx.unwrap(PGConnection.class);
+                    // changes may have been missed while not listening, caches are invalidated
+                    // when enabled
+                    setListening(true);
+                    while (!closed) {
+                        PGNotification[] notifications = pgcx
+                                .getNotifications(POLL_TIMEOUT_MILLIS);
+                        if (notifications != null) {
+                            dispatch(notifications);
+                        }
+                    }
+                } finally {
+                    setListening(false);
+                    unlisten(cx);
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                LOG.warn("Error listening to ref changes on {}, retrying in {}ms", channel,
+                        RECONNECT_DELAY_MILLIS, e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(PGNotification[] notifications) {
+        for (PGNotification n : notifications) {
+            if (key.getChannel().equals(n.getName())) {
+                String repositoryId = n.getParameter();
+                for (PGRefCache cache : caches) {
+                    if (cache.getRepositoryId().equals(repositoryId)) {
+                        cache.invalidate();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops listening before the connection is returned to the pool
+     */
+    private void unlisten(Connection cx) {
+        try (Statement st = cx.createStatement()) {
+            st.execute(log("UNLISTEN *", LOG));
+        } catch (SQLException e) {
+            LOG.debug("error unlistening on " + key.getChannel(), e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.postgresql.v9;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.locationtech.geogig.storage.postgresql.config.Environment;
+import org.locationtech.geogig.storage.postgresql.config.PGStorage;
+
+/**
+ * Runs the {@link PGObjectStoreConformanceIT} tests with
+ * {@link Environment#KEY_PUTALL_USE_COPY COPY based} {@code putAll}
+ */
+public class PGObjectStoreCopyConformanceIT extends PGObjectStoreConformanceIT {
+
+    protected @Override PGObjectStore createOpen() throws IOException {
+        Environment env = testConfig.getEnvironment();
+        PGStorage.createNewRepo(env);
+
+        closeConfigDb();
+
+        configdb = new PGConfigDatabase(env);
+        configdb.put(Environment.KEY_PUTALL_USE_COPY, true);
+        PGObjectStore db = new PGObjectStore(configdb, env);
+        db.open();
+        assertTrue(db.isPutAllUseCopy());
+        return db;
+    }
+}
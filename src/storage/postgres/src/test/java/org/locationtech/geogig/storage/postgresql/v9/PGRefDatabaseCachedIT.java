@@ -0,0 +1,205 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.storage.postgresql.v9;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.Ref;
+import org.locationtech.geogig.model.impl.RevObjectTestSupport;
+import org.locationtech.geogig.repository.Platform;
+import org.locationtech.geogig.storage.RefChange;
+import org.locationtech.geogig.storage.RefDatabase;
+import org.locationtech.geogig.storage.postgresql.config.Environment;
+import org.locationtech.geogig.storage.postgresql.config.PGStorage;
+
+/**
+ * Runs the {@link PGRefDatabaseIT} tests with the {@code LISTEN/NOTIFY} invalidated refs cache
+ * enabled, and checks changes are seen across ref database instances
+ */
+public class PGRefDatabaseCachedIT extends PGRefDatabaseIT {
+
+    protected @Override RefDatabase createDatabase(Platform platform) throws Exception {
+        mainEnvironment = testConfig.getEnvironment();
+        PGStorage.createNewRepo(mainEnvironment);
+        return new PGRefDatabase(mainEnvironment, true);
+    }
+
+    private PGRefDatabase openSecondInstance() throws Exception {
+        return openSecondInstance(mainEnvironment);
+    }
+
+    private PGRefDatabase openSecondInstance(Environment repoEnv) throws Exception {
+        Environment env = repoEnv.withRepository(repoEnv.getRepositoryName());
+        PGRefDatabase second = new PGRefDatabase(env, true);
+        second.open();
+        return second;
+    }
+
+    private void awaitCaching(PGRefDatabase db) throws InterruptedException {
+        for (int i = 0; i < 100 && !db.isCaching(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(db.isCaching());
+    }
+
+    @Test
+    public void testChangesNotifiedAcrossInstances() throws Exception {
+        final PGRefDatabase first = (PGRefDatabase) refDb;
+        final PGRefDatabase second = openSecondInstance();
+        try {
+            awaitCaching(first);
+            awaitCaching(second);
+            final String name = Ref.append(Ref.HEADS_PREFIX, "branch1");
+            final ObjectId id = RevObjectTestSupport.hashString("branch1");
+
+            assertFalse(first.get(name).isPresent());
+            assertFalse(second.get(name).isPresent());
+
+            first.putRef(name, id);
+            // read your own writes
+            assertEquals(id, first.get(name).get().getObjectId());
+
+            Optional<Ref> ref = second.get(name);
+            for (int i = 0; i < 100 && !ref.isPresent(); i++) {
+                Thread.sleep(100);
+                ref = second.get(name);
+            }
+            assertTrue(ref.isPresent());
+            assertEquals(id, ref.get().getObjectId());
+
+            second.delete(name);
+            assertFalse(second.get(name).isPresent());
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    public void testSync() throws Exception {
+        final PGRefDatabase first = (PGRefDatabase) refDb;
+        final PGRefDatabase second = openSecondInstance();
+        try {
+            awaitCaching(second);
+            final String name = Ref.append(Ref.HEADS_PREFIX, "branch1");
+            final ObjectId id = RevObjectTestSupport.hashString("branch1");
+            assertFalse(second.get(name).isPresent());
+
+            first.putRef(name, id);
+            second.sync();
+            assertEquals(id, second.get(name).get().getObjectId());
+        } finally {
+            second.close();
+        }
+    }
+
+    /**
+     * A compare and set whose expectations don't hold changes nothing, hence must not invalidate
+     * the other instances' caches
+     */
+    @Test
+    public void testFailedCompareAndSetDoesNotNotify() throws Exception {
+        final PGRefDatabase first = (PGRefDatabase) refDb;
+        final PGRefDatabase second = openSecondInstance();
+        try {
+            awaitCaching(second);
+            final String name = Ref.append(Ref.HEADS_PREFIX, "branch1");
+            final ObjectId id = RevObjectTestSupport.hashString("branch1");
+            assertFalse(second.get(name).isPresent());
+
+            // changed behind the caches' back, only a notification would make it visible
+            try (Connection conn = mainEnvironment.getConnection()) {
+                new PGRefDatabaseWorker(mainEnvironment).put(conn, new Ref(name, id));
+            }
+            final String other = Ref.append(Ref.HEADS_PREFIX, "branch2");
+            Optional<List<RefChange>> result = first.compareAndSet(
+                    Collections.singletonMap(other, Optional.of(new Ref(other, id))),
+                    Collections.singletonList(new Ref(other, id)), Collections.emptyList());
+            assertFalse(result.isPresent());
+            Thread.sleep(1000);
+            assertFalse(second.get(name).isPresent());
+
+            first.putRef(other, id);
+            Optional<Ref> ref = second.get(name);
+            for (int i = 0; i < 100 && !ref.isPresent(); i++) {
+                Thread.sleep(100);
+                ref = second.get(name);
+            }
+            assertTrue(ref.isPresent());
+        } finally {
+            second.close();
+        }
+    }
+
+    /**
+     * All the cached ref databases of a schema share the listening connection, so opening more
+     * repositories than the pool can hold connections doesn't exhaust it
+     */
+    @Test
+    public void testMultipleRepositoriesShareListener() throws Exception {
+        // the default connection pool size is 10
+        final int numRepos = 12;
+        final List<Environment> envs = new ArrayList<>();
+        final List<PGRefDatabase> dbs = new ArrayList<>();
+        try {
+            for (int i = 0; i < numRepos; i++) {
+                Environment env = mainEnvironment.withRepository("repo" + i);
+                PGStorage.createNewRepo(env);
+                envs.add(env);
+                PGRefDatabase db = new PGRefDatabase(env, true);
+                db.open();
+                dbs.add(db);
+            }
+            for (PGRefDatabase db : dbs) {
+                awaitCaching(db);
+            }
+            assertEquals(1, PGRefListener.activeListeners());
+
+            final String name = Ref.append(Ref.HEADS_PREFIX, "branch1");
+            for (int i = 0; i < numRepos; i++) {
+                assertFalse(dbs.get(i).get(name).isPresent());
+            }
+            final PGRefDatabase changed = dbs.get(3);
+            final ObjectId id = RevObjectTestSupport.hashString("branch1");
+            changed.putRef(name, id);
+
+            final PGRefDatabase sameRepo = openSecondInstance(envs.get(3));
+            try {
+                awaitCaching(sameRepo);
+                Optional<Ref> ref = sameRepo.get(name);
+                assertTrue(ref.isPresent());
+                assertEquals(id, ref.get().getObjectId());
+            } finally {
+                sameRepo.close();
+            }
+            // the notification is only delivered to the caches of the changed repository
+            for (int i = 0; i < numRepos; i++) {
+                PGRefDatabase db = dbs.get(i);
+                db.sync();
+                assertEquals(db == changed, db.get(name).isPresent());
+            }
+        } finally {
+            dbs.forEach(PGRefDatabase::close);
+        }
+        // only the main test repository's cache is still registered
+        assertEquals(1, PGRefListener.activeListeners());
+        refDb.close();
+        assertEquals(0, PGRefListener.activeListeners());
+    }
+}
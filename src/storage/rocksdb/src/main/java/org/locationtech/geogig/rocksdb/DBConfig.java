@@ -17,6 +17,8 @@ import org.rocksdb.ColumnFamilyHandle;
 
 import com.google.common.collect.ImmutableMap;
 
+import lombok.NonNull;
+
 class DBConfig {
 
     private final String dbpath;
@@ -27,16 +29,37 @@ class DBConfig {
 
     private Set<String> columnFamilyNames;
 
+    private RocksdbTuning tuning;
+
     public DBConfig(String dbpath, boolean readOnly) {
-        this(dbpath, readOnly, Collections.emptyMap(), Collections.emptySet());
+        this(dbpath, readOnly, RocksdbTuning.DEFAULT);
+    }
+
+    public DBConfig(String dbpath, boolean readOnly, RocksdbTuning tuning) {
+        this(dbpath, readOnly, Collections.emptyMap(), Collections.emptySet(), tuning);
     }
 
     public DBConfig(String dbpath, boolean readOnly, Map<String, String> defaultMetadata,
             Set<String> columnFamilyNames) {
+        this(dbpath, readOnly, defaultMetadata, columnFamilyNames, RocksdbTuning.DEFAULT);
+    }
+
+    public DBConfig(String dbpath, boolean readOnly, Map<String, String> defaultMetadata,
+            Set<String> columnFamilyNames, @NonNull RocksdbTuning tuning) {
         this.dbpath = dbpath;
         this.readOnly = readOnly;
         this.columnFamilyNames = columnFamilyNames;
         this.defaultMetadata = ImmutableMap.copyOf(defaultMetadata);
+        this.tuning = tuning;
+    }
+
+    /**
+     * @return the column family settings to open the database with. Not part of the
+     *         {@link #equals(Object) identity} of the config, the settings of the first connection
+     *         to a database path are used for as long as the database is open.
+     */
+    public RocksdbTuning getTuning() {
+        return tuning;
     }
 
     /**
@@ -9,6 +9,8 @@
  */
 package org.locationtech.geogig.rocksdb;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -43,6 +45,12 @@ class DBHandle {
 
     private Map<String, ColumnFamilyHandle> extraColumns;
 
+    /**
+     * Native objects the column family options depend on (e.g. block caches, filters), released
+     * after the database is closed
+     */
+    private List<AutoCloseable> resources;
+
     /**
      * A reference to the RocksDB instance. This needs to be closed after it's used to free up the
      * reference.
@@ -68,11 +76,18 @@ class DBHandle {
 
     public DBHandle(final DBConfig config, final org.rocksdb.DBOptions options, final RocksDB db,
             @Nullable ColumnFamilyHandle metadata, Map<String, ColumnFamilyHandle> extraColumns) {
+        this(config, options, db, metadata, extraColumns, Collections.emptyList());
+    }
+
+    public DBHandle(final DBConfig config, final org.rocksdb.DBOptions options, final RocksDB db,
+            @Nullable ColumnFamilyHandle metadata, Map<String, ColumnFamilyHandle> extraColumns,
+            List<AutoCloseable> resources) {
         this.config = config;
         this.options = options;
         this.db = db;
         this.metadata = metadata;
         this.extraColumns = extraColumns;
+        this.resources = resources;
     }
 
     public synchronized void close() {
@@ -91,6 +106,7 @@ class DBHandle {
         extraColumns.values().forEach((c) -> close(c));
         close(options);
         close(db);
+        resources.forEach(this::close);
     }
 
     /**
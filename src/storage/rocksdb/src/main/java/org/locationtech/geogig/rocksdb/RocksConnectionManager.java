@@ -19,12 +19,9 @@ import java.util.stream.Collectors;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.storage.impl.ConnectionManager;
-import org.rocksdb.BlockBasedTableConfig;
-import org.rocksdb.BloomFilter;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
-import org.rocksdb.CompressionType;
 import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
@@ -53,7 +50,8 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
 
     protected @Override DBHandle connect(DBConfig dbconfig) {
 
-        LOG.debug("opening {}", dbconfig);
+        LOG.debug("opening {} with '{}' tuning profile", dbconfig,
+                dbconfig.getTuning().getName());
 
         RocksDB.loadLibrary();
 
@@ -91,11 +89,14 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
         @Nullable
         ColumnFamilyHandle metadata = null;
         Map<String, ColumnFamilyHandle> extraColumns = new HashMap<>();
+        final RocksdbTuning tuning = dbconfig.getTuning();
+        final List<AutoCloseable> resources = new ArrayList<>();
         try {
             List<ColumnFamilyDescriptor> colDescriptors = new ArrayList<>();
             for (String name : colFamilyNames) {
                 byte[] colFamilyName = name.getBytes(Charsets.UTF_8);
-                ColumnFamilyOptions colFamilyOptions = newColFamilyOptions();
+                ColumnFamilyOptions colFamilyOptions = tuning
+                        .newColumnFamilyOptions(resources::add);
                 colDescriptors.add(new ColumnFamilyDescriptor(colFamilyName, colFamilyOptions));
             }
 
@@ -114,13 +115,14 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                         extraColumns.put(name, handle);
                     }
                 }
-                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns);
+                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns,
+                        resources);
             } else {
                 if (!dbExists) {
-                    colDescriptors.add(newColDescriptor("default"));
+                    colDescriptors.add(newColDescriptor("default", tuning, resources));
                     for (String name : dbconfig.getColumnFamilyNames()) {
                         if (colFamilyNames.indexOf(name) > -1) {
-                            colDescriptors.add(newColDescriptor(name));
+                            colDescriptors.add(newColDescriptor(name, tuning, resources));
                         }
                     }
                 }
@@ -130,7 +132,7 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                 if (metadataExists) {
                     metadata = colFamiliesTarget.get(colFamilyNames.indexOf("metadata"));
                 } else {
-                    ColumnFamilyDescriptor mdd = newColDescriptor("metadata");
+                    ColumnFamilyDescriptor mdd = newColDescriptor("metadata", tuning, resources);
                     metadata = db.createColumnFamily(mdd);
                 }
                 // This usually happens only when creating a database -
@@ -151,7 +153,7 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                     ColumnFamilyDescriptor colDescriptor;
                     ColumnFamilyHandle colHandle;
                     if (colFamilyNames.indexOf(name) == -1) {
-                        colDescriptor = newColDescriptor(name);
+                        colDescriptor = newColDescriptor(name, tuning, resources);
                         colHandle = db.createColumnFamily(colDescriptor);
                     } else {
                         int colIndex = colFamilyNames.indexOf(name);
@@ -160,7 +162,8 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
                     extraColumns.put(name, colHandle);
                 }
 
-                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns);
+                dbHandle = new DBHandle(dbconfig, dbOptions, db, metadata, extraColumns,
+                        resources);
 
                 // save default metadata
                 if (!dbExists) {
@@ -170,33 +173,26 @@ class RocksConnectionManager extends ConnectionManager<DBConfig, DBHandle> {
             }
             return dbHandle;
         } catch (Exception e) {
+            resources.forEach(r -> {
+                try {
+                    r.close();
+                } catch (Exception ignore) {
+                    //
+                }
+            });
             throw new RuntimeException(e);
         }
 
     }
 
-    private ColumnFamilyDescriptor newColDescriptor(String name) {
-        ColumnFamilyOptions options = newColFamilyOptions();
+    private ColumnFamilyDescriptor newColDescriptor(String name, RocksdbTuning tuning,
+            List<AutoCloseable> resources) {
+        ColumnFamilyOptions options = tuning.newColumnFamilyOptions(resources::add);
         ColumnFamilyDescriptor descriptor = new ColumnFamilyDescriptor(
                 name.getBytes(Charsets.UTF_8), options);
         return descriptor;
     }
 
-    private ColumnFamilyOptions newColFamilyOptions() {
-        ColumnFamilyOptions colFamilyOptions = new ColumnFamilyOptions();
-
-        // enable bloom filter to speed up RocksDB.get() calls
-        BlockBasedTableConfig tableFormatConfig = new BlockBasedTableConfig();
-        BloomFilter bloomFilter = new BloomFilter();
-        tableFormatConfig.setFilterPolicy(bloomFilter);
-        colFamilyOptions.setTableFormatConfig(tableFormatConfig);
-
-        // cause the Windows jar doesn't come with
-        // snappy and hence fails
-        colFamilyOptions.setCompressionType(CompressionType.NO_COMPRESSION);
-        return colFamilyOptions;
-    }
-
     protected @Override void disconnect(DBHandle connection) {
         LOG.debug("closing {}", connection.config);
         connection.close();
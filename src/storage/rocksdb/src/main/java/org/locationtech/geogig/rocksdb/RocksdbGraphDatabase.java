@@ -59,17 +59,25 @@ public class RocksdbGraphDatabase extends AbstractStore implements GraphDatabase
 
     private final File dbdir;
 
+    private final RocksdbTuning tuning;
+
     private DBHandle dbhandle;
 
     public RocksdbGraphDatabase(@NonNull File dbdir, boolean readOnly) {
+        this(dbdir, readOnly, RocksdbTuning.DEFAULT);
+    }
+
+    public RocksdbGraphDatabase(@NonNull File dbdir, boolean readOnly,
+            @NonNull RocksdbTuning tuning) {
         super(readOnly);
         this.dbdir = dbdir;
+        this.tuning = tuning;
     }
 
     public @Override synchronized void open() {
         if (!isOpen()) {
             String dbpath = dbdir.getAbsolutePath();
-            DBConfig opts = new DBConfig(dbpath, isReadOnly());
+            DBConfig opts = new DBConfig(dbpath, isReadOnly(), tuning);
             this.dbhandle = RocksConnectionManager.INSTANCE.acquire(opts);
             super.open();
         }
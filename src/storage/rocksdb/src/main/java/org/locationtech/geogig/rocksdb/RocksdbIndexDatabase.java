@@ -55,6 +55,11 @@ public class RocksdbIndexDatabase extends RocksdbObjectStore implements IndexDat
         super(dbdir, readOnly);
     }
 
+    public RocksdbIndexDatabase(@NonNull File dbdir, boolean readOnly,
+            @NonNull RocksdbTuning tuning) {
+        super(dbdir, readOnly, tuning);
+    }
+
     public @Override synchronized void open() {
         if (!isOpen()) {
             super.open(Sets.newHashSet("indexMetadata", "indexMappings"));
@@ -23,6 +23,7 @@ import org.locationtech.geogig.model.RevObject.TYPE;
 import org.locationtech.geogig.storage.BulkOpListener;
 import org.locationtech.geogig.storage.GraphDatabase;
 import org.locationtech.geogig.storage.ObjectDatabase;
+import org.locationtech.geogig.storage.format.zstd.ZstdDictionaries;
 
 import com.google.common.collect.Sets;
 import com.google.common.io.Closeables;
@@ -39,6 +40,11 @@ public class RocksdbObjectDatabase extends RocksdbObjectStore implements ObjectD
         super(dbdir, readOnly);
     }
 
+    public RocksdbObjectDatabase(@NonNull File dbdir, boolean readOnly,
+            @NonNull RocksdbTuning tuning) {
+        super(dbdir, readOnly, tuning);
+    }
+
     public @Override RocksdbBlobStore getBlobStore() {
         return blobs;
     }
@@ -58,7 +64,8 @@ public class RocksdbObjectDatabase extends RocksdbObjectStore implements ObjectD
             blobsDir.mkdir();
             graphDir.mkdir();
             this.blobs = new RocksdbBlobStore(blobsDir, isReadOnly());
-            this.graph = new RocksdbGraphDatabase(graphDir, isReadOnly());
+            useZstdDictionaries();
+            this.graph = new RocksdbGraphDatabase(graphDir, isReadOnly(), tuning);
             this.graph.open();
         } catch (RuntimeException e) {
             close();
@@ -66,6 +73,23 @@ public class RocksdbObjectDatabase extends RocksdbObjectStore implements ObjectD
         }
     }
 
+    /**
+     * Switches to writing objects in the dictionary compressed ZSTD format if the repository has
+     * {@link ZstdDictionaries} trained, leaving the pre 1.0 serialization format alone.
+     * <p>
+     * Either way, objects compressed with dictionaries trained by another instance while this one
+     * is open can be read, since the dictionaries are reloaded from the blob store when an object
+     * refers to an unknown one.
+     */
+    private void useZstdDictionaries() {
+        if (serializer() instanceof RocksdbSerializationProxy) {
+            final RocksdbBlobStore blobs = this.blobs;
+            ZstdDictionaries dictionaries = ZstdDictionaries.load(blobs);
+            setSerializationFactory(new RocksdbSerializationProxy(dictionaries,
+                    () -> ZstdDictionaries.load(blobs)));
+        }
+    }
+
     public @Override synchronized void close() {
         if (!isOpen()) {
             return;
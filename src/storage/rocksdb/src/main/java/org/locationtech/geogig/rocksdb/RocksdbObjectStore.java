@@ -20,15 +20,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -69,13 +73,44 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
 
     protected final @NonNull File dbDirectory;
 
+    protected final @NonNull RocksdbTuning tuning;
+
     protected DBHandle dbhandle;
 
+    /**
+     * Default number of ids resolved at once by {@link #getAll} and {@link #getObjects}, can be
+     * overridden through the {@code geogig.rocksdb.getAllBatchSize} System property
+     */
+    static final int DEFAULT_GETALL_BATCH_SIZE = 1000;
+
+    /**
+     * Minimum number of objects in a {@link #getAll} batch for them to be decoded in parallel
+     */
+    private static final int PARALLEL_DECODE_THRESHOLD = 32;
+
     private ReadOptions bulkReadOptions;
 
+    private int getAllBatchSize = Integer.getInteger("geogig.rocksdb.getAllBatchSize",
+            DEFAULT_GETALL_BATCH_SIZE);
+
     public RocksdbObjectStore(@NonNull File dbdir, boolean readOnly) {
+        this(dbdir, readOnly, RocksdbTuning.DEFAULT);
+    }
+
+    public RocksdbObjectStore(@NonNull File dbdir, boolean readOnly,
+            @NonNull RocksdbTuning tuning) {
         super(RocksdbSerializationProxy.INSTANCE, readOnly);
         this.dbDirectory = dbdir;
+        this.tuning = tuning;
+    }
+
+    /**
+     * Sets the maximum number of ids {@link #getAll} and {@link #getObjects} resolve with a single
+     * RocksDB {@code multiGet} call
+     */
+    public void setGetAllBatchSize(int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batch size must be > 0: %s", batchSize);
+        this.getAllBatchSize = batchSize;
     }
 
     public @Override synchronized void open() {
@@ -90,7 +125,7 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
                 RocksdbRepositoryResolver.VERSION, "serializer", "proxy");
 
         DBConfig address = new DBConfig(dbDirectory.getAbsolutePath(), isReadOnly(),
-                defaultMetadata, columnFamilyNames);
+                defaultMetadata, columnFamilyNames, tuning);
         this.dbhandle = RocksConnectionManager.INSTANCE.acquire(address);
 
         this.bulkReadOptions = new ReadOptions();
@@ -204,45 +239,8 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         checkNotNull(type, "type is null");
         checkOpen();
 
-        return new AbstractIterator<T>() {
-
-            private Iterator<ObjectId> oids = ids.iterator();
-
-            private byte[] keybuff = new byte[ObjectId.NUM_BYTES];
-
-            private byte[] valueBuff = new byte[64 * 1024];
-
-            private ReadOptions readOps = bulkReadOptions;
-
-            protected @Override T computeNext() {
-                checkOpen();
-                try (RocksDBReference dbRef = dbhandle.getReference()) {
-                    while (oids.hasNext()) {
-                        ObjectId id = oids.next();
-                        id.getRawValue(keybuff);
-                        final int size = dbRef.db().get(readOps, keybuff, valueBuff);
-                        if (RocksDB.NOT_FOUND == size) {
-                            listener.notFound(id);
-                            continue;
-                        }
-                        if (size > valueBuff.length) {
-                            valueBuff = dbRef.db().get(readOps, keybuff);
-                        }
-                        RevObject object;
-                        object = serializer().read(id, valueBuff, 0, size);
-                        if (type.isInstance(object)) {
-                            listener.found(id, Integer.valueOf(size));
-                            return type.cast(object);
-                        } else {
-                            listener.notFound(id);
-                        }
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-                return endOfData();
-            }
-        };
+        return new BatchedLookup<ObjectId, T, T>(ids.iterator(), Function.identity(),
+                (id, obj) -> obj, listener, type);
     }
 
     public @Override void deleteAll(Iterator<ObjectId> ids, BulkOpListener listener) {
@@ -412,82 +410,130 @@ public class RocksdbObjectStore extends AbstractObjectStore implements ObjectSto
         checkNotNull(type, "type is null");
         checkOpen();
 
-        return new AutoCloseableIterator<ObjectInfo<T>>() {
+        return AutoCloseableIterator.fromIterator(new BatchedLookup<NodeRef, T, ObjectInfo<T>>(refs,
+                NodeRef::getObjectId, ObjectInfo::of, listener, type));
+    }
 
-            private Iterator<NodeRef> noderefs = refs;
+    /**
+     * Iterator that resolves objects in batches of up to {@link #getAllBatchSize} ids, with a
+     * single RocksDB {@link RocksDB#multiGetAsList multiGet} call per batch, issued with the keys
+     * in sorted order to favor sequential access to the SST files. The objects of a batch are
+     * then decoded in parallel.
+     * <p>
+     * Results are returned in the same order as the input, and the {@link BulkOpListener} is
+     * notified on the consuming thread as each one is returned.
+     *
+     * @param <I> the input type, from which the object id is obtained
+     * @param <T> the type of objects to return, objects of other types are reported as not found
+     * @param <R> the iterator return type
+     */
+    private class BatchedLookup<I, T extends RevObject, R> extends AbstractIterator<R> {
 
-            private byte[] keybuff = new byte[ObjectId.NUM_BYTES];
+        private final Iterator<? extends I> input;
 
-            private byte[] valueBuff = new byte[64 * 1024];
+        private final Function<I, ObjectId> idFunction;
 
-            private ReadOptions readOps = bulkReadOptions;
+        private final BiFunction<I, T, R> resultFunction;
 
-            private boolean closed;
+        private final BulkOpListener listener;
 
-            private ObjectInfo<T> next;
+        private final Class<T> type;
 
-            public @Override void close() {
-                closed = true;
-                noderefs = null;
-                valueBuff = null;
-            }
+        private List<I> batch = Collections.emptyList();
 
-            public @Override boolean hasNext() {
-                if (closed) {
-                    return false;
+        private RevObject[] objects;
+
+        private int[] sizes;
+
+        private int cursor;
+
+        BatchedLookup(Iterator<? extends I> input, Function<I, ObjectId> idFunction,
+                BiFunction<I, T, R> resultFunction, BulkOpListener listener, Class<T> type) {
+            this.input = input;
+            this.idFunction = idFunction;
+            this.resultFunction = resultFunction;
+            this.listener = listener;
+            this.type = type;
+        }
+
+        protected @Override R computeNext() {
+            while (true) {
+                if (cursor == batch.size()) {
+                    if (!input.hasNext()) {
+                        batch = Collections.emptyList();
+                        objects = null;
+                        sizes = null;
+                        return endOfData();
+                    }
+                    fetchNextBatch();
                 }
-                if (next == null) {
-                    next = computeNext();
+                final int index = cursor++;
+                final I item = batch.get(index);
+                final ObjectId id = idFunction.apply(item);
+                final RevObject object = objects[index];
+                if (type.isInstance(object)) {
+                    listener.found(id, Integer.valueOf(sizes[index]));
+                    return resultFunction.apply(item, type.cast(object));
                 }
-                return next != null;
+                listener.notFound(id);
             }
+        }
 
-            public @Override ObjectInfo<T> next() {
-                if (closed) {
-                    throw new NoSuchElementException("Iterator is closed");
-                }
-                final ObjectInfo<T> curr;
-                if (next == null) {
-                    curr = computeNext();
-                } else {
-                    curr = next;
-                    next = null;
-                }
-                if (curr == null) {
-                    throw new NoSuchElementException();
-                }
-                return curr;
+        private void fetchNextBatch() {
+            checkOpen();
+            final List<I> batch = new ArrayList<>(getAllBatchSize);
+            while (batch.size() < getAllBatchSize && input.hasNext()) {
+                batch.add(input.next());
+            }
+            final int size = batch.size();
+            final ObjectId[] ids = new ObjectId[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = idFunction.apply(batch.get(i));
+            }
+            // sort the keys, keeping track of their position in the batch
+            final Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = Integer.valueOf(i);
+            }
+            Arrays.sort(order, (i1, i2) -> ids[i1.intValue()].compareTo(ids[i2.intValue()]));
+            final List<byte[]> keys = new ArrayList<>(size);
+            for (Integer i : order) {
+                keys.add(ids[i.intValue()].getRawValue());
             }
 
-            private @Nullable ObjectInfo<T> computeNext() {
-                checkOpen();
-                try (RocksDBReference dbRef = dbhandle.getReference()) {
-                    while (noderefs.hasNext()) {
-                        final NodeRef ref = noderefs.next();
-                        final ObjectId id = ref.getObjectId();
-                        id.getRawValue(keybuff);
-                        final int size = dbRef.db().get(readOps, keybuff, valueBuff);
-                        if (RocksDB.NOT_FOUND == size) {
-                            listener.notFound(id);
-                            continue;
-                        }
-                        if (size > valueBuff.length) {
-                            valueBuff = dbRef.db().get(readOps, keybuff);
-                        }
-                        RevObject object = serializer().read(id,
-                                new ByteArrayInputStream(valueBuff));
-                        if (type.isInstance(object)) {
-                            listener.found(id, Integer.valueOf(size));
-                            return ObjectInfo.of(ref, type.cast(object));
-                        } else {
-                            listener.notFound(id);
-                        }
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-                return null;
+            final List<byte[]> values;
+            try (RocksDBReference dbRef = dbhandle.getReference()) {
+                values = dbRef.db().multiGetAsList(bulkReadOptions, keys);
+            } catch (RocksDBException e) {
+                throw new RuntimeException(e);
+            }
+
+            final RevObject[] objects = new RevObject[size];
+            final int[] sizes = new int[size];
+            IntStream decodeRange = IntStream.range(0, size);
+            if (size >= PARALLEL_DECODE_THRESHOLD) {
+                decodeRange = decodeRange.parallel();
             }
-        };
+            decodeRange.forEach(sortedIndex -> {
+                final byte[] value = values.get(sortedIndex);
+                if (value != null) {
+                    final int index = order[sortedIndex].intValue();
+                    objects[index] = decode(ids[index], value);
+                    sizes[index] = value.length;
+                }
+            });
+            this.batch = batch;
+            this.objects = objects;
+            this.sizes = sizes;
+            this.cursor = 0;
+        }
+    }
+
+    private RevObject decode(ObjectId id, byte[] value) {
+        try {
+            return serializer().read(id, value, 0, value.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -10,7 +10,10 @@
 package org.locationtech.geogig.rocksdb;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.Map;
 
 import org.locationtech.geogig.repository.Context;
 import org.locationtech.geogig.repository.Hints;
@@ -22,6 +25,7 @@ import org.locationtech.geogig.storage.IndexDatabase;
 import org.locationtech.geogig.storage.ObjectDatabase;
 import org.locationtech.geogig.storage.RefDatabase;
 import org.locationtech.geogig.storage.fs.FileRefDatabase;
+import org.locationtech.geogig.storage.fs.INIFile;
 import org.locationtech.geogig.storage.fs.IniFileConfigDatabase;
 
 import lombok.NonNull;
@@ -48,13 +52,31 @@ public class RocksdbRepositoryResolver extends FileRepositoryResolver {
     public @Override ObjectDatabase resolveObjectDatabase(@NonNull URI repoURI, Hints hints) {
         File dbdir = new File(resolveDotGeogigDirectory(repoURI), "objects.rocksdb");
         boolean readOnly = Hints.isRepoReadOnly(hints);
-        return new RocksdbObjectDatabase(dbdir, readOnly);
+        return new RocksdbObjectDatabase(dbdir, readOnly, resolveTuning(repoURI));
     }
 
     public @Override IndexDatabase resolveIndexDatabase(@NonNull URI repoURI, Hints hints) {
         File dbdir = new File(resolveDotGeogigDirectory(repoURI), "index.rocksdb");
         boolean readOnly = Hints.isRepoReadOnly(hints);
-        return new RocksdbIndexDatabase(dbdir, readOnly);
+        return new RocksdbIndexDatabase(dbdir, readOnly, resolveTuning(repoURI));
+    }
+
+    /**
+     * Resolves the {@link RocksdbTuning} profile out of the {@code rocksdb} section of the
+     * repository config file, defaulting to {@link RocksdbTuning#DEFAULT} if not set.
+     */
+    RocksdbTuning resolveTuning(@NonNull URI repoURI) {
+        File configFile = new File(resolveDotGeogigDirectory(repoURI), "config");
+        if (!configFile.exists()) {
+            return RocksdbTuning.DEFAULT;
+        }
+        Map<String, String> section;
+        try {
+            section = INIFile.forFile(configFile).getSection(RocksdbTuning.CONFIG_SECTION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return RocksdbTuning.fromConfig(section);
     }
 
     public @Override RefDatabase resolveRefDatabase(@NonNull URI repoURI, Hints hints) {
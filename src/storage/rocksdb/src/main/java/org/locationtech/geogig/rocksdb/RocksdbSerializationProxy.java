@@ -9,6 +9,9 @@
  */
 package org.locationtech.geogig.rocksdb;
 
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
 import org.locationtech.geogig.storage.RevObjectSerializer;
 import org.locationtech.geogig.storage.datastream.DataStreamRevObjectSerializerV1;
@@ -17,26 +20,69 @@ import org.locationtech.geogig.storage.datastream.DataStreamRevObjectSerializerV
 import org.locationtech.geogig.storage.datastream.DataStreamRevObjectSerializerV2_2;
 import org.locationtech.geogig.storage.datastream.RevObjectSerializerProxy;
 import org.locationtech.geogig.storage.format.lzf.RevObjectSerializerLZF;
+import org.locationtech.geogig.storage.format.zstd.RevObjectSerializerZSTD;
+import org.locationtech.geogig.storage.format.zstd.ZstdDictionaries;
+
+import lombok.NonNull;
 
 /**
  * @since 2.0
  */
 class RocksdbSerializationProxy extends RevObjectSerializerProxy {
-    /**
-     * For historical reasons, the LZF wrapped formats must be kept
-     */
-    private static final RevObjectSerializer[] SUPPORTED_FORMATS = { //
-            new RevObjectSerializerLZF(DataStreamRevObjectSerializerV1.INSTANCE), //
-            new RevObjectSerializerLZF(DataStreamRevObjectSerializerV2.INSTANCE), //
-            new RevObjectSerializerLZF(DataStreamRevObjectSerializerV2_1.INSTANCE), //
-            new RevObjectSerializerLZF(DataStreamRevObjectSerializerV2_2.INSTANCE)//
-            // The above formats oughta stay like that for backwards compatibility
-            , new FlatBuffersRevObjectSerializer()//
-    };
+
+    private static final int FLATBUFFERS_FORMAT = 4;
+
+    private static final int ZSTD_FORMAT = 5;
 
     static final RocksdbSerializationProxy INSTANCE = new RocksdbSerializationProxy();
 
+    private final ZstdDictionaries dictionaries;
+
     public RocksdbSerializationProxy() {
-        super(SUPPORTED_FORMATS);
+        this(ZstdDictionaries.EMPTY);
+    }
+
+    /**
+     * Objects are written in the ZSTD format only if there are dictionaries trained for the
+     * repository, otherwise they're written in the FlatBuffers format, whose objects are smaller
+     * than the ZSTD compressed ones without a dictionary.
+     *
+     * @param dictionaries the repository's ZSTD dictionaries, used to read and write objects in
+     *        the ZSTD format
+     */
+    RocksdbSerializationProxy(@NonNull ZstdDictionaries dictionaries) {
+        this(dictionaries, null);
+    }
+
+    /**
+     * @param loader if not {@code null}, reloads the repository's dictionaries when reading an
+     *        object compressed with one trained after {@code dictionaries} were loaded
+     */
+    RocksdbSerializationProxy(@NonNull ZstdDictionaries dictionaries,
+            @Nullable Supplier<ZstdDictionaries> loader) {
+        super(dictionaries.isEmpty() ? FLATBUFFERS_FORMAT : ZSTD_FORMAT,
+                supportedFormats(dictionaries, loader));
+        this.dictionaries = dictionaries;
+    }
+
+    ZstdDictionaries getDictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * For historical reasons, the LZF wrapped formats must be kept
+     */
+    private static RevObjectSerializer[] supportedFormats(ZstdDictionaries dictionaries,
+            @Nullable Supplier<ZstdDictionaries> loader) {
+        return new RevObjectSerializer[] { //
+                new RevObjectSerializerLZF(DataStreamRevObjectSerializerV1.INSTANCE), //
+                new RevObjectSerializerLZF(DataStreamRevObjectSerializerV2.INSTANCE), //
+                new RevObjectSerializerLZF(DataStreamRevObjectSerializerV2_1.INSTANCE), //
+                new RevObjectSerializerLZF(DataStreamRevObjectSerializerV2_2.INSTANCE)//
+                // The above formats oughta stay like that for backwards compatibility
+                , new FlatBuffersRevObjectSerializer()//
+                , new RevObjectSerializerZSTD(new FlatBuffersRevObjectSerializer(), dictionaries,
+                        loader)//
+        };
     }
 }
@@ -0,0 +1,370 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.IndexType;
+import org.rocksdb.LRUCache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A named set of RocksDB column family settings, applied to all the databases (objects, index,
+ * graph) of a repository.
+ * <p>
+ * The profile is read from the {@code rocksdb} section of the repository config, for example:
+ *
+ * <pre>
+ * <code>
+ * geogig config rocksdb.profile read-heavy-server
+ * geogig config rocksdb.blockCacheSize 4G
+ * </code>
+ * </pre>
+ *
+ * Available profiles are:
+ * <ul>
+ * <li>{@code default}: RocksDB's default block cache per column family, plain bloom filters and
+ * no compression. Matches the settings used before profiles were introduced.
+ * <li>{@code read-heavy-server}: a large block cache shared by all databases in the process,
+ * partitioned index and filters with pinned L0 filters, LZ4 compression on the intermediate
+ * levels and ZSTD on the bottommost one.
+ * <li>{@code bulk-import}: large write buffers and relaxed L0 compaction triggers to sustain high
+ * insert rates, LZ4 compression.
+ * <li>{@code low-memory}: small shared block cache and write buffers, with index and filter
+ * blocks accounted in the block cache, and ZSTD compression.
+ * </ul>
+ * Any of the profile settings can be overridden with the following config keys:
+ * {@code rocksdb.blockCacheSize}, {@code rocksdb.sharedBlockCache}, {@code rocksdb.blockSize},
+ * {@code rocksdb.bloomBitsPerKey}, {@code rocksdb.wholeKeyFiltering},
+ * {@code rocksdb.partitionedIndexAndFilters}, {@code rocksdb.cacheIndexAndFilterBlocks},
+ * {@code rocksdb.pinL0FilterAndIndexBlocks}, {@code rocksdb.optimizeFiltersForHits},
+ * {@code rocksdb.compression} (a comma separated list of {@code none}, {@code snappy},
+ * {@code lz4}, {@code lz4hc}, or {@code zstd} per level), {@code rocksdb.writeBufferSize},
+ * {@code rocksdb.maxWriteBufferNumber}, and {@code rocksdb.level0FileNumCompactionTrigger}. Size
+ * values accept a {@code K}, {@code M}, or {@code G} suffix.
+ */
+@Slf4j
+@Value
+@Builder(toBuilder = true)
+public class RocksdbTuning {
+
+    public static final String CONFIG_SECTION = "rocksdb";
+
+    public static final String PROFILE_KEY = "profile";
+
+    private static final int NUM_LEVELS = 7;
+
+    public static final RocksdbTuning DEFAULT = RocksdbTuning.builder()//
+            .name("default")//
+            .build();
+
+    public static final RocksdbTuning READ_HEAVY_SERVER = RocksdbTuning.builder()//
+            .name("read-heavy-server")//
+            .blockCacheSize(2L * 1024 * 1024 * 1024)//
+            .sharedBlockCache(true)//
+            .blockSize(16 * 1024)//
+            .bloomBitsPerKey(10)//
+            .partitionedIndexAndFilters(true)//
+            .cacheIndexAndFilterBlocks(true)//
+            .pinL0FilterAndIndexBlocks(true)//
+            .compressionPerLevel(compression(CompressionType.NO_COMPRESSION,
+                    CompressionType.NO_COMPRESSION, CompressionType.LZ4_COMPRESSION,
+                    CompressionType.LZ4_COMPRESSION, CompressionType.LZ4_COMPRESSION,
+                    CompressionType.LZ4_COMPRESSION, CompressionType.ZSTD_COMPRESSION))//
+            .bottommostCompression(CompressionType.ZSTD_COMPRESSION)//
+            .optimizeFiltersForHits(true)//
+            .build();
+
+    public static final RocksdbTuning BULK_IMPORT = RocksdbTuning.builder()//
+            .name("bulk-import")//
+            .blockCacheSize(256L * 1024 * 1024)//
+            .sharedBlockCache(true)//
+            .bloomBitsPerKey(10)//
+            .compressionPerLevel(compression(CompressionType.NO_COMPRESSION,
+                    CompressionType.NO_COMPRESSION, CompressionType.LZ4_COMPRESSION,
+                    CompressionType.LZ4_COMPRESSION, CompressionType.LZ4_COMPRESSION,
+                    CompressionType.LZ4_COMPRESSION, CompressionType.LZ4_COMPRESSION))//
+            .writeBufferSize(256L * 1024 * 1024)//
+            .maxWriteBufferNumber(6)//
+            .level0FileNumCompactionTrigger(16)//
+            .build();
+
+    public static final RocksdbTuning LOW_MEMORY = RocksdbTuning.builder()//
+            .name("low-memory")//
+            .blockCacheSize(32L * 1024 * 1024)//
+            .sharedBlockCache(true)//
+            .bloomBitsPerKey(10)//
+            .cacheIndexAndFilterBlocks(true)//
+            .pinL0FilterAndIndexBlocks(true)//
+            .compressionPerLevel(compression(CompressionType.NO_COMPRESSION,
+                    CompressionType.ZSTD_COMPRESSION, CompressionType.ZSTD_COMPRESSION,
+                    CompressionType.ZSTD_COMPRESSION, CompressionType.ZSTD_COMPRESSION,
+                    CompressionType.ZSTD_COMPRESSION, CompressionType.ZSTD_COMPRESSION))//
+            .bottommostCompression(CompressionType.ZSTD_COMPRESSION)//
+            .writeBufferSize(8L * 1024 * 1024)//
+            .maxWriteBufferNumber(2)//
+            .build();
+
+    private static final Map<String, RocksdbTuning> PROFILES = ImmutableMap.of(//
+            DEFAULT.getName(), DEFAULT, //
+            READ_HEAVY_SERVER.getName(), READ_HEAVY_SERVER, //
+            BULK_IMPORT.getName(), BULK_IMPORT, //
+            LOW_MEMORY.getName(), LOW_MEMORY);
+
+    private @NonNull String name;
+
+    /**
+     * Block cache size in bytes, {@code 0} to use RocksDB's default 8MB cache per column family
+     */
+    private long blockCacheSize;
+
+    /**
+     * Whether to use a single block cache of {@link #blockCacheSize} for all the databases in the
+     * process using the same cache size
+     */
+    private boolean sharedBlockCache;
+
+    /**
+     * Data block size, {@code 0} for RocksDB's default
+     */
+    private long blockSize;
+
+    /**
+     * Bits per key of the bloom filter, {@code 0} for RocksDB's default of 10 bits
+     */
+    private double bloomBitsPerKey;
+
+    @Builder.Default
+    private boolean wholeKeyFiltering = true;
+
+    private boolean partitionedIndexAndFilters;
+
+    private boolean cacheIndexAndFilterBlocks;
+
+    private boolean pinL0FilterAndIndexBlocks;
+
+    /**
+     * Compression type per level, if empty compression is disabled
+     */
+    @Builder.Default
+    private @NonNull List<CompressionType> compressionPerLevel = Collections.emptyList();
+
+    @Builder.Default
+    private @NonNull CompressionType bottommostCompression = CompressionType.DISABLE_COMPRESSION_OPTION;
+
+    /**
+     * Memtable size in bytes, {@code 0} for RocksDB's default
+     */
+    private long writeBufferSize;
+
+    /**
+     * Max number of memtables, {@code 0} for RocksDB's default
+     */
+    private int maxWriteBufferNumber;
+
+    /**
+     * Number of L0 files that trigger a compaction, {@code 0} for RocksDB's default
+     */
+    private int level0FileNumCompactionTrigger;
+
+    private boolean optimizeFiltersForHits;
+
+    /**
+     * @return the profile with the given name
+     * @throws IllegalArgumentException if there's no such profile
+     */
+    public static RocksdbTuning profile(@NonNull String name) {
+        RocksdbTuning profile = PROFILES.get(name);
+        Preconditions.checkArgument(profile != null, "Unknown rocksdb profile '%s', expected one of %s",
+                name, PROFILES.keySet());
+        return profile;
+    }
+
+    /**
+     * Resolves the tuning settings out of the {@code rocksdb} section of the repository config,
+     * where {@code rocksdb.profile} names the base profile (defaults to {@code default}) and any
+     * other key overrides the profile value.
+     */
+    public static RocksdbTuning fromConfig(@NonNull Map<String, String> section) {
+        final String profileName = section.getOrDefault(PROFILE_KEY, DEFAULT.getName()).trim();
+        final RocksdbTuningBuilder builder = profile(profileName).toBuilder();
+        section.forEach((key, value) -> override(builder, key, value.trim()));
+        return builder.build();
+    }
+
+    private static void override(RocksdbTuningBuilder builder, String key, String value) {
+        switch (key) {
+        case PROFILE_KEY:
+        case "version":// storage format version, see RocksdbRepositoryResolver.VERSION
+            break;
+        case "blockCacheSize":
+            builder.blockCacheSize(parseSize(value));
+            break;
+        case "sharedBlockCache":
+            builder.sharedBlockCache(Boolean.parseBoolean(value));
+            break;
+        case "blockSize":
+            builder.blockSize(parseSize(value));
+            break;
+        case "bloomBitsPerKey":
+            builder.bloomBitsPerKey(Double.parseDouble(value));
+            break;
+        case "wholeKeyFiltering":
+            builder.wholeKeyFiltering(Boolean.parseBoolean(value));
+            break;
+        case "partitionedIndexAndFilters":
+            builder.partitionedIndexAndFilters(Boolean.parseBoolean(value));
+            break;
+        case "cacheIndexAndFilterBlocks":
+            builder.cacheIndexAndFilterBlocks(Boolean.parseBoolean(value));
+            break;
+        case "pinL0FilterAndIndexBlocks":
+            builder.pinL0FilterAndIndexBlocks(Boolean.parseBoolean(value));
+            break;
+        case "optimizeFiltersForHits":
+            builder.optimizeFiltersForHits(Boolean.parseBoolean(value));
+            break;
+        case "compression":
+            List<CompressionType> levels = parseCompression(value);
+            builder.compressionPerLevel(levels);
+            builder.bottommostCompression(levels.isEmpty() ? CompressionType.NO_COMPRESSION
+                    : levels.get(levels.size() - 1));
+            break;
+        case "writeBufferSize":
+            builder.writeBufferSize(parseSize(value));
+            break;
+        case "maxWriteBufferNumber":
+            builder.maxWriteBufferNumber(Integer.parseInt(value));
+            break;
+        case "level0FileNumCompactionTrigger":
+            builder.level0FileNumCompactionTrigger(Integer.parseInt(value));
+            break;
+        default:
+            log.warn("Ignoring unknown rocksdb config key {}.{}", CONFIG_SECTION, key);
+        }
+    }
+
+    static long parseSize(String value) {
+        final String v = value.toUpperCase(Locale.ENGLISH);
+        long multiplier = 1;
+        String number = v;
+        if (v.endsWith("K") || v.endsWith("M") || v.endsWith("G")) {
+            char unit = v.charAt(v.length() - 1);
+            multiplier = unit == 'K' ? 1024L : unit == 'M' ? 1024L * 1024 : 1024L * 1024 * 1024;
+            number = v.substring(0, v.length() - 1);
+        }
+        return Long.parseLong(number.trim()) * multiplier;
+    }
+
+    static List<CompressionType> parseCompression(String value) {
+        List<CompressionType> levels = new ArrayList<>();
+        for (String level : Splitter.on(',').trimResults().omitEmptyStrings().split(value)) {
+            levels.add(CompressionType.getCompressionType(
+                    "none".equalsIgnoreCase(level) ? null : level.toLowerCase(Locale.ENGLISH)));
+        }
+        return ImmutableList.copyOf(levels);
+    }
+
+    private static List<CompressionType> compression(CompressionType... perLevel) {
+        Preconditions.checkArgument(perLevel.length == NUM_LEVELS);
+        return ImmutableList.copyOf(Arrays.asList(perLevel));
+    }
+
+    /**
+     * Creates the column family options for this tuning profile.
+     *
+     * @param resources receives the native objects (block cache, filter) the options depend on and
+     *        hence that shall be closed only after the database is closed
+     */
+    ColumnFamilyOptions newColumnFamilyOptions(Consumer<AutoCloseable> resources) {
+        ColumnFamilyOptions colFamilyOptions = new ColumnFamilyOptions();
+
+        BlockBasedTableConfig tableFormatConfig = new BlockBasedTableConfig();
+        if (blockCacheSize > 0) {
+            final Cache cache;
+            if (sharedBlockCache) {
+                SharedBlockCache shared = SharedBlockCache.acquire(blockCacheSize);
+                cache = shared.cache();
+                resources.accept(shared);
+            } else {
+                cache = new LRUCache(blockCacheSize);
+                resources.accept(cache);
+            }
+            tableFormatConfig.setBlockCache(cache);
+        }
+        if (blockSize > 0) {
+            tableFormatConfig.setBlockSize(blockSize);
+        }
+        // enable bloom filter to speed up RocksDB.get() calls
+        final BloomFilter bloomFilter;
+        if (bloomBitsPerKey > 0) {
+            // full (non block based) filters are required for partitioned filters
+            bloomFilter = new BloomFilter(bloomBitsPerKey, false);
+        } else {
+            bloomFilter = new BloomFilter();
+        }
+        resources.accept(bloomFilter);
+        tableFormatConfig.setFilterPolicy(bloomFilter);
+        tableFormatConfig.setWholeKeyFiltering(wholeKeyFiltering);
+        if (partitionedIndexAndFilters) {
+            tableFormatConfig.setIndexType(IndexType.kTwoLevelIndexSearch);
+            tableFormatConfig.setPartitionFilters(true);
+            tableFormatConfig.setPinTopLevelIndexAndFilter(true);
+        }
+        if (cacheIndexAndFilterBlocks) {
+            tableFormatConfig.setCacheIndexAndFilterBlocks(true);
+            tableFormatConfig.setCacheIndexAndFilterBlocksWithHighPriority(true);
+        }
+        tableFormatConfig.setPinL0FilterAndIndexBlocksInCache(pinL0FilterAndIndexBlocks);
+        colFamilyOptions.setTableFormatConfig(tableFormatConfig);
+
+        if (compressionPerLevel.isEmpty()) {
+            // cause the Windows jar doesn't come with
+            // snappy and hence fails
+            colFamilyOptions.setCompressionType(CompressionType.NO_COMPRESSION);
+        } else {
+            colFamilyOptions.setCompressionPerLevel(compressionPerLevel);
+        }
+        colFamilyOptions.setBottommostCompressionType(bottommostCompression);
+        if (writeBufferSize > 0) {
+            colFamilyOptions.setWriteBufferSize(writeBufferSize);
+        }
+        if (maxWriteBufferNumber > 0) {
+            colFamilyOptions.setMaxWriteBufferNumber(maxWriteBufferNumber);
+        }
+        if (level0FileNumCompactionTrigger > 0) {
+            colFamilyOptions.setLevel0FileNumCompactionTrigger(level0FileNumCompactionTrigger);
+            colFamilyOptions.setLevel0SlowdownWritesTrigger(2 * level0FileNumCompactionTrigger);
+            colFamilyOptions.setLevel0StopWritesTrigger(3 * level0FileNumCompactionTrigger);
+        }
+        colFamilyOptions.setOptimizeFiltersForHits(optimizeFiltersForHits);
+        return colFamilyOptions;
+    }
+}
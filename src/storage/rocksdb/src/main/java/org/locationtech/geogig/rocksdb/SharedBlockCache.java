@@ -0,0 +1,82 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.rocksdb.Cache;
+import org.rocksdb.LRUCache;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Handle to a reference counted RocksDB block cache shared by all the column families, of all the
+ * databases in the process, that are configured with the same
+ * {@link RocksdbTuning#getBlockCacheSize() cache size}.
+ * <p>
+ * Each handle obtained through {@link #acquire(long)} shall be {@link #close() closed} once the
+ * database using the cache is closed, the native cache is released when no database uses it
+ * anymore.
+ */
+@Slf4j
+final class SharedBlockCache implements AutoCloseable {
+
+    private static final Map<Long, Entry> CACHES = new HashMap<>();
+
+    private static class Entry {
+        final LRUCache cache;
+
+        int refCount;
+
+        Entry(long capacity) {
+            this.cache = new LRUCache(capacity);
+        }
+    }
+
+    private final long capacity;
+
+    private final Entry entry;
+
+    private boolean released;
+
+    private SharedBlockCache(long capacity, Entry entry) {
+        this.capacity = capacity;
+        this.entry = entry;
+    }
+
+    public static SharedBlockCache acquire(long capacity) {
+        synchronized (CACHES) {
+            Entry entry = CACHES.computeIfAbsent(capacity, Entry::new);
+            if (++entry.refCount == 1) {
+                log.debug("Created shared rocksdb block cache of {} bytes", capacity);
+            }
+            return new SharedBlockCache(capacity, entry);
+        }
+    }
+
+    public Cache cache() {
+        return entry.cache;
+    }
+
+    public @Override void close() {
+        synchronized (CACHES) {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (--entry.refCount == 0) {
+                CACHES.remove(capacity);
+                entry.cache.close();
+                log.debug("Released shared rocksdb block cache of {} bytes", capacity);
+            }
+        }
+    }
+}
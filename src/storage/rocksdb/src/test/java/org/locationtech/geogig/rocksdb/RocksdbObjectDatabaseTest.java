@@ -9,20 +9,30 @@
  */
 package org.locationtech.geogig.rocksdb;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.locationtech.geogig.flatbuffers.FlatBuffersRevObjectSerializer;
+import org.locationtech.geogig.model.RevFeature;
 import org.locationtech.geogig.storage.BlobStore;
 import org.locationtech.geogig.storage.ObjectStore;
 import org.locationtech.geogig.storage.datastream.RevObjectSerializerProxy;
+import org.locationtech.geogig.storage.format.zstd.ZstdDictionaries;
+import org.locationtech.geogig.storage.format.zstd.ZstdDictionaryTrainer;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
 
 /**
  * Test suite for {@link RocksdbObjectDatabase} methods that are not par of {@link ObjectStore}
@@ -81,4 +91,68 @@ public class RocksdbObjectDatabaseTest {
         assertTrue(db.serializer() instanceof RevObjectSerializerProxy);
     }
 
+    @Test
+    public void testReadsObjectsCompressedWithDictionariesTrainedByAnotherInstance() {
+        final List<RevFeature> features = createFeatures(1000);
+        RocksdbObjectDatabase other = new RocksdbObjectDatabase(dbdir, false);
+        other.open();
+        try {
+            // train and save the dictionaries while db is open without them
+            ZstdDictionaries dictionaries = train(ZstdDictionaries.EMPTY, features);
+            dictionaries.save(other.getBlobStore());
+            // reopen for it to write with the dictionaries
+            other.close();
+            other.open();
+            other.putAll(features.iterator());
+        } finally {
+            other.close();
+        }
+        for (RevFeature f : features) {
+            assertEquals(f, db.get(f.getId(), RevFeature.class));
+        }
+
+        // retrain while db is open with the first dictionaries
+        db.close();
+        db.open();
+        final List<RevFeature> more = createFeatures(2000).subList(1000, 2000);
+        other = new RocksdbObjectDatabase(dbdir, false);
+        other.open();
+        try {
+            ZstdDictionaries current = ZstdDictionaries.load(other.getBlobStore());
+            train(current, more).save(other.getBlobStore());
+            other.close();
+            other.open();
+            other.putAll(more.iterator());
+        } finally {
+            other.close();
+        }
+        for (RevFeature f : more) {
+            assertEquals(f, db.get(f.getId(), RevFeature.class));
+        }
+    }
+
+    private ZstdDictionaries train(ZstdDictionaries current, List<RevFeature> samples) {
+        ZstdDictionaryTrainer trainer = new ZstdDictionaryTrainer(
+                new FlatBuffersRevObjectSerializer(), 4 * 1024);
+        samples.forEach(trainer::addSample);
+        ZstdDictionaries trained = current.merge(trainer.train());
+        assertEquals(current.size() + 1, trained.size());
+        return trained;
+    }
+
+    private List<RevFeature> createFeatures(int count) {
+        GeometryFactory gf = new GeometryFactory();
+        Random random = new Random(1);
+        List<RevFeature> features = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            features.add(RevFeature.builder()//
+                    .addValue("Feature number " + i)//
+                    .addValue(random.nextInt(100))//
+                    .addValue(random.nextDouble())//
+                    .addValue(gf.createPoint(
+                            new Coordinate(random.nextInt(1000), random.nextInt(1000))))//
+                    .build());
+        }
+        return features;
+    }
 }
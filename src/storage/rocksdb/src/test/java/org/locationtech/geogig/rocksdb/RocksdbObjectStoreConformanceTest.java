@@ -23,6 +23,8 @@ public class RocksdbObjectStoreConformanceTest extends ObjectStoreConformanceTes
     protected @Override RocksdbObjectStore createOpen() throws IOException {
         File dbdir = folder.newFolder(".geogig");
         RocksdbObjectStore store = new RocksdbObjectStore(dbdir, false);
+        // use a small batch size for getAll/getObjects results to span several batches
+        store.setGetAllBatchSize(7);
         store.open();
         return store;
     }
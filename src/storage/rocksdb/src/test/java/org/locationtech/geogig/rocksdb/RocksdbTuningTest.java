@@ -0,0 +1,155 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.rocksdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.RocksDB;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class RocksdbTuningTest {
+
+    public @Rule TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testDefaultProfile() {
+        assertSame(RocksdbTuning.DEFAULT, RocksdbTuning.fromConfig(Collections.emptyMap()));
+        assertSame(RocksdbTuning.DEFAULT,
+                RocksdbTuning.fromConfig(ImmutableMap.of("profile", "default")));
+    }
+
+    @Test
+    public void testNamedProfiles() {
+        assertEquals(RocksdbTuning.READ_HEAVY_SERVER,
+                RocksdbTuning.fromConfig(ImmutableMap.of("profile", "read-heavy-server")));
+        assertEquals(RocksdbTuning.BULK_IMPORT,
+                RocksdbTuning.fromConfig(ImmutableMap.of("profile", "bulk-import")));
+        assertEquals(RocksdbTuning.LOW_MEMORY,
+                RocksdbTuning.fromConfig(ImmutableMap.of("profile", "low-memory")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownProfile() {
+        RocksdbTuning.fromConfig(ImmutableMap.of("profile", "nonexistent"));
+    }
+
+    @Test
+    public void testOverrides() {
+        RocksdbTuning tuning = RocksdbTuning.fromConfig(ImmutableMap.of(//
+                "profile", "read-heavy-server", //
+                "blockCacheSize", "512M", //
+                "sharedBlockCache", "false", //
+                "compression", "none, lz4, zstd"));
+
+        assertEquals("read-heavy-server", tuning.getName());
+        assertEquals(512L * 1024 * 1024, tuning.getBlockCacheSize());
+        assertFalse(tuning.isSharedBlockCache());
+        assertTrue(tuning.isPartitionedIndexAndFilters());
+        assertEquals(ImmutableList.of(CompressionType.NO_COMPRESSION,
+                CompressionType.LZ4_COMPRESSION, CompressionType.ZSTD_COMPRESSION),
+                tuning.getCompressionPerLevel());
+        assertEquals(CompressionType.ZSTD_COMPRESSION, tuning.getBottommostCompression());
+    }
+
+    @Test
+    public void testIndexFilterAndCompactionOverrides() {
+        RocksdbTuning tuning = RocksdbTuning.fromConfig(ImmutableMap.of(//
+                "profile", "read-heavy-server", //
+                "cacheIndexAndFilterBlocks", "false", //
+                "optimizeFiltersForHits", "false", //
+                "level0FileNumCompactionTrigger", "8"));
+        assertFalse(tuning.isCacheIndexAndFilterBlocks());
+        assertFalse(tuning.isOptimizeFiltersForHits());
+        assertEquals(8, tuning.getLevel0FileNumCompactionTrigger());
+
+        tuning = RocksdbTuning.fromConfig(ImmutableMap.of(//
+                "profile", "bulk-import", //
+                "cacheIndexAndFilterBlocks", "true", //
+                "optimizeFiltersForHits", "true", //
+                "level0FileNumCompactionTrigger", " 4 "));
+        assertTrue(tuning.isCacheIndexAndFilterBlocks());
+        assertTrue(tuning.isOptimizeFiltersForHits());
+        assertEquals(4, tuning.getLevel0FileNumCompactionTrigger());
+    }
+
+    @Test
+    public void testIndexFilterAndCompactionOptions() {
+        RocksDB.loadLibrary();
+        RocksdbTuning tuning = RocksdbTuning.fromConfig(ImmutableMap.of(//
+                "optimizeFiltersForHits", "true", //
+                "level0FileNumCompactionTrigger", "8"));
+        List<AutoCloseable> resources = new ArrayList<>();
+        try (ColumnFamilyOptions options = tuning.newColumnFamilyOptions(resources::add)) {
+            assertTrue(options.optimizeFiltersForHits());
+            assertEquals(8, options.level0FileNumCompactionTrigger());
+            assertEquals(16, options.level0SlowdownWritesTrigger());
+            assertEquals(24, options.level0StopWritesTrigger());
+        }
+    }
+
+    @Test
+    public void testParseSize() {
+        assertEquals(1000L, RocksdbTuning.parseSize("1000"));
+        assertEquals(4 * 1024L, RocksdbTuning.parseSize("4k"));
+        assertEquals(64 * 1024L * 1024, RocksdbTuning.parseSize("64M"));
+        assertEquals(2 * 1024L * 1024 * 1024, RocksdbTuning.parseSize("2G"));
+    }
+
+    @Test
+    public void testOpenDatabaseWithProfiles() throws Exception {
+        RocksDB.loadLibrary();
+        for (RocksdbTuning tuning : ImmutableList.of(RocksdbTuning.DEFAULT,
+                RocksdbTuning.READ_HEAVY_SERVER, RocksdbTuning.BULK_IMPORT,
+                RocksdbTuning.LOW_MEMORY)) {
+            File dbdir = tmp.newFolder(tuning.getName());
+            RocksdbObjectDatabase db = new RocksdbObjectDatabase(dbdir, false, tuning);
+            db.open();
+            try {
+                assertTrue(db.isOpen());
+            } finally {
+                db.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSharedBlockCacheRefCount() {
+        RocksDB.loadLibrary();
+        List<AutoCloseable> resources1 = new ArrayList<>();
+        List<AutoCloseable> resources2 = new ArrayList<>();
+        RocksdbTuning.LOW_MEMORY.newColumnFamilyOptions(resources1::add).close();
+        RocksdbTuning.LOW_MEMORY.newColumnFamilyOptions(resources2::add).close();
+
+        SharedBlockCache c1 = (SharedBlockCache) resources1.stream()
+                .filter(SharedBlockCache.class::isInstance).findFirst().get();
+        SharedBlockCache c2 = (SharedBlockCache) resources2.stream()
+                .filter(SharedBlockCache.class::isInstance).findFirst().get();
+        assertSame(c1.cache(), c2.cache());
+        c1.close();
+        assertTrue(c2.cache().isOwningHandle());
+        c2.close();
+        assertFalse(c2.cache().isOwningHandle());
+    }
+}
@@ -0,0 +1,309 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.locationtech.geogig.model.Node;
+import org.locationtech.geogig.model.ObjectId;
+import org.locationtech.geogig.model.RevTree;
+import org.locationtech.geogig.model.internal.DAG;
+import org.locationtech.geogig.model.internal.DAGNode;
+import org.locationtech.geogig.model.internal.DAGStorageProvider;
+import org.locationtech.geogig.model.internal.NodeId;
+import org.locationtech.geogig.model.internal.TreeId;
+import org.locationtech.geogig.storage.ObjectStore;
+import org.locationtech.geogig.storage.datastream.DAGSerializer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link DAGStorageProvider} that keeps {@link DAG}s and {@link DAGNode}s on the heap while the
+ * tree being built is small, and transparently spills them to off-heap {@link MappedStore}s once the
+ * number of nodes exceeds a threshold.
+ * <p>
+ * The threshold defaults to {@link #DEFAULT_SPILL_THRESHOLD} nodes, and can be overridden through
+ * the {@code geogig.tempstorage.mapped.spillThreshold} System property.
+ */
+@Slf4j
+class MappedDAGStorageProvider implements DAGStorageProvider {
+
+    static final String SPILL_THRESHOLD_PROPERTY = "geogig.tempstorage.mapped.spillThreshold";
+
+    static final int DEFAULT_SPILL_THRESHOLD = 1_000_000;
+
+    private final ObjectStore source;
+
+    private final int spillThreshold;
+
+    /**
+     * Guards the transition from heap to mapped storage, regular operations acquire the read lock,
+     * {@link #spill()} acquires the write lock
+     */
+    private final ReadWriteLock spillLock = new ReentrantReadWriteLock();
+
+    private Map<String, DAGNode> heapNodes = new ConcurrentHashMap<>();
+
+    private Map<TreeId, DAG> heapTrees = new ConcurrentHashMap<>();
+
+    private volatile boolean spilled;
+
+    private Path directory;
+
+    private MappedStore nodeStore, dagStore;
+
+    public MappedDAGStorageProvider(@NonNull ObjectStore source) {
+        this(source, Integer.getInteger(SPILL_THRESHOLD_PROPERTY, DEFAULT_SPILL_THRESHOLD));
+    }
+
+    MappedDAGStorageProvider(@NonNull ObjectStore source, int spillThreshold) {
+        Preconditions.checkArgument(spillThreshold >= 0);
+        this.source = source;
+        this.spillThreshold = spillThreshold;
+    }
+
+    boolean isSpilled() {
+        return spilled;
+    }
+
+    public @Override void dispose() {
+        spillLock.writeLock().lock();
+        try {
+            if (heapNodes != null) {
+                heapNodes.clear();
+                heapTrees.clear();
+            }
+            if (nodeStore != null) {
+                nodeStore.close();
+                dagStore.close();
+                nodeStore = null;
+                dagStore = null;
+            }
+            if (directory != null) {
+                delete(directory.toFile());
+                directory = null;
+            }
+        } finally {
+            spillLock.writeLock().unlock();
+        }
+    }
+
+    public @Override RevTree getTree(ObjectId originalId) {
+        return source.getTree(originalId);
+    }
+
+    public @Override DAG getTree(TreeId id) throws NoSuchElementException {
+        spillLock.readLock().lock();
+        try {
+            DAG dag = spilled ? getMapped(id) : heapTrees.get(id);
+            if (dag == null) {
+                throw new NoSuchElementException(id.toString());
+            }
+            return dag;
+        } finally {
+            spillLock.readLock().unlock();
+        }
+    }
+
+    public @Override List<DAG> getTrees(List<TreeId> ids) throws NoSuchElementException {
+        return ids.stream().map(this::getTree).collect(Collectors.toList());
+    }
+
+    public @Override DAG getOrCreateTree(TreeId treeId, ObjectId originalTreeId) {
+        spillLock.readLock().lock();
+        try {
+            if (!spilled) {
+                return heapTrees.computeIfAbsent(treeId, id -> new DAG(treeId, originalTreeId));
+            }
+            synchronized (dagStore) {
+                DAG dag = getMapped(treeId);
+                if (dag == null) {
+                    dag = new DAG(treeId, originalTreeId);
+                    putMapped(dag);
+                }
+                return dag;
+            }
+        } finally {
+            spillLock.readLock().unlock();
+        }
+    }
+
+    public @Override void save(DAG dag) {
+        spillLock.readLock().lock();
+        try {
+            if (spilled) {
+                putMapped(dag);
+            } else {
+                heapTrees.put(dag.getId(), dag);
+            }
+        } finally {
+            spillLock.readLock().unlock();
+        }
+    }
+
+    public @Override void save(List<DAG> dags) {
+        dags.forEach(this::save);
+    }
+
+    public @Override Node getNode(NodeId nodeId) {
+        DAGNode node;
+        spillLock.readLock().lock();
+        try {
+            node = spilled ? getMapped(nodeId) : heapNodes.get(nodeId.name());
+        } finally {
+            spillLock.readLock().unlock();
+        }
+        Preconditions.checkState(node != null, "node not found: %s", nodeId.name());
+        return node.resolve(source);
+    }
+
+    public @Override Map<NodeId, Node> getNodes(Set<NodeId> nodeIds) {
+        Map<NodeId, Node> res = new HashMap<>();
+        nodeIds.forEach(nid -> res.put(nid, getNode(nid)));
+        return res;
+    }
+
+    public @Override void saveNode(NodeId nodeId, Node node) {
+        saveNode(nodeId, DAGNode.of(node));
+    }
+
+    public @Override void saveNode(NodeId nodeId, DAGNode node) {
+        boolean spill = false;
+        spillLock.readLock().lock();
+        try {
+            if (spilled) {
+                putMapped(nodeId, node);
+            } else {
+                heapNodes.put(nodeId.name(), node);
+                spill = heapNodes.size() > spillThreshold;
+            }
+        } finally {
+            spillLock.readLock().unlock();
+        }
+        if (spill) {
+            spill();
+        }
+    }
+
+    public @Override void saveNodes(Map<NodeId, DAGNode> nodeMappings) {
+        nodeMappings.forEach(this::saveNode);
+    }
+
+    /**
+     * Moves all the heap held DAGs and nodes to the memory mapped stores
+     */
+    private void spill() {
+        spillLock.writeLock().lock();
+        try {
+            if (spilled) {
+                return;
+            }
+            log.debug("Spilling {} nodes and {} trees to memory mapped storage", heapNodes.size(),
+                    heapTrees.size());
+            directory = Files.createTempDirectory("geogig-tmp-tree-store");
+            nodeStore = new MappedStore(directory, "nodes");
+            dagStore = new MappedStore(directory, "dags");
+            heapTrees.values().forEach(this::putMapped);
+            heapNodes.forEach((name, node) -> nodeStore.put(toKey(name), encode(node)));
+            heapTrees = null;
+            heapNodes = null;
+            spilled = true;
+        } catch (IOException e) {
+            dispose();
+            throw new UncheckedIOException(e);
+        } finally {
+            spillLock.writeLock().unlock();
+        }
+    }
+
+    private @Nullable DAG getMapped(TreeId id) {
+        byte[] value = dagStore.get(id.bucketIndicesByDepth);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return DAGSerializer.deserialize(id, ByteStreams.newDataInput(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void putMapped(DAG dag) {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        try {
+            DAGSerializer.serialize(dag, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        dagStore.put(dag.getId().bucketIndicesByDepth, out.toByteArray());
+    }
+
+    private @Nullable DAGNode getMapped(NodeId nodeId) {
+        byte[] value = nodeStore.get(toKey(nodeId.name()));
+        if (value == null) {
+            return null;
+        }
+        try {
+            return DAGSerializer.decode(ByteStreams.newDataInput(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void putMapped(NodeId nodeId, DAGNode node) {
+        nodeStore.put(toKey(nodeId.name()), encode(node));
+    }
+
+    private byte[] encode(DAGNode node) {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        try {
+            DAGSerializer.encode(node, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] toKey(String nodeName) {
+        return nodeName.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void delete(File file) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File f : children) {
+                    delete(f);
+                }
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,37 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.mapped;
+
+import org.locationtech.geogig.model.internal.DAGStorageProvider;
+import org.locationtech.geogig.model.internal.DAGStorageProviderFactory;
+import org.locationtech.geogig.storage.ObjectStore;
+
+import lombok.NonNull;
+
+/**
+ * Factory for the memory mapped {@link DAGStorageProvider}.
+ * <p>
+ * Has a lower priority than the heap and rocksdb based ones, and hence has to be explicitly
+ * enabled by setting the {@link DAGStorageProviderFactory#ENV_VARIABLE TEMP_STORAGE_FACTORY}
+ * System property or environment variable to this class name.
+ */
+public class MappedDAGStorageProviderFactory implements DAGStorageProviderFactory {
+
+    /**
+     * @return {@code -1}, lower priority than the heap and rocksdb ones so that it's opt-in
+     */
+    public @Override int getPriority() {
+        return -1;
+    }
+
+    public @Override DAGStorageProvider newInstance(@NonNull ObjectStore treeStore) {
+        return new MappedDAGStorageProvider(treeStore);
+    }
+}
@@ -0,0 +1,98 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.mapped;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.NonNull;
+
+/**
+ * A growable sequence of fixed size memory mapped pages backed by a single file.
+ * <p>
+ * Pages are mapped lazily as they're requested, and their contents live in the OS page cache
+ * rather than in the Java heap or the direct memory pool.
+ * <p>
+ * Instances are not thread safe, callers are responsible of guarding access to
+ * {@link #page(int)} when it can result in a new page being mapped.
+ */
+final class MappedPages implements Closeable {
+
+    private final Path file;
+
+    private final int pageSize;
+
+    private FileChannel channel;
+
+    private final List<MappedByteBuffer> pages = new ArrayList<>();
+
+    MappedPages(@NonNull Path file, int pageSize) {
+        this.file = file;
+        this.pageSize = pageSize;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int pageSize() {
+        return pageSize;
+    }
+
+    public int numPages() {
+        return pages.size();
+    }
+
+    /**
+     * Returns the page at the given index, mapping it and any missing page before it if necessary
+     */
+    public MappedByteBuffer page(final int index) {
+        if (index < pages.size()) {
+            return pages.get(index);
+        }
+        try {
+            for (int i = pages.size(); i <= index; i++) {
+                final long position = (long) i * pageSize;
+                pages.add(channel.map(MapMode.READ_WRITE, position, pageSize));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return pages.get(index);
+    }
+
+    /**
+     * Releases all the mapped pages and deletes the backing file
+     */
+    public @Override void close() {
+        pages.clear();
+        if (channel != null) {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+}
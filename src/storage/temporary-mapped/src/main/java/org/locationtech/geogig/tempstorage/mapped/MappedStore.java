@@ -0,0 +1,326 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.mapped;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import lombok.NonNull;
+
+/**
+ * An append-only, off-heap key/value store for temporary data.
+ * <p>
+ * Records are appended to an arena of memory mapped pages, and located through an open addressing
+ * hash table of primitive {@code long} slots, itself stored in memory mapped pages. Hence neither
+ * the keys, the values, nor the index consume Java heap.
+ * <p>
+ * Each index slot packs the 20 most significant bits of the key hash, used to avoid comparing the
+ * keys of most colliding slots, and the arena offset of the record plus one, {@code 0} meaning an
+ * empty slot. Updating a key appends a new record and makes its slot point to it, the space used by
+ * the old record is not reclaimed, which is fine for the short lived, mostly insert-only workload
+ * of building a {@link org.locationtech.geogig.model.RevTree}.
+ * <p>
+ * Record layout in the arena is {@code <key length:int><key bytes><value length:int><value
+ * bytes>}, and records never span page boundaries.
+ */
+final class MappedStore implements Closeable {
+
+    static final int DEFAULT_ARENA_PAGE_SIZE = 64 * 1024 * 1024;
+
+    static final int INDEX_SLOTS_PER_PAGE = 1024 * 1024;
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private static final int HASH_BITS = 20;
+
+    private static final int OFFSET_BITS = Long.SIZE - HASH_BITS;
+
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final Path directory;
+
+    private final String name;
+
+    private final int arenaPageSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedPages arena;
+
+    /**
+     * Next write position in the arena
+     */
+    private long arenaSize;
+
+    private MappedPages index;
+
+    private int indexGeneration;
+
+    /**
+     * Number of slots in the index, always a power of two
+     */
+    private long capacity;
+
+    private long size;
+
+    MappedStore(@NonNull Path directory, @NonNull String name) {
+        this(directory, name, DEFAULT_ARENA_PAGE_SIZE);
+    }
+
+    MappedStore(@NonNull Path directory, @NonNull String name, int arenaPageSize) {
+        this.directory = directory;
+        this.name = name;
+        this.arenaPageSize = arenaPageSize;
+        this.arena = new MappedPages(directory.resolve(name + ".data"), arenaPageSize);
+        this.capacity = INITIAL_CAPACITY;
+        this.index = newIndex();
+    }
+
+    public @Override void close() {
+        lock.writeLock().lock();
+        try {
+            if (arena != null) {
+                arena.close();
+                index.close();
+                arena = null;
+                index = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public @Nullable byte[] get(@NonNull byte[] key) {
+        final int hash = hash(key);
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            final long slot = findSlot(key, hash);
+            final long entry = readSlot(slot);
+            if (entry == 0L) {
+                return null;
+            }
+            return readValue(offsetOf(entry));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(@NonNull byte[] key, @NonNull byte[] value) {
+        final int hash = hash(key);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            final long offset = append(key, value);
+            final long slot = findSlot(key, hash);
+            final boolean isNew = readSlot(slot) == 0L;
+            writeSlot(slot, entry(hash, offset));
+            if (isNew) {
+                size++;
+                if (size > capacity * MAX_LOAD_FACTOR) {
+                    rehash();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkOpen() {
+        Preconditions.checkState(arena != null, "Store %s is closed", name);
+    }
+
+    /**
+     * @return the index of the slot holding {@code key}, or of the empty slot where it should be
+     *         added
+     */
+    private long findSlot(byte[] key, int hash) {
+        final long mask = capacity - 1;
+        final long hashBits = hashBits(hash);
+        long slot = spread(hash) & mask;
+        while (true) {
+            final long entry = readSlot(slot);
+            if (entry == 0L) {
+                return slot;
+            }
+            if ((entry >>> OFFSET_BITS) == hashBits && keyEquals(offsetOf(entry), key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash() {
+        final MappedPages oldIndex = this.index;
+        final long oldCapacity = this.capacity;
+        this.capacity = oldCapacity * 2;
+        this.index = newIndex();
+        final long mask = capacity - 1;
+        for (long i = 0; i < oldCapacity; i++) {
+            final long entry = readSlot(oldIndex, i);
+            if (entry != 0L) {
+                final int hash = readHash(offsetOf(entry));
+                long slot = spread(hash) & mask;
+                while (readSlot(slot) != 0L) {
+                    slot = (slot + 1) & mask;
+                }
+                writeSlot(slot, entry);
+            }
+        }
+        oldIndex.close();
+    }
+
+    /**
+     * Creates an index for the current {@link #capacity}, all its pages are mapped upfront so that
+     * concurrent readers never need to map a page
+     */
+    private MappedPages newIndex() {
+        Path file = directory.resolve(String.format("%s.index.%d", name, indexGeneration++));
+        MappedPages pages = new MappedPages(file, INDEX_SLOTS_PER_PAGE * Long.BYTES);
+        final int numPages = (int) ((capacity + INDEX_SLOTS_PER_PAGE - 1) / INDEX_SLOTS_PER_PAGE);
+        pages.page(numPages - 1);
+        return pages;
+    }
+
+    private long readSlot(long slot) {
+        return readSlot(index, slot);
+    }
+
+    private long readSlot(MappedPages pages, long slot) {
+        final int page = (int) (slot / INDEX_SLOTS_PER_PAGE);
+        final int position = (int) (slot % INDEX_SLOTS_PER_PAGE) * Long.BYTES;
+        return pages.page(page).getLong(position);
+    }
+
+    private void writeSlot(long slot, long entry) {
+        final int page = (int) (slot / INDEX_SLOTS_PER_PAGE);
+        final int position = (int) (slot % INDEX_SLOTS_PER_PAGE) * Long.BYTES;
+        index.page(page).putLong(position, entry);
+    }
+
+    /**
+     * Appends a record to the arena, moving to the next page if it doesn't fit in the current one
+     *
+     * @return the arena offset of the record
+     */
+    private long append(byte[] key, byte[] value) {
+        final int recordSize = 2 * Integer.BYTES + key.length + value.length;
+        Preconditions.checkArgument(recordSize <= arenaPageSize,
+                "Record of %s bytes exceeds the store page size of %s bytes", recordSize,
+                arenaPageSize);
+        int page = (int) (arenaSize / arenaPageSize);
+        int position = (int) (arenaSize % arenaPageSize);
+        if (position + recordSize > arenaPageSize) {
+            page++;
+            position = 0;
+        }
+        final long offset = (long) page * arenaPageSize + position;
+        Preconditions.checkState(offset <= OFFSET_MASK - 1, "Store %s is full", name);
+
+        ByteBuffer buff = arena.page(page).duplicate();
+        buff.position(position);
+        buff.putInt(key.length);
+        buff.put(key);
+        buff.putInt(value.length);
+        buff.put(value);
+        arenaSize = offset + recordSize;
+        return offset;
+    }
+
+    private boolean keyEquals(long offset, byte[] key) {
+        final MappedByteBuffer page = arena.page((int) (offset / arenaPageSize));
+        final int position = (int) (offset % arenaPageSize);
+        final int keyLength = page.getInt(position);
+        if (keyLength != key.length) {
+            return false;
+        }
+        final int keyStart = position + Integer.BYTES;
+        for (int i = 0; i < keyLength; i++) {
+            if (page.get(keyStart + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int readHash(long offset) {
+        final MappedByteBuffer page = arena.page((int) (offset / arenaPageSize));
+        final int position = (int) (offset % arenaPageSize);
+        final int keyLength = page.getInt(position);
+        final byte[] key = new byte[keyLength];
+        ByteBuffer buff = page.duplicate();
+        buff.position(position + Integer.BYTES);
+        buff.get(key);
+        return hash(key);
+    }
+
+    private byte[] readValue(long offset) {
+        final MappedByteBuffer page = arena.page((int) (offset / arenaPageSize));
+        final int position = (int) (offset % arenaPageSize);
+        final int keyLength = page.getInt(position);
+        final int valuePosition = position + Integer.BYTES + keyLength;
+        final int valueLength = page.getInt(valuePosition);
+        final byte[] value = new byte[valueLength];
+        ByteBuffer buff = page.duplicate();
+        buff.position(valuePosition + Integer.BYTES);
+        buff.get(value);
+        return value;
+    }
+
+    private static long entry(int hash, long offset) {
+        return (hashBits(hash) << OFFSET_BITS) | (offset + 1);
+    }
+
+    private static long offsetOf(long entry) {
+        return (entry & OFFSET_MASK) - 1;
+    }
+
+    private static long hashBits(int hash) {
+        return (hash >>> (Integer.SIZE - HASH_BITS)) & ((1L << HASH_BITS) - 1);
+    }
+
+    /**
+     * Spreads the hash bits not used for the in-slot hash so that consecutive keys don't cluster
+     */
+    private static long spread(int hash) {
+        long h = hash & 0xFFFFFFFFL;
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static int hash(byte[] key) {
+        // FNV-1a
+        int h = 0x811C9DC5;
+        for (int i = 0; i < key.length; i++) {
+            h ^= key[i];
+            h *= 0x01000193;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,24 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.mapped;
+
+import org.locationtech.geogig.model.internal.CanonicalClusteringStrategyTest;
+import org.locationtech.geogig.storage.ObjectStore;
+
+/**
+ * Runs the clustering strategy tests with a spill threshold low enough for most of them to switch
+ * from heap to memory mapped storage
+ */
+public class CanonicalClusteringStrategyMappedStorageTest extends CanonicalClusteringStrategyTest {
+
+    protected @Override MappedDAGStorageProvider createStorageProvider(ObjectStore source) {
+        return new MappedDAGStorageProvider(source, 100);
+    }
+}
@@ -0,0 +1,44 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.mapped;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.locationtech.geogig.model.ServiceFinder;
+import org.locationtech.geogig.model.internal.DAGStorageProviderFactory;
+
+public class MappedDAGStorageProviderFactoryTest {
+
+    public final @Test void testServicePriority() {
+        List<DAGStorageProviderFactory> services = new ServiceFinder()
+                .lookupServices(DAGStorageProviderFactory.class);
+        assertTrue(services.stream().anyMatch(MappedDAGStorageProviderFactory.class::isInstance));
+
+        DAGStorageProviderFactory defaultService = new ServiceFinder()
+                .lookupDefaultService(DAGStorageProviderFactory.class);
+        assertFalse(defaultService instanceof MappedDAGStorageProviderFactory);
+    }
+
+    public final @Test void testEnabledBySystemProperty() {
+        final String property = DAGStorageProviderFactory.ENV_VARIABLE;
+        System.setProperty(property, MappedDAGStorageProviderFactory.class.getName());
+        try {
+            assertTrue(DAGStorageProviderFactory
+                    .defaultInstance() instanceof MappedDAGStorageProviderFactory);
+        } finally {
+            System.clearProperty(property);
+        }
+    }
+
+}
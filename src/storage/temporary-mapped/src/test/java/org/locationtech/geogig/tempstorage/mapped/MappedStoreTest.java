@@ -0,0 +1,81 @@
+/* Copyright (c) 2020 Gabriel Roldan and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Distribution License v1.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/org/documents/edl-v10.html
+ *
+ * Contributors:
+ * Gabriel Roldan - initial implementation
+ */
+package org.locationtech.geogig.tempstorage.mapped;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedStoreTest {
+
+    public @Rule TemporaryFolder tmp = new TemporaryFolder();
+
+    private MappedStore store;
+
+    public @Before void before() {
+        // use a small page size to exercise records moving to the next page
+        store = new MappedStore(tmp.getRoot().toPath(), "test", 4096);
+    }
+
+    public @After void after() {
+        store.close();
+    }
+
+    public @Test void testGetMissing() {
+        assertNull(store.get(key(1)));
+        store.put(key(1), value(1));
+        assertNull(store.get(key(2)));
+    }
+
+    public @Test void testPutGet() {
+        final int size = 200_000;// forces several rehashes
+        for (int i = 0; i < size; i++) {
+            store.put(key(i), value(i));
+        }
+        assertEquals(size, store.size());
+        for (int i = 0; i < size; i++) {
+            assertArrayEquals(value(i), store.get(key(i)));
+        }
+    }
+
+    public @Test void testUpdate() {
+        store.put(key(1), value(1));
+        store.put(key(1), value(2));
+        assertEquals(1, store.size());
+        assertArrayEquals(value(2), store.get(key(1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordTooBig() {
+        store.put(key(1), new byte[4096]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() {
+        store.close();
+        store.get(key(1));
+    }
+
+    private byte[] key(int i) {
+        return ("key-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] value(int i) {
+        return ("value of key " + i).getBytes(StandardCharsets.UTF_8);
+    }
+}
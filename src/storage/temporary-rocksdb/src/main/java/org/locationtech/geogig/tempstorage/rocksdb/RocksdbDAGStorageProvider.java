@@ -51,14 +51,14 @@ class RocksdbDAGStorageProvider implements DAGStorageProvider {
         this.nodeStore = new RocksdbNodeStore(this::getOrCreateNodeDb);
     }
 
-    private RocksDB getOrCreateNodeDb() {
+    private synchronized RocksDB getOrCreateNodeDb() {
         if (nodeDb == null) {
             nodeDb = createDb("node");
         }
         return nodeDb.db;
     }
 
-    private RocksDB getOrCreateDagDb() {
+    private synchronized RocksDB getOrCreateDagDb() {
         if (dagDb == null) {
             dagDb = createDb("dag");
         }
@@ -22,6 +22,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.locationtech.geogig.model.ObjectId;
 import org.locationtech.geogig.model.internal.DAG;
 import org.locationtech.geogig.model.internal.TreeId;
+import org.locationtech.geogig.storage.datastream.DAGSerializer;
 import org.rocksdb.DBOptions;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
@@ -22,6 +22,7 @@ import java.util.function.Supplier;
 
 import org.locationtech.geogig.model.internal.DAGNode;
 import org.locationtech.geogig.model.internal.NodeId;
+import org.locationtech.geogig.storage.datastream.DAGSerializer;
 import org.rocksdb.DBOptions;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;